@@ -0,0 +1,343 @@
+package com.helianhealth.agent.benchmark;
+
+import com.helianhealth.agent.enums.MappingSource;
+import com.helianhealth.agent.enums.MappingType;
+import com.helianhealth.agent.enums.ParamType;
+import com.helianhealth.agent.enums.ProcessType;
+import com.helianhealth.agent.enums.WorkflowContentType;
+import com.helianhealth.agent.model.domain.InterfaceWorkflowDO;
+import com.helianhealth.agent.model.domain.NodeParamConfigDO;
+import com.helianhealth.agent.model.dto.ParamTreeNode;
+import com.helianhealth.agent.remote.plan.ParamPlanCompiler;
+import com.helianhealth.agent.remote.resolver.ConstantValueResolver;
+import com.helianhealth.agent.remote.resolver.ExpressionValueResolver;
+import com.helianhealth.agent.remote.resolver.NameValueResolver;
+import com.helianhealth.agent.remote.resolver.ValueResolveService;
+import com.helianhealth.agent.remote.resolver.XPathValueResolver;
+import com.helianhealth.agent.utils.JsonUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基准测试数据
+ * 所有数据都是确定性生成的,同样的参数每次得到同样的数据,不同提交之间的结果可以直接比较
+ */
+public final class BenchmarkFixtures {
+
+    /**
+     * 检验结果报文中的检验项目数
+     */
+    public static final int LAB_RESULT_ITEMS = 200;
+
+    /**
+     * 参数映射配置的字段数
+     */
+    public static final int PARAM_CONFIG_FIELDS = 300;
+
+    /**
+     * 大参数树的元素数
+     */
+    public static final int LARGE_PARAM_TREE_ELEMENTS = 10000;
+
+    private static final String[] LAB_ITEMS = {"WBC", "RBC", "HGB", "PLT", "ALT", "AST", "TBIL", "CREA", "UREA", "GLU"};
+
+    private static final int HEAD_FIELDS = 20;
+    private static final int PATIENT_FIELDS = 60;
+    private static final int ITEM_FIELDS = 20;
+    private static final int ITEM_COUNT = 30;
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * 检验结果回传的SOAP请求,报文体为普通XML
+     */
+    public static String labResultSoapRequest() {
+        StringBuilder xml = new StringBuilder(LAB_RESULT_ITEMS * 400);
+        xml.append("<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\" xmlns:hl=\"http://helianhealth.com/lis\">")
+                .append("<soap:Header/><soap:Body><hl:LabResultRequest>");
+        appendLabResult(xml);
+        xml.append("</hl:LabResultRequest></soap:Body></soap:Envelope>");
+        return xml.toString();
+    }
+
+    /**
+     * 下游检验系统的SOAP响应,业务报文放在CDATA中
+     */
+    public static String labResultSoapResponse() {
+        StringBuilder xml = new StringBuilder(LAB_RESULT_ITEMS * 400);
+        xml.append("<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\">")
+                .append("<soap:Body><MessageInResponse xmlns=\"http://tempuri.org/\"><MessageInResult><![CDATA[<Response>");
+        appendLabResult(xml);
+        xml.append("</Response>]]></MessageInResult></MessageInResponse></soap:Body></soap:Envelope>");
+        return xml.toString();
+    }
+
+    private static void appendLabResult(StringBuilder xml) {
+        xml.append("<Head><TradeCode>LIS301</TradeCode><TradeTime>2025-09-09 10:22:36</TradeTime>")
+                .append("<TradeNo>lw250909022236570167</TradeNo><SystemCode>LIS</SystemCode></Head>")
+                .append("<Body><Patient><TjSerialNo>20250909002</TjSerialNo><Name>张三</Name><Gender>1</Gender>")
+                .append("<Age>40</Age><IdCard>330102198506170011</IdCard></Patient><ResultList>");
+        for (int i = 0; i < LAB_RESULT_ITEMS; i++) {
+            String code = LAB_ITEMS[i % LAB_ITEMS.length];
+            xml.append("<Result>")
+                    .append("<ReportNo>R").append(100000 + i / 20).append("</ReportNo>")
+                    .append("<ItemCode>").append(code).append(i).append("</ItemCode>")
+                    .append("<ItemName>").append(code).append("检测").append("</ItemName>")
+                    .append("<Value>").append(3 + (i % 17) * 0.37).append("</Value>")
+                    .append("<Unit>mmol/L</Unit>")
+                    .append("<Reference>3.9-6.1</Reference>")
+                    .append("<Flag>").append(i % 9 == 0 ? "H" : "N").append("</Flag>")
+                    .append("<AuditTime>2025-09-09 09:").append(10 + i % 50).append(":00</AuditTime>")
+                    .append("<Auditor>检验科</Auditor>")
+                    .append("</Result>");
+        }
+        xml.append("</ResultList></Body>");
+    }
+
+    /**
+     * 检验结果回传工作流,解析整个SOAP信封
+     */
+    public static InterfaceWorkflowDO labResultWorkflow() {
+        return InterfaceWorkflowDO.builder()
+                .flowId(1)
+                .flowName("检验结果回传")
+                .interfaceUri("/agent-open-api/lis/result")
+                .contentType(WorkflowContentType.XML)
+                .contentMetaInfo("{\"useCdata\":false,\"resultElementName\":\"LabResultResponse\"}")
+                .firstFlowNodes(Collections.singletonList(1))
+                .status(1)
+                .build();
+    }
+
+    /**
+     * 检验结果回传工作流的SOAP响应配置
+     */
+    public static String labResultResponseMetaInfo() {
+        return "{\"responseNamespace\":\"http://tempuri.org/\",\"resultElementName\":\"MessageInResult\"}";
+    }
+
+    /**
+     * 从检验结果响应中选取的15个字段,包含最后一个检验项目,选取时需要读完整个文档
+     */
+    public static List<String> labResultResponsePaths() {
+        String last = "/Response/Body/ResultList/Result[" + LAB_RESULT_ITEMS + "]";
+        return Arrays.asList("/Response/Head/TradeCode", "/Response/Head/TradeTime", "/Response/Head/TradeNo",
+                "/Response/Head/SystemCode", "/Response/Body/Patient/TjSerialNo", "/Response/Body/Patient/Name",
+                "/Response/Body/Patient/Gender", "/Response/Body/Patient/Age", "/Response/Body/Patient/IdCard",
+                "/Response/Body/ResultList/Result[1]/ReportNo", "/Response/Body/ResultList/Result[1]/ItemCode",
+                "/Response/Body/ResultList/Result[1]/Value", last + "/ItemCode", last + "/Value", last + "/Flag");
+    }
+
+    /**
+     * 体检登记的嵌套JSON请求
+     */
+    public static String registrationJson() {
+        return readResource("/fixtures/registration.json");
+    }
+
+    /**
+     * 体检登记工作流
+     */
+    public static InterfaceWorkflowDO registrationWorkflow() {
+        return InterfaceWorkflowDO.builder()
+                .flowId(2)
+                .flowName("体检登记")
+                .interfaceUri("/agent-open-api/phy/register")
+                .contentType(WorkflowContentType.JSON)
+                .firstFlowNodes(Collections.singletonList(1))
+                .status(1)
+                .build();
+    }
+
+    /**
+     * 工作流的统一出参,用于构建JSON和SOAP响应
+     */
+    public static Map<String, Object> workflowResponse() {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("code", "0");
+        data.put("message", "成功");
+        List<Object> results = new ArrayList<>(LAB_RESULT_ITEMS);
+        for (int i = 0; i < LAB_RESULT_ITEMS; i++) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("ItemCode", LAB_ITEMS[i % LAB_ITEMS.length] + i);
+            result.put("Status", i % 13 == 0 ? "FAILED" : "OK");
+            result.put("Message", i % 13 == 0 ? "项目不存在" : null);
+            results.add(result);
+        }
+        data.put("Result", results);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("LabResultResponse", data);
+        return response;
+    }
+
+    /**
+     * 参数映射配置:报文头对象、患者对象、检验项目数组和平铺字段,共{@link #PARAM_CONFIG_FIELDS}个字段
+     * 叶子字段按名称映射为主,穿插表达式映射和固定值
+     */
+    public static List<NodeParamConfigDO> paramConfigs() {
+        List<NodeParamConfigDO> configs = new ArrayList<>(PARAM_CONFIG_FIELDS);
+        int rootId = addConfig(configs, null, null, ParamType.NONE, "Request", ParamType.OBJECT, MappingType.NAME, null);
+
+        int headId = addConfig(configs, rootId, "head", ParamType.OBJECT, "Head", ParamType.OBJECT, MappingType.NAME, null);
+        addLeaves(configs, headId, "h", HEAD_FIELDS);
+
+        int patientId = addConfig(configs, rootId, "patient", ParamType.OBJECT, "Patient", ParamType.OBJECT, MappingType.NAME, null);
+        addLeaves(configs, patientId, "p", PATIENT_FIELDS);
+
+        int itemsId = addConfig(configs, rootId, "items", ParamType.ARRAY, "Items", ParamType.ARRAY, MappingType.NAME, null);
+        addLeaves(configs, itemsId, "i", ITEM_FIELDS);
+
+        addLeaves(configs, rootId, "f", PARAM_CONFIG_FIELDS - configs.size());
+        return configs;
+    }
+
+    /**
+     * 与{@link #paramConfigs()}对应的业务数据
+     */
+    public static Map<String, Object> paramSourceData() {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("head", fields("h", HEAD_FIELDS, 0));
+        data.put("patient", fields("p", PATIENT_FIELDS, 0));
+        List<Object> items = new ArrayList<>(ITEM_COUNT);
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            items.add(fields("i", ITEM_FIELDS, i));
+        }
+        data.put("items", items);
+        data.putAll(fields("f", PARAM_CONFIG_FIELDS, 0));
+        return data;
+    }
+
+    /**
+     * {@link #LARGE_PARAM_TREE_ELEMENTS}个元素的参数树:报文头加检验项目数组,每个项目一个带属性的对象和8个字段,
+     * 字段值包含中文和需要转义的字符
+     */
+    public static ParamTreeNode largeParamTree() {
+        List<ParamTreeNode> head = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            head.add(leaf(fieldName("H", i), "head-" + i));
+        }
+        List<ParamTreeNode> items = new ArrayList<>();
+        int itemCount = (LARGE_PARAM_TREE_ELEMENTS - head.size() - 3) / 10;
+        for (int row = 0; row < itemCount; row++) {
+            List<ParamTreeNode> fields = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                fields.add(leaf(fieldName("F", i), i % 4 == 3 ? "参考值<" + row + "&" + i + ">" : " value-" + row + "-" + i + " "));
+            }
+            fields.add(ParamTreeNode.builder().paramKey("Flag").paramType(ParamType.OBJECT).build());
+            items.add(ParamTreeNode.builder()
+                    .paramKey("Item")
+                    .paramType(ParamType.OBJECT)
+                    .attributeNodes(Collections.singletonList(leaf("code", LAB_ITEMS[row % LAB_ITEMS.length])))
+                    .children(fields)
+                    .build());
+        }
+        return ParamTreeNode.builder()
+                .paramKey("Request")
+                .paramType(ParamType.OBJECT)
+                .children(Arrays.asList(
+                        ParamTreeNode.builder().paramKey("Head").paramType(ParamType.OBJECT).children(head).build(),
+                        ParamTreeNode.builder().paramKey("Items").paramType(ParamType.ARRAY).children(items).build()))
+                .build();
+    }
+
+    /**
+     * 不依赖Spring容器的参数映射计划编译器
+     */
+    public static ParamPlanCompiler paramPlanCompiler() {
+        return new ParamPlanCompiler(new ValueResolveService(Arrays.asList(
+                new NameValueResolver(), new ConstantValueResolver(), new ExpressionValueResolver(), new XPathValueResolver())));
+    }
+
+    /**
+     * 解析JSON报文
+     */
+    public static Map<String, Object> parseJson(String json) {
+        return JsonUtils.toMap(json);
+    }
+
+    private static void addLeaves(List<NodeParamConfigDO> configs, Integer parentId, String prefix, int count) {
+        for (int i = 0; i < count; i++) {
+            String sourceKey = fieldName(prefix, i);
+            if (i % 7 == 6) {
+                addConfig(configs, parentId, null, ParamType.NONE, capitalize(sourceKey), ParamType.STRING,
+                        MappingType.CONSTANT, "HL");
+            } else if (i % 5 == 4) {
+                addConfig(configs, parentId, sourceKey, ParamType.STRING, capitalize(sourceKey), ParamType.STRING,
+                        MappingType.EXPRESSION, "#data == null ? '' : #data.toString().trim()");
+            } else {
+                addConfig(configs, parentId, sourceKey, ParamType.STRING, capitalize(sourceKey), ParamType.STRING,
+                        MappingType.NAME, null);
+            }
+        }
+    }
+
+    private static int addConfig(List<NodeParamConfigDO> configs, Integer parentId,
+                                 String sourceKey, ParamType sourceType,
+                                 String targetKey, ParamType targetType,
+                                 MappingType mappingType, String mappingRule) {
+        int configId = configs.size() + 1;
+        configs.add(NodeParamConfigDO.builder()
+                .configId(configId)
+                .processType(ProcessType.PRE_PROCESS)
+                .nodeId(1)
+                .parentId(parentId)
+                .sourceParamKey(sourceKey)
+                .sourceParamType(sourceType)
+                .targetParamKey(targetKey)
+                .targetParamType(targetType)
+                .sort(configId)
+                .mappingType(mappingType)
+                .mappingSource(MappingSource.RESPONSE)
+                .mappingRule(mappingRule)
+                .build());
+        return configId;
+    }
+
+    private static ParamTreeNode leaf(String key, Object value) {
+        return ParamTreeNode.builder().paramKey(key).paramType(ParamType.STRING).paramValue(value).build();
+    }
+
+    private static Map<String, Object> fields(String prefix, int count, int row) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            fields.put(fieldName(prefix, i), i % 3 == 0 ? (Object) (row * 100 + i) : " value-" + row + "-" + i + " ");
+        }
+        return fields;
+    }
+
+    private static String fieldName(String prefix, int index) {
+        return String.format("%s%03d", prefix, index);
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static String readResource(String path) {
+        try (InputStream in = BenchmarkFixtures.class.getResourceAsStream(path)) {
+            if (in == null) {
+                throw new IllegalStateException("基准测试数据不存在: " + path);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
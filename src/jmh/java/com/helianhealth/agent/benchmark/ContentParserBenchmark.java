@@ -0,0 +1,110 @@
+package com.helianhealth.agent.benchmark;
+
+import com.helianhealth.agent.model.domain.InterfaceWorkflowDO;
+import com.helianhealth.agent.schedule.ContentParser;
+import com.helianhealth.agent.schedule.XmlResponseBody;
+import com.helianhealth.agent.utils.XmlPathSelector;
+import com.helianhealth.agent.utils.XmlUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 报文解析与响应构建基准测试
+ * 覆盖开放接口入口的请求解析、出口的响应构建以及SOAP节点的响应解析
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContentParserBenchmark {
+
+    private ContentParser contentParser;
+
+    private InterfaceWorkflowDO labResultWorkflow;
+    private InterfaceWorkflowDO registrationWorkflow;
+
+    private byte[] labResultRequest;
+    private String labResultResponse;
+    private String labResultResponseMetaInfo;
+    private List<XmlPathSelector> labResultResponseSelectors;
+    private byte[] registrationRequest;
+
+    private Map<String, Object> workflowResponse;
+    private ByteArrayOutputStream responseOut;
+
+    @Setup
+    public void setUp() {
+        contentParser = new ContentParser();
+        labResultWorkflow = BenchmarkFixtures.labResultWorkflow();
+        registrationWorkflow = BenchmarkFixtures.registrationWorkflow();
+        labResultRequest = BenchmarkFixtures.labResultSoapRequest().getBytes(StandardCharsets.UTF_8);
+        labResultResponse = BenchmarkFixtures.labResultSoapResponse();
+        labResultResponseMetaInfo = BenchmarkFixtures.labResultResponseMetaInfo();
+        labResultResponseSelectors = BenchmarkFixtures.labResultResponsePaths().stream()
+                .map(XmlPathSelector::compile)
+                .collect(Collectors.toList());
+        registrationRequest = BenchmarkFixtures.registrationJson().getBytes(StandardCharsets.UTF_8);
+        workflowResponse = BenchmarkFixtures.workflowResponse();
+        responseOut = new ByteArrayOutputStream(1 << 16);
+    }
+
+    /**
+     * 请求体从内存中的输入流读取,模拟servlet的请求体输入流
+     */
+    @Benchmark
+    public Map<String, Object> parseSoapRequest() {
+        return contentParser.parseRequest(labResultWorkflow, new ByteArrayInputStream(labResultRequest), null);
+    }
+
+    @Benchmark
+    public Map<String, Object> parseJsonRequest() {
+        return contentParser.parseRequest(registrationWorkflow, new ByteArrayInputStream(registrationRequest), null);
+    }
+
+    /**
+     * XML响应写入复用的输出流,模拟写入servlet响应
+     */
+    @Benchmark
+    public int buildSoapResponse() throws IOException {
+        responseOut.reset();
+        ((XmlResponseBody) contentParser.responseBuilder(labResultWorkflow, workflowResponse)).writeTo(responseOut);
+        return responseOut.size();
+    }
+
+    @Benchmark
+    public Object buildJsonResponse() {
+        return contentParser.responseBuilder(registrationWorkflow, workflowResponse);
+    }
+
+    @Benchmark
+    public Map<String, Object> parseSoapResponse() {
+        return XmlUtils.parseResponseXml(labResultResponse, labResultResponseMetaInfo);
+    }
+
+    /**
+     * 后置参数只依赖XPath映射时,按路径选取字段,不转换为Map
+     */
+    @Benchmark
+    public Map<String, String> selectSoapResponsePaths() {
+        return XmlUtils.selectResponsePaths(labResultResponse, labResultResponseMetaInfo, labResultResponseSelectors);
+    }
+}
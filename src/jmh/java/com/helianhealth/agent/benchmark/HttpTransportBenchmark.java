@@ -0,0 +1,186 @@
+package com.helianhealth.agent.benchmark;
+
+import com.helianhealth.agent.config.EngineExecutorConfig;
+import com.helianhealth.agent.config.EngineProperties;
+import com.helianhealth.agent.config.HttpClientProperties;
+import com.helianhealth.agent.config.ResilienceProperties;
+import com.helianhealth.agent.enums.NodeType;
+import com.helianhealth.agent.mapper.agent.InterfaceFlowNodeMapper;
+import com.helianhealth.agent.mapper.agent.InterfaceWorkflowMapper;
+import com.helianhealth.agent.mapper.agent.NodeParamConfigMapper;
+import com.helianhealth.agent.model.domain.InterfaceWorkflowNodeDO;
+import com.helianhealth.agent.registry.WorkflowDefinitionRegistry;
+import com.helianhealth.agent.remote.cache.NodeResponseCache;
+import com.helianhealth.agent.remote.coalesce.RequestCoalescer;
+import com.helianhealth.agent.remote.hedge.HedgedInvoker;
+import com.helianhealth.agent.remote.helper.ResponseConvertHelper;
+import com.helianhealth.agent.remote.http.HttpClientProxy;
+import com.helianhealth.agent.remote.http.HttpRequestHandler;
+import com.helianhealth.agent.remote.resilience.NodeResilienceGuard;
+import com.helianhealth.agent.utils.JsonUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP节点传输方式基准测试
+ * 本地桩服务固定延迟后响应,每次调用向引擎的节点执行线程池提交{@link #IN_FLIGHT}次HttpClientProxy.doInvoke,
+ * 与工作流执行节点时的线程模型一致;两种传输下节点执行线程都要等到响应到达,在途请求数都受限于线程池大小,
+ * 对比的是同一线程模型下连接管理和收发方式的差异
+ * 桩服务默认最多保留200个空闲连接,多出的连接会被关闭,需要调大以复用全部连接
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.maxIdleConnections=1000")
+@State(Scope.Benchmark)
+public class HttpTransportBenchmark {
+
+    private static final int IN_FLIGHT = 500;
+
+    private static final String REQUEST_BODY = "{\"seq\":1}";
+
+    private static final byte[] RESPONSE = "{\"code\":\"0\",\"message\":\"成功\"}".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * 桩服务响应延迟,模拟下游处理耗时
+     */
+    @Param({"20"})
+    public int latencyMillis;
+
+    /**
+     * 节点metaInfo中的transport配置
+     */
+    @Param({"BLOCKING", "ASYNC"})
+    public String transport;
+
+    private HttpServer server;
+    private ScheduledExecutorService responder;
+    private ThreadPoolTaskExecutor flowNodeExecutor;
+    private ThreadPoolTaskExecutor hedgeExecutor;
+    private HttpRequestHandler requestHandler;
+    private HttpClientProxy clientProxy;
+    private InterfaceWorkflowNodeDO flowNode;
+
+    @Setup
+    public void setUp() throws IOException {
+        responder = Executors.newScheduledThreadPool(4);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), IN_FLIGHT);
+        server.createContext("/stub", exchange -> {
+            drain(exchange);
+            responder.schedule(() -> respond(exchange), latencyMillis, TimeUnit.MILLISECONDS);
+        });
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.start();
+
+        Map<String, Object> metaInfo = new LinkedHashMap<>();
+        metaInfo.put("url", "http://127.0.0.1:" + server.getAddress().getPort() + "/stub");
+        metaInfo.put("method", "POST");
+        metaInfo.put("transport", transport);
+        flowNode = InterfaceWorkflowNodeDO.builder()
+                .nodeId(1)
+                .nodeName("HTTP节点")
+                .flowId(2)
+                .nodeType(NodeType.HTTP)
+                .metaInfo(JsonUtils.toJsonString(metaInfo))
+                .build();
+
+        InterfaceWorkflowMapper workflowMapper = Mockito.mock(InterfaceWorkflowMapper.class);
+        InterfaceFlowNodeMapper flowNodeMapper = Mockito.mock(InterfaceFlowNodeMapper.class);
+        NodeParamConfigMapper paramConfigMapper = Mockito.mock(NodeParamConfigMapper.class);
+        Mockito.when(workflowMapper.selectAllWorkflows())
+                .thenReturn(Collections.singletonList(BenchmarkFixtures.registrationWorkflow()));
+        Mockito.when(flowNodeMapper.selectAllNodes(null)).thenReturn(Collections.singletonList(flowNode));
+        WorkflowDefinitionRegistry registry = new WorkflowDefinitionRegistry(workflowMapper, flowNodeMapper,
+                paramConfigMapper, BenchmarkFixtures.paramPlanCompiler());
+        registry.refresh();
+
+        HttpClientProperties properties = new HttpClientProperties();
+        properties.setMaxTotal(IN_FLIGHT);
+        properties.setMaxPerRoute(IN_FLIGHT);
+        requestHandler = new HttpRequestHandler(properties);
+
+        EngineProperties engineProperties = new EngineProperties();
+        EngineExecutorConfig executorConfig = new EngineExecutorConfig();
+        flowNodeExecutor = executorConfig.flowNodeExecutor(engineProperties);
+        flowNodeExecutor.initialize();
+        hedgeExecutor = executorConfig.hedgeExecutor(engineProperties);
+        hedgeExecutor.initialize();
+        clientProxy = new HttpClientProxy(requestHandler, new HedgedInvoker(hedgeExecutor), registry,
+                new ResponseConvertHelper(), new NodeResponseCache(), new RequestCoalescer(),
+                new NodeResilienceGuard(new ResilienceProperties()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        flowNodeExecutor.shutdown();
+        hedgeExecutor.shutdown();
+        requestHandler.destroy();
+        server.stop(0);
+        responder.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IN_FLIGHT)
+    public int invoke() throws Exception {
+        List<Future<Map<String, Object>>> responses = new ArrayList<>(IN_FLIGHT);
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            // 直接传入渲染好的请求体,只测量传输
+            responses.add(flowNodeExecutor.submit(() ->
+                    clientProxy.doInvoke(flowNode, Collections.emptyList(), REQUEST_BODY)));
+        }
+        int fields = 0;
+        for (Future<Map<String, Object>> response : responses) {
+            fields += response.get().size();
+        }
+        return fields;
+    }
+
+    private static void drain(HttpExchange exchange) throws IOException {
+        byte[] buffer = new byte[1024];
+        while (exchange.getRequestBody().read(buffer) != -1) {
+            // 读完请求体才能复用连接
+        }
+    }
+
+    private static void respond(HttpExchange exchange) {
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+            exchange.sendResponseHeaders(200, RESPONSE.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(RESPONSE);
+            }
+        } catch (IOException e) {
+            exchange.close();
+        }
+    }
+}
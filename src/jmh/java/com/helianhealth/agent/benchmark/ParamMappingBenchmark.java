@@ -0,0 +1,82 @@
+package com.helianhealth.agent.benchmark;
+
+import com.helianhealth.agent.model.dto.ParamTreeNode;
+import com.helianhealth.agent.remote.plan.ParamPlanNode;
+import com.helianhealth.agent.utils.ExpressionMapperUtils;
+import com.helianhealth.agent.utils.ParamNodeUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 参数映射基准测试
+ * 按300个字段的参数配置构建参数树、把参数树转换为XML,以及常见的SpEL映射表达式
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParamMappingBenchmark {
+
+    private static final String CARD_TYPE_EXPRESSION = "(#data[cardType] == null || #data[cardType] == '') ? #data[cardType] : "
+            + "(#data[cardType] == '2' ? '7' : (#data[cardType] == '3' ? '4' : (#data[cardType] == '4' ? '6' : "
+            + "(#data[cardType] == '5' ? '3' : #data[cardType]))))";
+
+    private StubClientProxy clientProxy;
+    private List<ParamPlanNode> plan;
+    private Map<String, Object> sourceData;
+    private ParamTreeNode paramTree;
+    private Map<String, Object> patient;
+
+    @Setup
+    public void setUp() {
+        clientProxy = new StubClientProxy(null);
+        plan = BenchmarkFixtures.paramPlanCompiler().compile(BenchmarkFixtures.paramConfigs());
+        sourceData = BenchmarkFixtures.paramSourceData();
+        paramTree = clientProxy.build(plan, sourceData).get(0);
+
+        patient = new HashMap<>();
+        patient.put("name", "张三");
+        patient.put("cardType", "3");
+        patient.put("idCard", "330102198506170011");
+    }
+
+    @Benchmark
+    public List<ParamTreeNode> buildParamTree() {
+        return clientProxy.build(plan, sourceData);
+    }
+
+    @Benchmark
+    public String paramNodeToXml() {
+        return ParamNodeUtils.paramNodeDTO2Xml(paramTree);
+    }
+
+    @Benchmark
+    public Object nameExpression() {
+        return ExpressionMapperUtils.parser("#data[name]", patient, null);
+    }
+
+    @Benchmark
+    public Object conditionalExpression() {
+        return ExpressionMapperUtils.parser(CARD_TYPE_EXPRESSION, patient, null);
+    }
+
+    @Benchmark
+    public Object sourceExpression() {
+        return ExpressionMapperUtils.parser("#source[patient][p001]", patient, sourceData);
+    }
+}
@@ -0,0 +1,122 @@
+package com.helianhealth.agent.benchmark;
+
+import com.helianhealth.agent.enums.ParamType;
+import com.helianhealth.agent.model.dto.ParamTreeNode;
+import com.helianhealth.agent.utils.ParamNodeUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 参数树序列化为XML的基准测试
+ * {@link BenchmarkFixtures#LARGE_PARAM_TREE_ELEMENTS}个元素的参数树,对比原来的StringBuilder拼接(先生成字符串再编码为字节)
+ * 与直接写入输出流的XMLStreamWriter实现,输出流每次复用,模拟写入连接
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParamXmlBenchmark {
+
+    private ParamTreeNode paramTree;
+    private ByteArrayOutputStream out;
+
+    @Setup
+    public void setUp() {
+        paramTree = BenchmarkFixtures.largeParamTree();
+        out = new ByteArrayOutputStream(1 << 20);
+    }
+
+    @Benchmark
+    public int stringBuilderBaseline() {
+        out.reset();
+        byte[] bytes = legacyXml(paramTree).getBytes(StandardCharsets.UTF_8);
+        out.write(bytes, 0, bytes.length);
+        return out.size();
+    }
+
+    @Benchmark
+    public int streamIndented() throws IOException {
+        out.reset();
+        ParamNodeUtils.writeXml(paramTree, out, StandardCharsets.UTF_8, true);
+        return out.size();
+    }
+
+    @Benchmark
+    public int streamCompact() throws IOException {
+        out.reset();
+        ParamNodeUtils.writeXml(paramTree, out, StandardCharsets.UTF_8, false);
+        return out.size();
+    }
+
+    @Benchmark
+    public String toXmlString() {
+        return ParamNodeUtils.paramNodeDTO2Xml(paramTree);
+    }
+
+    /**
+     * 原来的StringBuilder实现,作为对比基线,不做转义
+     */
+    private static String legacyXml(ParamTreeNode node) {
+        StringBuilder xml = new StringBuilder();
+        legacyXml(node, xml, 0);
+        return xml.toString();
+    }
+
+    private static void legacyXml(ParamTreeNode node, StringBuilder xml, int indent) {
+        String tagName = node.getParamKey();
+        ParamType paramType = node.getParamType();
+        addIndent(xml, indent);
+        xml.append("<").append(tagName);
+        List<ParamTreeNode> attributeNodes = node.getAttributeNodes();
+        if (attributeNodes != null) {
+            for (ParamTreeNode attrNode : attributeNodes) {
+                if (attrNode.getParamType() == ParamType.STRING && attrNode.getParamValue() != null) {
+                    xml.append(" ").append(attrNode.getParamKey()).append("=\"")
+                            .append(attrNode.getParamValue().toString()).append("\"");
+                }
+            }
+        }
+        boolean isSelfClosing = (node.getChildren() == null || node.getChildren().isEmpty())
+                && node.getParamValue() == null && paramType != ParamType.STRING;
+        if (isSelfClosing) {
+            xml.append("/>\n");
+        } else if (paramType == ParamType.OBJECT || paramType == ParamType.ARRAY) {
+            xml.append(">");
+            List<ParamTreeNode> children = node.getChildren();
+            if (children != null && !children.isEmpty()) {
+                xml.append("\n");
+                for (ParamTreeNode child : children) {
+                    legacyXml(child, xml, indent + 1);
+                }
+                addIndent(xml, indent);
+            }
+            xml.append("</").append(tagName).append(">\n");
+        } else if (node.getParamValue() != null) {
+            xml.append(">").append(node.getParamValue().toString()).append("</").append(tagName).append(">\n");
+        } else {
+            xml.append("/>\n");
+        }
+    }
+
+    private static void addIndent(StringBuilder xml, int indent) {
+        for (int i = 0; i < indent * 4; i++) {
+            xml.append(" ");
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.helianhealth.agent.benchmark;
+
+import com.helianhealth.agent.schedule.ResultMerger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多个终止节点结果合并的基准测试
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResultMergeBenchmark {
+
+    /**
+     * 参与合并的节点结果数
+     */
+    @Param({"2", "8", "32"})
+    public int branches;
+
+    private List<Map<String, Object>> results;
+
+    @Setup
+    public void setUp() {
+        results = new ArrayList<>(branches);
+        for (int branch = 0; branch < branches; branch++) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("code", "0");
+            result.put("message", "成功");
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("tjSerialNo", "20250909002");
+            data.put("branch", branch);
+            List<Object> items = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("itemCode", branch * 100 + i);
+                item.put("status", "OK");
+                items.add(item);
+            }
+            data.put("items", items);
+            result.put("data", data);
+            results.add(result);
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> merge() {
+        return ResultMerger.merge(results);
+    }
+}
@@ -0,0 +1,53 @@
+package com.helianhealth.agent.benchmark;
+
+import com.helianhealth.agent.config.ResilienceProperties;
+import com.helianhealth.agent.model.domain.InterfaceWorkflowNodeDO;
+import com.helianhealth.agent.model.dto.ParamTreeNode;
+import com.helianhealth.agent.registry.WorkflowDefinitionRegistry;
+import com.helianhealth.agent.remote.cache.NodeResponseCache;
+import com.helianhealth.agent.remote.coalesce.RequestCoalescer;
+import com.helianhealth.agent.remote.helper.ResponseConvertHelper;
+import com.helianhealth.agent.remote.http.HttpClientProxy;
+import com.helianhealth.agent.remote.plan.ParamPlanNode;
+import com.helianhealth.agent.remote.resilience.NodeResilienceGuard;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 下游调用打桩的HTTP客户端代理
+ * 参数前置、后置处理与线上一致,远程调用直接返回固定响应,基准测试不依赖网络和数据库
+ */
+class StubClientProxy extends HttpClientProxy {
+
+    StubClientProxy(WorkflowDefinitionRegistry definitionRegistry) {
+        super(null, null, definitionRegistry, new ResponseConvertHelper(), new NodeResponseCache(), new RequestCoalescer(),
+                new NodeResilienceGuard(new ResilienceProperties()));
+    }
+
+    /**
+     * 构建参数树,不需要注册中心
+     */
+    List<ParamTreeNode> build(List<ParamPlanNode> plan, Map<String, Object> businessData) {
+        return buildParamTree(plan, businessData, businessData);
+    }
+
+    /**
+     * 与remoteInvoke相同的处理流程,不经过AOP代理
+     */
+    Map<String, Object> invoke(InterfaceWorkflowNodeDO flowNode, Map<String, Object> businessData) {
+        List<ParamTreeNode> params = preProcess(flowNode, businessData);
+        return postProcess(flowNode, doInvoke(flowNode, params), businessData);
+    }
+
+    @Override
+    public Map<String, Object> doInvoke(InterfaceWorkflowNodeDO flowNode, List<ParamTreeNode> params) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("code", "0");
+        response.put("message", "成功");
+        response.put("nodeId", flowNode.getNodeId());
+        response.put("paramCount", params.size());
+        return response;
+    }
+}
@@ -0,0 +1,188 @@
+package com.helianhealth.agent.benchmark;
+
+import com.helianhealth.agent.common.PageList;
+import com.helianhealth.agent.config.EngineProperties;
+import com.helianhealth.agent.config.FlowContextTaskDecorator;
+import com.helianhealth.agent.controller.request.workflownode.WorkflowNodeCreateReq;
+import com.helianhealth.agent.controller.workflow.reponse.NodeParamConfigExportResponse;
+import com.helianhealth.agent.enums.MappingSource;
+import com.helianhealth.agent.enums.MappingType;
+import com.helianhealth.agent.enums.NodeType;
+import com.helianhealth.agent.enums.ParamType;
+import com.helianhealth.agent.enums.ProcessType;
+import com.helianhealth.agent.enums.ScheduleParamSourceType;
+import com.helianhealth.agent.mapper.agent.InterfaceFlowNodeMapper;
+import com.helianhealth.agent.mapper.agent.InterfaceWorkflowMapper;
+import com.helianhealth.agent.mapper.agent.NodeParamConfigMapper;
+import com.helianhealth.agent.model.domain.InterfaceWorkflowNodeDO;
+import com.helianhealth.agent.model.domain.NodeParamConfigDO;
+import com.helianhealth.agent.registry.WorkflowDefinitionRegistry;
+import com.helianhealth.agent.schedule.BusinessDataPostProcessor;
+import com.helianhealth.agent.schedule.NodeSplitInvoker;
+import com.helianhealth.agent.schedule.WorkFlowEngineScheduler;
+import com.helianhealth.agent.service.InterfaceWorkflowNodeService;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 工作流调度基准测试
+ * 首节点按300个字段的配置映射入参,成功后并发调度两个后继节点,下游调用打桩返回固定响应
+ * 注册中心的数据来自桩Mapper,不连接数据库
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WorkflowDispatchBenchmark {
+
+    private ThreadPoolTaskExecutor executor;
+    private WorkFlowEngineScheduler scheduler;
+    private List<Integer> firstFlowNodes;
+    private Map<String, Object> businessData;
+
+    @Setup
+    public void setUp() {
+        InterfaceWorkflowMapper workflowMapper = Mockito.mock(InterfaceWorkflowMapper.class);
+        InterfaceFlowNodeMapper flowNodeMapper = Mockito.mock(InterfaceFlowNodeMapper.class);
+        NodeParamConfigMapper paramConfigMapper = Mockito.mock(NodeParamConfigMapper.class);
+        Mockito.when(workflowMapper.selectAllWorkflows())
+                .thenReturn(Collections.singletonList(BenchmarkFixtures.registrationWorkflow()));
+        Mockito.when(flowNodeMapper.selectAllNodes(null)).thenReturn(Arrays.asList(
+                node(1, "#data[code] == '0' ? T(java.util.Arrays).asList(2, 3) : null"),
+                node(2, null),
+                node(3, null)));
+        List<NodeParamConfigDO> configs = new ArrayList<>(BenchmarkFixtures.paramConfigs());
+        for (int nodeId = 1; nodeId <= 3; nodeId++) {
+            configs.add(responseConfig(configs.size() + 1, nodeId, "code"));
+            configs.add(responseConfig(configs.size() + 1, nodeId, "message"));
+        }
+        Mockito.when(paramConfigMapper.selectAllParamConfig(null, null)).thenReturn(configs);
+
+        WorkflowDefinitionRegistry registry = new WorkflowDefinitionRegistry(workflowMapper, flowNodeMapper,
+                paramConfigMapper, BenchmarkFixtures.paramPlanCompiler());
+        registry.refresh();
+
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(8);
+        executor.setMaxPoolSize(8);
+        executor.setThreadNamePrefix("bench-flow-");
+        executor.setTaskDecorator(new FlowContextTaskDecorator(true));
+        executor.initialize();
+
+        EngineProperties engineProperties = new EngineProperties();
+        InterfaceWorkflowNodeService flowNodeService = new StubFlowNodeService(new StubClientProxy(registry));
+        scheduler = new WorkFlowEngineScheduler(flowNodeService, new BusinessDataPostProcessor(), registry,
+                engineProperties, executor, new NodeSplitInvoker(flowNodeService, engineProperties, executor));
+
+        firstFlowNodes = Collections.singletonList(1);
+        businessData = BenchmarkFixtures.paramSourceData();
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public Map<String, Object> schedule() {
+        return scheduler.schedule(firstFlowNodes, businessData);
+    }
+
+    private static InterfaceWorkflowNodeDO node(int nodeId, String scheduleExpr) {
+        return InterfaceWorkflowNodeDO.builder()
+                .nodeId(nodeId)
+                .nodeName("节点" + nodeId)
+                .flowId(2)
+                .nodeType(NodeType.HTTP)
+                .scheduleExpr(scheduleExpr)
+                .scheduleParamSourceType(ScheduleParamSourceType.ORIGINAL)
+                .build();
+    }
+
+    private static NodeParamConfigDO responseConfig(int configId, int nodeId, String key) {
+        return NodeParamConfigDO.builder()
+                .configId(configId)
+                .processType(ProcessType.POST_PROCESS)
+                .nodeId(nodeId)
+                .sourceParamKey(key)
+                .sourceParamType(ParamType.STRING)
+                .targetParamKey(key)
+                .targetParamType(ParamType.STRING)
+                .sort(configId)
+                .mappingType(MappingType.NAME)
+                .mappingSource(MappingSource.RESPONSE)
+                .build();
+    }
+
+    /**
+     * 节点执行直接走打桩的客户端代理
+     */
+    private static class StubFlowNodeService implements InterfaceWorkflowNodeService {
+
+        private final StubClientProxy clientProxy;
+
+        StubFlowNodeService(StubClientProxy clientProxy) {
+            this.clientProxy = clientProxy;
+        }
+
+        @Override
+        public Map<String, Object> executeFlowNode(InterfaceWorkflowNodeDO flowNode, Map<String, Object> businessData) {
+            return clientProxy.invoke(flowNode, businessData);
+        }
+
+        @Override
+        public InterfaceWorkflowNodeDO selectByNodeId(Integer nodeId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public PageList<InterfaceWorkflowNodeDO> getAllNodes(Integer flowId, int pageNum, int pageSize) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<InterfaceWorkflowNodeDO> getAllNodesWithoutPaged() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int save(WorkflowNodeCreateReq nodeCreateReq) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int update(InterfaceWorkflowNodeDO flowNodeDO) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void deleteByNodeId(Integer nodeId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public NodeParamConfigExportResponse exportNodeParamConfig(Integer nodeId) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
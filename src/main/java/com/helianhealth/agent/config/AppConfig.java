@@ -1,5 +1,6 @@
 package com.helianhealth.agent.config;
 
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
@@ -11,4 +12,23 @@ public class AppConfig {
     public RestTemplate restTemplate() {
         return new RestTemplate();
     }
+
+    /**
+     * XML工作流的响应直接写入输出流,Spring Boot会把它放在默认转换器之前
+     */
+    @Bean
+    public XmlResponseBodyConverter xmlResponseBodyConverter() {
+        return new XmlResponseBodyConverter();
+    }
+
+    /**
+     * 开放接口支持压缩的请求体
+     */
+    @Bean
+    public FilterRegistrationBean<RequestDecompressionFilter> requestDecompressionFilter(EngineProperties engineProperties) {
+        FilterRegistrationBean<RequestDecompressionFilter> registration = new FilterRegistrationBean<>(
+                new RequestDecompressionFilter(engineProperties.getDispatch().getMaxDecompressedSize().toBytes()));
+        registration.addUrlPatterns("/agent-open-api/*");
+        return registration;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.helianhealth.agent.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 工作流引擎线程池配置
+ */
+@Configuration
+public class EngineExecutorConfig {
+
+    /**
+     * 并行节点执行线程池
+     * 队列满时由提交线程自己执行,保证任务不会被丢弃,此时该节点的执行不受工作流总耗时上限约束
+     */
+    @Bean(name = "flowNodeExecutor")
+    public ThreadPoolTaskExecutor flowNodeExecutor(EngineProperties engineProperties) {
+        return buildExecutor(engineProperties.getParallel(), "flow-node-", true, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * 节点拆分批次执行线程池
+     */
+    @Bean(name = "splitExecutor")
+    public ThreadPoolTaskExecutor splitExecutor(EngineProperties engineProperties) {
+        return buildExecutor(engineProperties.getSplit(), "flow-split-", true, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * 对冲请求线程池
+     * 队列满时直接拒绝,不发送对冲请求,首次调用在调用线程上直接执行;不能由调用线程执行对冲请求,否则会阻塞等待
+     */
+    @Bean(name = "hedgeExecutor")
+    public ThreadPoolTaskExecutor hedgeExecutor(EngineProperties engineProperties) {
+        return buildExecutor(engineProperties.getHedge(), "flow-hedge-", false, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 开放接口异步分发线程池
+     * 队列满时直接拒绝,由调用方快速返回繁忙响应,不能退回请求线程执行
+     * 分发线程不标记为引擎工作线程,调度在分发线程上仍然并行提交节点
+     */
+    @Bean(name = "dispatchExecutor")
+    public ThreadPoolTaskExecutor dispatchExecutor(EngineProperties engineProperties) {
+        return buildExecutor(engineProperties.getDispatch().getPool(), "flow-dispatch-", false, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    private ThreadPoolTaskExecutor buildExecutor(EngineProperties.Pool pool,
+                                                 String threadNamePrefix,
+                                                 boolean engineWorker,
+                                                 RejectedExecutionHandler rejectedExecutionHandler) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(pool.getCoreSize());
+        executor.setMaxPoolSize(pool.getMaxSize());
+        executor.setQueueCapacity(pool.getQueueCapacity());
+        executor.setKeepAliveSeconds((int) pool.getKeepAlive().getSeconds());
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setTaskDecorator(new FlowContextTaskDecorator(engineWorker));
+        executor.setRejectedExecutionHandler(rejectedExecutionHandler);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
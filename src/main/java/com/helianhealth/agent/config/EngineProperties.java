@@ -0,0 +1,118 @@
+package com.helianhealth.agent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 工作流引擎配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "agent.engine")
+public class EngineProperties {
+
+    /**
+     * 单次工作流执行的默认总耗时上限
+     */
+    private Duration workflowTimeout = Duration.ofSeconds(60);
+
+    /**
+     * 按接口URI单独配置的总耗时上限,未配置的使用默认值
+     */
+    private Map<String, Duration> workflowTimeouts = new HashMap<>();
+
+    /**
+     * 并行节点执行线程池
+     */
+    private Pool parallel = new Pool();
+
+    /**
+     * 节点拆分调用线程池,与并行节点线程池分开,避免节点线程等待拆分批次时占满线程池
+     */
+    private Pool split = new Pool();
+
+    /**
+     * 拆分规则未配置parallelism时,单个节点同时执行的批次数上限
+     */
+    private int splitParallelism = 4;
+
+    /**
+     * 对冲请求线程池,开启对冲的节点的调用都在该线程池中执行
+     */
+    private Pool hedge = new Pool();
+
+    /**
+     * 开放接口异步分发配置
+     */
+    private Dispatch dispatch = new Dispatch();
+
+    public Duration resolveWorkflowTimeout(String interfaceUri) {
+        Duration timeout = interfaceUri == null ? null : workflowTimeouts.get(interfaceUri);
+        return timeout != null ? timeout : workflowTimeout;
+    }
+
+    @Data
+    public static class Dispatch {
+
+        /**
+         * 是否异步分发,关闭时在请求线程中同步执行工作流
+         */
+        private boolean async = true;
+
+        /**
+         * 分发线程池,线程池满时直接拒绝请求,不占用请求线程
+         */
+        private Pool pool = new Pool();
+
+        /**
+         * 单个接口URI同时排队和执行的请求数上限
+         */
+        private int queueDepth = 100;
+
+        /**
+         * 单个请求的默认超时时间,超时后立即响应并取消工作流执行
+         */
+        private Duration timeout = Duration.ofSeconds(90);
+
+        /**
+         * 按接口URI单独配置的排队上限
+         */
+        private Map<String, Integer> queueDepths = new HashMap<>();
+
+        /**
+         * 按接口URI单独配置的超时时间
+         */
+        private Map<String, Duration> timeouts = new HashMap<>();
+
+        /**
+         * 压缩请求(Content-Encoding为gzip或deflate)解压后的请求体大小上限
+         */
+        private DataSize maxDecompressedSize = DataSize.ofMegabytes(20);
+
+        public int resolveQueueDepth(String interfaceUri) {
+            return queueDepths.getOrDefault(interfaceUri, queueDepth);
+        }
+
+        public Duration resolveTimeout(String interfaceUri) {
+            return timeouts.getOrDefault(interfaceUri, timeout);
+        }
+    }
+
+    @Data
+    public static class Pool {
+
+        private int coreSize = 8;
+
+        private int maxSize = 32;
+
+        private int queueCapacity = 200;
+
+        private Duration keepAlive = Duration.ofSeconds(60);
+    }
+}
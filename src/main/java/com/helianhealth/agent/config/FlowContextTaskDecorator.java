@@ -0,0 +1,65 @@
+package com.helianhealth.agent.config;
+
+import com.helianhealth.agent.log.aspect.FlowNodeLogAspect;
+import org.slf4j.MDC;
+import org.springframework.core.task.TaskDecorator;
+
+import java.util.Map;
+
+/**
+ * 工作流线程上下文传递
+ * 把提交线程的MDC和节点日志上下文带到工作线程,执行结束后恢复工作线程原有的上下文,避免线程复用时串数据
+ * 只有执行引擎节点任务的线程池标记引擎工作线程,分发等外层线程池只传递上下文,调度仍然并行提交节点
+ */
+public class FlowContextTaskDecorator implements TaskDecorator {
+
+    private static final ThreadLocal<Boolean> ENGINE_WORKER = new ThreadLocal<>();
+
+    private final boolean engineWorker;
+
+    /**
+     * @param engineWorker 执行任务时是否标记为引擎工作线程
+     */
+    public FlowContextTaskDecorator(boolean engineWorker) {
+        this.engineWorker = engineWorker;
+    }
+
+    /**
+     * 当前线程是否正在执行引擎提交的任务
+     */
+    public static boolean isEngineWorker() {
+        return Boolean.TRUE.equals(ENGINE_WORKER.get());
+    }
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        Map<String, String> callerMdc = MDC.getCopyOfContextMap();
+        Runnable task = FlowNodeLogAspect.wrap(runnable);
+        return () -> {
+            Map<String, String> previousMdc = MDC.getCopyOfContextMap();
+            Boolean previousWorker = ENGINE_WORKER.get();
+            setMdc(callerMdc);
+            if (engineWorker) {
+                ENGINE_WORKER.set(Boolean.TRUE);
+            }
+            try {
+                task.run();
+            } finally {
+                setMdc(previousMdc);
+                if (previousWorker == null) {
+                    ENGINE_WORKER.remove();
+                } else {
+                    ENGINE_WORKER.set(previousWorker);
+                }
+            }
+        };
+    }
+
+    private static void setMdc(Map<String, String> contextMap) {
+        if (contextMap == null) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(contextMap);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.helianhealth.agent.config;
+
+import lombok.Data;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * HTTP节点客户端配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "agent.http")
+public class HttpClientProperties {
+
+    /**
+     * 默认传输方式,节点metaInfo中的transport优先
+     */
+    private Transport transport = Transport.BLOCKING;
+
+    /**
+     * 异步客户端的协议版本策略,NEGOTIATE在TLS上通过ALPN协商HTTP/2,不支持时回退到HTTP/1.1连接池
+     */
+    private HttpVersionPolicy versionPolicy = HttpVersionPolicy.NEGOTIATE;
+
+    /**
+     * 以下为默认连接池配置,节点metaInfo中poolProfile指定的连接池未配置的项使用默认值
+     * 最大连接数
+     */
+    private int maxTotal = 200;
+
+    /**
+     * 每个路由的最大连接数
+     */
+    private int maxPerRoute = 20;
+
+    /**
+     * 连接超时时间
+     */
+    private Duration connectTimeout = Duration.ofSeconds(10);
+
+    /**
+     * 响应超时时间
+     */
+    private Duration responseTimeout = Duration.ofSeconds(10);
+
+    /**
+     * 从连接池获取连接的超时时间
+     */
+    private Duration connectionRequestTimeout = Duration.ofSeconds(10);
+
+    /**
+     * 连接保持时间,为空时使用服务端Keep-Alive响应头
+     */
+    private Duration keepAlive;
+
+    /**
+     * 空闲连接超过该时间后被后台清理
+     */
+    private Duration idleEviction = Duration.ofSeconds(60);
+
+    /**
+     * 异步客户端的IO线程数
+     */
+    private int ioThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 响应体最大大小,超过时中止读取并视为调用失败
+     */
+    private DataSize maxResponseSize = DataSize.ofMegabytes(20);
+
+    /**
+     * 日志中记录的请求体和响应体最大长度,超出部分截断
+     */
+    private int logPayloadLimit = 2048;
+
+    /**
+     * 按名称配置的连接池,每个连接池在首次使用时创建
+     */
+    private Map<String, PoolProfile> profiles = new HashMap<>();
+
+    /**
+     * 获取连接池配置,未配置的项使用默认值
+     */
+    public PoolProfile resolveProfile(String name) {
+        PoolProfile profile = profiles.get(name);
+        PoolProfile resolved = new PoolProfile();
+        resolved.setMaxTotal(profile != null && profile.getMaxTotal() != null ? profile.getMaxTotal() : maxTotal);
+        resolved.setMaxPerRoute(profile != null && profile.getMaxPerRoute() != null ? profile.getMaxPerRoute() : maxPerRoute);
+        resolved.setConnectTimeout(profile != null && profile.getConnectTimeout() != null
+                ? profile.getConnectTimeout() : connectTimeout);
+        resolved.setResponseTimeout(profile != null && profile.getResponseTimeout() != null
+                ? profile.getResponseTimeout() : responseTimeout);
+        resolved.setConnectionRequestTimeout(profile != null && profile.getConnectionRequestTimeout() != null
+                ? profile.getConnectionRequestTimeout() : connectionRequestTimeout);
+        resolved.setKeepAlive(profile != null && profile.getKeepAlive() != null ? profile.getKeepAlive() : keepAlive);
+        resolved.setIdleEviction(profile != null && profile.getIdleEviction() != null
+                ? profile.getIdleEviction() : idleEviction);
+        return resolved;
+    }
+
+    @Data
+    public static class PoolProfile {
+
+        /**
+         * 最大连接数
+         */
+        private Integer maxTotal;
+
+        /**
+         * 每个路由的最大连接数
+         */
+        private Integer maxPerRoute;
+
+        /**
+         * 连接超时时间
+         */
+        private Duration connectTimeout;
+
+        /**
+         * 响应超时时间
+         */
+        private Duration responseTimeout;
+
+        /**
+         * 从连接池获取连接的超时时间
+         */
+        private Duration connectionRequestTimeout;
+
+        /**
+         * 连接保持时间
+         */
+        private Duration keepAlive;
+
+        /**
+         * 空闲连接清理时间
+         */
+        private Duration idleEviction;
+    }
+
+    public enum Transport {
+
+        /**
+         * 阻塞式调用,调用期间占用调用线程
+         */
+        BLOCKING,
+
+        /**
+         * 异步调用,连接和读写由IO线程完成,支持HTTP/2多路复用
+         * 节点执行线程仍等待响应到达,在途调用数同样受节点执行线程池大小限制
+         */
+        ASYNC
+    }
+}
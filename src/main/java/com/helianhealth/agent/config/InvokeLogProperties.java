@@ -0,0 +1,79 @@
+package com.helianhealth.agent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 接口调用日志写入配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "agent.invoke-log")
+public class InvokeLogProperties {
+
+    /**
+     * 是否异步批量写入,关闭时在调用线程中逐条写入
+     */
+    private boolean async = true;
+
+    /**
+     * 待写入队列容量
+     */
+    private int queueCapacity = 10000;
+
+    /**
+     * 单次批量写入的最大条数
+     */
+    private int batchSize = 100;
+
+    /**
+     * 未攒满一批时的最长等待时间
+     */
+    private Duration flushInterval = Duration.ofSeconds(1);
+
+    /**
+     * 队列满时的处理策略
+     */
+    private OverflowPolicy overflowPolicy = OverflowPolicy.SAMPLE;
+
+    /**
+     * SAMPLE策略下队列使用率超过该比例后开始采样
+     */
+    private double sampleThreshold = 0.8;
+
+    /**
+     * SAMPLE策略下采样期间每N条保留1条
+     */
+    private int sampleRate = 10;
+
+    /**
+     * BLOCK策略下最长等待时间,超时后丢弃
+     */
+    private Duration blockTimeout = Duration.ofMillis(200);
+
+    /**
+     * 应用关闭时等待队列写完的最长时间
+     */
+    private Duration shutdownTimeout = Duration.ofSeconds(10);
+
+    public enum OverflowPolicy {
+
+        /**
+         * 队列满时直接丢弃
+         */
+        DROP,
+
+        /**
+         * 队列接近满时按比例采样保留,满时丢弃
+         */
+        SAMPLE,
+
+        /**
+         * 队列满时阻塞调用线程等待,超过blockTimeout后丢弃
+         */
+        BLOCK
+    }
+}
@@ -0,0 +1,192 @@
+package com.helianhealth.agent.config;
+
+import com.helianhealth.agent.utils.CompressionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 开放接口请求体解压
+ * 请求头Content-Encoding为gzip或deflate时,请求体在读取时边读边解压,控制器拿到的是解压后的报文
+ * 解压后的大小超过限制时中止读取,避免压缩炸弹占满内存
+ */
+@Slf4j
+public class RequestDecompressionFilter extends OncePerRequestFilter {
+
+    private final long maxDecompressedSize;
+
+    public RequestDecompressionFilter(long maxDecompressedSize) {
+        this.maxDecompressedSize = maxDecompressedSize;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String contentEncoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+        if (!CompressionUtils.isEncoded(contentEncoding)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        String encoding = contentEncoding.trim().toLowerCase();
+        if (!CompressionUtils.GZIP.equals(encoding) && !"x-gzip".equals(encoding) && !CompressionUtils.DEFLATE.equals(encoding)) {
+            log.warn("不支持的请求Content-Encoding: [{}], URI: [{}]", contentEncoding, request.getRequestURI());
+            response.sendError(HttpStatus.UNSUPPORTED_MEDIA_TYPE.value(), "不支持的Content-Encoding: " + contentEncoding);
+            return;
+        }
+        filterChain.doFilter(new DecompressingRequest(request, encoding), response);
+    }
+
+    private final class DecompressingRequest extends HttpServletRequestWrapper {
+
+        private final String encoding;
+        private ServletInputStream inputStream;
+        private BufferedReader reader;
+
+        DecompressingRequest(HttpServletRequest request, String encoding) {
+            super(request);
+            this.encoding = encoding;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (reader != null) {
+                throw new IllegalStateException("getReader()已被调用");
+            }
+            if (inputStream == null) {
+                inputStream = new DecompressingInputStream(
+                        CompressionUtils.decode(getRequest().getInputStream(), encoding), maxDecompressedSize);
+            }
+            return inputStream;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            if (reader == null) {
+                if (inputStream != null) {
+                    throw new IllegalStateException("getInputStream()已被调用");
+                }
+                String characterEncoding = getCharacterEncoding();
+                Charset charset = characterEncoding == null ? StandardCharsets.UTF_8 : Charset.forName(characterEncoding);
+                reader = new BufferedReader(new InputStreamReader(new DecompressingInputStream(
+                        CompressionUtils.decode(getRequest().getInputStream(), encoding), maxDecompressedSize), charset));
+            }
+            return reader;
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+
+        /**
+         * 下游看到的是解压后的报文,不再暴露Content-Encoding和压缩后的Content-Length
+         */
+        @Override
+        public String getHeader(String name) {
+            return isHidden(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return isHidden(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            List<String> names = Collections.list(super.getHeaderNames()).stream()
+                    .filter(name -> !isHidden(name))
+                    .collect(Collectors.toList());
+            return Collections.enumeration(names);
+        }
+
+        private boolean isHidden(String name) {
+            return HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name) || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name);
+        }
+    }
+
+    private static final class DecompressingInputStream extends ServletInputStream {
+
+        private final InputStream in;
+        private final long limit;
+        private long size;
+        private boolean finished;
+
+        DecompressingInputStream(InputStream in, long limit) {
+            this.in = in;
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b == -1) {
+                finished = true;
+            } else {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = in.read(b, off, len);
+            if (read == -1) {
+                finished = true;
+            } else {
+                count(read);
+            }
+            return read;
+        }
+
+        private void count(int read) throws IOException {
+            size += read;
+            if (size > limit) {
+                throw new IOException("解压后的请求体超过最大限制[" + limit + "]字节");
+            }
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new UnsupportedOperationException("解压的请求体不支持非阻塞读取");
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.helianhealth.agent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 节点熔断和并发隔离的默认配置,节点metaInfo中的resilience可覆盖单项配置
+ * 默认只保护在metaInfo中配置了resilience或fallback的节点
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "agent.resilience")
+public class ResilienceProperties {
+
+    /**
+     * 未配置resilience和fallback的节点是否也开启,节点可单独开启或关闭
+     */
+    private boolean enabled = false;
+
+    /**
+     * 失败率阈值(百分比),超过后熔断
+     */
+    private float failureRateThreshold = 50;
+
+    /**
+     * 慢调用率阈值(百分比),超过后熔断
+     */
+    private float slowCallRateThreshold = 80;
+
+    /**
+     * 超过该耗时的调用记为慢调用
+     */
+    private Duration slowCallDuration = Duration.ofSeconds(10);
+
+    /**
+     * 统计失败率的滑动窗口调用数
+     */
+    private int slidingWindowSize = 50;
+
+    /**
+     * 窗口内至少有该数量的调用才计算失败率
+     */
+    private int minimumNumberOfCalls = 20;
+
+    /**
+     * 熔断后等待该时间进入半开状态
+     */
+    private Duration waitDurationInOpenState = Duration.ofSeconds(30);
+
+    /**
+     * 半开状态允许的探测调用数
+     */
+    private int permittedCallsInHalfOpenState = 5;
+
+    /**
+     * 单个节点同时执行的调用数上限
+     */
+    private int maxConcurrentCalls = 50;
+
+    /**
+     * 并发数已满时等待的时间,为0时直接拒绝
+     * 突发的并发调用在等待时间内排队,不会直接失败
+     */
+    private Duration maxWaitDuration = Duration.ofSeconds(1);
+}
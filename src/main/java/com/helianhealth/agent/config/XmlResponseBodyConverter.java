@@ -0,0 +1,42 @@
+package com.helianhealth.agent.config;
+
+import com.helianhealth.agent.schedule.XmlResponseBody;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 开放接口XML响应的消息转换器,把{@link XmlResponseBody}直接写入响应输出流
+ * 只用于写响应,不参与请求体的读取
+ */
+public class XmlResponseBodyConverter extends AbstractHttpMessageConverter<XmlResponseBody> {
+
+    public XmlResponseBodyConverter() {
+        super(StandardCharsets.UTF_8, MediaType.APPLICATION_XML, MediaType.TEXT_XML);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return XmlResponseBody.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected XmlResponseBody readInternal(Class<? extends XmlResponseBody> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("XML响应不支持读取", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(XmlResponseBody body, HttpOutputMessage outputMessage) throws IOException {
+        body.writeTo(outputMessage.getBody());
+    }
+}
@@ -2,13 +2,14 @@ package com.helianhealth.agent.controller.api;
 
 import com.helianhealth.agent.common.ResultData;
 import com.helianhealth.agent.controller.request.JarvisRequest;
-import com.helianhealth.agent.schedule.FlowNodeDispatcher;
+import com.helianhealth.agent.schedule.AsyncFlowDispatcher;
 import com.helianhealth.agent.utils.ResponseModelUtils;
 import io.swagger.annotations.ApiOperation;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.MDC;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -16,15 +17,18 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.nio.charset.Charset;
 
 @RestController
 @Slf4j
 @RequiredArgsConstructor
 public class ApiController {
 
-    private final FlowNodeDispatcher dispatcherManager;
+    private final AsyncFlowDispatcher dispatcherManager;
 
     @ApiOperation(value = "健康检查")
     @GetMapping("/HLOpenApi/Hjk")
@@ -35,8 +39,9 @@ public class ApiController {
     @RequestMapping("/HLOpenApi/Hjk")
     @PostMapping
     @ResponseBody
-    public ResultData<Object> invokeJarvisApi(@RequestBody JarvisRequest request) {
+    public DeferredResult<ResultData<Object>> invokeJarvisApi(@RequestBody JarvisRequest request) {
         MDC.put("method", request.getBusinessMethod() == null ? "" : request.getBusinessMethod());
+        // MDC在提交时复制到分发线程,请求线程随即释放
         try {
             return dispatcherManager.jarvisDispatch(request);
         } finally {
@@ -52,13 +57,27 @@ public class ApiController {
             produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_XML_VALUE}
     )
     @ResponseBody
-    public String invokeOpenApi(@RequestBody String request, HttpServletRequest httpRequest) {
+    public DeferredResult<ResponseEntity<Object>> invokeOpenApi(HttpServletRequest httpRequest) throws IOException {
         String requestURI = httpRequest.getRequestURI();
         MDC.put("invokeUri", requestURI == null ? "" : requestURI);
         try {
-            return dispatcherManager.dispatch(request, requestURI);
+            // 请求体不转换为字符串,按工作流的内容类型直接从输入流解析
+            return dispatcherManager.dispatch(httpRequest.getInputStream(), resolveCharset(httpRequest), requestURI);
         } finally {
             MDC.clear();
         }
     }
+
+    /**
+     * 请求头Content-Type声明的字符集
+     * 不使用getCharacterEncoding(),CharacterEncodingFilter会把它强制设置为UTF-8
+     */
+    private String resolveCharset(HttpServletRequest httpRequest) {
+        String contentType = httpRequest.getContentType();
+        if (contentType == null) {
+            return null;
+        }
+        Charset charset = MediaType.parseMediaType(contentType).getCharset();
+        return charset == null ? null : charset.name();
+    }
 }
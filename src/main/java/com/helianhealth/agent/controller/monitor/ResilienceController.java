@@ -0,0 +1,43 @@
+package com.helianhealth.agent.controller.monitor;
+
+import com.helianhealth.agent.common.ResultData;
+import com.helianhealth.agent.remote.resilience.NodeResilienceGuard;
+import com.helianhealth.agent.utils.ResponseModelUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * 节点熔断控制器
+ */
+@RestController
+@RequestMapping("/v1/console/resilience")
+@RequiredArgsConstructor
+public class ResilienceController {
+
+    private final NodeResilienceGuard resilienceGuard;
+
+    /**
+     * 查询各节点的熔断器状态、失败率、慢调用率和隔离舱可用并发数
+     */
+    @GetMapping("/nodes")
+    public ResultData<Map<Integer, Map<String, Object>>> stats() {
+        return ResponseModelUtils.render(resilienceGuard.stats());
+    }
+
+    /**
+     * 重置节点的熔断器,用于下游恢复后立即放行调用
+     */
+    @PostMapping("/nodes/{nodeId}/reset")
+    public ResultData<Boolean> reset(@PathVariable Integer nodeId) {
+        if (!resilienceGuard.reset(nodeId)) {
+            return ResponseModelUtils.error("节点[" + nodeId + "]没有熔断器");
+        }
+        return ResponseModelUtils.render(true);
+    }
+}
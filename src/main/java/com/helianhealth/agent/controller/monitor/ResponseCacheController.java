@@ -0,0 +1,48 @@
+package com.helianhealth.agent.controller.monitor;
+
+import com.helianhealth.agent.common.ResultData;
+import com.helianhealth.agent.remote.cache.NodeResponseCache;
+import com.helianhealth.agent.utils.ResponseModelUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * 节点响应缓存控制器
+ */
+@RestController
+@RequestMapping("/v1/console/cache")
+@RequiredArgsConstructor
+public class ResponseCacheController {
+
+    private final NodeResponseCache responseCache;
+
+    /**
+     * 查询各节点的缓存统计,包括条目数、命中、未命中和淘汰次数
+     */
+    @GetMapping("/nodes")
+    public ResultData<Map<Integer, Map<String, Object>>> stats() {
+        return ResponseModelUtils.render(responseCache.stats());
+    }
+
+    /**
+     * 清空指定节点的缓存,用于下游数据变更后立即生效
+     */
+    @DeleteMapping("/nodes/{nodeId}")
+    public ResultData<Long> purge(@PathVariable Integer nodeId) {
+        return ResponseModelUtils.render(responseCache.purge(nodeId));
+    }
+
+    /**
+     * 清空所有节点的缓存
+     */
+    @DeleteMapping("/nodes")
+    public ResultData<Long> purgeAll() {
+        return ResponseModelUtils.render(responseCache.purgeAll());
+    }
+}
@@ -0,0 +1,78 @@
+package com.helianhealth.agent.controller.monitor;
+
+import com.helianhealth.agent.common.ResultData;
+import com.helianhealth.agent.log.writer.InvokeLogWriter;
+import com.helianhealth.agent.remote.coalesce.RequestCoalescer;
+import com.helianhealth.agent.remote.hedge.HedgedInvoker;
+import com.helianhealth.agent.remote.http.HttpRequestHandler;
+import com.helianhealth.agent.utils.ExpressionMapperUtils;
+import com.helianhealth.agent.utils.ResponseModelUtils;
+import com.helianhealth.agent.utils.SpelExpressionCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 运行时监控控制器
+ */
+@RestController
+@RequestMapping("/v1/console/monitor")
+@RequiredArgsConstructor
+public class RuntimeMonitorController {
+
+    private final InvokeLogWriter invokeLogWriter;
+    private final HttpRequestHandler httpRequestHandler;
+    private final RequestCoalescer requestCoalescer;
+    private final HedgedInvoker hedgedInvoker;
+
+    /**
+     * 查询SpEL表达式缓存统计
+     */
+    @GetMapping("/expressions")
+    public ResultData<Map<String, Object>> expressionStats() {
+        SpelExpressionCache cache = ExpressionMapperUtils.getExpressionCache();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", cache.size());
+        stats.put("maxSize", cache.getMaxSize());
+        stats.put("misses", cache.getMisses());
+        stats.put("evictions", cache.getEvictions());
+        stats.put("expressions", cache.stats());
+        return ResponseModelUtils.render(stats);
+    }
+
+    /**
+     * 查询接口调用日志写入统计
+     */
+    @GetMapping("/invoke-log")
+    public ResultData<Map<String, Object>> invokeLogStats() {
+        return ResponseModelUtils.render(invokeLogWriter.stats());
+    }
+
+    /**
+     * 查询HTTP连接池统计,HTTP和WebService节点共用连接池,按连接池、传输方式和路由展示租用、等待和可用连接数
+     */
+    @GetMapping("/http-pools")
+    public ResultData<Map<String, Object>> httpPoolStats() {
+        return ResponseModelUtils.render(httpRequestHandler.getPoolStats());
+    }
+
+    /**
+     * 查询下游调用合并统计,按节点展示实际调用次数和被合并的调用次数
+     */
+    @GetMapping("/coalescing")
+    public ResultData<Map<String, Object>> coalescingStats() {
+        return ResponseModelUtils.render(requestCoalescer.stats());
+    }
+
+    /**
+     * 查询节点下游调用耗时统计,按节点展示耗时分位数、对冲延迟、对冲和重试次数以及剩余重试预算
+     */
+    @GetMapping("/latency")
+    public ResultData<Map<Integer, Map<String, Object>>> latencyStats() {
+        return ResponseModelUtils.render(hedgedInvoker.stats());
+    }
+}
@@ -0,0 +1,57 @@
+package com.helianhealth.agent.controller.workflow;
+
+import com.helianhealth.agent.common.ResultData;
+import com.helianhealth.agent.registry.WorkflowDefinitionRegistry;
+import com.helianhealth.agent.registry.WorkflowDefinitionSnapshot;
+import com.helianhealth.agent.utils.ResponseModelUtils;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 工作流定义快照控制器
+ */
+@RestController
+@RequestMapping("/v1/console/registry")
+@Slf4j
+@AllArgsConstructor
+public class WorkflowRegistryController {
+
+    private final WorkflowDefinitionRegistry definitionRegistry;
+
+    /**
+     * 查询当前快照状态
+     */
+    @GetMapping("/status")
+    public ResultData<Map<String, Object>> status() {
+        return ResponseModelUtils.render(toStatus(definitionRegistry.current()));
+    }
+
+    /**
+     * 手动刷新快照,用于直接修改数据库后的同步
+     */
+    @PostMapping("/refresh")
+    public ResultData<Map<String, Object>> refresh() {
+        try {
+            return ResponseModelUtils.render(toStatus(definitionRegistry.refresh()));
+        } catch (Exception e) {
+            log.error("刷新工作流定义快照失败", e);
+            return ResponseModelUtils.error("刷新工作流定义快照失败: " + e.getMessage());
+        }
+    }
+
+    private Map<String, Object> toStatus(WorkflowDefinitionSnapshot snapshot) {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("version", snapshot.getVersion());
+        status.put("buildTime", snapshot.getBuildTime());
+        status.put("workflowCount", snapshot.getWorkflowCount());
+        status.put("nodeCount", snapshot.getNodeCount());
+        return status;
+    }
+}
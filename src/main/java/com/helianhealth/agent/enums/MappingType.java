@@ -31,5 +31,10 @@ public enum MappingType {
     /**
      * 直接映射,兼容数组的情况
      */
-    DIRECT
+    DIRECT,
+
+    /**
+     * XML路径:mappingRule为XPath的子集,直接从节点响应的XML中选取值,不依赖响应转换后的Map
+     */
+    XPATH
 }
@@ -43,6 +43,16 @@ public enum ParamType {
      */
     PURE_ARRAY,
 
+    /**
+     * XML片段,写入XML时原样输出不转义,值必须是格式正确的XML
+     */
+    XML,
+
+    /**
+     * 写入XML时放在CDATA段中的字符串
+     */
+    CDATA,
+
     /**
      * 无
      */
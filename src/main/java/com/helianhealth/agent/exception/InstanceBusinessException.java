@@ -7,7 +7,10 @@ public enum InstanceBusinessException implements BusinessCode, BusinessException
 
     METHOD_NOT_SUPPORT("API-001", "Unsupported method calls!"),
     FLOW_NOT_FOUND("API-002", "Flow not found!"),
-    EXPRESSION_PARSING_ERROR("API-003", "Expression parsing error!");
+    EXPRESSION_PARSING_ERROR("API-003", "Expression parsing error!"),
+    NODE_NOT_FOUND("API-004", "Flow node not found!"),
+    WORKFLOW_TIMEOUT("API-005", "Workflow execution timeout!"),
+    NODE_SCHEDULE_CONFLICT("API-006", "Flow node scheduled by multiple branches!");
 
     private final String code;
     private final String defaultMessage;
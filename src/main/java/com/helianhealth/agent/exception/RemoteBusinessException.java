@@ -1,25 +1,38 @@
 package com.helianhealth.agent.exception;
 
+/**
+ * 远程调用异常
+ */
 public enum RemoteBusinessException implements BusinessCode, BusinessExceptionSupplier {
-    ;
+
+    CIRCUIT_OPEN("REMOTE-001", "下游服务熔断中,调用被拒绝"),
+    BULKHEAD_FULL("REMOTE-002", "节点并发调用数已达上限,调用被拒绝");
+
+    private final String code;
+    private final String defaultMessage;
+
+    RemoteBusinessException(String code, String defaultMessage) {
+        this.code = code;
+        this.defaultMessage = defaultMessage;
+    }
 
     @Override
     public String getCode() {
-        return null;
+        return this.code;
     }
 
     @Override
     public String getMessage() {
-        return null;
+        return this.defaultMessage;
     }
 
     @Override
     public BaseBusinessException toException() {
-        return null;
+        return new BaseBusinessException(this);
     }
 
     @Override
     public BaseBusinessException toException(String message) {
-        return null;
+        return new BaseBusinessException(message, this);
     }
 }
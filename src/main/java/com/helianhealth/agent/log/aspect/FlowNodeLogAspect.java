@@ -117,6 +117,31 @@ public class FlowNodeLogAspect {
     }
 
 
+    /**
+     * 包装提交到其他线程执行的任务,把当前线程的日志上下文传递过去
+     * 任务结束后恢复执行线程原有的上下文,线程池复用线程时不会残留上一个任务的数据
+     */
+    public static Runnable wrap(Runnable task) {
+        LogContext callerContext = logContext.get();
+        return () -> {
+            LogContext previous = logContext.get();
+            setContext(callerContext);
+            try {
+                task.run();
+            } finally {
+                setContext(previous);
+            }
+        };
+    }
+
+    private static void setContext(LogContext context) {
+        if (context == null) {
+            logContext.remove();
+        } else {
+            logContext.set(context);
+        }
+    }
+
     /**
      * 统一保存所有收集到的日志数据
      */
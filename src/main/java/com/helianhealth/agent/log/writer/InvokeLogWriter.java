@@ -0,0 +1,254 @@
+package com.helianhealth.agent.log.writer;
+
+import com.helianhealth.agent.config.InvokeLogProperties;
+import com.helianhealth.agent.mapper.agent.InterfaceInvokeLogMapper;
+import com.helianhealth.agent.model.domain.InterfaceInvokeLogDO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 接口调用日志异步批量写入器
+ * 调用线程只负责入队,后台线程攒够一批或等待超过刷新间隔后一次性多行插入
+ * 队列通过计数限制容量,满时按配置的策略丢弃、采样或短暂阻塞,应用关闭时把剩余日志写完
+ * 批量插入失败时重试一次,仍失败则逐条写入,只丢弃本身写不进去的日志
+ */
+@Component
+@Slf4j
+public class InvokeLogWriter implements InitializingBean, DisposableBean {
+
+    /**
+     * 单条INSERT的最大行数,SQL Server单条语句最多2100个参数,每行7个参数
+     */
+    private static final int MAX_BATCH_SIZE = 200;
+
+    private final InterfaceInvokeLogMapper invokeLogMapper;
+    private final InvokeLogProperties properties;
+
+    private final Queue<InterfaceInvokeLogDO> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueSize = new AtomicInteger();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong sampledOut = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong sampleCounter = new AtomicLong();
+
+    private volatile boolean running;
+    private volatile Thread writerThread;
+
+    public InvokeLogWriter(InterfaceInvokeLogMapper invokeLogMapper, InvokeLogProperties properties) {
+        this.invokeLogMapper = invokeLogMapper;
+        this.properties = properties;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!properties.isAsync()) {
+            return;
+        }
+        running = true;
+        Thread thread = new Thread(this::drainLoop, "invoke-log-writer");
+        thread.setDaemon(true);
+        writerThread = thread;
+        thread.start();
+    }
+
+    /**
+     * 提交一条调用日志,未开启异步时直接写入
+     * @return 是否被接收,被丢弃或采样淘汰时返回false
+     */
+    public boolean submit(InterfaceInvokeLogDO logDO) {
+        submitted.incrementAndGet();
+        if (!running) {
+            writeDirectly(logDO);
+            return true;
+        }
+        if (!reserve()) {
+            return false;
+        }
+        queue.offer(logDO);
+        if (!running) {
+            // 检查与入队之间写入线程可能已经停止并写完队列,由调用线程写入剩余的日志
+            drainDirectly();
+            return true;
+        }
+        if (queueSize.get() >= batchSize()) {
+            LockSupport.unpark(writerThread);
+        }
+        return true;
+    }
+
+    /**
+     * 按溢出策略占用队列容量
+     */
+    private boolean reserve() {
+        int capacity = properties.getQueueCapacity();
+        switch (properties.getOverflowPolicy()) {
+            case SAMPLE:
+                if (queueSize.get() >= capacity * properties.getSampleThreshold()
+                        && sampleCounter.incrementAndGet() % Math.max(properties.getSampleRate(), 1) != 0) {
+                    sampledOut.incrementAndGet();
+                    return false;
+                }
+                return tryReserveOrDrop(capacity);
+            case BLOCK:
+                long deadline = System.nanoTime() + properties.getBlockTimeout().toNanos();
+                while (!tryReserve(capacity)) {
+                    if (System.nanoTime() - deadline >= 0 || !running) {
+                        dropped.incrementAndGet();
+                        return false;
+                    }
+                    LockSupport.unpark(writerThread);
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                }
+                return true;
+            case DROP:
+            default:
+                return tryReserveOrDrop(capacity);
+        }
+    }
+
+    private boolean tryReserveOrDrop(int capacity) {
+        if (tryReserve(capacity)) {
+            return true;
+        }
+        dropped.incrementAndGet();
+        return false;
+    }
+
+    private boolean tryReserve(int capacity) {
+        while (true) {
+            int size = queueSize.get();
+            if (size >= capacity) {
+                return false;
+            }
+            if (queueSize.compareAndSet(size, size + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void drainLoop() {
+        int batchSize = batchSize();
+        long flushIntervalNanos = properties.getFlushInterval().toNanos();
+        List<InterfaceInvokeLogDO> buffer = new ArrayList<>(batchSize);
+        long lastFlush = System.nanoTime();
+        while (true) {
+            InterfaceInvokeLogDO logDO = queue.poll();
+            if (logDO != null) {
+                queueSize.decrementAndGet();
+                buffer.add(logDO);
+                if (buffer.size() >= batchSize) {
+                    flush(buffer);
+                    lastFlush = System.nanoTime();
+                }
+                continue;
+            }
+            long waited = System.nanoTime() - lastFlush;
+            if (!running || waited >= flushIntervalNanos) {
+                flush(buffer);
+                lastFlush = System.nanoTime();
+                if (!running) {
+                    // 停止前入队的日志已全部写完
+                    if (queue.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+                waited = 0;
+            }
+            LockSupport.parkNanos(this, flushIntervalNanos - waited);
+        }
+    }
+
+    private void flush(List<InterfaceInvokeLogDO> buffer) {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        try {
+            for (int attempt = 1; attempt <= 2; attempt++) {
+                try {
+                    invokeLogMapper.insertLogBatch(buffer);
+                    written.addAndGet(buffer.size());
+                    return;
+                } catch (Exception e) {
+                    log.warn("批量保存接口调用日志失败, 第[{}]次, 共[{}]条", attempt, buffer.size(), e);
+                }
+            }
+            // 一条日志的问题不影响同批的其他日志
+            buffer.forEach(this::writeDirectly);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    /**
+     * 停止后由调用线程逐条写入队列中剩余的日志
+     */
+    private void drainDirectly() {
+        InterfaceInvokeLogDO logDO;
+        while ((logDO = queue.poll()) != null) {
+            queueSize.decrementAndGet();
+            writeDirectly(logDO);
+        }
+    }
+
+    private void writeDirectly(InterfaceInvokeLogDO logDO) {
+        try {
+            invokeLogMapper.insertLog(logDO);
+            written.incrementAndGet();
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            log.error("保存接口调用日志失败", e);
+        }
+    }
+
+    private int batchSize() {
+        return Math.max(1, Math.min(properties.getBatchSize(), MAX_BATCH_SIZE));
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        Thread thread = writerThread;
+        if (thread == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(thread);
+        thread.join(properties.getShutdownTimeout().toMillis());
+        if (thread.isAlive()) {
+            log.warn("接口调用日志写入超时, 剩余[{}]条未写入", queueSize.get());
+        }
+    }
+
+    /**
+     * 写入统计
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("async", running);
+        stats.put("overflowPolicy", properties.getOverflowPolicy());
+        stats.put("queueSize", queueSize.get());
+        stats.put("queueCapacity", properties.getQueueCapacity());
+        stats.put("submitted", submitted.get());
+        stats.put("written", written.get());
+        stats.put("dropped", dropped.get());
+        stats.put("sampledOut", sampledOut.get());
+        stats.put("failed", failed.get());
+        return stats;
+    }
+}
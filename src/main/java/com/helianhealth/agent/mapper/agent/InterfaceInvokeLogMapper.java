@@ -9,5 +9,10 @@ import java.util.List;
 public interface InterfaceInvokeLogMapper extends Mapper<InterfaceInvokeLogDO> {
     void insertLog(InterfaceInvokeLogDO logDO);
 
+    /**
+     * 多行批量插入调用日志
+     */
+    void insertLogBatch(@Param("logs") List<InterfaceInvokeLogDO> logs);
+
     List<InterfaceInvokeLogDO> selectAllInvokeLogs(@Param("nodeId") Integer nodeId);
 }
\ No newline at end of file
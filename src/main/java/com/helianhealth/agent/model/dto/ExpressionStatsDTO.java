@@ -0,0 +1,37 @@
+package com.helianhealth.agent.model.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * SpEL表达式缓存统计
+ */
+@Data
+@Builder
+public class ExpressionStatsDTO {
+
+    /**
+     * 表达式原文
+     */
+    private String expression;
+
+    /**
+     * 缓存命中次数
+     */
+    private long hits;
+
+    /**
+     * 执行次数
+     */
+    private long evaluations;
+
+    /**
+     * 执行失败次数
+     */
+    private long failures;
+
+    /**
+     * 是否已编译为字节码,未编译的表达式以解释模式执行
+     */
+    private boolean compiled;
+}
@@ -0,0 +1,119 @@
+package com.helianhealth.agent.registry;
+
+import com.helianhealth.agent.model.domain.InterfaceWorkflowNodeDO;
+import com.helianhealth.agent.model.domain.NodeParamConfigDO;
+import com.helianhealth.agent.remote.cache.ResponseCacheSpec;
+import com.helianhealth.agent.remote.hedge.HedgeSpec;
+import com.helianhealth.agent.remote.resilience.ResilienceSpec;
+import com.helianhealth.agent.remote.plan.ParamPlanCompiler;
+import com.helianhealth.agent.remote.plan.ParamPlanNode;
+import com.helianhealth.agent.schedule.SplitRule;
+import com.helianhealth.agent.utils.XmlPathSelector;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 工作流节点定义
+ * 节点本身及其前置、后置参数配置和编译好的参数映射计划,构建完成后不可修改
+ */
+@Getter
+public class NodeDefinition {
+
+    private final InterfaceWorkflowNodeDO node;
+
+    /**
+     * 前置参数配置
+     */
+    private final List<NodeParamConfigDO> preProcessConfigs;
+
+    /**
+     * 后置参数配置
+     */
+    private final List<NodeParamConfigDO> postProcessConfigs;
+
+    /**
+     * 前置参数映射计划根节点
+     */
+    private final List<ParamPlanNode> preProcessPlan;
+
+    /**
+     * 后置参数映射计划根节点
+     */
+    private final List<ParamPlanNode> postProcessPlan;
+
+    /**
+     * 后置参数映射中XPath映射的路径选择器,解析节点的XML响应时一次流式读取完成选取
+     */
+    private final List<XmlPathSelector> postProcessSelectors;
+
+    /**
+     * 后置参数映射是否只依赖XPath映射,是时XML响应不再转换为Map
+     */
+    private final boolean postProcessPathOnly;
+
+    /**
+     * 是否为汇聚节点,由metaInfo中的join配置,汇聚节点等待所有前驱节点完成后合并入参只执行一次
+     */
+    private final boolean join;
+
+    /**
+     * 汇聚节点显式声明的前驱节点,只接受这些节点的调度,全部完成后触发;为空时在工作流没有其他可执行节点时触发
+     */
+    private final Set<Integer> joinPredecessors;
+
+    /**
+     * 参数拆分规则,未配置时为null
+     */
+    private final SplitRule splitRule;
+
+    /**
+     * 是否合并执行中的相同调用,由metaInfo中的coalesce配置
+     */
+    private final boolean coalesce;
+
+    /**
+     * 响应缓存配置,由metaInfo中的cache配置,未开启时为null
+     */
+    private final ResponseCacheSpec responseCacheSpec;
+
+    /**
+     * 熔断、并发隔离和降级配置,由metaInfo中的resilience和fallback配置,未配置时为默认配置
+     */
+    private final ResilienceSpec resilienceSpec;
+
+    /**
+     * 对冲请求和重试配置,由metaInfo中的hedge和retry配置,未开启时为null
+     */
+    private final HedgeSpec hedgeSpec;
+
+    NodeDefinition(InterfaceWorkflowNodeDO node,
+                   List<NodeParamConfigDO> preProcessConfigs,
+                   List<NodeParamConfigDO> postProcessConfigs,
+                   List<ParamPlanNode> preProcessPlan,
+                   List<ParamPlanNode> postProcessPlan,
+                   boolean join,
+                   Set<Integer> joinPredecessors,
+                   SplitRule splitRule,
+                   boolean coalesce,
+                   ResponseCacheSpec responseCacheSpec,
+                   ResilienceSpec resilienceSpec,
+                   HedgeSpec hedgeSpec) {
+        this.node = node;
+        this.preProcessConfigs = Collections.unmodifiableList(preProcessConfigs);
+        this.postProcessConfigs = Collections.unmodifiableList(postProcessConfigs);
+        this.preProcessPlan = Collections.unmodifiableList(preProcessPlan);
+        this.postProcessPlan = Collections.unmodifiableList(postProcessPlan);
+        this.postProcessSelectors = Collections.unmodifiableList(ParamPlanCompiler.collectPathSelectors(postProcessPlan));
+        this.postProcessPathOnly = !this.postProcessSelectors.isEmpty() && ParamPlanCompiler.isPathOnly(postProcessPlan);
+        this.join = join;
+        this.joinPredecessors = Collections.unmodifiableSet(joinPredecessors);
+        this.splitRule = splitRule;
+        this.coalesce = coalesce;
+        this.responseCacheSpec = responseCacheSpec;
+        this.resilienceSpec = resilienceSpec;
+        this.hedgeSpec = hedgeSpec;
+    }
+}
@@ -0,0 +1,14 @@
+package com.helianhealth.agent.registry;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 工作流定义变更事件
+ * 工作流、节点、参数配置在后台被增删改后发布,注册中心收到后重建快照
+ */
+public class WorkflowDefinitionChangedEvent extends ApplicationEvent {
+
+    public WorkflowDefinitionChangedEvent(Object source) {
+        super(source);
+    }
+}
@@ -0,0 +1,181 @@
+package com.helianhealth.agent.registry;
+
+import com.helianhealth.agent.enums.ProcessType;
+import com.helianhealth.agent.mapper.agent.InterfaceFlowNodeMapper;
+import com.helianhealth.agent.mapper.agent.InterfaceWorkflowMapper;
+import com.helianhealth.agent.mapper.agent.NodeParamConfigMapper;
+import com.helianhealth.agent.model.domain.InterfaceWorkflowDO;
+import com.helianhealth.agent.model.domain.InterfaceWorkflowNodeDO;
+import com.helianhealth.agent.model.domain.NodeParamConfigDO;
+import com.helianhealth.agent.remote.cache.ResponseCacheSpec;
+import com.helianhealth.agent.remote.hedge.HedgeSpec;
+import com.helianhealth.agent.remote.plan.ParamPlanCompiler;
+import com.helianhealth.agent.remote.resilience.ResilienceSpec;
+import com.helianhealth.agent.schedule.SplitRule;
+import com.helianhealth.agent.utils.JsonUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 工作流定义注册中心
+ * 启动时把工作流、节点、参数配置一次性加载为内存快照并编译参数映射计划,调用链路上只读快照不再查询数据库
+ * 后台配置变更时重新全量加载并原子替换快照
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class WorkflowDefinitionRegistry implements SmartInitializingSingleton {
+
+    private final InterfaceWorkflowMapper workflowMapper;
+    private final InterfaceFlowNodeMapper flowNodeMapper;
+    private final NodeParamConfigMapper nodeParamConfigMapper;
+    private final ParamPlanCompiler paramPlanCompiler;
+
+    private final AtomicLong versionGenerator = new AtomicLong();
+
+    private volatile WorkflowDefinitionSnapshot snapshot = WorkflowDefinitionSnapshot.EMPTY;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            // 启动时数据库不可用不影响应用启动,等待后台触发刷新
+            log.error("初始化工作流定义快照失败", e);
+        }
+    }
+
+    @EventListener
+    public void onDefinitionChanged(WorkflowDefinitionChangedEvent event) {
+        refresh();
+    }
+
+    /**
+     * 获取当前快照,同一次调用内应只获取一次以保证读取到一致的版本
+     */
+    public WorkflowDefinitionSnapshot current() {
+        return snapshot;
+    }
+
+    public Optional<InterfaceWorkflowDO> findWorkflow(String interfaceUri) {
+        return snapshot.findWorkflow(interfaceUri);
+    }
+
+    public NodeDefinition getNode(Integer nodeId) {
+        return snapshot.getNode(nodeId);
+    }
+
+    /**
+     * 全量重建快照,构建失败时保留旧快照
+     */
+    public synchronized WorkflowDefinitionSnapshot refresh() {
+        List<InterfaceWorkflowDO> workflows = workflowMapper.selectAllWorkflows();
+        List<InterfaceWorkflowNodeDO> nodes = flowNodeMapper.selectAllNodes(null);
+        List<NodeParamConfigDO> configs = nodeParamConfigMapper.selectAllParamConfig(null, null);
+
+        Map<String, InterfaceWorkflowDO> workflowsByUri = new HashMap<>();
+        for (InterfaceWorkflowDO workflow : workflows) {
+            workflowsByUri.put(workflow.getInterfaceUri(), workflow);
+        }
+
+        Map<Integer, List<NodeParamConfigDO>> preConfigs = new HashMap<>();
+        Map<Integer, List<NodeParamConfigDO>> postConfigs = new HashMap<>();
+        for (NodeParamConfigDO config : configs) {
+            Map<Integer, List<NodeParamConfigDO>> target =
+                    config.getProcessType() == ProcessType.POST_PROCESS ? postConfigs : preConfigs;
+            target.computeIfAbsent(config.getNodeId(), k -> new ArrayList<>()).add(config);
+        }
+
+        Map<Integer, NodeDefinition> nodesById = new HashMap<>();
+        for (InterfaceWorkflowNodeDO node : nodes) {
+            List<NodeParamConfigDO> nodePreConfigs = preConfigs.getOrDefault(node.getNodeId(), Collections.emptyList());
+            List<NodeParamConfigDO> nodePostConfigs = postConfigs.getOrDefault(node.getNodeId(), Collections.emptyList());
+            Map<String, Object> metaInfo = parseMetaInfo(node);
+            nodesById.put(node.getNodeId(), new NodeDefinition(node, nodePreConfigs, nodePostConfigs,
+                    paramPlanCompiler.compile(nodePreConfigs), paramPlanCompiler.compile(nodePostConfigs),
+                    Boolean.TRUE.equals(metaInfo.get("join")), parseJoinPredecessors(metaInfo), parseSplitRule(node),
+                    Boolean.TRUE.equals(metaInfo.get("coalesce")), parseResponseCacheSpec(node, metaInfo),
+                    parseResilienceSpec(node, metaInfo), parseHedgeSpec(node, metaInfo)));
+        }
+
+        WorkflowDefinitionSnapshot newSnapshot = new WorkflowDefinitionSnapshot(
+                versionGenerator.incrementAndGet(), workflowsByUri, nodesById);
+        this.snapshot = newSnapshot;
+        log.info("工作流定义快照已刷新, 版本: [{}], 工作流: [{}], 节点: [{}], 参数配置: [{}]",
+                newSnapshot.getVersion(), workflowsByUri.size(), nodesById.size(), configs.size());
+        return newSnapshot;
+    }
+
+    private Map<String, Object> parseMetaInfo(InterfaceWorkflowNodeDO node) {
+        try {
+            Map<String, Object> metaInfo = JsonUtils.toMap(node.getMetaInfo());
+            return metaInfo == null ? Collections.emptyMap() : metaInfo;
+        } catch (Exception e) {
+            log.warn("节点[{}]的metaInfo不是合法的JSON: {}", node.getNodeId(), e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+
+    private SplitRule parseSplitRule(InterfaceWorkflowNodeDO node) {
+        try {
+            return SplitRule.parse(node.getSplitRule());
+        } catch (Exception e) {
+            log.warn("节点[{}]的拆分规则配置错误, 将不拆分执行: {}", node.getNodeId(), e.getMessage());
+            return null;
+        }
+    }
+
+    private ResponseCacheSpec parseResponseCacheSpec(InterfaceWorkflowNodeDO node, Map<String, Object> metaInfo) {
+        try {
+            return ResponseCacheSpec.parse(metaInfo.get("cache"));
+        } catch (Exception e) {
+            log.warn("节点[{}]的响应缓存配置错误, 将不使用缓存: {}", node.getNodeId(), e.getMessage());
+            return null;
+        }
+    }
+
+    private ResilienceSpec parseResilienceSpec(InterfaceWorkflowNodeDO node, Map<String, Object> metaInfo) {
+        try {
+            return ResilienceSpec.parse(metaInfo.get("resilience"), metaInfo.get("fallback"));
+        } catch (Exception e) {
+            log.warn("节点[{}]的熔断降级配置错误, 将使用默认配置: {}", node.getNodeId(), e.getMessage());
+            return ResilienceSpec.DEFAULT;
+        }
+    }
+
+    private HedgeSpec parseHedgeSpec(InterfaceWorkflowNodeDO node, Map<String, Object> metaInfo) {
+        try {
+            return HedgeSpec.parse(metaInfo);
+        } catch (Exception e) {
+            log.warn("节点[{}]的对冲请求和重试配置错误, 将不对冲和重试: {}", node.getNodeId(), e.getMessage());
+            return null;
+        }
+    }
+
+    private Set<Integer> parseJoinPredecessors(Map<String, Object> metaInfo) {
+        Object predecessors = metaInfo.get("joinPredecessors");
+        if (!(predecessors instanceof List)) {
+            return Collections.emptySet();
+        }
+        Set<Integer> nodeIds = new LinkedHashSet<>();
+        for (Object nodeId : (List<?>) predecessors) {
+            if (nodeId instanceof Number) {
+                nodeIds.add(((Number) nodeId).intValue());
+            }
+        }
+        return nodeIds;
+    }
+}
@@ -0,0 +1,61 @@
+package com.helianhealth.agent.registry;
+
+import com.helianhealth.agent.model.domain.InterfaceWorkflowDO;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 工作流定义快照
+ * 按接口URI索引工作流、按节点ID索引节点定义,快照一旦发布就不再修改,刷新时整体替换
+ * 注意:快照中的DO对象是共享的,调用方只能读取不能修改
+ */
+public class WorkflowDefinitionSnapshot {
+
+    static final WorkflowDefinitionSnapshot EMPTY = new WorkflowDefinitionSnapshot(0L,
+            Collections.emptyMap(), Collections.emptyMap());
+
+    /**
+     * 快照版本号,每次刷新递增
+     */
+    @Getter
+    private final long version;
+
+    /**
+     * 快照构建时间
+     */
+    @Getter
+    private final Date buildTime;
+
+    private final Map<String, InterfaceWorkflowDO> workflowsByUri;
+
+    private final Map<Integer, NodeDefinition> nodesById;
+
+    WorkflowDefinitionSnapshot(long version,
+                               Map<String, InterfaceWorkflowDO> workflowsByUri,
+                               Map<Integer, NodeDefinition> nodesById) {
+        this.version = version;
+        this.buildTime = new Date();
+        this.workflowsByUri = Collections.unmodifiableMap(workflowsByUri);
+        this.nodesById = Collections.unmodifiableMap(nodesById);
+    }
+
+    public Optional<InterfaceWorkflowDO> findWorkflow(String interfaceUri) {
+        return Optional.ofNullable(workflowsByUri.get(interfaceUri));
+    }
+
+    public NodeDefinition getNode(Integer nodeId) {
+        return nodesById.get(nodeId);
+    }
+
+    public int getWorkflowCount() {
+        return workflowsByUri.size();
+    }
+
+    public int getNodeCount() {
+        return nodesById.size();
+    }
+}
@@ -1,31 +1,41 @@
 package com.helianhealth.agent.remote;
 
-import com.helianhealth.agent.mapper.agent.NodeParamConfigMapper;
+import com.helianhealth.agent.exception.InstanceBusinessException;
 import com.helianhealth.agent.model.domain.InterfaceWorkflowNodeDO;
 import com.helianhealth.agent.model.domain.NodeParamConfigDO;
 import com.helianhealth.agent.model.dto.ParamTreeNode;
+import com.helianhealth.agent.remote.cache.NodeResponseCache;
+import com.helianhealth.agent.remote.cache.ResponseCacheSpec;
+import com.helianhealth.agent.remote.coalesce.RequestCoalescer;
+import com.helianhealth.agent.remote.plan.ParamPlanNode;
+import com.helianhealth.agent.registry.NodeDefinition;
+import com.helianhealth.agent.registry.WorkflowDefinitionRegistry;
 import com.helianhealth.agent.remote.helper.ResponseConvertHelper;
-import com.helianhealth.agent.remote.resolver.ValueResolveService;
+import com.helianhealth.agent.remote.resilience.NodeResilienceGuard;
+import com.helianhealth.agent.remote.resilience.ResilienceSpec;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.aop.framework.AopContext;
 import org.springframework.util.CollectionUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
 @Slf4j
 @AllArgsConstructor
 public abstract class AbstractClientProxy implements InterfaceClientProxy, ParamNodeHandler {
 
-    private final NodeParamConfigMapper nodeMapper;
-    private final ValueResolveService valueResolveService;
+    private final WorkflowDefinitionRegistry definitionRegistry;
     private final ResponseConvertHelper responseConvertHelper;
+    private final NodeResponseCache responseCache;
+    private final RequestCoalescer requestCoalescer;
+    private final NodeResilienceGuard resilienceGuard;
 
     @Override
     public Map<String, Object> remoteInvoke(InterfaceWorkflowNodeDO flowNode, Map<String, Object> businessData) {
@@ -34,12 +44,86 @@ public abstract class AbstractClientProxy implements InterfaceClientProxy, Param
 
         // 2. 执行协议的调用,由子类实现
         AbstractClientProxy proxy = (AbstractClientProxy) AopContext.currentProxy();
-        Map<String, Object> remoteInvokeResponse = proxy.doInvoke(flowNode, paramBeforeInvoke);
+        Map<String, Object> remoteInvokeResponse = invokeRemote(proxy, flowNode, paramBeforeInvoke);
 
         // 3. 参数后处理
         return postProcess(flowNode, remoteInvokeResponse, businessData);
     }
 
+    /**
+     * 执行协议调用
+     * 节点开启响应缓存时先按渲染后的请求查询缓存,开启调用合并时相同请求在执行期间只调用一次下游,
+     * 实际的远程调用在节点熔断器和隔离舱的保护下执行
+     * 需要请求摘要时只渲染一次请求,渲染结果同时用于计算摘要和远程调用
+     */
+    private Map<String, Object> invokeRemote(AbstractClientProxy proxy, InterfaceWorkflowNodeDO flowNode, List<ParamTreeNode> params) {
+        ParamResolver paramResolver = getParamResolver();
+        if (paramResolver == null) {
+            return proxy.doInvoke(flowNode, params);
+        }
+        NodeDefinition definition = getNodeDefinition(flowNode);
+        ResponseCacheSpec cacheSpec = definition.getResponseCacheSpec();
+        ResilienceSpec resilienceSpec = definition.getResilienceSpec();
+        // 只有用到请求摘要时才在调用前渲染请求,否则由协议调用自己渲染
+        boolean rendered = cacheSpec != null || definition.isCoalesce() || resilienceGuard.needsRequestKey(resilienceSpec);
+        Object request = rendered ? paramResolver.resolveParamNodes(flowNode, params) : null;
+        String requestKey = rendered ? requestKey(flowNode, request) : null;
+        if (cacheSpec != null) {
+            Map<String, Object> cached = responseCache.get(flowNode.getNodeId(), cacheSpec, requestKey);
+            if (cached != null) {
+                log.debug("节点[{}]命中响应缓存", flowNode.getNodeId());
+                return cached;
+            }
+        }
+        Supplier<Map<String, Object>> call = () -> resilienceGuard.execute(flowNode.getNodeId(), resilienceSpec, requestKey,
+                () -> invokeAndCache(proxy, flowNode, params, rendered, request, cacheSpec, requestKey));
+        if (!definition.isCoalesce()) {
+            return call.get();
+        }
+        return requestCoalescer.execute(flowNode.getNodeId(), flowNode.getNodeId() + ":" + requestKey, call);
+    }
+
+    /**
+     * 远程调用成功后写入响应缓存,降级响应不会进入缓存
+     */
+    private Map<String, Object> invokeAndCache(AbstractClientProxy proxy, InterfaceWorkflowNodeDO flowNode, List<ParamTreeNode> params,
+                                               boolean rendered, Object request, ResponseCacheSpec cacheSpec, String requestKey) {
+        Map<String, Object> response = rendered
+                ? proxy.doInvoke(flowNode, params, request) : proxy.doInvoke(flowNode, params);
+        if (cacheSpec != null) {
+            responseCache.put(flowNode.getNodeId(), cacheSpec, requestKey, response);
+        }
+        return response;
+    }
+
+    /**
+     * 请求摘要,节点的metaInfo参与计算,修改下游地址等配置后不会与旧的请求混用
+     * @param flowNode 工作流节点
+     * @param renderedRequest 协议参数解析器渲染后的请求
+     */
+    private static String requestKey(InterfaceWorkflowNodeDO flowNode, Object renderedRequest) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.valueOf(flowNode.getMetaInfo()).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(renderedRequest).getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : digest.digest()) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
+    }
+
+    /**
+     * 协议的参数解析器,用于渲染响应缓存和调用合并的key,没有远程调用的节点返回null,不支持缓存、合并和熔断
+     */
+    protected ParamResolver getParamResolver() {
+        return null;
+    }
+
     /**
      * 参数前置处理转化成参数树
      * 子类可以根据需要重写此方法
@@ -48,12 +132,12 @@ public abstract class AbstractClientProxy implements InterfaceClientProxy, Param
      * @return 处理后的参数
      */
     protected List<ParamTreeNode> preProcess(InterfaceWorkflowNodeDO flowNode, Map<String, Object> businessData) {
-        // 获取的是前置参数配置
-        List<NodeParamConfigDO> nodeConfigs = nodeMapper.selectPreProcessConfigByNodeId(flowNode.getNodeId());
-        if (CollectionUtils.isEmpty(nodeConfigs)) {
+        // 获取的是前置参数映射计划
+        List<ParamPlanNode> plan = getNodeDefinition(flowNode).getPreProcessPlan();
+        if (CollectionUtils.isEmpty(plan)) {
             return new ArrayList<>();
         }
-        return buildParamTree(nodeConfigs, null, businessData, businessData);
+        return buildParamTree(plan, businessData, businessData);
     }
 
     /**
@@ -64,16 +148,24 @@ public abstract class AbstractClientProxy implements InterfaceClientProxy, Param
      * @return 处理后的结果
      */
     public Map<String, Object> postProcess(InterfaceWorkflowNodeDO flowNode, Map<String, Object> response, Map<String, Object> businessData) {
-        List<NodeParamConfigDO> nodeConfigs = nodeMapper.selectPostProcessConfigByNodeId(flowNode.getNodeId());
-        if (CollectionUtils.isEmpty(nodeConfigs)) {
+        List<ParamPlanNode> plan = getNodeDefinition(flowNode).getPostProcessPlan();
+        if (CollectionUtils.isEmpty(plan)) {
             return new HashMap<>();
         }
 
-        List<ParamTreeNode> rootNodes = buildParamTree(nodeConfigs, null, response, businessData);
+        List<ParamTreeNode> rootNodes = buildParamTree(plan, response, businessData);
 
         return responseConvertHelper.convertResponse(flowNode, rootNodes);
     }
 
+    protected NodeDefinition getNodeDefinition(InterfaceWorkflowNodeDO flowNode) {
+        NodeDefinition definition = definitionRegistry.getNode(flowNode.getNodeId());
+        if (definition == null) {
+            throw InstanceBusinessException.NODE_NOT_FOUND.toException();
+        }
+        return definition;
+    }
+
     /**
      * 执行具体的远程调用逻辑，由子类实现
      * @param flowNode 工作流节点
@@ -83,29 +175,33 @@ public abstract class AbstractClientProxy implements InterfaceClientProxy, Param
     public abstract Map<String, Object> doInvoke(InterfaceWorkflowNodeDO flowNode,
                                                     List<ParamTreeNode> params);
 
-    protected List<ParamTreeNode> buildParamTree(List<NodeParamConfigDO> configs,
-                                                 Integer parentId,
-                                                 Map<String, Object> businessData,
-                                                 Map<String, Object> sourceBusinessData) {
-        return doBuildParamTree(configs, parentId, businessData, sourceBusinessData);
+    /**
+     * 使用已渲染的请求执行远程调用,计算请求摘要时渲染的请求不再重复渲染
+     * 有参数解析器的协议重写该方法,默认忽略渲染结果调用{@link #doInvoke(InterfaceWorkflowNodeDO, List)}
+     * @param flowNode 工作流节点
+     * @param params 处理后的参数
+     * @param request 参数解析器渲染后的请求
+     * @return 调用结果
+     */
+    public Map<String, Object> doInvoke(InterfaceWorkflowNodeDO flowNode, List<ParamTreeNode> params, Object request) {
+        return doInvoke(flowNode, params);
     }
 
-    private List<ParamTreeNode> doBuildParamTree(List<NodeParamConfigDO> configs,
-                                                 Integer parentId,
+    /**
+     * 按参数映射计划构建参数树
+     * @param planNodes 同一层级已排好序的计划节点
+     * @param businessData 当前层级的业务数据
+     * @param sourceBusinessData 原始业务数据
+     * @return 参数树节点
+     */
+    protected List<ParamTreeNode> buildParamTree(List<ParamPlanNode> planNodes,
                                                  Map<String, Object> businessData,
                                                  Map<String, Object> sourceBusinessData) {
-        List<ParamTreeNode> children = new ArrayList<>();
+        List<ParamTreeNode> children = new ArrayList<>(planNodes.size());
 
         try {
-            // 1、从root节点开始构建参数树,筛选当前父节点的子节点
-            List<NodeParamConfigDO> currentNodes = configs.stream()
-                    .filter(node -> Objects.equals(node.getParentId(), parentId))
-                    .sorted(Comparator.comparingInt(NodeParamConfigDO::getSort))
-                    .collect(Collectors.toList());
-
-            // 2、组装每个节点的参数值
-            for (NodeParamConfigDO config : currentNodes) {
-                children.add(processParamNode(config, configs, businessData, sourceBusinessData));
+            for (ParamPlanNode planNode : planNodes) {
+                children.add(processParamNode(planNode, businessData, sourceBusinessData));
             }
         } catch (Exception e) {
             log.error("convert param error:", e);
@@ -114,10 +210,10 @@ public abstract class AbstractClientProxy implements InterfaceClientProxy, Param
         return children;
     }
 
-    private ParamTreeNode processParamNode(NodeParamConfigDO config,
-                                           List<NodeParamConfigDO> allNodes,
+    private ParamTreeNode processParamNode(ParamPlanNode planNode,
                                            Map<String, Object> businessData,
                                            Map<String, Object> sourceBusinessData) {
+        NodeParamConfigDO config = planNode.getConfig();
         ParamTreeNode node = ParamTreeNode.builder()
                 .paramKey(config.getTargetParamKey())
                 .paramType(config.getTargetParamType())
@@ -128,16 +224,16 @@ public abstract class AbstractClientProxy implements InterfaceClientProxy, Param
         switch (config.getTargetParamType()) {
             case OBJECT:
                 // 对象类型处理
-                processObjectNodeType(config, allNodes, businessData, sourceBusinessData, node);
+                processObjectNodeType(planNode, businessData, sourceBusinessData, node);
                 break;
             case ARRAY:
             case PURE_ARRAY:
                 // 数组类型处理
-                processArrayNodeType(config, allNodes, businessData, sourceBusinessData, node);
+                processArrayNodeType(planNode, businessData, sourceBusinessData, node);
                 break;
             default:
                 // 基本类型：从业务数据中取值（根据mappingRule映射）
-                node.setParamValue(valueResolveService.resolveValue(config, businessData, sourceBusinessData));
+                node.setParamValue(planNode.resolveValue(businessData, sourceBusinessData));
         }
 
         return node;
@@ -1,9 +1,8 @@
 package com.helianhealth.agent.remote;
 
-import com.helianhealth.agent.model.domain.NodeParamConfigDO;
 import com.helianhealth.agent.model.dto.ParamTreeNode;
+import com.helianhealth.agent.remote.plan.ParamPlanNode;
 
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -11,14 +10,12 @@ import java.util.Map;
  */
 public interface ParamNodeHandler {
 
-    void processObjectNodeType(NodeParamConfigDO config,
-                               List<NodeParamConfigDO> allNodes,
+    void processObjectNodeType(ParamPlanNode planNode,
                                Map<String, Object> businessData,
                                Map<String, Object> rootBusinessData,
                                ParamTreeNode node);
 
-    void processArrayNodeType(NodeParamConfigDO config,
-                              List<NodeParamConfigDO> allNodes,
+    void processArrayNodeType(ParamPlanNode planNode,
                               Map<String, Object> businessData,
                               Map<String, Object> rootBusinessData,
                               ParamTreeNode node);
@@ -0,0 +1,153 @@
+package com.helianhealth.agent.remote.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.helianhealth.agent.utils.JsonUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 节点响应缓存
+ * 每个开启缓存的节点一个独立的Caffeine缓存(W-TinyLFU淘汰),key为节点配置和渲染后请求的摘要,
+ * value为协议调用的原始响应,参数后置处理仍每次执行
+ * 缓存的响应在写入和读取时都复制一份,调用方修改返回的数据不会影响缓存
+ */
+@Slf4j
+@Component
+public class NodeResponseCache {
+
+    private final Map<Integer, NodeCache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * 查询缓存的响应
+     * @return 未命中时返回null
+     */
+    public Map<String, Object> get(Integer nodeId, ResponseCacheSpec spec, String key) {
+        Map<String, Object> cached = cacheFor(nodeId, spec).getIfPresent(key);
+        return cached == null ? null : JsonUtils.copyMap(cached);
+    }
+
+    /**
+     * 缓存响应,null不缓存
+     */
+    public void put(Integer nodeId, ResponseCacheSpec spec, String key, Map<String, Object> response) {
+        if (response != null) {
+            cacheFor(nodeId, spec).put(key, JsonUtils.copyMap(response));
+        }
+    }
+
+    /**
+     * 清空节点的缓存
+     * @return 清除的条目数
+     */
+    public long purge(Integer nodeId) {
+        NodeCache nodeCache = caches.get(nodeId);
+        if (nodeCache == null) {
+            return 0;
+        }
+        long size = nodeCache.cache.estimatedSize();
+        nodeCache.cache.invalidateAll();
+        log.info("已清空节点[{}]的响应缓存, 条目数: [{}]", nodeId, size);
+        return size;
+    }
+
+    /**
+     * 清空所有节点的缓存
+     * @return 清除的条目数
+     */
+    public long purgeAll() {
+        long size = 0;
+        for (Integer nodeId : caches.keySet()) {
+            size += purge(nodeId);
+        }
+        return size;
+    }
+
+    /**
+     * 各节点的缓存统计
+     */
+    public Map<Integer, Map<String, Object>> stats() {
+        Map<Integer, Map<String, Object>> stats = new TreeMap<>();
+        caches.forEach((nodeId, nodeCache) -> {
+            CacheStats cacheStats = nodeCache.cache.stats();
+            Map<String, Object> nodeStats = new LinkedHashMap<>();
+            nodeStats.put("size", nodeCache.cache.estimatedSize());
+            nodeStats.put("hits", cacheStats.hitCount());
+            nodeStats.put("misses", cacheStats.missCount());
+            nodeStats.put("hitRate", cacheStats.hitRate());
+            nodeStats.put("evictions", cacheStats.evictionCount());
+            nodeStats.put("evictionWeight", cacheStats.evictionWeight());
+            nodeStats.put("ttlSeconds", nodeCache.spec.getTtlSeconds());
+            if (nodeCache.spec.getMaxWeightBytes() > 0) {
+                nodeStats.put("maxWeightBytes", nodeCache.spec.getMaxWeightBytes());
+            } else {
+                nodeStats.put("maxEntries", nodeCache.spec.getMaxEntries());
+            }
+            stats.put(nodeId, nodeStats);
+        });
+        return stats;
+    }
+
+    private Cache<String, Map<String, Object>> cacheFor(Integer nodeId, ResponseCacheSpec spec) {
+        NodeCache nodeCache = caches.get(nodeId);
+        if (nodeCache == null || !nodeCache.spec.equals(spec)) {
+            // 节点缓存配置变更后丢弃旧缓存重新创建
+            nodeCache = caches.compute(nodeId, (id, existing) ->
+                    existing != null && existing.spec.equals(spec) ? existing : new NodeCache(spec));
+        }
+        return nodeCache.cache;
+    }
+
+    /**
+     * 估算响应数据占用的内存大小(字节),用于按权重限制缓存
+     */
+    private static long estimateSize(Object value) {
+        if (value instanceof Map) {
+            long size = 48;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                size += 32 + estimateSize(entry.getKey()) + estimateSize(entry.getValue());
+            }
+            return size;
+        }
+        if (value instanceof Collection) {
+            long size = 24;
+            for (Object item : (Collection<?>) value) {
+                size += 8 + estimateSize(item);
+            }
+            return size;
+        }
+        if (value instanceof CharSequence) {
+            return 40 + 2L * ((CharSequence) value).length();
+        }
+        return 16;
+    }
+
+    private static final class NodeCache {
+
+        private final ResponseCacheSpec spec;
+        private final Cache<String, Map<String, Object>> cache;
+
+        NodeCache(ResponseCacheSpec spec) {
+            this.spec = spec;
+            Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                    .expireAfterWrite(spec.getTtlSeconds(), TimeUnit.SECONDS)
+                    .recordStats();
+            if (spec.getMaxWeightBytes() > 0) {
+                this.cache = builder.maximumWeight(spec.getMaxWeightBytes())
+                        .<String, Map<String, Object>>weigher((key, response) ->
+                                (int) Math.min(Integer.MAX_VALUE, 128 + estimateSize(response)))
+                        .build();
+            } else {
+                this.cache = builder.maximumSize(spec.getMaxEntries()).build();
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.helianhealth.agent.remote.cache;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * 节点响应缓存配置
+ * 在节点metaInfo的cache中配置,只应用于纯查询类节点:
+ * 1. "cache": true,使用默认配置
+ * 2. "cache": {"ttlSeconds":300,"maxEntries":1000} 或 {"ttlSeconds":300,"maxWeightKb":10240}
+ * 同时配置maxEntries和maxWeightKb时按maxWeightKb限制,权重为响应数据的估算内存大小
+ */
+@Getter
+@EqualsAndHashCode
+public class ResponseCacheSpec {
+
+    public static final long DEFAULT_TTL_SECONDS = 300;
+
+    public static final long DEFAULT_MAX_ENTRIES = 1000;
+
+    private final long ttlSeconds;
+
+    private final long maxEntries;
+
+    /**
+     * 最大权重(字节),为0时按条目数限制
+     */
+    private final long maxWeightBytes;
+
+    private ResponseCacheSpec(long ttlSeconds, long maxEntries, long maxWeightBytes) {
+        this.ttlSeconds = ttlSeconds;
+        this.maxEntries = maxEntries;
+        this.maxWeightBytes = maxWeightBytes;
+    }
+
+    /**
+     * 解析缓存配置
+     * @param cache 节点metaInfo中的cache配置
+     * @return 未配置或关闭时返回null
+     */
+    public static ResponseCacheSpec parse(Object cache) {
+        if (Boolean.TRUE.equals(cache)) {
+            return new ResponseCacheSpec(DEFAULT_TTL_SECONDS, DEFAULT_MAX_ENTRIES, 0);
+        }
+        if (!(cache instanceof Map)) {
+            return null;
+        }
+        Map<?, ?> config = (Map<?, ?>) cache;
+        if (Boolean.FALSE.equals(config.get("enabled"))) {
+            return null;
+        }
+        long ttlSeconds = longValue(config.get("ttlSeconds"), DEFAULT_TTL_SECONDS);
+        long maxEntries = longValue(config.get("maxEntries"), DEFAULT_MAX_ENTRIES);
+        long maxWeightKb = longValue(config.get("maxWeightKb"), 0);
+        if (ttlSeconds <= 0) {
+            throw new IllegalArgumentException("缓存配置ttlSeconds必须大于0: " + cache);
+        }
+        if (maxEntries <= 0 || maxWeightKb < 0) {
+            throw new IllegalArgumentException("缓存配置maxEntries必须大于0且maxWeightKb不能为负数: " + cache);
+        }
+        return new ResponseCacheSpec(ttlSeconds, maxEntries, maxWeightKb * 1024);
+    }
+
+    private static long longValue(Object value, long defaultValue) {
+        return value instanceof Number ? ((Number) value).longValue() : defaultValue;
+    }
+}
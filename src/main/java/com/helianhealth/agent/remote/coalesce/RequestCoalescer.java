@@ -0,0 +1,108 @@
+package com.helianhealth.agent.remote.coalesce;
+
+import com.helianhealth.agent.utils.JsonUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 下游调用合并(single-flight)
+ * 同一节点、同一渲染请求的调用在执行期间,后到的调用不再发起远程调用而是等待并共享第一个调用的结果
+ * 结果只在调用期间共享,调用结束即移除,与响应缓存相互独立
+ */
+@Slf4j
+@Component
+public class RequestCoalescer {
+
+    private final Map<String, CompletableFuture<Map<String, Object>>> inflight = new ConcurrentHashMap<>();
+
+    private final Map<Integer, NodeStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * 执行调用,相同key的调用正在执行时等待其结果
+     * @param nodeId 节点ID,用于统计
+     * @param key 节点和渲染请求的摘要
+     * @param call 远程调用
+     * @return 调用结果,等待方拿到的是结果的副本
+     */
+    public Map<String, Object> execute(Integer nodeId, String key, Supplier<Map<String, Object>> call) {
+        NodeStats nodeStats = stats.computeIfAbsent(nodeId, id -> new NodeStats());
+        CompletableFuture<Map<String, Object>> pending = new CompletableFuture<>();
+        CompletableFuture<Map<String, Object>> existing = inflight.putIfAbsent(key, pending);
+        if (existing != null) {
+            nodeStats.coalesced.increment();
+            log.debug("节点[{}]合并到执行中的相同调用", nodeId);
+            return JsonUtils.copyMap(await(existing));
+        }
+
+        nodeStats.calls.increment();
+        try {
+            Map<String, Object> response = call.get();
+            // 发起方会继续处理自己的结果,等待方共享的是一份不会被修改的副本
+            pending.complete(JsonUtils.copyMap(response));
+            return response;
+        } catch (RuntimeException | Error e) {
+            pending.completeExceptionally(e);
+            throw e;
+        } finally {
+            inflight.remove(key, pending);
+        }
+    }
+
+    /**
+     * 各节点的调用合并统计
+     */
+    public Map<String, Object> stats() {
+        Map<Integer, Map<String, Object>> nodes = new TreeMap<>();
+        stats.forEach((nodeId, nodeStats) -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("calls", nodeStats.calls.sum());
+            item.put("coalesced", nodeStats.coalesced.sum());
+            nodes.put(nodeId, item);
+        });
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("inflight", inflight.size());
+        result.put("nodes", nodes);
+        return result;
+    }
+
+    private static Map<String, Object> await(CompletableFuture<Map<String, Object>> pending) {
+        try {
+            return pending.get();
+        } catch (InterruptedException e) {
+            // 只取消自己的等待,不影响发起方和其他等待方
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待合并的调用结果时被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static final class NodeStats {
+
+        /**
+         * 实际发起的远程调用次数
+         */
+        private final LongAdder calls = new LongAdder();
+
+        /**
+         * 合并到执行中调用的次数
+         */
+        private final LongAdder coalesced = new LongAdder();
+    }
+}
@@ -2,15 +2,20 @@ package com.helianhealth.agent.remote.database;
 
 import com.helianhealth.agent.enums.MappingSource;
 import com.helianhealth.agent.enums.ParamType;
-import com.helianhealth.agent.mapper.agent.NodeParamConfigMapper;
 import com.helianhealth.agent.model.domain.InterfaceWorkflowNodeDO;
 import com.helianhealth.agent.model.domain.NodeParamConfigDO;
 import com.helianhealth.agent.model.dto.ParamTreeNode;
+import com.helianhealth.agent.registry.WorkflowDefinitionRegistry;
 import com.helianhealth.agent.remote.AbstractClientProxy;
+import com.helianhealth.agent.remote.ParamResolver;
+import com.helianhealth.agent.remote.cache.NodeResponseCache;
+import com.helianhealth.agent.remote.coalesce.RequestCoalescer;
+import com.helianhealth.agent.remote.helper.ResponseConvertHelper;
+import com.helianhealth.agent.remote.plan.ParamPlanNode;
+import com.helianhealth.agent.remote.resilience.NodeResilienceGuard;
 import com.helianhealth.agent.utils.JsonUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
-import org.springframework.util.StringUtils;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -23,18 +28,32 @@ public class DatabaseClientProxy extends AbstractClientProxy {
 
     private final DatabaseSqlHandler sqlHandler;
 
-    public DatabaseClientProxy(NodeParamConfigMapper nodeMapper, DatabaseSqlHandler sqlHandler) {
-        super(nodeMapper);
+    public DatabaseClientProxy(DatabaseSqlHandler sqlHandler,
+                               WorkflowDefinitionRegistry definitionRegistry,
+                               ResponseConvertHelper responseConvertHelper,
+                               NodeResponseCache responseCache,
+                               RequestCoalescer requestCoalescer,
+                               NodeResilienceGuard resilienceGuard) {
+        super(definitionRegistry, responseConvertHelper, responseCache, requestCoalescer, resilienceGuard);
         this.sqlHandler = sqlHandler;
     }
 
+    @Override
+    protected ParamResolver getParamResolver() {
+        return sqlHandler;
+    }
+
     @Override
     public Map<String, Object> doInvoke(InterfaceWorkflowNodeDO flowNode, List<ParamTreeNode> params) {
+        // 构建SQL查询语句
+        return doInvoke(flowNode, params, sqlHandler.resolveParamNodes(flowNode, params));
+    }
+
+    @Override
+    public Map<String, Object> doInvoke(InterfaceWorkflowNodeDO flowNode, List<ParamTreeNode> params, Object request) {
         try {
-            // 构建SQL查询语句
-            String sql = sqlHandler.resolveParamNodes(flowNode, params);
             // 执行SQL查询并转化为Map
-            return sqlHandler.invokeSqlAndConvertResult(flowNode, sql);
+            return sqlHandler.invokeSqlAndConvertResult(flowNode, (String) request);
         } catch (Exception e) {
             log.error("数据库调用失败", e);
             throw new RuntimeException("数据库调用失败: " + e.getMessage(), e);
@@ -42,10 +61,9 @@ public class DatabaseClientProxy extends AbstractClientProxy {
     }
 
     @Override
-    public void processObjectNodeType(NodeParamConfigDO config, List<NodeParamConfigDO> allNodes, Map<String, Object> businessData, Map<String, Object> rootBusinessData, ParamTreeNode node) {
-        node.setChildren(buildParamTree(allNodes,
-                config.getConfigId(),
-                processSourceParamWhenTargetIsObject(config, businessData),
+    public void processObjectNodeType(ParamPlanNode planNode, Map<String, Object> businessData, Map<String, Object> rootBusinessData, ParamTreeNode node) {
+        node.setChildren(buildParamTree(planNode.getChildren(),
+                processSourceParamWhenTargetIsObject(planNode.getConfig(), businessData),
                 rootBusinessData));
     }
 
@@ -86,20 +104,20 @@ public class DatabaseClientProxy extends AbstractClientProxy {
     }
 
     @Override
-    public void processArrayNodeType(NodeParamConfigDO config, List<NodeParamConfigDO> allNodes, Map<String, Object> businessData, Map<String, Object> rootBusinessData, ParamTreeNode node) {
-        doProcessArrayNodeType(config, allNodes, businessData, rootBusinessData, node);
+    public void processArrayNodeType(ParamPlanNode planNode, Map<String, Object> businessData, Map<String, Object> rootBusinessData, ParamTreeNode node) {
+        doProcessArrayNodeType(planNode, businessData, rootBusinessData, node);
     }
 
-    private void doProcessArrayNodeType(NodeParamConfigDO config, List<NodeParamConfigDO> allNodes, Map<String, Object> businessData, Map<String, Object> rootBusinessData, ParamTreeNode node) {
+    private void doProcessArrayNodeType(ParamPlanNode planNode, Map<String, Object> businessData, Map<String, Object> rootBusinessData, ParamTreeNode node) {
+        NodeParamConfigDO config = planNode.getConfig();
         // 根据映射源进入迭代
         Object sourceValue = config.getMappingSource() == MappingSource.INPUT ?
-                getSourceValue(config.getSourceParamKey(), rootBusinessData) :
-                getSourceValue(config.getSourceParamKey(), businessData);
+                planNode.readSourcePath(rootBusinessData) :
+                planNode.readSourcePath(businessData);
 
         if (config.getSourceParamType() == ParamType.OBJECT && sourceValue != null) {
             // 情况1: 源参数是Object，包装成大小为1的数组
-            List<ParamTreeNode> arrayChildren = buildParamTree(allNodes,
-                    config.getConfigId(),
+            List<ParamTreeNode> arrayChildren = buildParamTree(planNode.getChildren(),
                     JsonUtils.toMap(sourceValue),
                     rootBusinessData);
             node.setChildren(arrayChildren);
@@ -109,15 +127,13 @@ public class DatabaseClientProxy extends AbstractClientProxy {
             if (sourceValue instanceof List) {
                 List<?> sourceList = (List<?>) sourceValue;
                 for (Object item : sourceList) {
-                    List<ParamTreeNode> arrayChildren = buildParamTree(allNodes,
-                            config.getConfigId(),
+                    List<ParamTreeNode> arrayChildren = buildParamTree(planNode.getChildren(),
                             JsonUtils.toMap(item),
                             rootBusinessData);
                     allArrayChildren.addAll(arrayChildren);
                 }
             } else if (sourceValue instanceof Map) {
-                List<ParamTreeNode> arrayChildren = buildParamTree(allNodes,
-                        config.getConfigId(),
+                List<ParamTreeNode> arrayChildren = buildParamTree(planNode.getChildren(),
                         JsonUtils.toMap(sourceValue),
                         rootBusinessData);
                 allArrayChildren.addAll(arrayChildren);
@@ -128,27 +144,4 @@ public class DatabaseClientProxy extends AbstractClientProxy {
             node.setChildren(new ArrayList<>());
         }
     }
-
-    @SuppressWarnings("unchecked")
-    private Object getSourceValue(String sourceParamKey, Map<String, Object> businessData) {
-        if (businessData == null || StringUtils.isEmpty(sourceParamKey)) {
-            return null;
-        }
-        String[] keys = sourceParamKey.split("\\.");
-        Object current = businessData;
-
-        for (String key : keys) {
-            if (!(current instanceof Map)) {
-                return null; // 非 Map 类型无法继续深入
-            }
-
-            Map<String, Object> currentMap = (Map<String, Object>) current;
-            current = currentMap.get(key);
-            if (current == null) {
-                return null;
-            }
-        }
-
-        return current;
-    }
 }
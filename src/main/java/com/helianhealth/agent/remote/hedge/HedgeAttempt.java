@@ -0,0 +1,62 @@
+package com.helianhealth.agent.remote.hedge;
+
+import org.apache.hc.core5.concurrent.Cancellable;
+
+import java.util.concurrent.Callable;
+
+/**
+ * 对冲调用中在hedgeExecutor上执行的一次调用
+ * 阻塞IO的读取不响应线程中断,传输层发送请求前通过{@link #register(Cancellable)}登记请求,
+ * 调用被取消时中止请求并关闭连接,不会一直占用连接池中的连接直到读取结束
+ */
+public final class HedgeAttempt {
+
+    private static final ThreadLocal<HedgeAttempt> CURRENT = new ThreadLocal<>();
+
+    private Cancellable request;
+
+    private boolean cancelled;
+
+    /**
+     * 登记当前线程上正在发送的请求,不在对冲调用中时不做处理
+     * 调用已被取消时立即中止该请求
+     */
+    public static void register(Cancellable request) {
+        HedgeAttempt attempt = CURRENT.get();
+        if (attempt != null) {
+            attempt.setRequest(request);
+        }
+    }
+
+    /**
+     * 在当前线程上执行调用,执行期间登记的请求随调用一起取消
+     */
+    <T> T run(Callable<T> call) throws Exception {
+        CURRENT.set(this);
+        try {
+            return call.call();
+        } finally {
+            CURRENT.remove();
+            setRequest(null);
+        }
+    }
+
+    /**
+     * 取消调用,中止已登记的请求
+     */
+    synchronized void cancel() {
+        cancelled = true;
+        if (request != null) {
+            request.cancel();
+            request = null;
+        }
+    }
+
+    private synchronized void setRequest(Cancellable request) {
+        if (cancelled && request != null) {
+            request.cancel();
+            return;
+        }
+        this.request = request;
+    }
+}
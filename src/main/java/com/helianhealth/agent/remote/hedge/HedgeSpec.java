@@ -0,0 +1,132 @@
+package com.helianhealth.agent.remote.hedge;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 节点对冲请求和重试配置,只允许幂等节点开启
+ * 在节点metaInfo中配置:
+ * "idempotent": true,未配置时只有GET请求视为幂等
+ * "hedge": true 或 {"percentile":95,"minDelayMs":20,"maxDelayMs":2000}
+ *          超过最近调用耗时的percentile分位仍未返回时,发送一个相同的请求,取先返回的结果
+ * "retry": {"maxAttempts":3,"backoffMs":100,"maxBackoffMs":2000,"budgetRatio":0.1,"budgetTokens":10}
+ *          网络异常时按指数退避加随机抖动重试,重试和对冲共用节点的重试预算
+ */
+@Getter
+@EqualsAndHashCode
+public class HedgeSpec {
+
+    public static final double DEFAULT_PERCENTILE = 95;
+
+    public static final long DEFAULT_MIN_DELAY_MS = 10;
+
+    public static final long DEFAULT_MAX_DELAY_MS = 5000;
+
+    public static final long DEFAULT_BACKOFF_MS = 100;
+
+    public static final long DEFAULT_MAX_BACKOFF_MS = 2000;
+
+    public static final double DEFAULT_BUDGET_RATIO = 0.1;
+
+    public static final int DEFAULT_BUDGET_TOKENS = 10;
+
+    /**
+     * 是否开启对冲请求
+     */
+    private final boolean hedge;
+
+    /**
+     * 对冲延迟取最近调用耗时的分位数
+     */
+    private final double percentile;
+
+    private final long minDelayMs;
+
+    private final long maxDelayMs;
+
+    /**
+     * 包含首次调用的最大调用次数,为1时不重试
+     */
+    private final int maxAttempts;
+
+    private final long backoffMs;
+
+    private final long maxBackoffMs;
+
+    /**
+     * 每次成功调用返还的重试令牌数
+     */
+    private final double budgetRatio;
+
+    /**
+     * 重试令牌上限,令牌不超过上限一半时停止重试和对冲
+     */
+    private final int budgetTokens;
+
+    private HedgeSpec(Map<?, ?> hedge, Map<?, ?> retry, boolean hedgeEnabled) {
+        this.hedge = hedgeEnabled;
+        Object percentile = hedge.get("percentile");
+        if (percentile instanceof Number) {
+            double value = ((Number) percentile).doubleValue();
+            if (value <= 0 || value >= 100) {
+                throw new IllegalArgumentException("percentile必须在(0, 100)之间: " + percentile);
+            }
+            this.percentile = value;
+        } else {
+            this.percentile = DEFAULT_PERCENTILE;
+        }
+        this.minDelayMs = positiveLong(hedge, "minDelayMs", DEFAULT_MIN_DELAY_MS);
+        this.maxDelayMs = Math.max(positiveLong(hedge, "maxDelayMs", DEFAULT_MAX_DELAY_MS), minDelayMs);
+        this.maxAttempts = (int) Math.min(positiveLong(retry, "maxAttempts", 1), 10);
+        this.backoffMs = positiveLong(retry, "backoffMs", DEFAULT_BACKOFF_MS);
+        this.maxBackoffMs = Math.max(positiveLong(retry, "maxBackoffMs", DEFAULT_MAX_BACKOFF_MS), backoffMs);
+        Object budgetRatio = retry.get("budgetRatio");
+        this.budgetRatio = budgetRatio instanceof Number ? Math.max(((Number) budgetRatio).doubleValue(), 0) : DEFAULT_BUDGET_RATIO;
+        this.budgetTokens = (int) Math.min(positiveLong(retry, "budgetTokens", DEFAULT_BUDGET_TOKENS), 1000);
+    }
+
+    /**
+     * 解析节点配置
+     * @param metaInfo 节点metaInfo
+     * @return 未开启对冲和重试时返回null
+     * @throws IllegalArgumentException 非幂等节点开启对冲或重试时抛出
+     */
+    public static HedgeSpec parse(Map<String, Object> metaInfo) {
+        Object hedge = metaInfo.get("hedge");
+        Object retry = metaInfo.get("retry");
+        boolean hedgeEnabled = Boolean.TRUE.equals(hedge) || hedge instanceof Map;
+        Map<?, ?> retryConfig = retry instanceof Map ? (Map<?, ?>) retry : Collections.emptyMap();
+        if (!hedgeEnabled && retryConfig.isEmpty()) {
+            return null;
+        }
+        if (!isIdempotent(metaInfo)) {
+            throw new IllegalArgumentException("节点不是幂等的, 不能开启对冲请求或重试, 确认幂等后配置idempotent为true");
+        }
+        HedgeSpec spec = new HedgeSpec(hedge instanceof Map ? (Map<?, ?>) hedge : Collections.emptyMap(),
+                retryConfig, hedgeEnabled);
+        return spec.hedge || spec.maxAttempts > 1 ? spec : null;
+    }
+
+    private static boolean isIdempotent(Map<String, Object> metaInfo) {
+        Object idempotent = metaInfo.get("idempotent");
+        if (idempotent instanceof Boolean) {
+            return (Boolean) idempotent;
+        }
+        return "GET".equalsIgnoreCase(String.valueOf(metaInfo.get("method")));
+    }
+
+    private static long positiveLong(Map<?, ?> config, String key, long defaultValue) {
+        Object value = config.get(key);
+        if (!(value instanceof Number)) {
+            return defaultValue;
+        }
+        long number = ((Number) value).longValue();
+        if (number <= 0) {
+            throw new IllegalArgumentException(key + "必须大于0: " + value);
+        }
+        return number;
+    }
+}
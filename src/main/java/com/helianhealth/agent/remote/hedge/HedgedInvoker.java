@@ -0,0 +1,304 @@
+package com.helianhealth.agent.remote.hedge;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 下游传输调用的对冲请求、重试和耗时统计
+ * 所有经过的调用都记录节点耗时;开启对冲的节点在调用超过最近耗时的分位数仍未返回时,
+ * 在hedgeExecutor上再发送一个相同的请求,取先成功返回的结果并取消另一个;
+ * 开启重试的节点在网络异常时按指数退避加随机抖动重试
+ * 对冲和重试都会消耗节点的重试预算,下游整体故障时不会成倍放大请求量
+ * hedgeExecutor已满时不发送对冲请求,首次调用也无法提交时在当前线程上直接调用,对冲不会阻塞调用方
+ */
+@Slf4j
+@Component
+public class HedgedInvoker {
+
+    /**
+     * 样本数不足时耗时分位数不可信,不发送对冲请求
+     */
+    private static final int MIN_SAMPLES = 20;
+
+    private final ThreadPoolTaskExecutor hedgeExecutor;
+
+    private final Map<Integer, NodeState> states = new ConcurrentHashMap<>();
+
+    public HedgedInvoker(@Qualifier("hedgeExecutor") ThreadPoolTaskExecutor hedgeExecutor) {
+        this.hedgeExecutor = hedgeExecutor;
+    }
+
+    /**
+     * 执行传输调用
+     * @param nodeId 节点ID
+     * @param spec 节点对冲和重试配置,为null时只统计耗时
+     * @param call 传输调用,开启对冲时会在hedgeExecutor的线程上执行
+     * @return 调用结果
+     */
+    public <T> T execute(Integer nodeId, HedgeSpec spec, Callable<T> call) throws Exception {
+        NodeState state = stateFor(nodeId, spec);
+        if (spec == null) {
+            return timed(state, call);
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                T result = spec.isHedge() ? hedged(nodeId, state, call) : timed(state, call);
+                state.budget.onSuccess();
+                return result;
+            } catch (Exception e) {
+                // 只有网络异常扣减预算,参数错误等确定性的失败不代表下游故障
+                if (!isRetryable(e)) {
+                    throw e;
+                }
+                state.budget.onFailure();
+                if (attempt >= spec.getMaxAttempts()) {
+                    throw e;
+                }
+                if (!state.budget.allowRetry()) {
+                    state.budgetExhausted.increment();
+                    log.warn("节点[{}]重试预算已耗尽, 不再重试: {}", nodeId, e.getMessage());
+                    throw e;
+                }
+                long backoff = backoff(spec, attempt);
+                log.warn("节点[{}]第[{}]次调用失败, {}ms后重试: {}", nodeId, attempt, backoff, e.getMessage());
+                state.retries.increment();
+                sleep(backoff);
+            }
+        }
+    }
+
+    /**
+     * 各节点的耗时分位数、对冲和重试统计
+     */
+    public Map<Integer, Map<String, Object>> stats() {
+        Map<Integer, Map<String, Object>> stats = new TreeMap<>();
+        states.forEach((nodeId, state) -> {
+            Map<String, Object> nodeStats = new LinkedHashMap<>();
+            nodeStats.put("samples", state.latency.size());
+            nodeStats.put("p50Ms", toMillis(state.latency.percentile(50)));
+            nodeStats.put("p95Ms", toMillis(state.latency.percentile(95)));
+            nodeStats.put("p99Ms", toMillis(state.latency.percentile(99)));
+            if (state.spec != null) {
+                nodeStats.put("hedgeDelayMs", state.spec.isHedge() ? toMillis(hedgeDelay(state)) : null);
+                nodeStats.put("hedges", state.hedges.sum());
+                nodeStats.put("hedgeWins", state.hedgeWins.sum());
+                nodeStats.put("hedgeRejected", state.hedgeRejected.sum());
+                nodeStats.put("retries", state.retries.sum());
+                nodeStats.put("budgetExhausted", state.budgetExhausted.sum());
+                nodeStats.put("retryTokens", state.budget.tokens());
+            }
+            stats.put(nodeId, nodeStats);
+        });
+        return stats;
+    }
+
+    /**
+     * 首次调用超过对冲延迟仍未返回时发送对冲请求,先成功的结果胜出;
+     * 两个调用都失败时抛出最后一个失败的异常
+     * 结束时取消另一个调用,阻塞IO的调用通过{@link HedgeAttempt}中止请求并关闭连接
+     */
+    private <T> T hedged(Integer nodeId, NodeState state, Callable<T> call) throws Exception {
+        long delay = hedgeDelay(state);
+        if (delay < 0) {
+            return timed(state, call);
+        }
+        CompletionService<T> completionService = new ExecutorCompletionService<>(hedgeExecutor);
+        List<Future<T>> attempts = new ArrayList<>(2);
+        List<HedgeAttempt> running = new ArrayList<>(2);
+        try {
+            Future<T> first = submit(completionService, state, call, running);
+            if (first == null) {
+                // 线程池已满,不对冲,在当前线程上直接调用
+                state.hedgeRejected.increment();
+                return timed(state, call);
+            }
+            attempts.add(first);
+            Future<T> done = completionService.poll(delay, TimeUnit.NANOSECONDS);
+            if (done == null) {
+                if (!state.budget.allowRetry()) {
+                    state.budgetExhausted.increment();
+                } else {
+                    Future<T> hedge = submit(completionService, state, call, running);
+                    if (hedge == null) {
+                        state.hedgeRejected.increment();
+                        log.debug("节点[{}]调用超过{}ms未返回, 对冲线程池已满, 继续等待首次调用",
+                                nodeId, TimeUnit.NANOSECONDS.toMillis(delay));
+                    } else {
+                        state.hedges.increment();
+                        log.debug("节点[{}]调用超过{}ms未返回, 发送对冲请求", nodeId, TimeUnit.NANOSECONDS.toMillis(delay));
+                        attempts.add(hedge);
+                    }
+                }
+                done = completionService.take();
+            }
+            for (int remaining = attempts.size(); ; ) {
+                try {
+                    T result = unwrap(done);
+                    if (done != attempts.get(0)) {
+                        state.hedgeWins.increment();
+                    }
+                    return result;
+                } catch (Exception e) {
+                    if (--remaining == 0) {
+                        throw e;
+                    }
+                    log.debug("节点[{}]的一个对冲调用失败, 等待另一个调用: {}", nodeId, e.getMessage());
+                    done = completionService.take();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        } finally {
+            running.forEach(HedgeAttempt::cancel);
+            attempts.forEach(attempt -> attempt.cancel(true));
+        }
+    }
+
+    /**
+     * 在hedgeExecutor上提交一次调用
+     * @return 线程池已满被拒绝时返回null
+     */
+    private <T> Future<T> submit(CompletionService<T> completionService, NodeState state, Callable<T> call,
+                                 List<HedgeAttempt> running) {
+        HedgeAttempt attempt = new HedgeAttempt();
+        try {
+            Future<T> future = completionService.submit(() -> attempt.run(() -> timed(state, call)));
+            running.add(attempt);
+            return future;
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    private <T> T timed(NodeState state, Callable<T> call) throws Exception {
+        long start = System.nanoTime();
+        T result = call.call();
+        state.latency.record(System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * 对冲延迟,最近耗时的分位数限制在[minDelayMs, maxDelayMs]之间
+     * @return 纳秒数,样本不足时返回-1
+     */
+    private static long hedgeDelay(NodeState state) {
+        if (state.latency.size() < MIN_SAMPLES) {
+            return -1;
+        }
+        long delay = state.latency.percentile(state.spec.getPercentile());
+        return Math.min(Math.max(delay, TimeUnit.MILLISECONDS.toNanos(state.spec.getMinDelayMs())),
+                TimeUnit.MILLISECONDS.toNanos(state.spec.getMaxDelayMs()));
+    }
+
+    /**
+     * 指数退避加随机抖动,在退避时间的[1/2, 1]之间随机,避免多个调用方同时重试
+     */
+    private static long backoff(HedgeSpec spec, int attempt) {
+        long backoff = Math.min(spec.getMaxBackoffMs(), spec.getBackoffMs() << Math.min(attempt - 1, 20));
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    /**
+     * 只有网络异常可以重试,参数错误等确定性的失败重试也不会成功;等待被中断(如工作流超时)时不重试
+     */
+    private static boolean isRetryable(Exception e) {
+        if (Thread.currentThread().isInterrupted() || e instanceof InterruptedException) {
+            return false;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void sleep(long millis) throws InterruptedException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
+    private static <T> T unwrap(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private static Long toMillis(long nanos) {
+        return nanos < 0 ? null : TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private NodeState stateFor(Integer nodeId, HedgeSpec spec) {
+        NodeState state = states.get(nodeId);
+        if (state == null || !sameSpec(state.spec, spec)) {
+            // 节点配置变更后重新创建重试预算和计数,耗时样本反映的是下游本身,继续保留
+            state = states.compute(nodeId, (id, existing) -> {
+                if (existing != null && sameSpec(existing.spec, spec)) {
+                    return existing;
+                }
+                return new NodeState(spec, existing != null ? existing.latency : new LatencyTracker());
+            });
+        }
+        return state;
+    }
+
+    private static boolean sameSpec(HedgeSpec a, HedgeSpec b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static final class NodeState {
+
+        private final HedgeSpec spec;
+        private final LatencyTracker latency;
+
+        /**
+         * 重试预算,未开启对冲和重试时为null
+         */
+        private final RetryBudget budget;
+
+        private final LongAdder hedges = new LongAdder();
+        private final LongAdder hedgeWins = new LongAdder();
+        private final LongAdder hedgeRejected = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder budgetExhausted = new LongAdder();
+
+        NodeState(HedgeSpec spec, LatencyTracker latency) {
+            this.spec = spec;
+            this.latency = latency;
+            this.budget = spec == null ? null : new RetryBudget(spec.getBudgetTokens(), spec.getBudgetRatio());
+        }
+    }
+}
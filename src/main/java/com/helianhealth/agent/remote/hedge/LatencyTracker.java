@@ -0,0 +1,54 @@
+package com.helianhealth.agent.remote.hedge;
+
+import java.util.Arrays;
+
+/**
+ * 节点最近调用耗时,保留最近WINDOW次成功调用的耗时用于计算分位数
+ * 排序结果缓存到新增REFRESH_INTERVAL个样本后再重新计算,避免每次调用都排序
+ */
+final class LatencyTracker {
+
+    private static final int WINDOW = 256;
+
+    private static final int REFRESH_INTERVAL = 16;
+
+    private final long[] samples = new long[WINDOW];
+
+    private int count;
+
+    private int next;
+
+    private long[] sorted = new long[0];
+
+    private int sinceSorted;
+
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % WINDOW;
+        if (count < WINDOW) {
+            count++;
+        }
+        sinceSorted++;
+    }
+
+    synchronized int size() {
+        return count;
+    }
+
+    /**
+     * @param percentile 分位数,(0, 100)
+     * @return 耗时纳秒数,没有样本时返回-1
+     */
+    synchronized long percentile(double percentile) {
+        if (count == 0) {
+            return -1;
+        }
+        if (sorted.length == 0 || sinceSorted >= REFRESH_INTERVAL) {
+            sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            sinceSorted = 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.min(Math.max(index, 0), sorted.length - 1)];
+    }
+}
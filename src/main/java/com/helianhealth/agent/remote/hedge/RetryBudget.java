@@ -0,0 +1,47 @@
+package com.helianhealth.agent.remote.hedge;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 节点重试预算
+ * 令牌初始为上限,每次失败扣减1个,每次成功返还ratio个,令牌不超过上限一半时不再重试和对冲,
+ * 下游整体故障时重试流量被限制在正常流量的ratio比例以内,不会放大故障
+ * 令牌按千分之一为单位保存,避免浮点数的并发累加
+ */
+final class RetryBudget {
+
+    private static final long SCALE = 1000;
+
+    private final long maxTokens;
+
+    private final long threshold;
+
+    private final long tokenRatio;
+
+    private final AtomicLong tokens;
+
+    RetryBudget(int maxTokens, double tokenRatio) {
+        this.maxTokens = maxTokens * SCALE;
+        this.threshold = this.maxTokens / 2;
+        this.tokenRatio = (long) (tokenRatio * SCALE);
+        this.tokens = new AtomicLong(this.maxTokens);
+    }
+
+    boolean allowRetry() {
+        return tokens.get() > threshold;
+    }
+
+    void onSuccess() {
+        if (tokenRatio > 0) {
+            tokens.accumulateAndGet(tokenRatio, (current, delta) -> Math.min(current + delta, maxTokens));
+        }
+    }
+
+    void onFailure() {
+        tokens.accumulateAndGet(SCALE, (current, delta) -> Math.max(current - delta, 0));
+    }
+
+    double tokens() {
+        return (double) tokens.get() / SCALE;
+    }
+}
@@ -0,0 +1,128 @@
+package com.helianhealth.agent.remote.http;
+
+import com.helianhealth.agent.utils.CompressionUtils;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.nio.StreamChannel;
+import org.apache.hc.core5.http.nio.entity.AbstractBinAsyncEntityProducer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 异步客户端的压缩请求体
+ * 连接可写时压缩下一段请求体并发送,同时只保留一段压缩结果,不生成完整的压缩报文
+ */
+final class CompressingAsyncEntityProducer extends AbstractBinAsyncEntityProducer {
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private final byte[] source;
+    private final String encoding;
+
+    private Segment segment;
+    private OutputStream compressor;
+    private int position;
+    private int offset;
+    private boolean finished;
+
+    CompressingAsyncEntityProducer(byte[] source, ContentType contentType, String encoding) {
+        super(CHUNK_SIZE, contentType);
+        this.source = source;
+        this.encoding = encoding;
+    }
+
+    @Override
+    public String getContentEncoding() {
+        return encoding;
+    }
+
+    @Override
+    public boolean isChunked() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    protected int availableData() {
+        return finished && segment != null && offset >= segment.size() ? 0 : CHUNK_SIZE;
+    }
+
+    @Override
+    protected void produceData(StreamChannel<ByteBuffer> channel) throws IOException {
+        if (segment == null) {
+            segment = new Segment();
+            compressor = CompressionUtils.encode(segment, encoding);
+        }
+        while (true) {
+            if (offset < segment.size()) {
+                offset += channel.write(segment.remaining(offset));
+                if (offset < segment.size()) {
+                    // 连接暂时不可写,等待下一次回调
+                    return;
+                }
+                segment.reset();
+                offset = 0;
+            }
+            if (finished) {
+                channel.endStream();
+                return;
+            }
+            if (position < source.length) {
+                int length = Math.min(CHUNK_SIZE, source.length - position);
+                compressor.write(source, position, length);
+                position += length;
+            } else {
+                compressor.close();
+                finished = true;
+            }
+        }
+    }
+
+    @Override
+    public void failed(Exception cause) {
+        releaseResources();
+    }
+
+    @Override
+    public void releaseResources() {
+        super.releaseResources();
+        if (compressor != null && !finished) {
+            try {
+                compressor.close();
+            } catch (IOException ignored) {
+                // 压缩结果只在内存中
+            }
+        }
+        // 请求重发时从头开始压缩
+        segment = null;
+        compressor = null;
+        position = 0;
+        offset = 0;
+        finished = false;
+    }
+
+    /**
+     * 一段压缩结果
+     */
+    private static final class Segment extends ByteArrayOutputStream {
+
+        Segment() {
+            super(CHUNK_SIZE);
+        }
+
+        ByteBuffer remaining(int offset) {
+            return ByteBuffer.wrap(buf, offset, count - offset);
+        }
+    }
+}
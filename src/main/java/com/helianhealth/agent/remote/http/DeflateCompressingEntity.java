@@ -0,0 +1,64 @@
+package com.helianhealth.agent.remote.http;
+
+import com.helianhealth.agent.utils.CompressionUtils;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.entity.HttpEntityWrapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+
+/**
+ * 发送时按deflate(zlib格式)压缩的请求体,写入连接时边压缩边发送,以chunked方式传输
+ * gzip使用httpclient自带的GzipCompressingEntity,httpclient没有提供deflate的压缩实体
+ * getContent读取原请求体并压缩,与writeTo写出的内容一致,是否可重复发送、是否为流式与原请求体一致
+ */
+final class DeflateCompressingEntity extends HttpEntityWrapper {
+
+    DeflateCompressingEntity(HttpEntity entity) {
+        super(entity);
+    }
+
+    @Override
+    public String getContentEncoding() {
+        return CompressionUtils.DEFLATE;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public boolean isChunked() {
+        return true;
+    }
+
+    /**
+     * 读取压缩后的请求体,与writeTo写出的内容一致
+     */
+    @Override
+    public InputStream getContent() throws IOException {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        return new DeflaterInputStream(super.getContent(), deflater) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    deflater.end();
+                }
+            }
+        };
+    }
+
+    @Override
+    public void writeTo(OutputStream outStream) throws IOException {
+        OutputStream compressed = CompressionUtils.encode(outStream, CompressionUtils.DEFLATE);
+        super.writeTo(compressed);
+        // 写入压缩结尾,连接的输出流重复关闭没有影响
+        compressed.close();
+    }
+}
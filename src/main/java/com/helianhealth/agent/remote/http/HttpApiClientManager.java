@@ -1,119 +1,551 @@
 package com.helianhealth.agent.remote.http;
 
+import com.helianhealth.agent.config.HttpClientProperties;
+import com.helianhealth.agent.remote.hedge.HedgeAttempt;
+import com.helianhealth.agent.utils.CompressionUtils;
+import org.apache.hc.client5.http.ConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
 import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.entity.GzipCompressingEntity;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClientBuilder;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
 import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
 import org.apache.hc.core5.http.ContentType;
-import org.apache.hc.core5.http.ParseException;
-import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.io.entity.EntityTemplate;
 import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.http.nio.AsyncRequestProducer;
+import org.apache.hc.core5.http.nio.support.BasicRequestProducer;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.io.IOCallback;
+import org.apache.hc.core5.pool.ConnPoolControl;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
 import org.apache.hc.core5.util.Timeout;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
 
+/**
+ * HTTP客户端管理
+ * 按节点metaInfo中的poolProfile为每个下游分配独立的连接池,连接池在首次使用时创建
+ * 请求都声明接受gzip、deflate压缩的响应,阻塞客户端自动解压,异步客户端由响应消费者解压
+ * 节点配置的请求头原样发送,其中的Content-Type优先于默认的JSON类型
+ */
 public class HttpApiClientManager {
 
+    /**
+     * 未指定连接池时使用的连接池名称
+     */
+    public static final String DEFAULT_PROFILE = "default";
 
-    private final PoolingHttpClientConnectionManager connectionManager;
-    private final CloseableHttpClient httpClient;
     private static final Logger logger = LoggerFactory.getLogger(HttpApiClientManager.class);
 
-    // 默认连接超时时间，单位毫秒
-    private static final int DEFAULT_CONNECTION_TIMEOUT = 10000;
-    // 默认请求超时时间，单位毫秒
-    private static final int DEFAULT_REQUEST_TIMEOUT = 10000;
-    // 从连接池获取连接的超时时间，单位毫秒
-    private static final int DEFAULT_CONNECTION_REQUEST_TIMEOUT = 10000;
+    private final HttpClientProperties properties;
 
-    // 私有构造函数，防止外部实例化
-    HttpApiClientManager() {
-        // 创建连接池管理器
-        connectionManager = new PoolingHttpClientConnectionManager();
+    private final JsonResponseDecoder responseDecoder;
 
-        // 设置连接池参数
-        connectionManager.setMaxTotal(200); // 最大连接数
-        connectionManager.setDefaultMaxPerRoute(20); // 每个路由默认最大连接数
+    private final Map<String, ProfilePool> pools = new ConcurrentHashMap<>();
 
-        // 创建请求配置
-        RequestConfig requestConfig = RequestConfig.custom()
-                .setConnectTimeout(Timeout.ofMilliseconds(DEFAULT_CONNECTION_TIMEOUT))        // 连接超时时间
-                .setResponseTimeout(Timeout.ofMilliseconds(DEFAULT_REQUEST_TIMEOUT))        // 读取超时时间
-                .setConnectionRequestTimeout(Timeout.ofMilliseconds(DEFAULT_CONNECTION_REQUEST_TIMEOUT)) // 从连接池获取连接的超时时间
-                .build();
+    HttpApiClientManager(HttpClientProperties properties) {
+        this.properties = properties;
+        this.responseDecoder = new JsonResponseDecoder(properties);
+    }
 
-        // 创建HttpClient实例
-        httpClient = HttpClients.custom()
-                .setConnectionManager(connectionManager)
-                .setDefaultRequestConfig(requestConfig)
-                .build();
+    /**
+     * 使用默认连接池执行HTTP POST请求
+     */
+    public Map<String, Object> executePost(String url, String requestBody) throws IOException {
+        return executePost(DEFAULT_PROFILE, url, requestBody);
     }
 
     /**
      * 执行HTTP POST请求
+     * @param profile 连接池名称
      * @param url 请求URL
      * @param requestBody 请求体
-     * @return 响应内容
-     * @throws IOException IO异常
+     * @return 从响应流直接解析的JSON对象,响应为空时返回null
+     * @throws IOException IO异常,响应体超过最大限制或不是JSON对象时也会抛出
+     */
+    public Map<String, Object> executePost(String profile, String url, String requestBody) throws IOException {
+        return executePost(profile, url, requestBody, null);
+    }
+
+    /**
+     * 执行HTTP POST请求,请求体按指定方式压缩后发送
+     * @param compression 请求体压缩方式,gzip、deflate或null
      */
-    public String executePost(String url, String requestBody) throws IOException, ParseException {
-        logger.info("执行 POST 请求，URL: [{}]，请求体: [{}]", url, requestBody);
+    public Map<String, Object> executePost(String profile, String url, String requestBody, String compression) throws IOException {
+        return executePost(profile, url, Collections.emptyMap(), requestBody, compression);
+    }
+
+    /**
+     * 执行HTTP POST请求,携带节点配置的请求头,请求体按指定方式压缩后发送
+     * @param headers 请求头,其中的Content-Type优先于默认的JSON类型
+     * @param compression 请求体压缩方式,gzip、deflate或null
+     */
+    public Map<String, Object> executePost(String profile, String url, Map<String, String> headers, String requestBody,
+                                           String compression) throws IOException {
+        logger.info("执行 POST 请求，URL: [{}]，请求体: [{}]", url, responseDecoder.preview(requestBody));
         HttpPost httpPost = new HttpPost(url);
+        applyHeaders(httpPost, headers);
         if (requestBody != null && !requestBody.isEmpty()) {
-            httpPost.setEntity(new StringEntity(requestBody, ContentType.APPLICATION_JSON.withCharset(StandardCharsets.UTF_8)));
+            HttpEntity entity = new StringEntity(requestBody, resolveContentType(headers));
+            httpPost.setEntity(compress(entity, compression));
+        }
+        // 对冲调用被取消时中止请求,释放连接
+        HedgeAttempt.register(httpPost);
+        try (CloseableHttpResponse response = pool(profile).httpClient.execute(httpPost)) {
+            return logResponse("POST", responseDecoder.decode(response));
+        } catch (IOException e) {
+            logger.error("执行 POST 请求失败，URL: [{}]，异常: [{}]", url, e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * 执行HTTP POST请求并按文本读取响应,用于SOAP等XML下游
+     * 与JSON请求共用连接池,非2xx的响应同样返回,由调用方处理
+     * @param profile 连接池名称
+     * @param url 请求URL
+     * @param headers 请求头,其中的Content-Type优先于contentType
+     * @param requestBody 请求体写入回调,发送时直接写入连接的输出流,重试时会再次调用
+     * @param contentType 未配置Content-Type请求头时的请求体类型
+     * @param compression 请求体压缩方式,gzip、deflate或null
+     * @param connectTimeout 节点单独配置的连接超时时间,为null时使用连接池配置
+     * @param responseTimeout 节点单独配置的读取超时时间,为null时使用连接池配置
+     * @throws IOException IO异常,响应体超过最大限制时也会抛出
+     */
+    public TextResponse executePostForText(String profile, String url, Map<String, String> headers, IOCallback<OutputStream> requestBody,
+                                           ContentType contentType, String compression,
+                                           Duration connectTimeout, Duration responseTimeout) throws IOException {
+        logger.info("执行 POST 请求，URL: [{}]", url);
+        ProfilePool pool = pool(profile);
+        HttpPost httpPost = new HttpPost(url);
+        headers.forEach(httpPost::setHeader);
+        String contentTypeHeader = headers.get(HttpHeaders.CONTENT_TYPE);
+        if (contentTypeHeader != null) {
+            contentType = ContentType.parseLenient(contentTypeHeader);
         }
-        try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
-            String responseEntity = EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
-            logger.info("POST 请求响应: [{}]", responseEntity);
-            return responseEntity;
-        } catch (IOException | ParseException e) {
+        HttpEntity entity = new EntityTemplate(-1, contentType, null, requestBody);
+        httpPost.setEntity(compress(entity, compression));
+        if (connectTimeout != null || responseTimeout != null) {
+            RequestConfig.Builder config = RequestConfig.copy(pool.requestConfig);
+            if (connectTimeout != null) {
+                config.setConnectTimeout(toTimeout(connectTimeout));
+            }
+            if (responseTimeout != null) {
+                config.setResponseTimeout(toTimeout(responseTimeout));
+            }
+            httpPost.setConfig(config.build());
+        }
+        // 对冲调用被取消时中止请求,释放连接
+        HedgeAttempt.register(httpPost);
+        try (CloseableHttpResponse response = pool.httpClient.execute(httpPost)) {
+            TextResponse textResponse = responseDecoder.decodeText(response);
+            logger.info("POST 请求响应状态码: [{}]，大小: [{}] 字节，响应: [{}]",
+                    textResponse.getStatus(), textResponse.getSize(), textResponse.getPreview());
+            return textResponse;
+        } catch (IOException e) {
             logger.error("执行 POST 请求失败，URL: [{}]，异常: [{}]", url, e.getMessage(), e);
             throw e;
         }
     }
 
+    /**
+     * 使用默认连接池执行HTTP GET请求
+     */
+    public Map<String, Object> executeGet(String url) throws IOException {
+        return executeGet(DEFAULT_PROFILE, url);
+    }
+
     /**
      * 执行HTTP GET请求
+     * @param profile 连接池名称
      * @param url 请求URL
-     * @return 响应内容
-     * @throws IOException IO异常
+     * @return 从响应流直接解析的JSON对象,响应为空时返回null
+     * @throws IOException IO异常,响应体超过最大限制或不是JSON对象时也会抛出
      */
-    public String executeGet(String url) throws IOException, ParseException {
+    public Map<String, Object> executeGet(String profile, String url) throws IOException {
+        return executeGet(profile, url, Collections.emptyMap());
+    }
+
+    /**
+     * 执行HTTP GET请求,携带节点配置的请求头
+     */
+    public Map<String, Object> executeGet(String profile, String url, Map<String, String> headers) throws IOException {
         logger.info("执行 GET 请求，URL: [{}]", url);
         HttpGet httpGet = new HttpGet(url);
-        try (CloseableHttpResponse response = httpClient.execute(httpGet)) {
-            int statusCode = response.getCode();
-            logger.info("GET 请求响应状态码: [{}]", statusCode);
-            return EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
-        } catch (IOException | ParseException e) {
+        applyHeaders(httpGet, headers);
+        // 对冲调用被取消时中止请求,释放连接
+        HedgeAttempt.register(httpGet);
+        try (CloseableHttpResponse response = pool(profile).httpClient.execute(httpGet)) {
+            return logResponse("GET", responseDecoder.decode(response));
+        } catch (IOException e) {
             logger.error("执行 GET 请求失败，URL: [{}]，异常: [{}]", url, e.getMessage(), e);
             throw e;
         }
     }
 
+    /**
+     * 使用默认连接池异步执行HTTP请求
+     */
+    public CompletableFuture<Map<String, Object>> executeAsync(String method, String url, String requestBody, boolean forceHttp2) {
+        return executeAsync(DEFAULT_PROFILE, method, url, requestBody, forceHttp2);
+    }
+
+    /**
+     * 异步执行HTTP请求,调用线程不等待响应
+     * 响应体在IO线程上边接收边解析,不缓冲完整的响应
+     * @param profile 连接池名称
+     * @param method 请求方法,GET或POST
+     * @param url 请求URL
+     * @param requestBody 请求体
+     * @param forceHttp2 是否强制使用HTTP/2,用于明文HTTP/2(h2c)的下游
+     * @return 解析后的JSON对象,取消返回的Future会同时取消请求
+     */
+    public CompletableFuture<Map<String, Object>> executeAsync(String profile, String method, String url, String requestBody, boolean forceHttp2) {
+        return executeAsync(profile, method, url, requestBody, forceHttp2, null);
+    }
+
+    /**
+     * 异步执行HTTP请求,请求体按指定方式压缩后发送
+     * @param compression 请求体压缩方式,gzip、deflate或null
+     */
+    public CompletableFuture<Map<String, Object>> executeAsync(String profile, String method, String url, String requestBody,
+                                                               boolean forceHttp2, String compression) {
+        return executeAsync(profile, method, url, Collections.emptyMap(), requestBody, forceHttp2, compression);
+    }
+
+    /**
+     * 异步执行HTTP请求,携带节点配置的请求头,请求体按指定方式压缩后发送
+     * @param headers 请求头,其中的Content-Type优先于默认的JSON类型
+     * @param compression 请求体压缩方式,gzip、deflate或null
+     */
+    public CompletableFuture<Map<String, Object>> executeAsync(String profile, String method, String url, Map<String, String> headers,
+                                                               String requestBody, boolean forceHttp2, String compression) {
+        SimpleHttpRequest request;
+        AsyncRequestProducer requestProducer;
+        if ("GET".equalsIgnoreCase(method)) {
+            logger.info("异步执行 GET 请求，URL: [{}]", url);
+            request = SimpleRequestBuilder.get(url).build();
+            applyHeaders(request, headers);
+            requestProducer = SimpleRequestProducer.create(request);
+        } else {
+            logger.info("异步执行 POST 请求，URL: [{}]，请求体: [{}]", url, responseDecoder.preview(requestBody));
+            ContentType contentType = resolveContentType(headers);
+            boolean hasBody = requestBody != null && !requestBody.isEmpty();
+            SimpleRequestBuilder builder = SimpleRequestBuilder.post(url);
+            if (hasBody && compression == null) {
+                builder.setBody(requestBody, contentType);
+            }
+            request = builder.build();
+            applyHeaders(request, headers);
+            if (hasBody && compression != null) {
+                requestProducer = new BasicRequestProducer(request, new CompressingAsyncEntityProducer(
+                        requestBody.getBytes(contentType.getCharset()), contentType, compression));
+            } else {
+                requestProducer = SimpleRequestProducer.create(request);
+            }
+        }
+        // 异步客户端不会自动解压,由响应消费者按Content-Encoding解压;节点自己配置了Accept-Encoding时不覆盖
+        if (!request.containsHeader(HttpHeaders.ACCEPT_ENCODING)) {
+            request.setHeader(HttpHeaders.ACCEPT_ENCODING, CompressionUtils.ACCEPT_ENCODING);
+        }
+
+        CompletableFuture<Map<String, Object>> result = new CompletableFuture<>();
+        Future<JsonResponseDecoder.JsonResponse> exchange = pool(profile).asyncClient(forceHttp2).client.execute(
+                requestProducer, responseDecoder.newConsumer(),
+                new FutureCallback<JsonResponseDecoder.JsonResponse>() {
+                    @Override
+                    public void completed(JsonResponseDecoder.JsonResponse response) {
+                        result.complete(logResponse("异步 " + method, response));
+                    }
+
+                    @Override
+                    public void failed(Exception e) {
+                        logger.error("异步执行 {} 请求失败，URL: [{}]，异常: [{}]", method, url, e.getMessage(), e);
+                        result.completeExceptionally(e);
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        result.cancel(false);
+                    }
+                });
+        result.whenComplete((body, e) -> {
+            if (result.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private Map<String, Object> logResponse(String method, JsonResponseDecoder.JsonResponse response) {
+        logger.info("{} 请求响应状态码: [{}]，大小: [{}] 字节，响应: [{}]",
+                method, response.getStatus(), response.getSize(), response.getPreview());
+        return response.getBody();
+    }
+
+    /**
+     * 按压缩方式包装请求体
+     * @param compression gzip、deflate或null
+     */
+    private static HttpEntity compress(HttpEntity entity, String compression) {
+        if (compression == null) {
+            return entity;
+        }
+        return CompressionUtils.GZIP.equals(compression)
+                ? new GzipCompressingEntity(entity) : new DeflateCompressingEntity(entity);
+    }
+
+    private static void applyHeaders(HttpRequest request, Map<String, String> headers) {
+        if (headers != null) {
+            headers.forEach(request::setHeader);
+        }
+    }
+
+    /**
+     * 请求体类型,请求头中的Content-Type优先,未声明字符集时按UTF-8编码
+     */
+    private static ContentType resolveContentType(Map<String, String> headers) {
+        String contentTypeHeader = null;
+        if (headers != null) {
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                if (HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(header.getKey())) {
+                    contentTypeHeader = header.getValue();
+                }
+            }
+        }
+        if (contentTypeHeader == null) {
+            return ContentType.APPLICATION_JSON.withCharset(StandardCharsets.UTF_8);
+        }
+        ContentType contentType = ContentType.parseLenient(contentTypeHeader);
+        return contentType.getCharset() == null ? contentType.withCharset(StandardCharsets.UTF_8) : contentType;
+    }
+
+    private ProfilePool pool(String profile) {
+        String name = profile == null || profile.isEmpty() ? DEFAULT_PROFILE : profile;
+        return pools.computeIfAbsent(name, this::createPool);
+    }
+
+    private ProfilePool createPool(String name) {
+        if (!DEFAULT_PROFILE.equals(name) && !properties.getProfiles().containsKey(name)) {
+            logger.warn("连接池[{}]未配置, 使用默认连接池配置创建", name);
+        }
+        HttpClientProperties.PoolProfile profile = properties.resolveProfile(name);
+        logger.info("创建连接池[{}], 最大连接数: [{}], 每个路由最大连接数: [{}]",
+                name, profile.getMaxTotal(), profile.getMaxPerRoute());
+        return new ProfilePool(profile);
+    }
+
+    private static Timeout toTimeout(Duration duration) {
+        return Timeout.ofMilliseconds(duration.toMillis());
+    }
+
+    private static TimeValue toTimeValue(Duration duration) {
+        return TimeValue.ofMilliseconds(duration.toMillis());
+    }
+
     /**
      * 获取连接池状态信息
-     * @return 连接池状态字符串
+     * @return 按连接池名称、传输方式、路由统计的租用、等待和可用连接数
      */
-    public String getPoolStats() {
-        return connectionManager.getTotalStats().toString();
+    public Map<String, Object> getPoolStats() {
+        Map<String, Object> stats = new TreeMap<>();
+        pools.forEach((name, pool) -> stats.put(name, pool.stats()));
+        return stats;
     }
 
     /**
      * 关闭连接池和相关资源
      */
     public void close() {
-        try {
-            httpClient.close();
-            connectionManager.close();
-        } catch (Exception e) {
-            logger.error("Error closing HTTP client resources", e);
+        pools.values().forEach(ProfilePool::close);
+    }
+
+    private static Map<String, Object> poolStats(ConnPoolControl<HttpRoute> connectionManager, Set<HttpRoute> routes) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("total", toMap(connectionManager.getTotalStats()));
+        Map<String, Object> routeStats = new TreeMap<>();
+        for (HttpRoute route : routes) {
+            routeStats.put(route.getTargetHost().toURI(), toMap(connectionManager.getStats(route)));
+        }
+        stats.put("routes", routeStats);
+        return stats;
+    }
+
+    private static Map<String, Object> toMap(PoolStats poolStats) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("leased", poolStats.getLeased());
+        stats.put("pending", poolStats.getPending());
+        stats.put("available", poolStats.getAvailable());
+        stats.put("max", poolStats.getMax());
+        return stats;
+    }
+
+    /**
+     * 一个连接池配置对应的阻塞客户端和异步客户端
+     */
+    private class ProfilePool {
+
+        private final HttpClientProperties.PoolProfile profile;
+        private final RequestConfig requestConfig;
+        private final ConnectionKeepAliveStrategy keepAliveStrategy;
+        private final PoolingHttpClientConnectionManager connectionManager;
+        private final CloseableHttpClient httpClient;
+
+        /**
+         * 异步客户端,首次使用时创建,只使用阻塞调用时不启动IO线程
+         */
+        private volatile AsyncClient negotiateClient;
+
+        /**
+         * 强制HTTP/2的异步客户端,用于明文HTTP/2(h2c)的下游
+         */
+        private volatile AsyncClient http2Client;
+
+        ProfilePool(HttpClientProperties.PoolProfile profile) {
+            this.profile = profile;
+
+            // 创建连接池管理器
+            connectionManager = new PoolingHttpClientConnectionManager();
+            connectionManager.setMaxTotal(profile.getMaxTotal());
+            connectionManager.setDefaultMaxPerRoute(profile.getMaxPerRoute());
+
+            // 创建请求配置
+            requestConfig = RequestConfig.custom()
+                    .setConnectTimeout(toTimeout(profile.getConnectTimeout()))        // 连接超时时间
+                    .setResponseTimeout(toTimeout(profile.getResponseTimeout()))        // 读取超时时间
+                    .setConnectionRequestTimeout(toTimeout(profile.getConnectionRequestTimeout())) // 从连接池获取连接的超时时间
+                    .build();
+
+            // 配置了连接保持时间时忽略服务端Keep-Alive响应头
+            keepAliveStrategy = profile.getKeepAlive() == null ? null
+                    : (response, context) -> toTimeValue(profile.getKeepAlive());
+
+            HttpClientBuilder builder = HttpClients.custom()
+                    .setConnectionManager(connectionManager)
+                    .setDefaultRequestConfig(requestConfig)
+                    .evictExpiredConnections()
+                    .evictIdleConnections(toTimeValue(profile.getIdleEviction()));
+            if (keepAliveStrategy != null) {
+                builder.setKeepAliveStrategy(keepAliveStrategy);
+            }
+            httpClient = builder.build();
+        }
+
+        AsyncClient asyncClient(boolean forceHttp2) {
+            AsyncClient client = forceHttp2 ? http2Client : negotiateClient;
+            if (client != null) {
+                return client;
+            }
+            synchronized (this) {
+                if (forceHttp2) {
+                    if (http2Client == null) {
+                        http2Client = new AsyncClient(this, HttpVersionPolicy.FORCE_HTTP_2);
+                    }
+                    return http2Client;
+                }
+                if (negotiateClient == null) {
+                    negotiateClient = new AsyncClient(this, properties.getVersionPolicy());
+                }
+                return negotiateClient;
+            }
+        }
+
+        Map<String, Object> stats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("blocking", poolStats(connectionManager, connectionManager.getRoutes()));
+            AsyncClient negotiate = negotiateClient;
+            if (negotiate != null) {
+                stats.put("async", poolStats(negotiate.connectionManager, negotiate.connectionManager.getRoutes()));
+            }
+            AsyncClient http2 = http2Client;
+            if (http2 != null) {
+                stats.put("h2", poolStats(http2.connectionManager, http2.connectionManager.getRoutes()));
+            }
+            return stats;
+        }
+
+        void close() {
+            try {
+                httpClient.close();
+                connectionManager.close();
+                if (negotiateClient != null) {
+                    negotiateClient.close();
+                }
+                if (http2Client != null) {
+                    http2Client.close();
+                }
+            } catch (Exception e) {
+                logger.error("Error closing HTTP client resources", e);
+            }
+        }
+    }
+
+    /**
+     * 异步客户端及其连接池
+     */
+    private class AsyncClient {
+
+        private final PoolingAsyncClientConnectionManager connectionManager;
+        private final CloseableHttpAsyncClient client;
+
+        AsyncClient(ProfilePool pool, HttpVersionPolicy versionPolicy) {
+            connectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+                    .setMaxConnTotal(pool.profile.getMaxTotal())
+                    .setMaxConnPerRoute(pool.profile.getMaxPerRoute())
+                    .build();
+            HttpAsyncClientBuilder builder = HttpAsyncClients.custom()
+                    .setConnectionManager(connectionManager)
+                    .setDefaultRequestConfig(pool.requestConfig)
+                    .setVersionPolicy(versionPolicy)
+                    .setIOReactorConfig(IOReactorConfig.custom()
+                            .setIoThreadCount(properties.getIoThreads())
+                            .setSoTimeout(toTimeout(pool.profile.getResponseTimeout()))
+                            .build())
+                    .evictExpiredConnections()
+                    .evictIdleConnections(toTimeValue(pool.profile.getIdleEviction()));
+            if (pool.keepAliveStrategy != null) {
+                builder.setKeepAliveStrategy(pool.keepAliveStrategy);
+            }
+            client = builder.build();
+            client.start();
+        }
+
+        void close() {
+            client.close(CloseMode.GRACEFUL);
+            connectionManager.close(CloseMode.GRACEFUL);
         }
     }
-}
\ No newline at end of file
+}
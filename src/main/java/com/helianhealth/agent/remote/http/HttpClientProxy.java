@@ -5,11 +5,19 @@ import com.helianhealth.agent.enums.MappingSource;
 import com.helianhealth.agent.enums.MappingType;
 import com.helianhealth.agent.enums.NodeType;
 import com.helianhealth.agent.enums.ParamType;
-import com.helianhealth.agent.mapper.agent.NodeParamConfigMapper;
 import com.helianhealth.agent.model.domain.InterfaceWorkflowNodeDO;
 import com.helianhealth.agent.model.domain.NodeParamConfigDO;
 import com.helianhealth.agent.model.dto.ParamTreeNode;
+import com.helianhealth.agent.registry.WorkflowDefinitionRegistry;
 import com.helianhealth.agent.remote.AbstractClientProxy;
+import com.helianhealth.agent.remote.ParamResolver;
+import com.helianhealth.agent.remote.cache.NodeResponseCache;
+import com.helianhealth.agent.remote.coalesce.RequestCoalescer;
+import com.helianhealth.agent.remote.hedge.HedgeSpec;
+import com.helianhealth.agent.remote.hedge.HedgedInvoker;
+import com.helianhealth.agent.remote.helper.ResponseConvertHelper;
+import com.helianhealth.agent.remote.plan.ParamPlanNode;
+import com.helianhealth.agent.remote.resilience.NodeResilienceGuard;
 import com.helianhealth.agent.utils.JsonUtils;
 import com.helianhealth.agent.utils.ParamNodeUtils;
 import lombok.AllArgsConstructor;
@@ -18,20 +26,40 @@ import org.springframework.stereotype.Component;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 @Component
 public class HttpClientProxy extends AbstractClientProxy {
 
     private final HttpRequestHandler httpRequestHandler;
-
-    public HttpClientProxy(HttpRequestHandler httpRequestHandler, NodeParamConfigMapper nodeMapper) {
-        super(nodeMapper);
+    private final HedgedInvoker hedgedInvoker;
+
+    public HttpClientProxy(HttpRequestHandler httpRequestHandler,
+                           HedgedInvoker hedgedInvoker,
+                           WorkflowDefinitionRegistry definitionRegistry,
+                           ResponseConvertHelper responseConvertHelper,
+                           NodeResponseCache responseCache,
+                           RequestCoalescer requestCoalescer,
+                           NodeResilienceGuard resilienceGuard) {
+        super(definitionRegistry, responseConvertHelper, responseCache, requestCoalescer, resilienceGuard);
         this.httpRequestHandler = httpRequestHandler;
+        this.hedgedInvoker = hedgedInvoker;
     }
 
 
+    @Override
+    protected ParamResolver getParamResolver() {
+        return httpRequestHandler;
+    }
+
     @Override
     public Map<String, Object> doInvoke(InterfaceWorkflowNodeDO flowNode, List<ParamTreeNode> params) {
+        return doInvoke(flowNode, params, httpRequestHandler.resolveParamNodes(flowNode, params));
+    }
+
+    @Override
+    public Map<String, Object> doInvoke(InterfaceWorkflowNodeDO flowNode, List<ParamTreeNode> params, Object request) {
         try {
             // 1. 检查节点类型是否为HTTP
             if (flowNode.getNodeType() != NodeType.HTTP) {
@@ -47,22 +75,53 @@ public class HttpClientProxy extends AbstractClientProxy {
             String url = (String) metaInfo.get("url");
             String method = (String) metaInfo.getOrDefault("method", "GET");
             Map<String, String> headers = (Map<String, String>) metaInfo.getOrDefault("headers", new HashMap<>());
-            String requestBody = httpRequestHandler.resolveParamNodes(flowNode, params);
-
-            String responseBody = httpRequestHandler.executeHttpRequest(url, method, headers, requestBody);
+            String requestBody = (String) request;
+
+            // 按metaInfo中的poolProfile选择连接池,不同下游的连接数和超时相互隔离
+            String poolProfile = httpRequestHandler.resolvePoolProfile(metaInfo);
+            // 按metaInfo中的compression压缩请求体,压缩的响应都会自动解压
+            String compression = httpRequestHandler.resolveCompression(metaInfo);
+            // 幂等节点按配置对冲或重试,每次调用的耗时计入节点的耗时统计
+            HedgeSpec hedgeSpec = getNodeDefinition(flowNode).getHedgeSpec();
+            // 响应直接从连接的输入流解析为业务数据,不保留响应字符串
+            Map<String, Object> response;
+            if (httpRequestHandler.isAsyncTransport(metaInfo)) {
+                // 异步传输由IO线程完成收发,httpVersion配置为h2时强制使用HTTP/2
+                boolean forceHttp2 = "h2".equalsIgnoreCase(String.valueOf(metaInfo.get("httpVersion")));
+                response = hedgedInvoker.execute(flowNode.getNodeId(), hedgeSpec, () -> awaitResponse(
+                        httpRequestHandler.executeHttpRequestAsync(poolProfile, url, method, headers, requestBody, forceHttp2, compression)));
+            } else {
+                response = hedgedInvoker.execute(flowNode.getNodeId(), hedgeSpec, () ->
+                        httpRequestHandler.executeHttpRequest(poolProfile, url, method, headers, requestBody, compression));
+            }
 
-            return JsonUtils.toMap(responseBody);
+            return response;
         } catch (Exception e) {
             // 处理异常，可根据需要进行重试或降级处理
             throw new RuntimeException("HTTP远程调用失败: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * 在节点执行线程中等待异步响应,等待被中断时(如工作流超时取消)同时取消请求
+     */
+    private Map<String, Object> awaitResponse(CompletableFuture<Map<String, Object>> response) throws Exception {
+        try {
+            return response.get();
+        } catch (InterruptedException e) {
+            response.cancel(true);
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
     @Override
-    public void processObjectNodeType(NodeParamConfigDO config, List<NodeParamConfigDO> allNodes, Map<String, Object> businessData, Map<String, Object> rootBusinessData, ParamTreeNode node) {
-        node.setChildren(buildParamTree(allNodes,
-                config.getConfigId(),
-                processSourceParamWhenTargetIsObject(config, businessData),
+    public void processObjectNodeType(ParamPlanNode planNode, Map<String, Object> businessData, Map<String, Object> rootBusinessData, ParamTreeNode node) {
+        node.setChildren(buildParamTree(planNode.getChildren(),
+                processSourceParamWhenTargetIsObject(planNode.getConfig(), businessData),
                 rootBusinessData));
     }
 
@@ -103,11 +162,12 @@ public class HttpClientProxy extends AbstractClientProxy {
     }
 
     @Override
-    public void processArrayNodeType(NodeParamConfigDO config, List<NodeParamConfigDO> allNodes, Map<String, Object> businessData, Map<String, Object> rootBusinessData, ParamTreeNode node) {
-        doProcessArrayNodeType(config, allNodes, businessData, rootBusinessData, node);
+    public void processArrayNodeType(ParamPlanNode planNode, Map<String, Object> businessData, Map<String, Object> rootBusinessData, ParamTreeNode node) {
+        doProcessArrayNodeType(planNode, businessData, rootBusinessData, node);
     }
 
-    private void doProcessArrayNodeType(NodeParamConfigDO config, List<NodeParamConfigDO> allNodes, Map<String, Object> businessData, Map<String, Object> rootBusinessData, ParamTreeNode node) {
+    private void doProcessArrayNodeType(ParamPlanNode planNode, Map<String, Object> businessData, Map<String, Object> rootBusinessData, ParamTreeNode node) {
+        NodeParamConfigDO config = planNode.getConfig();
         // 根据映射源进入迭代
         Object sourceValue = config.getMappingSource() == MappingSource.INPUT ?
                 rootBusinessData.get(config.getSourceParamKey()) :
@@ -117,8 +177,7 @@ public class HttpClientProxy extends AbstractClientProxy {
 
         if (config.getSourceParamType() == ParamType.OBJECT && sourceValue != null) {
             // 情况1: 源参数是Object，包装成大小为1的数组
-            List<ParamTreeNode> arrayChildren = buildParamTree(allNodes,
-                    config.getConfigId(),
+            List<ParamTreeNode> arrayChildren = buildParamTree(planNode.getChildren(),
                     JsonUtils.toMap(sourceValue),
                     rootBusinessData);
             // 提取单个节点的值
@@ -138,8 +197,7 @@ public class HttpClientProxy extends AbstractClientProxy {
             } else {
                 for (Object item : sourceList) {
                     // 如果数组是一个对象数组配置的时候需要增加一个虚拟节点!
-                    List<ParamTreeNode> arrayChildren = buildParamTree(allNodes,
-                            config.getConfigId(),
+                    List<ParamTreeNode> arrayChildren = buildParamTree(planNode.getChildren(),
                             JsonUtils.toMap(item),
                             rootBusinessData);
                     // 提取单个节点的值
@@ -155,8 +213,7 @@ public class HttpClientProxy extends AbstractClientProxy {
             }
         } else {
             // 兼容单个Object转化成List的场景
-            List<ParamTreeNode> arrayChildren = buildParamTree(allNodes,
-                    config.getConfigId(),
+            List<ParamTreeNode> arrayChildren = buildParamTree(planNode.getChildren(),
                     businessData,
                     rootBusinessData);
             // 提取单个节点的值
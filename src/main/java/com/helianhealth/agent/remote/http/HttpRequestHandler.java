@@ -1,19 +1,26 @@
 package com.helianhealth.agent.remote.http;
 
+import com.helianhealth.agent.config.HttpClientProperties;
 import com.helianhealth.agent.enums.ParamType;
 import com.helianhealth.agent.model.domain.InterfaceWorkflowNodeDO;
 import com.helianhealth.agent.model.dto.ParamTreeNode;
 import com.helianhealth.agent.remote.ParamResolver;
+import com.helianhealth.agent.utils.CompressionUtils;
 import com.helianhealth.agent.utils.JsonUtils;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.hc.core5.http.ParseException;
-import org.springframework.http.HttpHeaders;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.io.IOCallback;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * HTTP参数解析委派类
@@ -21,12 +28,14 @@ import java.util.Map;
  */
 @Slf4j
 @Component
-public class HttpRequestHandler implements ParamResolver {
+public class HttpRequestHandler implements ParamResolver, DisposableBean {
 
+    private final HttpClientProperties httpClientProperties;
     private final HttpApiClientManager httpApiClientManager;
 
-    public HttpRequestHandler() {
-        this.httpApiClientManager = new HttpApiClientManager();
+    public HttpRequestHandler(HttpClientProperties httpClientProperties) {
+        this.httpClientProperties = httpClientProperties;
+        this.httpApiClientManager = new HttpApiClientManager(httpClientProperties);
     }
 
     /**
@@ -88,23 +97,127 @@ public class HttpRequestHandler implements ParamResolver {
         }
     }
 
-    public String executeHttpRequest(String url, String method, Map<String, String> headers, String requestBody) throws IOException, ParseException {
-        HttpHeaders httpHeaders = new HttpHeaders();
-        headers.forEach(httpHeaders::set);
-        if (httpHeaders.getContentType() == null) {
-            httpHeaders.setContentType(org.springframework.http.MediaType.APPLICATION_JSON);
-        }
+    public Map<String, Object> executeHttpRequest(String url, String method, Map<String, String> headers, String requestBody) throws IOException {
+        return executeHttpRequest(HttpApiClientManager.DEFAULT_PROFILE, url, method, headers, requestBody);
+    }
 
+    /**
+     * 使用指定连接池执行HTTP请求
+     * @param poolProfile 连接池名称,对应agent.http.profiles中的配置
+     * @return 从响应流直接解析的JSON对象
+     */
+    public Map<String, Object> executeHttpRequest(String poolProfile, String url, String method, Map<String, String> headers, String requestBody) throws IOException {
+        return executeHttpRequest(poolProfile, url, method, headers, requestBody, null);
+    }
+
+    /**
+     * 使用指定连接池执行HTTP请求,请求体按指定方式压缩后发送
+     * @param compression 请求体压缩方式,gzip、deflate或null
+     */
+    public Map<String, Object> executeHttpRequest(String poolProfile, String url, String method, Map<String, String> headers,
+                                                  String requestBody, String compression) throws IOException {
         switch (method.toUpperCase()) {
             case "GET":
                 // GET 请求拼接查询参数到 URL
-                return httpApiClientManager.executeGet(url);
+                return httpApiClientManager.executeGet(poolProfile, url, headers);
             case "POST":
-                // 设置 POST 请求体
-                return httpApiClientManager.executePost(url, requestBody);
+                // 设置 POST 请求体,未配置Content-Type请求头时按JSON发送
+                return httpApiClientManager.executePost(poolProfile, url, headers, requestBody, compression);
             default:
                 throw new IllegalArgumentException("不支持的HTTP方法: " + method);
         }
     }
-}
 
+    /**
+     * 节点是否使用异步传输,节点metaInfo中的transport优先于全局配置
+     */
+    public boolean isAsyncTransport(Map<String, Object> metaInfo) {
+        Object transport = metaInfo.get("transport");
+        if (transport == null) {
+            return httpClientProperties.getTransport() == HttpClientProperties.Transport.ASYNC;
+        }
+        return HttpClientProperties.Transport.ASYNC.name().equalsIgnoreCase(transport.toString());
+    }
+
+    /**
+     * 节点使用的连接池,由metaInfo中的poolProfile指定,未指定时使用默认连接池
+     */
+    public String resolvePoolProfile(Map<String, Object> metaInfo) {
+        Object poolProfile = metaInfo.get("poolProfile");
+        return poolProfile == null ? HttpApiClientManager.DEFAULT_PROFILE : poolProfile.toString();
+    }
+
+    /**
+     * 执行HTTP POST请求并按文本读取响应,用于SOAP等XML下游,与HTTP节点共用连接池和统计
+     * @param poolProfile 连接池名称
+     * @param requestBody 请求体写入回调,直接写入连接的输出流
+     * @param compression 请求体压缩方式,gzip、deflate或null
+     * @param connectTimeout 节点单独配置的连接超时时间,为null时使用连接池配置
+     * @param responseTimeout 节点单独配置的读取超时时间,为null时使用连接池配置
+     */
+    public TextResponse executeTextRequest(String poolProfile, String url, Map<String, String> headers, IOCallback<OutputStream> requestBody,
+                                           ContentType contentType, String compression,
+                                           Duration connectTimeout, Duration responseTimeout) throws IOException {
+        return httpApiClientManager.executePostForText(poolProfile, url, headers, requestBody, contentType, compression,
+                connectTimeout, responseTimeout);
+    }
+
+    /**
+     * 节点请求体的压缩方式,由metaInfo中的compression配置(gzip、deflate),未配置时不压缩
+     */
+    public String resolveCompression(Map<String, Object> metaInfo) {
+        return CompressionUtils.resolveEncoding(metaInfo.get("compression"));
+    }
+
+    public CompletableFuture<Map<String, Object>> executeHttpRequestAsync(String url, String method, String requestBody, boolean forceHttp2) {
+        return executeHttpRequestAsync(HttpApiClientManager.DEFAULT_PROFILE, url, method, requestBody, forceHttp2);
+    }
+
+    /**
+     * 异步执行HTTP请求,返回的Future在响应到达后完成
+     * @param poolProfile 连接池名称
+     * @param forceHttp2 是否强制使用HTTP/2,否则按配置的协议版本策略协商
+     */
+    public CompletableFuture<Map<String, Object>> executeHttpRequestAsync(String poolProfile, String url, String method, String requestBody, boolean forceHttp2) {
+        return executeHttpRequestAsync(poolProfile, url, method, requestBody, forceHttp2, null);
+    }
+
+    /**
+     * 异步执行HTTP请求,请求体按指定方式压缩后发送
+     * @param compression 请求体压缩方式,gzip、deflate或null
+     */
+    public CompletableFuture<Map<String, Object>> executeHttpRequestAsync(String poolProfile, String url, String method, String requestBody,
+                                                                          boolean forceHttp2, String compression) {
+        return executeHttpRequestAsync(poolProfile, url, method, Collections.emptyMap(), requestBody, forceHttp2, compression);
+    }
+
+    /**
+     * 异步执行HTTP请求,携带节点配置的请求头,与阻塞传输发送的请求一致
+     * @param headers 请求头,其中的Content-Type优先于默认的JSON类型
+     * @param compression 请求体压缩方式,gzip、deflate或null
+     */
+    public CompletableFuture<Map<String, Object>> executeHttpRequestAsync(String poolProfile, String url, String method,
+                                                                          Map<String, String> headers, String requestBody,
+                                                                          boolean forceHttp2, String compression) {
+        switch (method.toUpperCase()) {
+            case "GET":
+            case "POST":
+                return httpApiClientManager.executeAsync(poolProfile, method.toUpperCase(), url, headers, requestBody,
+                        forceHttp2, compression);
+            default:
+                throw new IllegalArgumentException("不支持的HTTP方法: " + method);
+        }
+    }
+
+    /**
+     * 各连接池按路由统计的连接使用情况
+     */
+    public Map<String, Object> getPoolStats() {
+        return httpApiClientManager.getPoolStats();
+    }
+
+    @Override
+    public void destroy() {
+        httpApiClientManager.close();
+    }
+}
@@ -0,0 +1,364 @@
+package com.helianhealth.agent.remote.http;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.helianhealth.agent.config.HttpClientProperties;
+import com.helianhealth.agent.utils.CompressionUtils;
+import org.apache.hc.client5.http.async.methods.AbstractBinResponseConsumer;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * HTTP响应的JSON解码
+ * 直接从响应流解析为业务数据,不生成完整的响应字符串,超过最大限制的响应在读取过程中中止
+ * 日志只保留报文开头的一段
+ */
+final class JsonResponseDecoder {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<Map<String, Object>>() {};
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private final long maxResponseSize;
+    private final int logPayloadLimit;
+
+    JsonResponseDecoder(HttpClientProperties properties) {
+        this.maxResponseSize = properties.getMaxResponseSize().toBytes();
+        this.logPayloadLimit = properties.getLogPayloadLimit();
+    }
+
+    /**
+     * 解码阻塞客户端的响应,调用方负责关闭响应
+     */
+    JsonResponse decode(ClassicHttpResponse response) throws IOException {
+        HttpEntity entity = response.getEntity();
+        PayloadPreview preview = new PayloadPreview(logPayloadLimit);
+        if (entity == null) {
+            return new JsonResponse(response.getCode(), null, preview);
+        }
+        checkContentLength(entity.getContentLength());
+        Charset charset = charsetOf(entity.getContentType());
+        try (InputStream in = new LimitedInputStream(entity.getContent(), preview)) {
+            JsonParser parser = isUtf8(charset)
+                    ? objectMapper.getFactory().createParser(in)
+                    : objectMapper.getFactory().createParser(new InputStreamReader(in, charset));
+            return new JsonResponse(response.getCode(), readMap(parser), preview);
+        }
+    }
+
+    /**
+     * 按文本读取阻塞客户端的响应,按Content-Type中的字符集解码,未声明时使用UTF-8,调用方负责关闭响应
+     */
+    TextResponse decodeText(ClassicHttpResponse response) throws IOException {
+        HttpEntity entity = response.getEntity();
+        PayloadPreview preview = new PayloadPreview(logPayloadLimit);
+        String body = "";
+        if (entity != null) {
+            checkContentLength(entity.getContentLength());
+            Charset charset = charsetOf(entity.getContentType());
+            long contentLength = entity.getContentLength();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(contentLength > 0 ? (int) contentLength : CHUNK_SIZE);
+            try (InputStream in = new LimitedInputStream(entity.getContent(), preview)) {
+                byte[] chunk = new byte[CHUNK_SIZE];
+                int read;
+                while ((read = in.read(chunk)) != -1) {
+                    out.write(chunk, 0, read);
+                }
+            }
+            body = out.toString((charset == null ? StandardCharsets.UTF_8 : charset).name());
+        }
+        return new TextResponse(response.getCode(), body, preview.size, preview.toString());
+    }
+
+    /**
+     * 创建异步客户端的响应消费者,收到一段数据就解析一段
+     */
+    AbstractBinResponseConsumer<JsonResponse> newConsumer() {
+        return new JsonResponseConsumer();
+    }
+
+    /**
+     * 截断后用于日志的报文
+     */
+    String preview(String payload) {
+        if (payload == null || payload.length() <= logPayloadLimit) {
+            return payload;
+        }
+        return payload.substring(0, logPayloadLimit) + "...(共" + payload.length() + "字符)";
+    }
+
+    private void checkContentLength(long contentLength) throws IOException {
+        if (contentLength > maxResponseSize) {
+            throw new IOException("响应体大小[" + contentLength + "]字节超过最大限制[" + maxResponseSize + "]字节");
+        }
+    }
+
+    private void checkSize(long size) throws IOException {
+        if (size > maxResponseSize) {
+            throw new IOException("响应体超过最大限制[" + maxResponseSize + "]字节, 已中止读取");
+        }
+    }
+
+    private static Map<String, Object> readMap(JsonParser parser) throws IOException {
+        try (JsonParser p = parser) {
+            // 空响应与原先按字符串解析的结果一致,返回null
+            if (p.nextToken() == null) {
+                return null;
+            }
+            return objectMapper.readValue(p, MAP_TYPE);
+        }
+    }
+
+    private static Charset charsetOf(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        try {
+            return ContentType.parseLenient(contentType).getCharset();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static boolean isUtf8(Charset charset) {
+        return charset == null || StandardCharsets.UTF_8.equals(charset);
+    }
+
+    /**
+     * 解码结果
+     */
+    static final class JsonResponse {
+
+        private final int status;
+        private final Map<String, Object> body;
+        private final PayloadPreview preview;
+
+        JsonResponse(int status, Map<String, Object> body, PayloadPreview preview) {
+            this.status = status;
+            this.body = body;
+            this.preview = preview;
+        }
+
+        int getStatus() {
+            return status;
+        }
+
+        Map<String, Object> getBody() {
+            return body;
+        }
+
+        long getSize() {
+            return preview.size;
+        }
+
+        String getPreview() {
+            return preview.toString();
+        }
+    }
+
+    /**
+     * 记录响应体大小和开头的一段内容
+     */
+    private static final class PayloadPreview {
+
+        private final byte[] head;
+        private int headLength;
+        private long size;
+
+        PayloadPreview(int limit) {
+            this.head = new byte[limit];
+        }
+
+        void append(byte[] buffer, int offset, int length) {
+            int copy = Math.min(length, head.length - headLength);
+            if (copy > 0) {
+                System.arraycopy(buffer, offset, head, headLength, copy);
+                headLength += copy;
+            }
+            size += length;
+        }
+
+        @Override
+        public String toString() {
+            String text = new String(head, 0, headLength, StandardCharsets.UTF_8);
+            return size > headLength ? text + "...(共" + size + "字节)" : text;
+        }
+    }
+
+    /**
+     * 限制读取大小的输入流
+     */
+    private final class LimitedInputStream extends FilterInputStream {
+
+        private final PayloadPreview preview;
+
+        LimitedInputStream(InputStream in, PayloadPreview preview) {
+            super(in);
+            this.preview = preview;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                preview.append(new byte[]{(byte) b}, 0, 1);
+                checkSize(preview.size);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                preview.append(b, off, read);
+                checkSize(preview.size);
+            }
+            return read;
+        }
+    }
+
+    /**
+     * 异步响应消费者
+     * UTF-8响应由非阻塞解析器逐段解析为token,响应结束后再转换为Map,其他字符集的响应先缓冲再解析
+     * 压缩的响应先缓冲压缩数据,响应结束后边解压边解析,解压后的大小同样受最大限制约束
+     */
+    private final class JsonResponseConsumer extends AbstractBinResponseConsumer<JsonResponse> {
+
+        private final byte[] chunk = new byte[CHUNK_SIZE];
+        private final PayloadPreview preview = new PayloadPreview(logPayloadLimit);
+
+        private int status;
+        private Charset charset;
+        private JsonParser parser;
+        private TokenBuffer tokens;
+        private boolean empty = true;
+        private ByteArrayOutputStream buffered;
+        private String contentEncoding;
+        private long encodedSize;
+        private JsonResponse result;
+
+        @Override
+        protected void start(HttpResponse response, ContentType contentType) throws IOException {
+            status = response.getCode();
+            Header contentLength = response.getFirstHeader(HttpHeaders.CONTENT_LENGTH);
+            if (contentLength != null) {
+                try {
+                    checkContentLength(Long.parseLong(contentLength.getValue().trim()));
+                } catch (NumberFormatException ignored) {
+                    // 非法的Content-Length交给读取过程中的大小检查
+                }
+            }
+            charset = contentType == null ? null : contentType.getCharset();
+            Header encoding = response.getFirstHeader(HttpHeaders.CONTENT_ENCODING);
+            if (encoding != null && CompressionUtils.isEncoded(encoding.getValue())) {
+                contentEncoding = encoding.getValue();
+                buffered = new ByteArrayOutputStream();
+            } else if (isUtf8(charset)) {
+                parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+                tokens = new TokenBuffer(parser);
+            } else {
+                buffered = new ByteArrayOutputStream();
+            }
+        }
+
+        @Override
+        protected int capacityIncrement() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        protected void data(ByteBuffer src, boolean endOfStream) throws IOException {
+            while (src.hasRemaining()) {
+                int length = Math.min(src.remaining(), chunk.length);
+                src.get(chunk, 0, length);
+                if (contentEncoding != null) {
+                    // 日志预览和大小限制按解压后的数据计算
+                    encodedSize += length;
+                    checkSize(encodedSize);
+                    buffered.write(chunk, 0, length);
+                    continue;
+                }
+                preview.append(chunk, 0, length);
+                checkSize(preview.size);
+                if (parser != null) {
+                    ((ByteArrayFeeder) parser.getNonBlockingInputFeeder()).feedInput(chunk, 0, length);
+                    drainTokens();
+                } else {
+                    buffered.write(chunk, 0, length);
+                }
+            }
+            if (endOfStream) {
+                result = new JsonResponse(status, finish(), preview);
+            }
+        }
+
+        private void drainTokens() throws IOException {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                tokens.copyCurrentEvent(parser);
+                empty = false;
+            }
+        }
+
+        private Map<String, Object> finish() throws IOException {
+            if (contentEncoding != null) {
+                InputStream in = new LimitedInputStream(CompressionUtils.decode(
+                        new ByteArrayInputStream(buffered.toByteArray()), contentEncoding), preview);
+                return readMap(isUtf8(charset)
+                        ? objectMapper.getFactory().createParser(in)
+                        : objectMapper.getFactory().createParser(new InputStreamReader(in, charset)));
+            }
+            if (parser == null) {
+                if (buffered == null) {
+                    return null;
+                }
+                return readMap(objectMapper.getFactory().createParser(
+                        new InputStreamReader(new ByteArrayInputStream(buffered.toByteArray()), charset)));
+            }
+            ((ByteArrayFeeder) parser.getNonBlockingInputFeeder()).endOfInput();
+            drainTokens();
+            return empty ? null : readMap(tokens.asParser(objectMapper));
+        }
+
+        @Override
+        protected JsonResponse buildResult() {
+            return result != null ? result : new JsonResponse(status, null, preview);
+        }
+
+        @Override
+        public void releaseResources() {
+            if (parser != null) {
+                try {
+                    parser.close();
+                } catch (IOException ignored) {
+                    // 解析器只持有内存中的数据
+                }
+            }
+            parser = null;
+            tokens = null;
+            buffered = null;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.helianhealth.agent.remote.http;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * 按文本读取的响应,用于SOAP等非JSON下游
+ */
+@Getter
+public final class TextResponse {
+
+    private final int status;
+
+    /**
+     * 按响应字符集解码的响应体,没有响应体时为空字符串
+     */
+    private final String body;
+
+    /**
+     * 解压后的响应体字节数
+     */
+    private final long size;
+
+    /**
+     * 用于日志的响应体开头部分
+     */
+    @Getter(AccessLevel.PACKAGE)
+    private final String preview;
+
+    TextResponse(int status, String body, long size, String preview) {
+        this.status = status;
+        this.body = body;
+        this.size = size;
+        this.preview = preview;
+    }
+
+    public boolean isSuccessful() {
+        return status >= 200 && status < 300;
+    }
+}
@@ -1,10 +1,14 @@
 package com.helianhealth.agent.remote.mock;
 
-import com.helianhealth.agent.mapper.agent.NodeParamConfigMapper;
 import com.helianhealth.agent.model.domain.InterfaceWorkflowNodeDO;
-import com.helianhealth.agent.model.domain.NodeParamConfigDO;
 import com.helianhealth.agent.model.dto.ParamTreeNode;
+import com.helianhealth.agent.registry.WorkflowDefinitionRegistry;
 import com.helianhealth.agent.remote.AbstractClientProxy;
+import com.helianhealth.agent.remote.cache.NodeResponseCache;
+import com.helianhealth.agent.remote.coalesce.RequestCoalescer;
+import com.helianhealth.agent.remote.helper.ResponseConvertHelper;
+import com.helianhealth.agent.remote.plan.ParamPlanNode;
+import com.helianhealth.agent.remote.resilience.NodeResilienceGuard;
 import org.springframework.stereotype.Component;
 
 import java.util.HashMap;
@@ -14,8 +18,12 @@ import java.util.Map;
 @Component
 public class MockApiClientProxy extends AbstractClientProxy {
 
-    public MockApiClientProxy(NodeParamConfigMapper nodeMapper) {
-        super(nodeMapper);
+    public MockApiClientProxy(WorkflowDefinitionRegistry definitionRegistry,
+                              ResponseConvertHelper responseConvertHelper,
+                              NodeResponseCache responseCache,
+                              RequestCoalescer requestCoalescer,
+                              NodeResilienceGuard resilienceGuard) {
+        super(definitionRegistry, responseConvertHelper, responseCache, requestCoalescer, resilienceGuard);
     }
 
     @Override
@@ -26,12 +34,12 @@ public class MockApiClientProxy extends AbstractClientProxy {
     }
 
     @Override
-    public void processObjectNodeType(NodeParamConfigDO config, List<NodeParamConfigDO> allNodes, Map<String, Object> businessData, Map<String, Object> rootBusinessData, ParamTreeNode node) {
+    public void processObjectNodeType(ParamPlanNode planNode, Map<String, Object> businessData, Map<String, Object> rootBusinessData, ParamTreeNode node) {
 
     }
 
     @Override
-    public void processArrayNodeType(NodeParamConfigDO config, List<NodeParamConfigDO> allNodes, Map<String, Object> businessData, Map<String, Object> rootBusinessData, ParamTreeNode node) {
+    public void processArrayNodeType(ParamPlanNode planNode, Map<String, Object> businessData, Map<String, Object> rootBusinessData, ParamTreeNode node) {
 
     }
 }
@@ -0,0 +1,143 @@
+package com.helianhealth.agent.remote.plan;
+
+import com.helianhealth.agent.enums.MappingType;
+import com.helianhealth.agent.enums.ParamType;
+import com.helianhealth.agent.model.domain.NodeParamConfigDO;
+import com.helianhealth.agent.remote.resolver.ValueResolveService;
+import com.helianhealth.agent.utils.XmlPathSelector;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 参数映射计划编译器
+ * 把节点的扁平参数配置一次性编译成计划树,避免调用时在每层递归、每个数组元素上重复筛选和排序
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ParamPlanCompiler {
+
+    private static final Comparator<NodeParamConfigDO> SORT_COMPARATOR =
+            Comparator.comparing(NodeParamConfigDO::getSort, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final ValueResolveService valueResolveService;
+
+    /**
+     * 编译参数配置
+     * @param configs 同一节点、同一处理类型的参数配置
+     * @return 根节点列表(parentId为null的配置)
+     */
+    public List<ParamPlanNode> compile(List<NodeParamConfigDO> configs) {
+        if (configs == null || configs.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Integer, List<NodeParamConfigDO>> childrenByParent = new HashMap<>();
+        for (NodeParamConfigDO config : configs) {
+            childrenByParent.computeIfAbsent(config.getParentId(), k -> new ArrayList<>()).add(config);
+        }
+        childrenByParent.values().forEach(children -> children.sort(SORT_COMPARATOR));
+        return compileChildren(null, childrenByParent, false);
+    }
+
+    /**
+     * @param reRooted 祖先中有切换业务数据的对象或数组参数,子参数的业务数据不再是节点响应的根
+     */
+    private List<ParamPlanNode> compileChildren(Integer parentId, Map<Integer, List<NodeParamConfigDO>> childrenByParent,
+                                                boolean reRooted) {
+        // 取出后移除,配置中即使存在环也不会无限递归
+        List<NodeParamConfigDO> children = childrenByParent.remove(parentId);
+        if (children == null) {
+            return Collections.emptyList();
+        }
+        List<ParamPlanNode> planNodes = new ArrayList<>(children.size());
+        for (NodeParamConfigDO config : children) {
+            planNodes.add(new ParamPlanNode(config,
+                    compileChildren(config.getConfigId(), childrenByParent, reRooted || isReRooting(config)),
+                    valueResolveService.findResolver(config.getMappingType()),
+                    compilePathSelector(config, reRooted)));
+        }
+        return planNodes;
+    }
+
+    /**
+     * 子参数是否从切换后的业务数据取值:对象参数取源参数的对象,数组参数按元素取值
+     */
+    private static boolean isReRooting(NodeParamConfigDO config) {
+        ParamType targetType = config.getTargetParamType();
+        if (targetType == ParamType.OBJECT) {
+            return config.getSourceParamType() != ParamType.NONE;
+        }
+        return targetType == ParamType.ARRAY || targetType == ParamType.PURE_ARRAY;
+    }
+
+    /**
+     * 编译XPath映射的路径,路径不合法时该参数取不到值,不影响其他配置
+     * 选取结果只在节点响应的根上,切换了业务数据的对象或数组下的XPath映射同样取不到值
+     */
+    private XmlPathSelector compilePathSelector(NodeParamConfigDO config, boolean reRooted) {
+        if (config.getMappingType() != MappingType.XPATH) {
+            return null;
+        }
+        if (reRooted) {
+            log.warn("参数配置[{}]的XPath映射位于取源参数的对象或数组下, 将取不到值, 请配置在不取源参数的对象下", config.getConfigId());
+            return null;
+        }
+        try {
+            return XmlPathSelector.compile(config.getMappingRule());
+        } catch (IllegalArgumentException e) {
+            log.warn("参数配置[{}]的XPath配置错误, 将取不到值: {}", config.getConfigId(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 收集计划中全部XPath映射的路径选择器,相同的路径只保留一个
+     */
+    public static List<XmlPathSelector> collectPathSelectors(List<ParamPlanNode> planNodes) {
+        Map<String, XmlPathSelector> selectors = new LinkedHashMap<>();
+        collectPathSelectors(planNodes, selectors);
+        return new ArrayList<>(selectors.values());
+    }
+
+    private static void collectPathSelectors(List<ParamPlanNode> planNodes, Map<String, XmlPathSelector> selectors) {
+        for (ParamPlanNode planNode : planNodes) {
+            XmlPathSelector selector = planNode.getPathSelector();
+            if (selector != null) {
+                selectors.putIfAbsent(selector.getExpression(), selector);
+            }
+            collectPathSelectors(planNode.getChildren(), selectors);
+        }
+    }
+
+    /**
+     * 计划是否只依赖XPath映射:基本类型参数都是XPath或固定值,对象参数只是不取源参数的标签体
+     * 满足时调用方可以不把XML响应转换为Map
+     */
+    public static boolean isPathOnly(List<ParamPlanNode> planNodes) {
+        if (planNodes.isEmpty()) {
+            return false;
+        }
+        for (ParamPlanNode planNode : planNodes) {
+            NodeParamConfigDO config = planNode.getConfig();
+            ParamType targetType = config.getTargetParamType();
+            if (targetType == ParamType.OBJECT) {
+                if (config.getSourceParamType() != ParamType.NONE || !isPathOnly(planNode.getChildren())) {
+                    return false;
+                }
+            } else if (targetType == ParamType.ARRAY || targetType == ParamType.PURE_ARRAY
+                    || (config.getMappingType() != MappingType.XPATH && config.getMappingType() != MappingType.CONSTANT)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,79 @@
+package com.helianhealth.agent.remote.plan;
+
+import com.helianhealth.agent.model.domain.NodeParamConfigDO;
+import com.helianhealth.agent.remote.resolver.ValueResolver;
+import com.helianhealth.agent.utils.XmlPathSelector;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 参数映射计划节点
+ * 由节点参数配置编译而来:子节点已按父节点分组并按sort排好序,值解析器和源参数路径已提前绑定
+ * 编译完成后不可修改,可被并发的调用共享
+ */
+@Getter
+public class ParamPlanNode {
+
+    private final NodeParamConfigDO config;
+
+    /**
+     * 已排序的子节点
+     */
+    private final List<ParamPlanNode> children;
+
+    /**
+     * 绑定的值解析器,映射类型没有对应解析器时为null
+     */
+    private final ValueResolver resolver;
+
+    /**
+     * 按"."拆分后的源参数路径,未配置源参数时为空数组
+     */
+    private final String[] sourcePath;
+
+    /**
+     * XPath映射编译好的路径选择器,其他映射类型或路径不合法时为null
+     */
+    private final XmlPathSelector pathSelector;
+
+    ParamPlanNode(NodeParamConfigDO config, List<ParamPlanNode> children, ValueResolver resolver, XmlPathSelector pathSelector) {
+        this.config = config;
+        this.children = Collections.unmodifiableList(children);
+        this.resolver = resolver;
+        this.pathSelector = pathSelector;
+        String sourceParamKey = config.getSourceParamKey();
+        this.sourcePath = sourceParamKey == null || sourceParamKey.isEmpty()
+                ? new String[0] : sourceParamKey.split("\\.");
+    }
+
+    /**
+     * 使用绑定的解析器解析基本类型节点的值
+     */
+    public Object resolveValue(Map<String, Object> businessData, Map<String, Object> sourceBusinessData) {
+        return resolver == null ? null : resolver.resolveValue(config, businessData, sourceBusinessData);
+    }
+
+    /**
+     * 按源参数路径逐级读取嵌套值,路径中断时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public Object readSourcePath(Map<String, Object> businessData) {
+        if (businessData == null || sourcePath.length == 0) {
+            return null;
+        }
+        Object current = businessData;
+        for (String key : sourcePath) {
+            if (!(current instanceof Map)) {
+                return null;
+            }
+            current = ((Map<String, Object>) current).get(key);
+            if (current == null) {
+                return null;
+            }
+        }
+        return current;
+    }
+}
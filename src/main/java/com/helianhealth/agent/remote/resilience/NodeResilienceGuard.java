@@ -0,0 +1,210 @@
+package com.helianhealth.agent.remote.resilience;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.helianhealth.agent.config.ResilienceProperties;
+import com.helianhealth.agent.exception.RemoteBusinessException;
+import com.helianhealth.agent.utils.JsonUtils;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 节点熔断和并发隔离
+ * 每个节点一个熔断器和一个信号量隔离舱,包裹协议调用:
+ * 失败率或慢调用率超过阈值时熔断,等待一段时间后半开放行少量探测调用,探测成功后恢复
+ * 隔离舱限制单个节点同时执行的调用数,一个下游挂起时不会占满调用线程和HTTP连接池
+ * 调用被拒绝或失败时,配置了降级的节点返回降级响应
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NodeResilienceGuard {
+
+    private final ResilienceProperties properties;
+
+    private final Map<Integer, NodeGuard> guards = new ConcurrentHashMap<>();
+
+    /**
+     * 节点降级是否需要请求摘要,CACHED降级按请求保存成功的响应
+     */
+    public boolean needsRequestKey(ResilienceSpec spec) {
+        return spec.getFallback() != null && spec.getFallback().getType() == ResilienceSpec.FallbackType.CACHED;
+    }
+
+    /**
+     * 在熔断器和隔离舱保护下执行调用
+     * @param nodeId 节点ID
+     * @param spec 节点配置
+     * @param requestKey 请求摘要,只有CACHED降级使用,可为null
+     * @param call 协议调用
+     * @return 调用结果或降级响应
+     */
+    public Map<String, Object> execute(Integer nodeId, ResilienceSpec spec, String requestKey, Supplier<Map<String, Object>> call) {
+        if (!isEnabled(spec)) {
+            return call.get();
+        }
+        NodeGuard guard = guardFor(nodeId, spec);
+        Map<String, Object> response;
+        try {
+            response = CircuitBreaker.decorateSupplier(guard.circuitBreaker,
+                    Bulkhead.decorateSupplier(guard.bulkhead, call)).get();
+        } catch (CallNotPermittedException e) {
+            return fallback(guard, nodeId, requestKey,
+                    RemoteBusinessException.CIRCUIT_OPEN.toException("节点[" + nodeId + "]熔断中, 调用被拒绝"));
+        } catch (BulkheadFullException e) {
+            return fallback(guard, nodeId, requestKey,
+                    RemoteBusinessException.BULKHEAD_FULL.toException("节点[" + nodeId + "]并发调用数已达上限, 调用被拒绝"));
+        } catch (RuntimeException e) {
+            return fallback(guard, nodeId, requestKey, e);
+        }
+        if (guard.lastSuccess != null && requestKey != null && response != null) {
+            guard.lastSuccess.put(requestKey, JsonUtils.copyMap(response));
+        }
+        return response;
+    }
+
+    /**
+     * 各节点的熔断器和隔离舱状态
+     */
+    public Map<Integer, Map<String, Object>> stats() {
+        Map<Integer, Map<String, Object>> stats = new TreeMap<>();
+        guards.forEach((nodeId, guard) -> {
+            CircuitBreaker.Metrics metrics = guard.circuitBreaker.getMetrics();
+            Map<String, Object> nodeStats = new LinkedHashMap<>();
+            nodeStats.put("state", guard.circuitBreaker.getState().name());
+            nodeStats.put("failureRate", metrics.getFailureRate());
+            nodeStats.put("slowCallRate", metrics.getSlowCallRate());
+            nodeStats.put("bufferedCalls", metrics.getNumberOfBufferedCalls());
+            nodeStats.put("failedCalls", metrics.getNumberOfFailedCalls());
+            nodeStats.put("slowCalls", metrics.getNumberOfSlowCalls());
+            nodeStats.put("notPermittedCalls", metrics.getNumberOfNotPermittedCalls());
+            nodeStats.put("availableConcurrentCalls", guard.bulkhead.getMetrics().getAvailableConcurrentCalls());
+            nodeStats.put("maxConcurrentCalls", guard.bulkhead.getMetrics().getMaxAllowedConcurrentCalls());
+            nodeStats.put("fallbacks", guard.fallbacks.sum());
+            stats.put(nodeId, nodeStats);
+        });
+        return stats;
+    }
+
+    /**
+     * 重置节点的熔断器,恢复为关闭状态并清空统计
+     * @return 节点没有熔断器时返回false
+     */
+    public boolean reset(Integer nodeId) {
+        NodeGuard guard = guards.get(nodeId);
+        if (guard == null) {
+            return false;
+        }
+        guard.circuitBreaker.reset();
+        log.info("已重置节点[{}]的熔断器", nodeId);
+        return true;
+    }
+
+    private boolean isEnabled(ResilienceSpec spec) {
+        if (spec.getEnabled() != null) {
+            return spec.getEnabled();
+        }
+        // 节点配置了resilience或fallback时开启,否则按全局配置
+        return !ResilienceSpec.DEFAULT.equals(spec) || properties.isEnabled();
+    }
+
+    private Map<String, Object> fallback(NodeGuard guard, Integer nodeId, String requestKey, RuntimeException cause) {
+        ResilienceSpec.Fallback fallback = guard.spec.getFallback();
+        if (fallback == null) {
+            throw cause;
+        }
+        Map<String, Object> response = null;
+        if (guard.lastSuccess != null && requestKey != null) {
+            response = guard.lastSuccess.getIfPresent(requestKey);
+        }
+        if (response == null) {
+            response = fallback.getResponse();
+        }
+        if (response == null) {
+            throw cause;
+        }
+        guard.fallbacks.increment();
+        log.warn("节点[{}]调用失败, 使用{}降级响应: {}", nodeId, fallback.getType(), cause.getMessage());
+        return JsonUtils.copyMap(response);
+    }
+
+    private NodeGuard guardFor(Integer nodeId, ResilienceSpec spec) {
+        NodeGuard guard = guards.get(nodeId);
+        if (guard == null || !guard.spec.equals(spec)) {
+            // 节点配置变更后重新创建,熔断状态和统计重新开始
+            guard = guards.compute(nodeId, (id, existing) ->
+                    existing != null && existing.spec.equals(spec) ? existing : new NodeGuard(id, spec));
+        }
+        return guard;
+    }
+
+    private static <T> T orDefault(T value, T defaultValue) {
+        return value != null ? value : defaultValue;
+    }
+
+    private static Duration millis(Long millis, Duration defaultValue) {
+        return millis != null ? Duration.ofMillis(millis) : defaultValue;
+    }
+
+    private final class NodeGuard {
+
+        private final ResilienceSpec spec;
+        private final CircuitBreaker circuitBreaker;
+        private final Bulkhead bulkhead;
+
+        /**
+         * 最近一次成功的响应,只有CACHED降级时创建
+         */
+        private final Cache<String, Map<String, Object>> lastSuccess;
+
+        private final LongAdder fallbacks = new LongAdder();
+
+        NodeGuard(Integer nodeId, ResilienceSpec spec) {
+            this.spec = spec;
+            int slidingWindowSize = orDefault(spec.getSlidingWindowSize(), properties.getSlidingWindowSize());
+            this.circuitBreaker = CircuitBreaker.of("node-" + nodeId, CircuitBreakerConfig.custom()
+                    .failureRateThreshold(orDefault(spec.getFailureRateThreshold(), properties.getFailureRateThreshold()))
+                    .slowCallRateThreshold(orDefault(spec.getSlowCallRateThreshold(), properties.getSlowCallRateThreshold()))
+                    .slowCallDurationThreshold(millis(spec.getSlowCallDurationMs(), properties.getSlowCallDuration()))
+                    .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                    .slidingWindowSize(slidingWindowSize)
+                    .minimumNumberOfCalls(Math.min(slidingWindowSize,
+                            orDefault(spec.getMinimumNumberOfCalls(), properties.getMinimumNumberOfCalls())))
+                    .waitDurationInOpenState(millis(spec.getWaitDurationInOpenStateMs(), properties.getWaitDurationInOpenState()))
+                    .permittedNumberOfCallsInHalfOpenState(orDefault(spec.getPermittedCallsInHalfOpenState(),
+                            properties.getPermittedCallsInHalfOpenState()))
+                    // 隔离舱满是本节点并发过高,不代表下游故障,不计入失败率
+                    .ignoreExceptions(BulkheadFullException.class)
+                    .build());
+            this.circuitBreaker.getEventPublisher().onStateTransition(event ->
+                    log.warn("节点[{}]熔断器状态变更: {}", nodeId, event.getStateTransition()));
+            this.bulkhead = Bulkhead.of("node-" + nodeId, BulkheadConfig.custom()
+                    .maxConcurrentCalls(orDefault(spec.getMaxConcurrentCalls(), properties.getMaxConcurrentCalls()))
+                    .maxWaitDuration(millis(spec.getMaxWaitMs(), properties.getMaxWaitDuration()))
+                    .build());
+            ResilienceSpec.Fallback fallback = spec.getFallback();
+            this.lastSuccess = fallback != null && fallback.getType() == ResilienceSpec.FallbackType.CACHED
+                    ? Caffeine.newBuilder()
+                        .expireAfterWrite(fallback.getTtlSeconds(), TimeUnit.SECONDS)
+                        .maximumSize(fallback.getMaxEntries())
+                        .<String, Map<String, Object>>build()
+                    : null;
+        }
+    }
+}
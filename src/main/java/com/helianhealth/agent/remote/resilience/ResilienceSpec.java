@@ -0,0 +1,167 @@
+package com.helianhealth.agent.remote.resilience;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 节点熔断、并发隔离和降级配置
+ * 在节点metaInfo中配置,配置了resilience或fallback的节点开启保护,未配置的项使用agent.resilience中的默认值:
+ * "resilience": {"enabled":true,"failureRateThreshold":50,"slowCallRateThreshold":80,"slowCallDurationMs":3000,
+ *                "slidingWindowSize":50,"minimumNumberOfCalls":20,"waitDurationInOpenStateMs":30000,
+ *                "permittedCallsInHalfOpenState":5,"maxConcurrentCalls":20,"maxWaitMs":0}
+ * "resilience": true 使用默认值开启,"resilience": false 关闭
+ * "fallback": {"type":"STATIC","response":{...}} 或 {"type":"CACHED","ttlSeconds":3600,"maxEntries":1000,"response":{...}}
+ * STATIC直接返回配置的响应;CACHED返回相同请求最近一次成功的响应,没有时返回配置的response
+ */
+@Getter
+@EqualsAndHashCode
+public class ResilienceSpec {
+
+    public static final ResilienceSpec DEFAULT = new ResilienceSpec(Collections.emptyMap(), null);
+
+    private final Boolean enabled;
+    private final Float failureRateThreshold;
+    private final Float slowCallRateThreshold;
+    private final Long slowCallDurationMs;
+    private final Integer slidingWindowSize;
+    private final Integer minimumNumberOfCalls;
+    private final Long waitDurationInOpenStateMs;
+    private final Integer permittedCallsInHalfOpenState;
+    private final Integer maxConcurrentCalls;
+    private final Long maxWaitMs;
+
+    /**
+     * 降级配置,未配置时为null
+     */
+    private final Fallback fallback;
+
+    private ResilienceSpec(Map<?, ?> config, Fallback fallback) {
+        this.enabled = config.get("enabled") instanceof Boolean ? (Boolean) config.get("enabled") : null;
+        this.failureRateThreshold = percentage(config, "failureRateThreshold");
+        this.slowCallRateThreshold = percentage(config, "slowCallRateThreshold");
+        this.slowCallDurationMs = positiveLong(config, "slowCallDurationMs");
+        this.slidingWindowSize = positiveInt(config, "slidingWindowSize");
+        this.minimumNumberOfCalls = positiveInt(config, "minimumNumberOfCalls");
+        this.waitDurationInOpenStateMs = positiveLong(config, "waitDurationInOpenStateMs");
+        this.permittedCallsInHalfOpenState = positiveInt(config, "permittedCallsInHalfOpenState");
+        this.maxConcurrentCalls = positiveInt(config, "maxConcurrentCalls");
+        Object maxWaitMs = config.get("maxWaitMs");
+        this.maxWaitMs = maxWaitMs instanceof Number ? Math.max(((Number) maxWaitMs).longValue(), 0) : null;
+        this.fallback = fallback;
+    }
+
+    /**
+     * 解析节点配置
+     * @param resilience 节点metaInfo中的resilience配置
+     * @param fallback 节点metaInfo中的fallback配置
+     * @return 都未配置时返回{@link #DEFAULT}
+     */
+    public static ResilienceSpec parse(Object resilience, Object fallback) {
+        Map<?, ?> config = resilience instanceof Map ? (Map<?, ?>) resilience : Collections.emptyMap();
+        if (resilience instanceof Boolean) {
+            config = Collections.singletonMap("enabled", resilience);
+        }
+        Fallback fallbackSpec = Fallback.parse(fallback);
+        if (config.isEmpty() && fallbackSpec == null) {
+            return DEFAULT;
+        }
+        return new ResilienceSpec(config, fallbackSpec);
+    }
+
+    private static Float percentage(Map<?, ?> config, String key) {
+        Object value = config.get(key);
+        if (!(value instanceof Number)) {
+            return null;
+        }
+        float percentage = ((Number) value).floatValue();
+        if (percentage <= 0 || percentage > 100) {
+            throw new IllegalArgumentException(key + "必须在(0, 100]之间: " + value);
+        }
+        return percentage;
+    }
+
+    private static Integer positiveInt(Map<?, ?> config, String key) {
+        Long value = positiveLong(config, key);
+        return value == null ? null : (int) Math.min(value, Integer.MAX_VALUE);
+    }
+
+    private static Long positiveLong(Map<?, ?> config, String key) {
+        Object value = config.get(key);
+        if (!(value instanceof Number)) {
+            return null;
+        }
+        long number = ((Number) value).longValue();
+        if (number <= 0) {
+            throw new IllegalArgumentException(key + "必须大于0: " + value);
+        }
+        return number;
+    }
+
+    public enum FallbackType {
+
+        /**
+         * 返回配置的固定响应
+         */
+        STATIC,
+
+        /**
+         * 返回相同请求最近一次成功的响应
+         */
+        CACHED
+    }
+
+    /**
+     * 降级配置
+     */
+    @Getter
+    @EqualsAndHashCode
+    public static class Fallback {
+
+        public static final long DEFAULT_TTL_SECONDS = 3600;
+
+        public static final long DEFAULT_MAX_ENTRIES = 1000;
+
+        private final FallbackType type;
+
+        /**
+         * 固定响应,CACHED没有可用的成功响应时也使用该响应
+         */
+        private final Map<String, Object> response;
+
+        private final long ttlSeconds;
+
+        private final long maxEntries;
+
+        private Fallback(FallbackType type, Map<String, Object> response, long ttlSeconds, long maxEntries) {
+            this.type = type;
+            this.response = response;
+            this.ttlSeconds = ttlSeconds;
+            this.maxEntries = maxEntries;
+        }
+
+        @SuppressWarnings("unchecked")
+        static Fallback parse(Object fallback) {
+            if (!(fallback instanceof Map)) {
+                return null;
+            }
+            Map<?, ?> config = (Map<?, ?>) fallback;
+            FallbackType type = config.get("type") == null ? FallbackType.STATIC
+                    : FallbackType.valueOf(config.get("type").toString().toUpperCase());
+            Object response = config.get("response");
+            if (response != null && !(response instanceof Map)) {
+                throw new IllegalArgumentException("降级配置的response必须是JSON对象: " + response);
+            }
+            if (type == FallbackType.STATIC && response == null) {
+                throw new IllegalArgumentException("STATIC降级必须配置response");
+            }
+            Long ttlSeconds = positiveLong(config, "ttlSeconds");
+            Long maxEntries = positiveLong(config, "maxEntries");
+            return new Fallback(type, (Map<String, Object>) response,
+                    ttlSeconds == null ? DEFAULT_TTL_SECONDS : ttlSeconds,
+                    maxEntries == null ? DEFAULT_MAX_ENTRIES : maxEntries);
+        }
+    }
+}
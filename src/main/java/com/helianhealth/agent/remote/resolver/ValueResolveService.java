@@ -1,5 +1,6 @@
 package com.helianhealth.agent.remote.resolver;
 
+import com.helianhealth.agent.enums.MappingType;
 import com.helianhealth.agent.model.domain.NodeParamConfigDO;
 import org.springframework.stereotype.Service;
 
@@ -21,4 +22,14 @@ public class ValueResolveService {
                 .map(resolver -> resolver.resolveValue(config, businessData, sourceBusinessData))
                 .orElse(null);
     }
+
+    /**
+     * 查找支持该映射类型的解析器,供参数映射计划编译时提前绑定
+     */
+    public ValueResolver findResolver(MappingType mappingType) {
+        return resolvers.stream()
+                .filter(resolver -> resolver.supports(mappingType))
+                .findFirst()
+                .orElse(null);
+    }
 }
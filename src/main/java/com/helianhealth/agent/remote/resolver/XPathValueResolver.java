@@ -0,0 +1,26 @@
+package com.helianhealth.agent.remote.resolver;
+
+import com.helianhealth.agent.enums.MappingType;
+import com.helianhealth.agent.model.domain.NodeParamConfigDO;
+import com.helianhealth.agent.utils.XmlPathSelector;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * XPath解析器
+ * 值在解析节点的XML响应时按节点编译好的路径一次选取,这里只按路径读取选取结果
+ */
+@Component
+public class XPathValueResolver implements ValueResolver {
+    @Override
+    public Object resolveValue(NodeParamConfigDO config, Map<String, Object> businessData, Map<String, Object> sourceBusinessData) {
+        Object values = businessData == null ? null : businessData.get(XmlPathSelector.VALUES_KEY);
+        return values instanceof Map ? ((Map<?, ?>) values).get(config.getMappingRule()) : null;
+    }
+
+    @Override
+    public boolean supports(MappingType mappingType) {
+        return MappingType.XPATH == mappingType;
+    }
+}
@@ -0,0 +1,60 @@
+package com.helianhealth.agent.remote.webService;
+
+import com.helianhealth.agent.model.dto.ParamTreeNode;
+import com.helianhealth.agent.utils.ParamNodeUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 节点的SOAP信封模板
+ * 信封、命名空间和Header对同一节点的每次调用都相同,按metaInfo编译一次,
+ * 以${inputParam}占位符为界预先编码为字节片段,发送时依次写入片段并在占位处直接写入参数树的XML
+ */
+final class SoapEnvelopeTemplate {
+
+    static final String PLACEHOLDER = "${inputParam}";
+
+    /**
+     * 占位符之间的字节片段,片段数比占位符数多一个
+     */
+    private final byte[][] segments;
+
+    private final Charset charset;
+
+    /**
+     * 参数XML是否缩进,由metaInfo中的indent配置,默认缩进
+     */
+    private final boolean indent;
+
+    SoapEnvelopeTemplate(String envelope, Charset charset, boolean indent) {
+        List<byte[]> parts = new ArrayList<>();
+        int start = 0;
+        for (int index; (index = envelope.indexOf(PLACEHOLDER, start)) >= 0; start = index + PLACEHOLDER.length()) {
+            parts.add(envelope.substring(start, index).getBytes(charset));
+        }
+        parts.add(envelope.substring(start).getBytes(charset));
+        this.segments = parts.toArray(new byte[0][]);
+        this.charset = charset;
+        this.indent = indent;
+    }
+
+    Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * 写入完整的SOAP消息,不关闭输出流
+     * @param paramNode 参数树的根节点,写入每个占位符的位置
+     */
+    void writeTo(OutputStream out, ParamTreeNode paramNode) throws IOException {
+        out.write(segments[0]);
+        for (int i = 1; i < segments.length; i++) {
+            ParamNodeUtils.writeXml(paramNode, out, charset, indent);
+            out.write(segments[i]);
+        }
+    }
+}
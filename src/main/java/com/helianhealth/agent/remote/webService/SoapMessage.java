@@ -0,0 +1,44 @@
+package com.helianhealth.agent.remote.webService;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.helianhealth.agent.model.dto.ParamTreeNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * 待发送的SOAP消息,由节点的信封模板和本次调用的参数树组成
+ * 发送时直接写入连接的输出流;只有记录日志和计算请求摘要时才渲染为完整的字符串
+ */
+public final class SoapMessage {
+
+    private final SoapEnvelopeTemplate template;
+
+    private final ParamTreeNode paramNode;
+
+    SoapMessage(SoapEnvelopeTemplate template, ParamTreeNode paramNode) {
+        this.template = template;
+        this.paramNode = paramNode;
+    }
+
+    /**
+     * 写入完整的SOAP消息,不关闭输出流
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        template.writeTo(out, paramNode);
+    }
+
+    @JsonValue
+    @Override
+    public String toString() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            writeTo(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new String(out.toByteArray(), template.getCharset());
+    }
+}
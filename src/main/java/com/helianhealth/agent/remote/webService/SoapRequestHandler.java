@@ -2,24 +2,28 @@ package com.helianhealth.agent.remote.webService;
 
 import com.alibaba.fastjson2.JSON;
 import com.alibaba.fastjson2.JSONObject;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.helianhealth.agent.model.domain.InterfaceWorkflowNodeDO;
 import com.helianhealth.agent.model.dto.ParamTreeNode;
 import com.helianhealth.agent.remote.ParamResolver;
-import com.helianhealth.agent.utils.ParamNodeUtils;
+import com.helianhealth.agent.remote.http.HttpRequestHandler;
+import com.helianhealth.agent.remote.http.TextResponse;
+import com.helianhealth.agent.utils.CompressionUtils;
+import com.helianhealth.agent.utils.XmlPathSelector;
 import com.helianhealth.agent.utils.XmlUtils;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpHeaders;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -29,25 +33,41 @@ import java.util.Map;
  */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class SoapRequestHandler implements ParamResolver {
 
     /**
-     * 根据metaInfo配置构建完整的SOAP XML消息
+     * 未配置Content-Type请求头时的请求体类型
+     */
+    private static final ContentType DEFAULT_CONTENT_TYPE = ContentType.create("text/xml", StandardCharsets.UTF_8);
+
+    private final HttpRequestHandler httpRequestHandler;
+
+    private final Cache<String, JSONObject> metaInfoCache = Caffeine.newBuilder()
+            .maximumSize(1024)
+            .build();
+
+    /**
+     * 按metaInfo编译的信封模板,节点配置修改后metaInfo不同,自动使用新的模板
+     */
+    private final Cache<String, SoapEnvelopeTemplate> templateCache = Caffeine.newBuilder()
+            .maximumSize(1024)
+            .build();
+
+    /**
+     * 根据metaInfo配置构建SOAP消息
      *
      * @param flowNode 工作流节点，包含metaInfo配置
      * @param paramNode 参数节点列表
-     * @return 完整的SOAP XML字符串
+     * @return 由节点信封模板和参数树组成的SOAP消息,参数树在发送时直接以XML写入连接
      */
-    public String resolveParamNodes(InterfaceWorkflowNodeDO flowNode, List<ParamTreeNode> paramNode) {
+    public SoapMessage resolveParamNodes(InterfaceWorkflowNodeDO flowNode, List<ParamTreeNode> paramNode) {
         try {
-            // 解析metaInfo配置
-            JSONObject metaInfo = parseMetaInfo(flowNode.getMetaInfo());
+            // 节点的信封模板只在首次调用时编译
+            String metaInfoJson = flowNode.getMetaInfo() == null ? "" : flowNode.getMetaInfo();
+            SoapEnvelopeTemplate template = templateCache.get(metaInfoJson, this::compileTemplate);
 
-            // 将参数节点转换为XML字符串
-            String paramXml = ParamNodeUtils.paramNodeDTO2Xml(paramNode.get(0));
-
-            // 根据配置构建SOAP消息
-            return buildSoapFromConfig(metaInfo, paramXml);
+            return new SoapMessage(template, paramNode.get(0));
         } catch (Exception e) {
             log.error("构建SOAP消息失败", e);
             throw new RuntimeException("构建SOAP消息失败: " + e.getMessage());
@@ -56,8 +76,10 @@ public class SoapRequestHandler implements ParamResolver {
 
     /**
      * 发送SOAP请求并获取响应
+     * 使用HTTP节点的连接池保持长连接,metaInfo中可配置poolProfile选择连接池,
+     * connectTimeoutMs、readTimeoutMs单独配置节点的连接和读取超时,未配置时使用连接池的超时配置
      */
-    public String sendSoapRequest(InterfaceWorkflowNodeDO flowNode, String soapMessage) {
+    public String sendSoapRequest(InterfaceWorkflowNodeDO flowNode, SoapMessage soapMessage) {
         try {
             // 解析metaInfo获取请求地址
             JSONObject metaInfo = parseMetaInfo(flowNode.getMetaInfo());
@@ -66,79 +88,65 @@ public class SoapRequestHandler implements ParamResolver {
             if (StringUtils.isEmpty(endpointUrl)) {
                 throw new IllegalArgumentException("metaInfo中未配置url");
             }
-
-            // 创建HTTP连接
-            URL url = new URL(endpointUrl);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-
-            // 设置请求头
-            connection.setRequestMethod(metaInfo.getString("method"));
-            connection.setDoOutput(true);
+            String method = metaInfo.getString("method");
+            if (method != null && !"POST".equalsIgnoreCase(method)) {
+                throw new IllegalArgumentException("SOAP请求只支持POST方法: " + method);
+            }
 
             // 设置自定义请求头
-            JSONObject headers = metaInfo.getJSONObject("headers");
-            if (headers != null) {
-                for (String key : headers.keySet()) {
-                    connection.setRequestProperty(key, headers.getString(key));
+            Map<String, String> headers = new LinkedHashMap<>();
+            JSONObject headerConfig = metaInfo.getJSONObject("headers");
+            if (headerConfig != null) {
+                for (String key : headerConfig.keySet()) {
+                    headers.put(key, headerConfig.getString(key));
                 }
             }
 
-            // 如果没有设置Content-Type，使用默认值
-            if (headers == null || !headers.containsKey("Content-Type")) {
-                connection.setRequestProperty("Content-Type", "text/xml;charset=UTF-8");
-            }
-
-            // 发送SOAP消息
-            try (OutputStream os = connection.getOutputStream()) {
-                byte[] input = soapMessage.getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
-            }
-
-            // 读取响应
-            StringBuilder response = getStringBuilder(connection);
+            // 消息直接写入连接,按metaInfo中的compression压缩请求体,压缩的响应自动解压
+            TextResponse response = httpRequestHandler.executeTextRequest(
+                    httpRequestHandler.resolvePoolProfile(metaInfo), endpointUrl, headers, soapMessage::writeTo,
+                    DEFAULT_CONTENT_TYPE, CompressionUtils.resolveEncoding(metaInfo.get("compression")),
+                    millis(metaInfo, "connectTimeoutMs"), millis(metaInfo, "readTimeoutMs"));
 
             // 处理错误响应
-            if (connection.getResponseCode() < 200 || connection.getResponseCode() >= 300) {
-                throw new RuntimeException("SOAP请求失败，响应码: " + connection.getResponseCode() +
-                        ", 响应信息: " + response);
+            if (!response.isSuccessful()) {
+                throw new RuntimeException("SOAP请求失败，响应码: " + response.getStatus() +
+                        ", 响应信息: " + response.getBody());
             }
 
-            return response.toString();
+            return response.getBody();
         } catch (Exception e) {
             log.error("发送SOAP请求失败", e);
-            throw new RuntimeException("发送SOAP请求失败: " + e.getMessage());
+            // 保留原始异常,重试时据此区分网络异常
+            throw new RuntimeException("发送SOAP请求失败: " + e.getMessage(), e);
         }
     }
 
-    private static StringBuilder getStringBuilder(HttpURLConnection connection) throws IOException {
-        StringBuilder response = new StringBuilder();
-        try (InputStream is = connection.getInputStream();
-             BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
-            }
-        } catch (Exception e) {
-            try (InputStream es = connection.getErrorStream()) {
-                if (es != null) {
-                    try (BufferedReader errorReader = new BufferedReader(new InputStreamReader(es, StandardCharsets.UTF_8))) {
-                        String line;
-                        while ((line = errorReader.readLine()) != null) {
-                            response.append(line);
-                        }
-                    }
-                }
-            }
+    private static Duration millis(JSONObject metaInfo, String key) {
+        Long millis = metaInfo.getLong(key);
+        if (millis == null) {
+            return null;
+        }
+        if (millis <= 0) {
+            throw new IllegalArgumentException(key + "必须大于0: " + millis);
         }
-        return response;
+        return Duration.ofMillis(millis);
     }
 
     /**
      * 解析SOAP响应
+     * 后置参数有XPath映射时按路径选取的值放在{@link XmlPathSelector#VALUES_KEY}下,只依赖XPath映射时不再转换为完整的Map
+     * @param selectors 节点后置参数映射的路径选择器
+     * @param pathOnly 后置参数映射是否只依赖XPath映射
      */
-    public Map<String, Object> parseSoapResponse(InterfaceWorkflowNodeDO flowNode, String response) {
+    public Map<String, Object> parseSoapResponse(InterfaceWorkflowNodeDO flowNode, String response,
+                                                 List<XmlPathSelector> selectors, boolean pathOnly) {
         try {
-            return XmlUtils.parseResponseXml(response, flowNode.getMetaInfo());
+            Map<String, Object> result = pathOnly ? new HashMap<>() : XmlUtils.parseResponseXml(response, flowNode.getMetaInfo());
+            if (!selectors.isEmpty()) {
+                result.put(XmlPathSelector.VALUES_KEY, XmlUtils.selectResponsePaths(response, flowNode.getMetaInfo(), selectors));
+            }
+            return result;
         } catch (Exception e) {
             log.error("解析SOAP响应失败", e);
             throw new RuntimeException("解析SOAP响应失败: " + e.getMessage());
@@ -147,24 +155,47 @@ public class SoapRequestHandler implements ParamResolver {
 
     /**
      * 解析metaInfo JSON配置
+     * 构建消息和发送请求都需要metaInfo,按内容缓存解析结果,同一节点每次调用不再重复解析,返回的对象只读
      */
     private JSONObject parseMetaInfo(String metaInfoJson) {
         if (!StringUtils.hasText(metaInfoJson)) {
             return new JSONObject();
         }
 
-        try {
-            return JSON.parseObject(metaInfoJson);
-        } catch (Exception e) {
-            log.warn("解析metaInfo JSON失败，使用空对象: {}", e.getMessage());
-            return new JSONObject();
+        return metaInfoCache.get(metaInfoJson, json -> {
+            try {
+                return JSON.parseObject(json);
+            } catch (Exception e) {
+                log.warn("解析metaInfo JSON失败，使用空对象: {}", e.getMessage());
+                return new JSONObject();
+            }
+        });
+    }
+
+    /**
+     * 编译节点的信封模板,按Content-Type请求头中的字符集编码,未配置时使用UTF-8
+     * metaInfo中indent为false时参数XML不缩进
+     */
+    private SoapEnvelopeTemplate compileTemplate(String metaInfoJson) {
+        JSONObject metaInfo = parseMetaInfo(metaInfoJson);
+        Charset charset = StandardCharsets.UTF_8;
+        JSONObject headerConfig = metaInfo.getJSONObject("headers");
+        if (headerConfig != null) {
+            for (String key : headerConfig.keySet()) {
+                if (HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(key) && headerConfig.getString(key) != null) {
+                    Charset configured = ContentType.parseLenient(headerConfig.getString(key)).getCharset();
+                    charset = configured != null ? configured : charset;
+                }
+            }
         }
+        return new SoapEnvelopeTemplate(buildEnvelope(metaInfo), charset,
+                !Boolean.FALSE.equals(metaInfo.getBoolean("indent")));
     }
 
     /**
-     * 根据配置构建SOAP消息
+     * 根据配置构建SOAP信封,body中的${inputParam}占位符保留,发送时写入参数XML
      */
-    private String buildSoapFromConfig(JSONObject metaInfo, String paramXml) {
+    private String buildEnvelope(JSONObject metaInfo) {
         // 构建完整的SOAP信封
         StringBuilder soapMessage = new StringBuilder();
 
@@ -201,9 +232,6 @@ public class SoapRequestHandler implements ParamResolver {
             throw new IllegalArgumentException("metaInfo中缺少body配置");
         }
 
-        // 替换占位符${inputParam}为实际参数XML
-        bodyContent = bodyContent.replace("${inputParam}", escapeXml(paramXml));
-
         soapMessage.append("  <soapenv:Body>\n");
         soapMessage.append(bodyContent).append("\n");
         soapMessage.append("  </soapenv:Body>\n");
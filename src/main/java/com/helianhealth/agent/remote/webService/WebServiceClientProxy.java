@@ -2,16 +2,23 @@ package com.helianhealth.agent.remote.webService;
 
 import com.alibaba.fastjson2.JSONArray;
 import com.helianhealth.agent.enums.ParamType;
-import com.helianhealth.agent.mapper.agent.NodeParamConfigMapper;
 import com.helianhealth.agent.model.domain.InterfaceWorkflowNodeDO;
 import com.helianhealth.agent.model.domain.NodeParamConfigDO;
 import com.helianhealth.agent.model.dto.ParamTreeNode;
+import com.helianhealth.agent.registry.NodeDefinition;
+import com.helianhealth.agent.registry.WorkflowDefinitionRegistry;
 import com.helianhealth.agent.remote.AbstractClientProxy;
+import com.helianhealth.agent.remote.ParamResolver;
+import com.helianhealth.agent.remote.cache.NodeResponseCache;
+import com.helianhealth.agent.remote.coalesce.RequestCoalescer;
+import com.helianhealth.agent.remote.hedge.HedgedInvoker;
+import com.helianhealth.agent.remote.helper.ResponseConvertHelper;
+import com.helianhealth.agent.remote.plan.ParamPlanNode;
+import com.helianhealth.agent.remote.resilience.NodeResilienceGuard;
 import com.helianhealth.agent.utils.JsonUtils;
 import com.helianhealth.agent.utils.ParamNodeUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
-import org.springframework.util.StringUtils;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -23,18 +30,40 @@ import java.util.Map;
 public class WebServiceClientProxy extends AbstractClientProxy {
 
     private final SoapRequestHandler soapRequestHandler;
-
-    public WebServiceClientProxy(NodeParamConfigMapper nodeMapper, SoapRequestHandler soapRequestHandler) {
-        super(nodeMapper);
+    private final HedgedInvoker hedgedInvoker;
+
+    public WebServiceClientProxy(SoapRequestHandler soapRequestHandler,
+                                 HedgedInvoker hedgedInvoker,
+                                 WorkflowDefinitionRegistry definitionRegistry,
+                                 ResponseConvertHelper responseConvertHelper,
+                                 NodeResponseCache responseCache,
+                                 RequestCoalescer requestCoalescer,
+                                 NodeResilienceGuard resilienceGuard) {
+        super(definitionRegistry, responseConvertHelper, responseCache, requestCoalescer, resilienceGuard);
         this.soapRequestHandler = soapRequestHandler;
+        this.hedgedInvoker = hedgedInvoker;
+    }
+
+    @Override
+    protected ParamResolver getParamResolver() {
+        return soapRequestHandler;
     }
 
     @Override
     public Map<String, Object> doInvoke(InterfaceWorkflowNodeDO flowNode, List<ParamTreeNode> params) {
+        return doInvoke(flowNode, params, soapRequestHandler.resolveParamNodes(flowNode, params));
+    }
+
+    @Override
+    public Map<String, Object> doInvoke(InterfaceWorkflowNodeDO flowNode, List<ParamTreeNode> params, Object request) {
         try {
-            String soapMessage = soapRequestHandler.resolveParamNodes(flowNode, params);
-            String soapResponse = soapRequestHandler.sendSoapRequest(flowNode, soapMessage);
-            return soapRequestHandler.parseSoapResponse(flowNode, soapResponse);
+            NodeDefinition definition = getNodeDefinition(flowNode);
+            SoapMessage soapMessage = (SoapMessage) request;
+            // 幂等节点按配置对冲或重试,每次调用的耗时计入节点的耗时统计
+            String soapResponse = hedgedInvoker.execute(flowNode.getNodeId(), definition.getHedgeSpec(),
+                    () -> soapRequestHandler.sendSoapRequest(flowNode, soapMessage));
+            return soapRequestHandler.parseSoapResponse(flowNode, soapResponse,
+                    definition.getPostProcessSelectors(), definition.isPostProcessPathOnly());
         } catch (Exception e) {
             log.error("WebService调用失败", e);
             throw new RuntimeException("WebService调用失败: " + e.getMessage(), e);
@@ -42,11 +71,10 @@ public class WebServiceClientProxy extends AbstractClientProxy {
     }
 
     @Override
-    public void processObjectNodeType(NodeParamConfigDO config, List<NodeParamConfigDO> allNodes, Map<String, Object> businessData, Map<String, Object> rootBusinessData, ParamTreeNode node) {
+    public void processObjectNodeType(ParamPlanNode planNode, Map<String, Object> businessData, Map<String, Object> rootBusinessData, ParamTreeNode node) {
         // 如果是对象的情况其实就是映射源定位嵌套结构完成映射
-        node.setChildren(buildParamTree(allNodes,
-                config.getConfigId(),
-                processSourceParamWhenTargetIsObject(config, businessData),
+        node.setChildren(buildParamTree(planNode.getChildren(),
+                processSourceParamWhenTargetIsObject(planNode.getConfig(), businessData),
                 rootBusinessData));
     }
 
@@ -86,22 +114,20 @@ public class WebServiceClientProxy extends AbstractClientProxy {
     }
 
     @Override
-    public void processArrayNodeType(NodeParamConfigDO config, List<NodeParamConfigDO> allNodes, Map<String, Object> businessData, Map<String, Object> rootBusinessData, ParamTreeNode node) {
-        doProcessArrayNodeType(config, allNodes, businessData, rootBusinessData, node);
+    public void processArrayNodeType(ParamPlanNode planNode, Map<String, Object> businessData, Map<String, Object> rootBusinessData, ParamTreeNode node) {
+        doProcessArrayNodeType(planNode, businessData, rootBusinessData, node);
     }
 
-    private void doProcessArrayNodeType(NodeParamConfigDO config,
-                                      List<NodeParamConfigDO> allNodes,
+    private void doProcessArrayNodeType(ParamPlanNode planNode,
                                       Map<String, Object> businessData,
                                       Map<String, Object> rootBusinessData,
                                       ParamTreeNode node) {
-        String sourceParamKey = config.getSourceParamKey();
-        Object sourceValue = getSourceValue(sourceParamKey, businessData);
+        NodeParamConfigDO config = planNode.getConfig();
+        Object sourceValue = planNode.readSourcePath(businessData);
 
         if (config.getSourceParamType() == ParamType.OBJECT && sourceValue != null) {
             // 源参数是Object，包装成大小为1的数组
-            List<ParamTreeNode> arrayChildren = buildParamTree(allNodes,
-                    config.getConfigId(),
+            List<ParamTreeNode> arrayChildren = buildParamTree(planNode.getChildren(),
                     JsonUtils.toMap(sourceValue),
                     rootBusinessData);
             node.setChildren(arrayChildren);
@@ -111,15 +137,13 @@ public class WebServiceClientProxy extends AbstractClientProxy {
             if (sourceValue instanceof List) {
                 List<?> sourceList = (List<?>) sourceValue;
                 for (Object item : sourceList) {
-                    List<ParamTreeNode> arrayChildren = buildParamTree(allNodes,
-                            config.getConfigId(),
+                    List<ParamTreeNode> arrayChildren = buildParamTree(planNode.getChildren(),
                             JsonUtils.toMap(item),
                             rootBusinessData);
                     allArrayChildren.addAll(arrayChildren);
                 }
             } else if (sourceValue instanceof Map) {
-                List<ParamTreeNode> arrayChildren = buildParamTree(allNodes,
-                        config.getConfigId(),
+                List<ParamTreeNode> arrayChildren = buildParamTree(planNode.getChildren(),
                         JsonUtils.toMap(sourceValue),
                         rootBusinessData);
                 allArrayChildren.addAll(arrayChildren);
@@ -131,27 +155,4 @@ public class WebServiceClientProxy extends AbstractClientProxy {
             node.setChildren(new ArrayList<>());
         }
     }
-
-    @SuppressWarnings("unchecked")
-    private Object getSourceValue(String sourceParamKey, Map<String, Object> businessData) {
-        if (businessData == null || StringUtils.isEmpty(sourceParamKey)) {
-            return null;
-        }
-        String[] keys = sourceParamKey.split("\\.");
-        Object current = businessData;
-
-        for (String key : keys) {
-            if (!(current instanceof Map)) {
-                return null; // 非 Map 类型无法继续深入
-            }
-
-            Map<String, Object> currentMap = (Map<String, Object>) current;
-            current = currentMap.get(key);
-            if (current == null) {
-                return null;
-            }
-        }
-
-        return current;
-    }
 }
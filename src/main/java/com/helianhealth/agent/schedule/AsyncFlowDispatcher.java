@@ -0,0 +1,169 @@
+package com.helianhealth.agent.schedule;
+
+import com.helianhealth.agent.common.ResultData;
+import com.helianhealth.agent.config.EngineProperties;
+import com.helianhealth.agent.controller.request.JarvisRequest;
+import com.helianhealth.agent.registry.WorkflowDefinitionRegistry;
+import com.helianhealth.agent.utils.ResponseModelUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * 工作流异步分发器
+ * 在独立的分发线程池中执行{@link FlowNodeDispatcher},请求线程提交后立即释放
+ * 按接口URI限制排队深度,超过上限直接返回繁忙;按接口URI配置超时时间,超时后立即响应并取消执行
+ * 只为已注册工作流或单独配置了排队上限的URI创建排队名额,其他URI共用一份默认名额,调用方无法通过构造URI让名额表无限增长
+ */
+@Component
+@Slf4j
+public class AsyncFlowDispatcher {
+
+    private static final MediaType XML_UTF8 = new MediaType(MediaType.APPLICATION_XML, StandardCharsets.UTF_8);
+
+    /**
+     * 未注册工作流且未单独配置排队上限的URI共用的名额key
+     */
+    private static final String DEFAULT_SLOT_KEY = "";
+
+    private final FlowNodeDispatcher flowNodeDispatcher;
+    private final WorkflowDefinitionRegistry definitionRegistry;
+    private final EngineProperties engineProperties;
+    private final ThreadPoolTaskExecutor dispatchExecutor;
+
+    /**
+     * 每个已注册接口URI的排队名额
+     */
+    private final Map<String, Semaphore> queueSlots = new ConcurrentHashMap<>();
+
+    @Autowired
+    public AsyncFlowDispatcher(FlowNodeDispatcher flowNodeDispatcher,
+                               WorkflowDefinitionRegistry definitionRegistry,
+                               EngineProperties engineProperties,
+                               @Qualifier("dispatchExecutor") ThreadPoolTaskExecutor dispatchExecutor) {
+        this.flowNodeDispatcher = flowNodeDispatcher;
+        this.definitionRegistry = definitionRegistry;
+        this.engineProperties = engineProperties;
+        this.dispatchExecutor = dispatchExecutor;
+    }
+
+    /**
+     * 异步分发开放接口请求
+     * 请求体在请求线程中直接从输入流解析,分发线程只处理解析后的业务数据,不持有servlet的输入流
+     * 请求体格式错误或解压后超过大小限制时与分发异常一样记录日志并返回空响应
+     * XML响应显式指定Content-Type,否则会按接口声明的produces协商为JSON
+     * @param request 请求体输入流
+     * @param charset 请求头声明的字符集,未声明时为null
+     */
+    public DeferredResult<ResponseEntity<Object>> dispatch(InputStream request, String charset, String interfaceUri) {
+        Map<String, Object> businessData;
+        try {
+            businessData = flowNodeDispatcher.parseRequest(request, charset, interfaceUri);
+        } catch (Exception e) {
+            log.error("dispatch request error:", e);
+            DeferredResult<ResponseEntity<Object>> deferredResult = new DeferredResult<>();
+            deferredResult.setResult(ResponseEntity.ok().build());
+            return deferredResult;
+        }
+        return submit(interfaceUri,
+                () -> {
+                    Object body = flowNodeDispatcher.dispatch(businessData, interfaceUri);
+                    return body instanceof XmlResponseBody
+                            ? ResponseEntity.ok().contentType(XML_UTF8).body(body)
+                            : ResponseEntity.ok(body);
+                },
+                ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build(),
+                ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build());
+    }
+
+    /**
+     * 异步分发jarvis请求,按业务方法限制排队深度
+     */
+    public DeferredResult<ResultData<Object>> jarvisDispatch(JarvisRequest request) {
+        return submit(request.getBusinessMethod(),
+                () -> flowNodeDispatcher.jarvisDispatch(request),
+                ResponseModelUtils.error("系统繁忙, 请稍后重试"),
+                ResponseModelUtils.error("请求处理超时"));
+    }
+
+    private <T> DeferredResult<T> submit(String interfaceUri, Supplier<T> task, T busyResult, T timeoutResult) {
+        EngineProperties.Dispatch dispatch = engineProperties.getDispatch();
+        String key = interfaceUri == null ? "" : interfaceUri;
+        DeferredResult<T> deferredResult = new DeferredResult<>(dispatch.resolveTimeout(key).toMillis(), timeoutResult);
+        if (!dispatch.isAsync()) {
+            deferredResult.setResult(task.get());
+            return deferredResult;
+        }
+
+        String slotKey = slotKey(dispatch, key);
+        Semaphore slots = queueSlots.computeIfAbsent(slotKey, k -> new Semaphore(dispatch.resolveQueueDepth(k)));
+        if (!slots.tryAcquire()) {
+            log.warn("接口[{}]排队请求数已达上限[{}], 拒绝请求", key, dispatch.resolveQueueDepth(slotKey));
+            deferredResult.setResult(busyResult);
+            return deferredResult;
+        }
+        // 任务执行结束或超时取消时归还名额,只归还一次
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                slots.release();
+            }
+        };
+
+        try {
+            Future<?> future = dispatchExecutor.submit(() -> {
+                try {
+                    deferredResult.setResult(task.get());
+                } catch (Exception e) {
+                    log.error("接口[{}]异步分发执行异常", key, e);
+                    deferredResult.setErrorResult(e);
+                } finally {
+                    release.run();
+                }
+            });
+            deferredResult.onTimeout(() -> {
+                log.warn("接口[{}]请求处理超时, 取消执行", key);
+                future.cancel(true);
+                release.run();
+            });
+        } catch (TaskRejectedException e) {
+            log.warn("分发线程池已满, 拒绝接口[{}]的请求", key);
+            release.run();
+            deferredResult.setResult(busyResult);
+        }
+        return deferredResult;
+    }
+
+    /**
+     * 排队名额的key,URI来自调用方,只有已注册工作流或配置了排队上限的URI单独计数
+     */
+    private String slotKey(EngineProperties.Dispatch dispatch, String key) {
+        if (dispatch.getQueueDepths().containsKey(key) || definitionRegistry.findWorkflow(key).isPresent()) {
+            return key;
+        }
+        return DEFAULT_SLOT_KEY;
+    }
+
+    /**
+     * 当前已创建的排队名额数
+     */
+    int slotCount() {
+        return queueSlots.size();
+    }
+}
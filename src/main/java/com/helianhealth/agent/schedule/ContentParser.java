@@ -7,6 +7,11 @@ import com.helianhealth.agent.utils.XmlUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PushbackInputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -14,19 +19,28 @@ import java.util.Map;
 @Slf4j
 public class ContentParser {
 
-    public Map<String, Object> parseRequest(InterfaceWorkflowDO workflow, String request) {
-        if (request == null || request.trim().isEmpty()) {
-            return new HashMap<>();
-        }
-
+    /**
+     * 解析请求体
+     * 直接从请求体输入流解析为业务数据,不生成报文的中间字符串
+     * @param request 请求体输入流,不关闭
+     * @param charset 请求头声明的字符集,未声明时为null
+     */
+    public Map<String, Object> parseRequest(InterfaceWorkflowDO workflow, InputStream request, String charset) {
         WorkflowContentType contentType = workflow.getContentType();
         try {
+            PushbackInputStream body = new PushbackInputStream(request, 1);
+            int first = body.read();
+            if (first == -1) {
+                return new HashMap<>();
+            }
+            body.unread(first);
+
             if (WorkflowContentType.JSON.equals(contentType)) {
                 // 解析JSON为Map
-                return parseJsonToMap(request);
+                return parseJsonToMap(body, charset);
             } else if (WorkflowContentType.XML.equals(contentType)) {
                 // 解析SOAP XML为Map
-                return parseSoapXmlToMap(request, workflow.getContentMetaInfo());
+                return parseSoapXmlToMap(body, charset, workflow.getContentMetaInfo());
             }
         } catch (Exception e) {
             log.error("解析请求内容失败，类型: {}, 错误: {}", contentType, e.getMessage(), e);
@@ -36,26 +50,34 @@ public class ContentParser {
     }
 
     /**
-     * 解析JSON字符串为Map
+     * 解析JSON请求体为Map,未声明字符集时按UTF-8读取
      */
-    private Map<String, Object> parseJsonToMap(String json) {
-        return JsonUtils.toMap(json);
+    private Map<String, Object> parseJsonToMap(InputStream json, String charset) {
+        return JsonUtils.readMap(new InputStreamReader(json,
+                charset == null ? StandardCharsets.UTF_8 : Charset.forName(charset)));
     }
 
     /**
-     * 解析SOAP XML字符串为Map
-     * 处理SOAP信封，提取CDATA中的实际业务数据
+     * 解析SOAP XML请求体为Map
+     * 处理SOAP信封，提取CDATA中的实际业务数据;未声明字符集时按XML声明识别
      */
-    private Map<String, Object> parseSoapXmlToMap(String xml, String metaInfo) {
-        return XmlUtils.parseRequestXml(xml, metaInfo);
+    private Map<String, Object> parseSoapXmlToMap(InputStream xml, String charset, String metaInfo) {
+        return XmlUtils.parseRequestXml(xml, charset, metaInfo);
     }
 
-    public String responseBuilder(InterfaceWorkflowDO workflow, Map<String, Object> response) {
+    /**
+     * 构建响应体
+     * JSON返回字符串;XML返回{@link XmlResponseBody},写响应时才直接写入输出流
+     */
+    public Object responseBuilder(InterfaceWorkflowDO workflow, Map<String, Object> response) {
         WorkflowContentType contentType = workflow.getContentType();
         if (WorkflowContentType.JSON.equals(contentType)) {
             return JsonUtils.toJsonString(response);
         } else if (WorkflowContentType.XML.equals(contentType)) {
-            return XmlUtils.buildResponseXml(response, workflow.getContentMetaInfo());
+            if (response == null || response.isEmpty()) {
+                throw new IllegalArgumentException("scheduleRsp cannot be null or empty");
+            }
+            return new XmlResponseBody(response, workflow.getContentMetaInfo());
         } else {
             return null;
         }
@@ -1,16 +1,19 @@
 package com.helianhealth.agent.schedule;
 
 import com.helianhealth.agent.common.ResultData;
+import com.helianhealth.agent.config.EngineProperties;
 import com.helianhealth.agent.controller.request.JarvisRequest;
 import com.helianhealth.agent.exception.InstanceBusinessException;
 import com.helianhealth.agent.model.domain.InterfaceWorkflowDO;
-import com.helianhealth.agent.service.InterfaceWorkflowService;
+import com.helianhealth.agent.registry.WorkflowDefinitionRegistry;
 import com.helianhealth.agent.utils.JsonUtils;
 import com.helianhealth.agent.utils.ResponseModelUtils;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.io.InputStream;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 
@@ -23,9 +26,10 @@ import java.util.Optional;
 @AllArgsConstructor
 public class FlowNodeDispatcher {
 
-    private final InterfaceWorkflowService workflowService;
+    private final WorkflowDefinitionRegistry definitionRegistry;
     private final WorkFlowEngineScheduler workFlowEngineScheduler;
     private final ContentParser contentParser;
+    private final EngineProperties engineProperties;
 
     /**
      * 适配jarvis的参数解析调度
@@ -34,14 +38,14 @@ public class FlowNodeDispatcher {
      */
     public ResultData<Object> jarvisDispatch(JarvisRequest request) {
         try {
-            Optional<InterfaceWorkflowDO> workflowOptional = workflowService.findByInterfaceUri(request.getBusinessMethod());
+            Optional<InterfaceWorkflowDO> workflowOptional = definitionRegistry.findWorkflow(request.getBusinessMethod());
             if (workflowOptional.isPresent()) {
                 // 兼容jarvis的API调用入参,理论上jarvis应当统一入参格式
                 Map<String, Object> businessData = request.getBusinessMethod().equals("GetItemResult") ?
                         JsonUtils.toMap(request) : JsonUtils.toMap(request.getData());
 
                 Map<String, Object> scheduleRsp = workFlowEngineScheduler.schedule(workflowOptional.get().getFirstFlowNodes(),
-                        businessData);
+                        businessData, engineProperties.resolveWorkflowTimeout(request.getBusinessMethod()));
                 return processJarvisRsp(scheduleRsp);
             } else {
                 log.error(InstanceBusinessException.METHOD_NOT_SUPPORT.getMessage());
@@ -53,20 +57,35 @@ public class FlowNodeDispatcher {
         }
     }
 
-    public String dispatch(String request, String interfaceUri) {
+    /**
+     * 开放接口请求体的解析
+     * 根据调用URI对应工作流的内容类型,直接从请求体输入流解析为业务数据
+     * @param request 请求体输入流
+     * @param charset 请求头声明的字符集,未声明时为null
+     * @return 业务数据,未找到工作流时为空
+     */
+    public Map<String, Object> parseRequest(InputStream request, String charset, String interfaceUri) {
+        return definitionRegistry.findWorkflow(interfaceUri)
+                .map(workflow -> contentParser.parseRequest(workflow, request, charset))
+                .orElseGet(HashMap::new);
+    }
+
+    /**
+     * 开放接口请求的调度
+     * @param businessData 由{@link #parseRequest}解析的业务数据
+     * @return 响应体,JSON工作流为字符串,XML工作流为{@link XmlResponseBody},失败时返回null
+     */
+    public Object dispatch(Map<String, Object> businessData, String interfaceUri) {
         try {
-            // 1、根据调用URI获取对应的工作流
-            Optional<InterfaceWorkflowDO> workflowOptional = workflowService.findByInterfaceUri(interfaceUri);
+            // 1、根据调用URI从内存快照获取对应的工作流
+            Optional<InterfaceWorkflowDO> workflowOptional = definitionRegistry.findWorkflow(interfaceUri);
             if (workflowOptional.isPresent()) {
                 InterfaceWorkflowDO workflow = workflowOptional.get();
-                // 2、参数预处理,根据入参格式转化
-                Map<String, Object> businessData = contentParser.parseRequest(workflow, request);
-
-                // 3、调度工作流统一入参格式为Map<String,Object>
+                // 2、调度工作流统一入参格式为Map<String,Object>
                 Map<String, Object> scheduleRsp = workFlowEngineScheduler.schedule(workflow.getFirstFlowNodes(),
-                        businessData);
+                        businessData, engineProperties.resolveWorkflowTimeout(interfaceUri));
 
-                // 4、根据工作流内容类型构建响应
+                // 3、根据工作流内容类型构建响应
                 return contentParser.responseBuilder(workflow, scheduleRsp);
             } else {
                 log.error(InstanceBusinessException.METHOD_NOT_SUPPORT.getMessage());
@@ -0,0 +1,219 @@
+package com.helianhealth.agent.schedule;
+
+import com.helianhealth.agent.config.EngineProperties;
+import com.helianhealth.agent.exception.InstanceBusinessException;
+import com.helianhealth.agent.model.domain.InterfaceWorkflowNodeDO;
+import com.helianhealth.agent.service.InterfaceWorkflowNodeService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 节点拆分调用
+ * 按拆分规则把业务数据中的列表分批,每批调用一次节点,同时执行的批次数受parallelism限制
+ * 各批次的响应按批次顺序汇总回节点响应:配置resultKey时整体放入该key下的列表,否则按key收集成列表,不丢弃任何批次的值
+ * 部分批次失败时在响应中附带拆分报告,全部失败时抛出第一个异常
+ */
+@Component
+@Slf4j
+public class NodeSplitInvoker {
+
+    private final InterfaceWorkflowNodeService flowNodeService;
+    private final EngineProperties engineProperties;
+    private final ThreadPoolTaskExecutor splitExecutor;
+
+    @Autowired
+    public NodeSplitInvoker(InterfaceWorkflowNodeService flowNodeService,
+                            EngineProperties engineProperties,
+                            @Qualifier("splitExecutor") ThreadPoolTaskExecutor splitExecutor) {
+        this.flowNodeService = flowNodeService;
+        this.engineProperties = engineProperties;
+        this.splitExecutor = splitExecutor;
+    }
+
+    /**
+     * 拆分执行节点
+     * @param flowNode 工作流节点
+     * @param splitRule 拆分规则
+     * @param businessData 过滤后的业务数据
+     * @param deadline 工作流总耗时截止时间(System.nanoTime)
+     * @return 合并后的节点响应
+     */
+    public Map<String, Object> invoke(InterfaceWorkflowNodeDO flowNode,
+                                      SplitRule splitRule,
+                                      Map<String, Object> businessData,
+                                      long deadline) {
+        Object value = splitRule.read(businessData);
+        if (!(value instanceof List)) {
+            log.warn("节点[{}]的拆分路径[{}]不是列表, 不拆分执行", flowNode.getNodeName(),
+                    String.join(".", splitRule.getPath()));
+            return flowNodeService.executeFlowNode(flowNode, businessData);
+        }
+
+        List<List<?>> chunks = partition((List<?>) value, splitRule.getBatchSize());
+        int parallelism = splitRule.getParallelism() != null
+                ? splitRule.getParallelism() : engineProperties.getSplitParallelism();
+        log.info("节点[{}]拆分执行, 元素: [{}], 批次: [{}], 并发: [{}]", flowNode.getNodeName(),
+                ((List<?>) value).size(), chunks.size(), parallelism);
+
+        ChunkResult[] results = new ChunkResult[chunks.size()];
+        if (parallelism <= 1 || chunks.size() <= 1) {
+            for (int i = 0; i < chunks.size(); i++) {
+                checkDeadline(deadline);
+                results[i] = invokeChunk(flowNode, splitRule, businessData, chunks.get(i), i);
+            }
+        } else {
+            invokeConcurrently(flowNode, splitRule, businessData, chunks, parallelism, deadline, results);
+        }
+        return gather(splitRule, results);
+    }
+
+    /**
+     * 滑动窗口方式提交批次:先提交parallelism个,每完成一个再提交下一个
+     */
+    private void invokeConcurrently(InterfaceWorkflowNodeDO flowNode,
+                                    SplitRule splitRule,
+                                    Map<String, Object> businessData,
+                                    List<List<?>> chunks,
+                                    int parallelism,
+                                    long deadline,
+                                    ChunkResult[] results) {
+        CompletionService<ChunkResult> completionService = new ExecutorCompletionService<>(splitExecutor);
+        Set<Future<ChunkResult>> inFlight = new HashSet<>();
+        int next = 0;
+        try {
+            while (next < chunks.size() || !inFlight.isEmpty()) {
+                while (next < chunks.size() && inFlight.size() < parallelism) {
+                    checkDeadline(deadline);
+                    int index = next++;
+                    inFlight.add(completionService.submit(() ->
+                            invokeChunk(flowNode, splitRule, businessData, chunks.get(index), index)));
+                }
+                Future<ChunkResult> done = completionService.poll(
+                        Math.max(deadline - System.nanoTime(), 0L), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    log.error(InstanceBusinessException.WORKFLOW_TIMEOUT.getMessage());
+                    throw InstanceBusinessException.WORKFLOW_TIMEOUT.toException();
+                }
+                inFlight.remove(done);
+                ChunkResult result = done.get();
+                results[result.index] = result;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            inFlight.forEach(future -> future.cancel(true));
+            throw InstanceBusinessException.WORKFLOW_TIMEOUT.toException("拆分执行等待被中断");
+        } catch (ExecutionException e) {
+            // 批次内的异常已经被捕获,这里只会是框架层面的异常
+            inFlight.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("拆分执行失败", e.getCause());
+        } catch (RuntimeException e) {
+            inFlight.forEach(future -> future.cancel(true));
+            throw e;
+        }
+    }
+
+    private ChunkResult invokeChunk(InterfaceWorkflowNodeDO flowNode,
+                                    SplitRule splitRule,
+                                    Map<String, Object> businessData,
+                                    List<?> chunk,
+                                    int index) {
+        try {
+            return new ChunkResult(index, chunk.size(),
+                    flowNodeService.executeFlowNode(flowNode, splitRule.chunkData(businessData, chunk)), null);
+        } catch (RuntimeException e) {
+            log.error("节点[{}]第[{}]批执行失败", flowNode.getNodeName(), index, e);
+            return new ChunkResult(index, chunk.size(), null, e);
+        }
+    }
+
+    private Map<String, Object> gather(SplitRule splitRule, ChunkResult[] results) {
+        List<Map<String, Object>> responses = new ArrayList<>(results.length);
+        List<Map<String, Object>> failures = new ArrayList<>();
+        RuntimeException firstError = null;
+        for (ChunkResult result : results) {
+            if (result.error != null) {
+                if (firstError == null) {
+                    firstError = result.error;
+                }
+                Map<String, Object> failure = new LinkedHashMap<>();
+                failure.put("index", result.index);
+                failure.put("size", result.size);
+                failure.put("error", result.error.getMessage());
+                failures.add(failure);
+            } else if (result.response != null && !result.response.isEmpty()) {
+                responses.add(result.response);
+            }
+        }
+        if (firstError != null && failures.size() == results.length) {
+            // 全部失败时与不拆分的调用保持一致,直接抛出异常
+            throw firstError;
+        }
+
+        Map<String, Object> merged;
+        if (splitRule.getResultKey() != null) {
+            merged = new LinkedHashMap<>();
+            merged.put(splitRule.getResultKey(), responses);
+        } else {
+            merged = ResultMerger.collect(responses);
+        }
+        if (failures.isEmpty()) {
+            // 全部成功时不附带报告
+            return merged;
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("total", results.length);
+        report.put("succeeded", results.length - failures.size());
+        report.put("failed", failures.size());
+        report.put("failures", failures);
+        merged.put(splitRule.getReportKey(), report);
+        return merged;
+    }
+
+    private static List<List<?>> partition(List<?> items, int batchSize) {
+        List<List<?>> chunks = new ArrayList<>((items.size() + batchSize - 1) / batchSize);
+        for (int from = 0; from < items.size(); from += batchSize) {
+            chunks.add(new ArrayList<>(items.subList(from, Math.min(from + batchSize, items.size()))));
+        }
+        return chunks;
+    }
+
+    private void checkDeadline(long deadline) {
+        if (System.nanoTime() - deadline >= 0) {
+            log.error(InstanceBusinessException.WORKFLOW_TIMEOUT.getMessage());
+            throw InstanceBusinessException.WORKFLOW_TIMEOUT.toException();
+        }
+    }
+
+    private static class ChunkResult {
+
+        private final int index;
+
+        private final int size;
+
+        private final Map<String, Object> response;
+
+        private final RuntimeException error;
+
+        ChunkResult(int index, int size, Map<String, Object> response, RuntimeException error) {
+            this.index = index;
+            this.size = size;
+            this.response = response;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.helianhealth.agent.schedule;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 节点结果合并
+ * 按传入顺序合并多个节点的结果,结果顺序由调度器保证,因此多次执行的输出一致
+ * 合并过程不修改传入的结果,同一份数据可以安全地参与多次合并
+ */
+public final class ResultMerger {
+
+    private ResultMerger() {
+    }
+
+    /**
+     * 核心合并逻辑：递归处理嵌套结构，只有当key对应的值是List类型时才合并为List，否则只保留第一个节点的值
+     * @param resultList 所有节点的结果列表
+     * @return 合并后的Map
+     */
+    public static Map<String, Object> merge(List<Map<String, Object>> resultList) {
+        // 保持按节点顺序合并后的key顺序,保证多次执行的输出一致
+        Map<String, Object> merged = new LinkedHashMap<>();
+
+        for (Map<String, Object> nodeResult : resultList) {
+            mergeMap(nodeResult, merged);
+        }
+
+        return merged;
+    }
+
+    /**
+     * 按key收集多份结果：List类型的值按顺序拼接，其它类型的值（包括Map）按顺序放入List
+     * 与merge不同，后面结果中的非List值不会被丢弃，同一个key的值始终是List
+     * @param resultList 按顺序排列的结果列表
+     * @return 收集后的Map
+     */
+    public static Map<String, Object> collect(List<Map<String, Object>> resultList) {
+        Map<String, List<Object>> collected = new LinkedHashMap<>();
+        for (Map<String, Object> result : resultList) {
+            for (Map.Entry<String, Object> entry : result.entrySet()) {
+                List<Object> values = collected.computeIfAbsent(entry.getKey(), key -> new ArrayList<>());
+                if (entry.getValue() instanceof List) {
+                    values.addAll((List<?>) entry.getValue());
+                } else {
+                    values.add(entry.getValue());
+                }
+            }
+        }
+        return new LinkedHashMap<>(collected);
+    }
+
+    /**
+     * 递归合并两个Map，处理嵌套结构
+     * @param source 源Map
+     * @param target 目标Map
+     */
+    @SuppressWarnings("unchecked")
+    private static void mergeMap(Map<String, Object> source, Map<String, Object> target) {
+        for (Map.Entry<String, Object> entry : source.entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+
+            if (target.containsKey(key)) {
+                Object existingValue = target.get(key);
+                // 如果现有值是List，则合并
+                if (existingValue instanceof List) {
+                    List<Object> mergedValue = mergeValues(existingValue, value);
+                    target.put(key, mergedValue);
+                } else if (existingValue instanceof Map && value instanceof Map) {
+                    // 如果都是Map，则复制后递归合并,不修改各节点的原始结果
+                    Map<String, Object> mergedValue = new LinkedHashMap<>((Map<String, Object>) existingValue);
+                    mergeMap((Map<String, Object>) value, mergedValue);
+                    target.put(key, mergedValue);
+                }
+                // 如果现有值不是List也不是Map，则保持不变（即不覆盖）
+            } else {
+                // 新key：直接放入，不需要特殊处理
+                target.put(key, value);
+            }
+        }
+    }
+
+    /**
+     * 合并两个值为List（处理原值和新值是否为List的情况）
+     */
+    private static List<Object> mergeValues(Object existingValue, Object newValue) {
+        List<Object> merged = new ArrayList<>();
+
+        // 添加已存在的值
+        if (existingValue instanceof List) {
+            merged.addAll((List<?>) existingValue);
+        } else {
+            merged.add(existingValue);
+        }
+
+        // 添加新值
+        if (newValue instanceof List) {
+            merged.addAll((List<?>) newValue);
+        } else {
+            merged.add(newValue);
+        }
+
+        return merged;
+    }
+}
@@ -0,0 +1,112 @@
+package com.helianhealth.agent.schedule;
+
+import com.helianhealth.agent.utils.CopyOnWriteDataMap;
+import com.helianhealth.agent.utils.JsonUtils;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 节点参数拆分规则
+ * 支持两种配置方式:
+ * 1. 直接配置列表路径,e.g. "items" 或 "Body.Items",按单个元素拆分
+ * 2. JSON配置,e.g. {"path":"items","batchSize":20,"parallelism":4,"unwrap":false,"reportKey":"splitReport","resultKey":"batches"}
+ * 每批调用时用当前批次替换业务数据中该路径的列表;每批只有一个元素且unwrap为true时直接用元素替换列表
+ * 配置resultKey时各批次的响应按批次顺序放在该key下的列表中,否则按key收集各批次的值
+ */
+@Getter
+public class SplitRule {
+
+    public static final String DEFAULT_REPORT_KEY = "splitReport";
+
+    private final String[] path;
+
+    private final int batchSize;
+
+    /**
+     * 单个节点同时执行的批次数上限,未配置时使用引擎默认值
+     */
+    private final Integer parallelism;
+
+    private final boolean unwrap;
+
+    /**
+     * 拆分执行报告在节点响应中的key,只有部分批次失败时才附带报告
+     */
+    private final String reportKey;
+
+    /**
+     * 批次响应列表在节点响应中的key,未配置时按key收集各批次的值
+     */
+    private final String resultKey;
+
+    private SplitRule(String path, int batchSize, Integer parallelism, boolean unwrap, String reportKey, String resultKey) {
+        this.path = path.split("\\.");
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+        this.unwrap = unwrap;
+        this.reportKey = reportKey;
+        this.resultKey = resultKey;
+    }
+
+    /**
+     * 解析拆分规则
+     * @param splitRule 节点配置的拆分规则
+     * @return 未配置时返回null
+     */
+    public static SplitRule parse(String splitRule) {
+        if (splitRule == null || splitRule.trim().isEmpty()) {
+            return null;
+        }
+        String rule = splitRule.trim();
+        if (!rule.startsWith("{")) {
+            return new SplitRule(rule, 1, null, true, DEFAULT_REPORT_KEY, null);
+        }
+        Map<String, Object> config = JsonUtils.toMap(rule);
+        Object path = config.get("path");
+        if (!(path instanceof String) || ((String) path).isEmpty()) {
+            throw new IllegalArgumentException("拆分规则缺少path: " + splitRule);
+        }
+        int batchSize = config.get("batchSize") instanceof Number ? ((Number) config.get("batchSize")).intValue() : 1;
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("拆分规则batchSize必须大于0: " + splitRule);
+        }
+        Integer parallelism = config.get("parallelism") instanceof Number
+                ? Math.max(((Number) config.get("parallelism")).intValue(), 1) : null;
+        boolean unwrap = config.get("unwrap") instanceof Boolean ? (Boolean) config.get("unwrap") : batchSize == 1;
+        String reportKey = config.get("reportKey") instanceof String ? (String) config.get("reportKey") : DEFAULT_REPORT_KEY;
+        String resultKey = config.get("resultKey") instanceof String && !((String) config.get("resultKey")).isEmpty()
+                ? (String) config.get("resultKey") : null;
+        return new SplitRule((String) path, batchSize, parallelism, unwrap, reportKey, resultKey);
+    }
+
+    /**
+     * 读取待拆分的值,路径中断时返回null
+     */
+    @SuppressWarnings("unchecked")
+    Object read(Map<String, Object> businessData) {
+        Object current = businessData;
+        for (String key : path) {
+            if (!(current instanceof Map)) {
+                return null;
+            }
+            current = ((Map<String, Object>) current).get(key);
+        }
+        return current;
+    }
+
+    /**
+     * 生成单个批次的业务数据,只复制拆分路径上的各层,其余数据与原业务数据共享
+     */
+    @SuppressWarnings("unchecked")
+    Map<String, Object> chunkData(Map<String, Object> businessData, List<?> chunk) {
+        CopyOnWriteDataMap chunkData = new CopyOnWriteDataMap(businessData);
+        Map<String, Object> parent = chunkData;
+        for (int i = 0; i < path.length - 1; i++) {
+            parent = (Map<String, Object>) parent.get(path[i]);
+        }
+        parent.put(path[path.length - 1], unwrap && chunk.size() == 1 ? chunk.get(0) : chunk);
+        return chunkData;
+    }
+}
@@ -1,81 +1,206 @@
 package com.helianhealth.agent.schedule;
 
+import com.helianhealth.agent.config.EngineProperties;
+import com.helianhealth.agent.config.FlowContextTaskDecorator;
 import com.helianhealth.agent.enums.ScheduleParamSourceType;
 import com.helianhealth.agent.exception.InstanceBusinessException;
 import com.helianhealth.agent.model.domain.InterfaceWorkflowNodeDO;
+import com.helianhealth.agent.registry.NodeDefinition;
+import com.helianhealth.agent.registry.WorkflowDefinitionRegistry;
 import com.helianhealth.agent.service.InterfaceWorkflowNodeService;
 import com.helianhealth.agent.utils.ExpressionMapperUtils;
-import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
-import java.util.ArrayList;
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 工作流引擎调度器
  * 负责编排整个工作流
- * 对于工作流整个处理都是线性的，但节点之间是可以并行的
+ * 以迭代的方式执行由首节点和各节点调度表达式构成的有向无环图:每个节点在一次执行中最多执行一次,
+ * 互不依赖的节点并发执行,汇聚节点等待前驱节点完成后合并入参执行
  */
 @Component
 @Slf4j
-@AllArgsConstructor
 public class WorkFlowEngineScheduler {
 
     private final InterfaceWorkflowNodeService flowNodeService;
     private final BusinessDataPostProcessor businessDataPostProcessor;
+    private final WorkflowDefinitionRegistry definitionRegistry;
+    private final EngineProperties engineProperties;
+    private final ThreadPoolTaskExecutor flowNodeExecutor;
+    private final NodeSplitInvoker nodeSplitInvoker;
+
+    @Autowired
+    public WorkFlowEngineScheduler(InterfaceWorkflowNodeService flowNodeService,
+                                   BusinessDataPostProcessor businessDataPostProcessor,
+                                   WorkflowDefinitionRegistry definitionRegistry,
+                                   EngineProperties engineProperties,
+                                   @Qualifier("flowNodeExecutor") ThreadPoolTaskExecutor flowNodeExecutor,
+                                   NodeSplitInvoker nodeSplitInvoker) {
+        this.flowNodeService = flowNodeService;
+        this.businessDataPostProcessor = businessDataPostProcessor;
+        this.definitionRegistry = definitionRegistry;
+        this.engineProperties = engineProperties;
+        this.flowNodeExecutor = flowNodeExecutor;
+        this.nodeSplitInvoker = nodeSplitInvoker;
+    }
 
     /**
-     * 工作流调度
+     * 工作流调度,使用默认的总耗时上限
      * @param flowNodes 待调度节点
      * @param businessData 业务数据,业务数据一定是Map<String, Object>结构,而且这个Object得是JSON格式
      * @return 统一出参，出参怎么适配是工作流节点自己的事情，你只需要帮我处理好返回统一出参即可
      */
     public Map<String, Object> schedule(List<Integer> flowNodes, Map<String, Object> businessData) {
-        Map<String, Object> flowNodeResponse;
-        if (flowNodes != null && flowNodes.size() == 1) {
-            InterfaceWorkflowNodeDO flowNode = flowNodeService.selectByNodeId(flowNodes.get(0));
-            // 单节点处理
-            flowNodeResponse = processSingleNode(flowNode, businessData);
-        } else if (flowNodes != null && flowNodes.size() > 1) {
-            // 多个节点,则说明这是个并行业务,譬如申请单,节点工作完成后需要有个聚合操作
-            flowNodeResponse = processParallelNode(flowNodes, businessData);
-        } else {
+        return schedule(flowNodes, businessData, engineProperties.getWorkflowTimeout());
+    }
+
+    /**
+     * 工作流调度
+     * @param flowNodes 待调度节点
+     * @param businessData 业务数据
+     * @param timeout 整个工作流的总耗时上限,超时抛出WORKFLOW_TIMEOUT
+     * @return 统一出参,多个终止节点的结果按路径顺序合并
+     */
+    public Map<String, Object> schedule(List<Integer> flowNodes, Map<String, Object> businessData, Duration timeout) {
+        if (flowNodes == null || flowNodes.isEmpty()) {
             log.error(InstanceBusinessException.FLOW_NOT_FOUND.getMessage());
             throw InstanceBusinessException.FLOW_NOT_FOUND.toException();
         }
-        return flowNodeResponse;
+        WorkflowExecution execution = new WorkflowExecution(System.nanoTime() + timeout.toNanos(), this::getNodeDefinition);
+        execution.start(flowNodes, businessData);
+        return execute(execution);
+    }
+
+    /**
+     * 调度循环:可执行节点都提交到线程池执行,当前线程按剩余的总耗时等待,超时后取消执行中的节点,
+     * 顺序执行的节点也不会超出总耗时上限
+     * 已在引擎线程中时全部在当前线程顺序执行,避免工作线程互相等待占满线程池,此时总耗时由外层等待该线程的调度控制
+     */
+    private Map<String, Object> execute(WorkflowExecution execution) {
+        boolean inline = FlowContextTaskDecorator.isEngineWorker();
+        CompletionService<WorkflowExecution.NodeRun> completionService = new ExecutorCompletionService<>(flowNodeExecutor);
+        Set<Future<WorkflowExecution.NodeRun>> inFlight = new HashSet<>();
+        try {
+            while (true) {
+                while (execution.hasReady()) {
+                    WorkflowExecution.NodeRun run = execution.pollReady();
+                    if (inline) {
+                        execution.complete(processNode(run, execution.getDeadline()));
+                    } else {
+                        inFlight.add(completionService.submit(() -> processNode(run, execution.getDeadline())));
+                    }
+                }
+
+                if (inFlight.isEmpty()) {
+                    // 没有执行中的节点时触发等待中的汇聚节点,没有可触发的则本次执行结束
+                    if (execution.fireQuiescentJoin()) {
+                        continue;
+                    }
+                    break;
+                }
+
+                Future<WorkflowExecution.NodeRun> done = completionService.poll(
+                        Math.max(execution.getDeadline() - System.nanoTime(), 0L), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    log.error(InstanceBusinessException.WORKFLOW_TIMEOUT.getMessage());
+                    throw InstanceBusinessException.WORKFLOW_TIMEOUT.toException();
+                }
+                inFlight.remove(done);
+                execution.complete(getNodeRun(done));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            inFlight.forEach(future -> future.cancel(true));
+            throw InstanceBusinessException.WORKFLOW_TIMEOUT.toException("工作流执行等待被中断");
+        } catch (RuntimeException e) {
+            // 任一节点失败时取消尚未完成的节点
+            inFlight.forEach(future -> future.cancel(true));
+            throw e;
+        }
+        return execution.result();
+    }
+
+    private WorkflowExecution.NodeRun getNodeRun(Future<WorkflowExecution.NodeRun> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("工作流节点执行失败", cause);
+        }
     }
 
-    private Map<String, Object> processSingleNode(InterfaceWorkflowNodeDO flowNode, Map<String, Object> businessData) {
+    private NodeDefinition getNodeDefinition(Integer nodeId) {
+        NodeDefinition definition = definitionRegistry.getNode(nodeId);
+        if (definition == null) {
+            log.error("{} nodeId: {}", InstanceBusinessException.NODE_NOT_FOUND.getMessage(), nodeId);
+            throw InstanceBusinessException.NODE_NOT_FOUND.toException();
+        }
+        return definition;
+    }
+
+    /**
+     * 执行单个节点并计算后续调度,不访问执行状态,可以在任意线程执行
+     */
+    private WorkflowExecution.NodeRun processNode(WorkflowExecution.NodeRun run, long deadline) {
+        checkDeadline(deadline);
+        InterfaceWorkflowNodeDO flowNode = run.getDefinition().getNode();
+        Map<String, Object> businessData = run.getInput();
+
         // 1、根据规则表达式对入参进行预处理
         Map<String, Object> businessDataAfterPost = businessDataPostProcessor.postParamProcessor(
                 flowNode.getParamFilterExpr(), businessData);
         if (businessDataAfterPost == null || businessDataAfterPost.isEmpty()) {
             // 经过过滤后如果为Null就不进行处理
-            return new HashMap<>();
+            run.finish(new HashMap<>(), null, null);
+            return run;
         }
-        //  todo 单节点可能需要拆分为多节点调用,e.g.入参为列表但是接口只支持对象
-
-        // 2、执行节点
-        Map<String, Object> nodeResponse = flowNodeService.executeFlowNode(flowNode, businessDataAfterPost);
+        // 2、执行节点,配置了拆分规则时按批次拆分调用,e.g.入参为列表但是接口只支持对象
+        SplitRule splitRule = run.getDefinition().getSplitRule();
+        Map<String, Object> nodeResponse = splitRule == null
+                ? flowNodeService.executeFlowNode(flowNode, businessDataAfterPost)
+                : nodeSplitInvoker.invoke(flowNode, splitRule, businessDataAfterPost, deadline);
 
         // 3、根据表达式调度下一个节点
         List<Integer> nextNodes = determineNextNode(flowNode.getScheduleExpr(), nodeResponse);
 
         if (nextNodes == null || nextNodes.isEmpty()) {
-            return nodeResponse;
+            run.finish(nodeResponse, null, null);
+            return run;
         }
 
         // 4、调度节点的入参来源
         Map<String, Object> nextNodeParam = determineNextNodeParam(flowNode.getScheduleParamSourceType(),
                 businessData, nodeResponse);
 
-        return schedule(nextNodes, nextNodeParam);
+        run.finish(nodeResponse, nextNodes, nextNodeParam);
+        return run;
+    }
+
+    private void checkDeadline(long deadline) {
+        if (System.nanoTime() - deadline >= 0) {
+            log.error(InstanceBusinessException.WORKFLOW_TIMEOUT.getMessage());
+            throw InstanceBusinessException.WORKFLOW_TIMEOUT.toException();
+        }
     }
 
     private Map<String, Object> determineNextNodeParam(ScheduleParamSourceType paramSourceType,
@@ -115,87 +240,4 @@ public class WorkFlowEngineScheduler {
 
         return (List<Integer>) parser;
     }
-
-    private Map<String, Object> processParallelNode(List<Integer> nodeIds, Map<String, Object> businessData) {
-        // 1. 收集所有并行节点的处理结果
-        List<Map<String, Object>> nodeResultList = new ArrayList<>();
-        nodeIds.forEach(nodeId -> {
-            InterfaceWorkflowNodeDO flowNode = flowNodeService.selectByNodeId(nodeId);
-            Map<String, Object> nodeResult = processSingleNode(flowNode, businessData);
-            if (nodeResult == null || nodeResult.isEmpty()) {
-                return;
-            }
-            nodeResultList.add(nodeResult);
-        });
-
-        // 2. 合并所有结果：相同key的值合并（支持List合并，非List类型转为List）
-        return mergeResults(nodeResultList);
-    }
-
-    /**
-     * 核心合并逻辑：递归处理嵌套结构，只有当key对应的值是List类型时才合并为List，否则只保留第一个节点的值
-     * @param resultList 所有节点的结果列表
-     * @return 合并后的Map
-     */
-    private Map<String, Object> mergeResults(List<Map<String, Object>> resultList) {
-        Map<String, Object> merged = new HashMap<>();
-
-        for (Map<String, Object> nodeResult : resultList) {
-            mergeMap(nodeResult, merged);
-        }
-
-        return merged;
-    }
-
-    /**
-     * 递归合并两个Map，处理嵌套结构
-     * @param source 源Map
-     * @param target 目标Map
-     */
-    private void mergeMap(Map<String, Object> source, Map<String, Object> target) {
-        for (Map.Entry<String, Object> entry : source.entrySet()) {
-            String key = entry.getKey();
-            Object value = entry.getValue();
-
-            if (target.containsKey(key)) {
-                Object existingValue = target.get(key);
-                // 如果现有值是List，则合并
-                if (existingValue instanceof List) {
-                    List<Object> mergedValue = mergeValues(existingValue, value);
-                    target.put(key, mergedValue);
-                } else if (existingValue instanceof Map && value instanceof Map) {
-                    // 如果都是Map，则递归合并
-                    mergeMap((Map<String, Object>) value, (Map<String, Object>) existingValue);
-                }
-                // 如果现有值不是List也不是Map，则保持不变（即不覆盖）
-            } else {
-                // 新key：直接放入，不需要特殊处理
-                target.put(key, value);
-            }
-        }
-    }
-
-    /**
-     * 合并两个值为List（处理原值和新值是否为List的情况）
-     */
-    private List<Object> mergeValues(Object existingValue, Object newValue) {
-        List<Object> merged = new ArrayList<>();
-
-        // 添加已存在的值
-        if (existingValue instanceof List) {
-            merged.addAll((List<?>) existingValue);
-        } else {
-            merged.add(existingValue);
-        }
-
-        // 添加新值
-        if (newValue instanceof List) {
-            merged.addAll((List<?>) newValue);
-        } else {
-            merged.add(newValue);
-        }
-
-        return merged;
-    }
-
 }
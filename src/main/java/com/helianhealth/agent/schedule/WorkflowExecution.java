@@ -0,0 +1,289 @@
+package com.helianhealth.agent.schedule;
+
+import com.helianhealth.agent.exception.InstanceBusinessException;
+import com.helianhealth.agent.registry.NodeDefinition;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 单次工作流执行的状态
+ * 记录本次执行中每个节点的运行情况,保证每个节点最多执行一次;只由调度线程访问,不需要同步
+ * 每个节点带有一条路径(从首节点开始每一层的分支序号),终止节点的结果和汇聚节点的入参都按路径排序后合并,
+ * 因此无论分支完成的先后顺序如何,输出都是确定的
+ * 非汇聚节点作为隐式汇聚:先记录到达的分支,等其他分支都结束后按路径顺序合并入参执行,
+ * 因此未配置汇聚的菱形结构也只执行一次;触发后才到达的分支按原来的方式为该分支单独执行一次,不使执行失败
+ * 显式配置的汇聚节点触发后不再接受调度,声明了前驱的只接受前驱节点的调度,违反时整个执行失败
+ */
+@Slf4j
+class WorkflowExecution {
+
+    private static final Comparator<int[]> PATH_COMPARATOR = (a, b) -> {
+        for (int i = 0; i < Math.min(a.length, b.length); i++) {
+            if (a[i] != b[i]) {
+                return Integer.compare(a[i], b[i]);
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    };
+
+    @Getter
+    private final long deadline;
+
+    private final Function<Integer, NodeDefinition> nodeLookup;
+
+    private final Map<Integer, NodeRun> runs = new LinkedHashMap<>();
+
+    private final Deque<NodeRun> readyQueue = new ArrayDeque<>();
+
+    private final Set<Integer> completedNodes = new HashSet<>();
+
+    private final List<NodeRun> terminalRuns = new ArrayList<>();
+
+    /**
+     * 可执行和执行中的节点数,为0时等待中的非汇聚节点不会再有新的分支到达
+     */
+    private int active;
+
+    WorkflowExecution(long deadline, Function<Integer, NodeDefinition> nodeLookup) {
+        this.deadline = deadline;
+        this.nodeLookup = nodeLookup;
+    }
+
+    /**
+     * 调度首节点
+     */
+    void start(List<Integer> firstNodes, Map<String, Object> businessData) {
+        for (int i = 0; i < firstNodes.size(); i++) {
+            offer(firstNodes.get(i), businessData, new int[]{i}, null);
+        }
+        fireIdleNodes();
+    }
+
+    boolean hasReady() {
+        return !readyQueue.isEmpty();
+    }
+
+    NodeRun pollReady() {
+        NodeRun run = readyQueue.poll();
+        if (run != null) {
+            run.status = Status.RUNNING;
+        }
+        return run;
+    }
+
+    /**
+     * 节点执行完成:没有后续节点的作为终止节点收集结果,否则按调度表达式的结果顺序调度后续节点
+     */
+    void complete(NodeRun run) {
+        run.status = Status.DONE;
+        active--;
+        completedNodes.add(run.getNodeId());
+
+        List<Integer> nextNodes = run.nextNodes;
+        if (nextNodes == null || nextNodes.isEmpty()) {
+            terminalRuns.add(run);
+        } else {
+            for (int i = 0; i < nextNodes.size(); i++) {
+                offer(nextNodes.get(i), run.nextParam, append(run.path, i), run.getNodeId());
+            }
+        }
+        fireSatisfiedJoins();
+        fireIdleNodes();
+    }
+
+    /**
+     * 没有可执行节点且没有执行中的节点时调用,触发路径最靠前的一个等待中的汇聚节点
+     * 每次只触发一个,以便它的后续节点也能汇入其他仍在等待的汇聚节点
+     * @return 是否触发了汇聚节点
+     */
+    boolean fireQuiescentJoin() {
+        NodeRun candidate = null;
+        for (NodeRun run : runs.values()) {
+            if (run.status == Status.WAITING && !run.arrivals.isEmpty()
+                    && (candidate == null || PATH_COMPARATOR.compare(run.path, candidate.path) < 0)) {
+                candidate = run;
+            }
+        }
+        if (candidate == null) {
+            return false;
+        }
+        fire(candidate);
+        return true;
+    }
+
+    /**
+     * 按路径顺序合并所有终止节点的结果
+     */
+    Map<String, Object> result() {
+        terminalRuns.sort((a, b) -> PATH_COMPARATOR.compare(a.path, b.path));
+        List<Map<String, Object>> responses = new ArrayList<>(terminalRuns.size());
+        for (NodeRun run : terminalRuns) {
+            if (run.response != null && !run.response.isEmpty()) {
+                responses.add(run.response);
+            }
+        }
+        if (responses.isEmpty()) {
+            return new HashMap<>();
+        }
+        return responses.size() == 1 ? responses.get(0) : ResultMerger.merge(responses);
+    }
+
+    private void offer(Integer nodeId, Map<String, Object> payload, int[] path, Integer fromNodeId) {
+        NodeRun run = runs.get(nodeId);
+        if (run == null) {
+            run = new NodeRun(nodeLookup.apply(nodeId), path);
+            runs.put(nodeId, run);
+        }
+        if (run.status != Status.WAITING && !run.definition.isJoin()) {
+            // 隐式汇聚触发后才到达的分支,只会来自之后触发的节点,与完成先后无关;为该分支单独执行一次
+            log.warn("节点[{}]在本次执行中已触发, 由节点[{}]再次调度时单独执行, 如需合并入参请将其配置为汇聚节点",
+                    nodeId, fromNodeId);
+            NodeRun rerun = new NodeRun(run.definition, path);
+            rerun.input = payload;
+            enqueue(rerun);
+            return;
+        }
+        if (run.status != Status.WAITING) {
+            // 汇聚节点触发后再到达的分支无法合并,失败而不是丢弃
+            log.error("汇聚节点[{}]在本次执行中已触发, 不能再由节点[{}]调度", nodeId, fromNodeId);
+            throw InstanceBusinessException.NODE_SCHEDULE_CONFLICT.toException(
+                    "汇聚节点[" + nodeId + "]触发后又被节点[" + fromNodeId + "]调度");
+        }
+        Set<Integer> predecessors = run.definition.getJoinPredecessors();
+        if (run.definition.isJoin() && fromNodeId != null && !predecessors.isEmpty()
+                && !predecessors.contains(fromNodeId)) {
+            // 未声明的节点可能在汇聚节点触发之前或之后到达,合并与否会取决于执行快慢
+            log.error("汇聚节点[{}]未声明前驱节点[{}], 声明的前驱节点: {}", nodeId, fromNodeId, predecessors);
+            throw InstanceBusinessException.NODE_SCHEDULE_CONFLICT.toException(
+                    "汇聚节点[" + nodeId + "]不能由未声明的前驱节点[" + fromNodeId + "]调度");
+        }
+        run.arrivals.add(new Arrival(payload, path));
+        if (PATH_COMPARATOR.compare(path, run.path) < 0) {
+            run.path = path;
+        }
+    }
+
+    private void fireSatisfiedJoins() {
+        for (NodeRun run : runs.values()) {
+            Set<Integer> predecessors = run.definition.getJoinPredecessors();
+            if (run.status == Status.WAITING && !run.arrivals.isEmpty()
+                    && !predecessors.isEmpty() && completedNodes.containsAll(predecessors)) {
+                fire(run);
+            }
+        }
+    }
+
+    /**
+     * 没有可执行和执行中的节点时,其他分支都已结束,触发所有等待中的非汇聚节点
+     * 同时触发的节点之间如果还有调度关系,后到达的分支单独执行
+     */
+    private void fireIdleNodes() {
+        if (active > 0) {
+            return;
+        }
+        List<NodeRun> idle = new ArrayList<>();
+        for (NodeRun run : runs.values()) {
+            if (run.status == Status.WAITING && !run.arrivals.isEmpty() && !run.definition.isJoin()) {
+                idle.add(run);
+            }
+        }
+        idle.sort((a, b) -> PATH_COMPARATOR.compare(a.path, b.path));
+        idle.forEach(this::fire);
+    }
+
+    private void fire(NodeRun run) {
+        run.arrivals.sort((a, b) -> PATH_COMPARATOR.compare(a.path, b.path));
+        // 多个分支传入同一份数据时只合并一次
+        Map<Map<String, Object>, Boolean> distinct = new IdentityHashMap<>();
+        List<Map<String, Object>> payloads = new ArrayList<>(run.arrivals.size());
+        for (Arrival arrival : run.arrivals) {
+            if (arrival.payload != null && distinct.put(arrival.payload, Boolean.TRUE) == null) {
+                payloads.add(arrival.payload);
+            }
+        }
+        run.input = payloads.size() == 1 ? payloads.get(0) : ResultMerger.merge(payloads);
+        enqueue(run);
+    }
+
+    private void enqueue(NodeRun run) {
+        run.status = Status.READY;
+        readyQueue.add(run);
+        active++;
+    }
+
+    private static int[] append(int[] path, int index) {
+        int[] child = new int[path.length + 1];
+        System.arraycopy(path, 0, child, 0, path.length);
+        child[path.length] = index;
+        return child;
+    }
+
+    enum Status {
+        WAITING, READY, RUNNING, DONE
+    }
+
+    /**
+     * 节点在本次执行中的运行记录
+     * 入参在调度线程设置,结果在执行线程设置,通过Future完成线程间的可见性传递
+     */
+    static class NodeRun {
+
+        @Getter
+        private final NodeDefinition definition;
+
+        private final List<Arrival> arrivals = new ArrayList<>();
+
+        private Status status = Status.WAITING;
+
+        private int[] path;
+
+        @Getter
+        private Map<String, Object> input;
+
+        private Map<String, Object> response;
+
+        private List<Integer> nextNodes;
+
+        private Map<String, Object> nextParam;
+
+        NodeRun(NodeDefinition definition, int[] path) {
+            this.definition = definition;
+            this.path = path;
+        }
+
+        Integer getNodeId() {
+            return definition.getNode().getNodeId();
+        }
+
+        void finish(Map<String, Object> response, List<Integer> nextNodes, Map<String, Object> nextParam) {
+            this.response = response;
+            this.nextNodes = nextNodes;
+            this.nextParam = nextParam;
+        }
+    }
+
+    private static class Arrival {
+
+        private final Map<String, Object> payload;
+
+        private final int[] path;
+
+        Arrival(Map<String, Object> payload, int[] path) {
+            this.payload = payload;
+            this.path = path;
+        }
+    }
+}
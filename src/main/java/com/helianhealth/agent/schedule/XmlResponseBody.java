@@ -0,0 +1,40 @@
+package com.helianhealth.agent.schedule;
+
+import com.helianhealth.agent.utils.XmlUtils;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * XML内容类型工作流的响应
+ * 由{@link com.helianhealth.agent.config.XmlResponseBodyConverter}在写响应时直接以XML写入servlet输出流,不生成中间的字符串
+ */
+@Getter
+@AllArgsConstructor
+public class XmlResponseBody {
+
+    /**
+     * 工作流的统一出参
+     */
+    private final Map<String, Object> response;
+
+    /**
+     * 工作流的contentMetaInfo,包含根元素、命名空间和缩进配置
+     */
+    private final String contentMetaInfo;
+
+    /**
+     * 以UTF-8编码写入XML,不关闭输出流
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        XmlUtils.writeResponseXml(response, contentMetaInfo, out);
+    }
+
+    @Override
+    public String toString() {
+        return XmlUtils.buildResponseXml(response, contentMetaInfo);
+    }
+}
@@ -3,6 +3,7 @@ package com.helianhealth.agent.service.impl;
 import com.github.pagehelper.PageHelper;
 import com.github.pagehelper.PageInfo;
 import com.helianhealth.agent.common.PageList;
+import com.helianhealth.agent.log.writer.InvokeLogWriter;
 import com.helianhealth.agent.mapper.agent.InterfaceInvokeLogMapper;
 import com.helianhealth.agent.model.domain.InterfaceInvokeLogDO;
 import com.helianhealth.agent.service.InterfaceInvokeLogService;
@@ -20,6 +21,7 @@ import java.util.List;
 public class InterfaceInvokeLogServiceImpl implements InterfaceInvokeLogService {
 
     private final InterfaceInvokeLogMapper interfaceInvokeLogMapper;
+    private final InvokeLogWriter invokeLogWriter;
 
     @Override
     public void saveInvokeLog(Integer nodeId,
@@ -39,7 +41,8 @@ public class InterfaceInvokeLogServiceImpl implements InterfaceInvokeLogService
                     .createTime(new Date())
                     .build();
 
-            interfaceInvokeLogMapper.insertLog(logDO);
+            // 交给后台线程批量写入,不占用调用线程
+            invokeLogWriter.submit(logDO);
         } catch (Exception e) {
             log.error("保存接口调用日志失败", e);
         }
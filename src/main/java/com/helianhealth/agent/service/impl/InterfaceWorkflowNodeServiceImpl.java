@@ -10,12 +10,14 @@ import com.helianhealth.agent.enums.ScheduleParamSourceType;
 import com.helianhealth.agent.mapper.agent.InterfaceFlowNodeMapper;
 import com.helianhealth.agent.model.domain.InterfaceWorkflowNodeDO;
 import com.helianhealth.agent.model.domain.NodeParamConfigDO;
+import com.helianhealth.agent.registry.WorkflowDefinitionChangedEvent;
 import com.helianhealth.agent.remote.InterfaceClientProxy;
 import com.helianhealth.agent.service.InterfaceWorkflowNodeService;
 import com.helianhealth.agent.service.NodeParamConfigService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
@@ -28,15 +30,18 @@ public class InterfaceWorkflowNodeServiceImpl implements InterfaceWorkflowNodeSe
     private final InterfaceFlowNodeMapper flowNodeMapper;
     private final InterfaceClientProxy interfaceClientProxy;
     private final NodeParamConfigService nodeParamConfigService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
     public InterfaceWorkflowNodeServiceImpl(
             InterfaceFlowNodeMapper flowNodeMapper,
             @Qualifier("interfaceClientProxyDelegate") InterfaceClientProxy interfaceClientProxy,
-            NodeParamConfigService nodeParamConfigService) {
+            NodeParamConfigService nodeParamConfigService,
+            ApplicationEventPublisher eventPublisher) {
         this.flowNodeMapper = flowNodeMapper;
         this.interfaceClientProxy = interfaceClientProxy;
         this.nodeParamConfigService = nodeParamConfigService;
+        this.eventPublisher = eventPublisher;
     }
 
 
@@ -88,12 +93,16 @@ public class InterfaceWorkflowNodeServiceImpl implements InterfaceWorkflowNodeSe
                 .scheduleExpr(nodeCreateReq.getScheduleExpr())
                 .scheduleParamSourceType(ScheduleParamSourceType.valueOf(nodeCreateReq.getScheduleParamSourceType())).build();
 
-        return flowNodeMapper.createNode(build);
+        int result = flowNodeMapper.createNode(build);
+        eventPublisher.publishEvent(new WorkflowDefinitionChangedEvent(this));
+        return result;
     }
 
     @Override
     public int update(InterfaceWorkflowNodeDO flowNodeDO) {
-        return flowNodeMapper.updateByPrimaryKeySelective(flowNodeDO);
+        int result = flowNodeMapper.updateByPrimaryKeySelective(flowNodeDO);
+        eventPublisher.publishEvent(new WorkflowDefinitionChangedEvent(this));
+        return result;
     }
 
     @Override
@@ -105,6 +114,7 @@ public class InterfaceWorkflowNodeServiceImpl implements InterfaceWorkflowNodeSe
             }
             // 执行删除操作
             flowNodeMapper.deleteByPrimaryKey(nodeId);
+            eventPublisher.publishEvent(new WorkflowDefinitionChangedEvent(this));
         } catch (Exception e) {
             log.error("删除节点失败", e);
             throw new RuntimeException("删除节点失败: " + e.getMessage());
@@ -5,10 +5,12 @@ import com.github.pagehelper.PageInfo;
 import com.helianhealth.agent.common.PageList;
 import com.helianhealth.agent.mapper.agent.InterfaceWorkflowMapper;
 import com.helianhealth.agent.model.domain.InterfaceWorkflowDO;
+import com.helianhealth.agent.registry.WorkflowDefinitionChangedEvent;
 import com.helianhealth.agent.service.InterfaceWorkflowService;
 import io.swagger.models.auth.In;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
@@ -20,6 +22,7 @@ import java.util.Optional;
 public class InterfaceWorkflowServiceImpl implements InterfaceWorkflowService {
 
     private final InterfaceWorkflowMapper workflowMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public Optional<InterfaceWorkflowDO> findByInterfaceUri(String apiUri) {
@@ -33,7 +36,9 @@ public class InterfaceWorkflowServiceImpl implements InterfaceWorkflowService {
             throw new IllegalArgumentException("参数不能为空");
         }
 
-        return workflowMapper.createWorkflow(workflow);
+        int result = workflowMapper.createWorkflow(workflow);
+        eventPublisher.publishEvent(new WorkflowDefinitionChangedEvent(this));
+        return result;
     }
 
     @Override
@@ -64,7 +69,9 @@ public class InterfaceWorkflowServiceImpl implements InterfaceWorkflowService {
 
     @Override
     public int update(InterfaceWorkflowDO interfaceInstanceDO) {
-        return workflowMapper.updateByPrimaryKeySelective(interfaceInstanceDO);
+        int result = workflowMapper.updateByPrimaryKeySelective(interfaceInstanceDO);
+        eventPublisher.publishEvent(new WorkflowDefinitionChangedEvent(this));
+        return result;
     }
 
     @Override
@@ -77,6 +84,7 @@ public class InterfaceWorkflowServiceImpl implements InterfaceWorkflowService {
 
             // 执行删除操作
             workflowMapper.deleteByPrimaryKey(flowId);
+            eventPublisher.publishEvent(new WorkflowDefinitionChangedEvent(this));
         } catch (Exception e) {
             log.error("删除工作流失败", e);
             throw new RuntimeException("删除工作流失败: " + e.getMessage());
@@ -8,9 +8,11 @@ import com.helianhealth.agent.enums.ProcessType;
 import com.helianhealth.agent.mapper.agent.NodeParamConfigMapper;
 import com.helianhealth.agent.model.domain.NodeParamConfigDO;
 import com.helianhealth.agent.model.dto.NodeParamConfigImportDTO;
+import com.helianhealth.agent.registry.WorkflowDefinitionChangedEvent;
 import com.helianhealth.agent.service.NodeParamConfigService;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
@@ -24,6 +26,7 @@ import java.util.List;
 public class NodeParamConfigServiceImpl implements NodeParamConfigService {
 
     private final NodeParamConfigMapper nodeParamConfigMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public PageList<NodeParamConfigDO> findAllNodeParamConfigs(Integer nodeId, ProcessType processType, int pageNum, int pageSize) {
@@ -73,6 +76,7 @@ public class NodeParamConfigServiceImpl implements NodeParamConfigService {
             int result = nodeParamConfigMapper.updateByPrimaryKeySelective(config);
 
             if (result > 0) {
+                eventPublisher.publishEvent(new WorkflowDefinitionChangedEvent(this));
                 // 查询更新后的数据
                 return nodeParamConfigMapper.selectByPrimaryKey(config.getConfigId());
             } else {
@@ -93,16 +97,11 @@ public class NodeParamConfigServiceImpl implements NodeParamConfigService {
                 throw new IllegalArgumentException("参数不能为空");
             }
 
-            // 执行插入操作
-            int result = nodeParamConfigMapper.insertNodeParamConfig(config);
-
-            if (result > 0) {
-                // 如果使用自增主键，MyBatis会自动将生成的ID设置到config对象中
-                return config;
-            } else {
-                log.warn("创建节点参数配置失败");
-                return null;
+            NodeParamConfigDO savedConfig = insertConfig(config);
+            if (savedConfig != null) {
+                eventPublisher.publishEvent(new WorkflowDefinitionChangedEvent(this));
             }
+            return savedConfig;
         } catch (Exception e) {
             log.error("创建节点参数配置失败", e);
             throw new RuntimeException("创建节点参数配置失败: " + e.getMessage());
@@ -119,6 +118,7 @@ public class NodeParamConfigServiceImpl implements NodeParamConfigService {
 
             // 执行删除操作
             nodeParamConfigMapper.deleteByPrimaryKey(configId);
+            eventPublisher.publishEvent(new WorkflowDefinitionChangedEvent(this));
         } catch (Exception e) {
             log.error("删除节点参数配置失败", e);
             throw new RuntimeException("删除节点参数配置失败: " + e.getMessage());
@@ -163,6 +163,8 @@ public class NodeParamConfigServiceImpl implements NodeParamConfigService {
             }
 
             log.info("成功导入{}条参数配置", successCount);
+            // 整批导入完成后只刷新一次快照
+            eventPublisher.publishEvent(new WorkflowDefinitionChangedEvent(this));
         } catch (IOException e) {
             log.error("读取文件失败", e);
             throw new RuntimeException("读取文件失败: " + e.getMessage());
@@ -188,7 +190,10 @@ public class NodeParamConfigServiceImpl implements NodeParamConfigService {
         NodeParamConfigDO configDO = convertToDO(paramConfigDTO, nodeId, parentId);
 
         // 2. 保存配置
-        NodeParamConfigDO savedConfig = save(configDO);
+        NodeParamConfigDO savedConfig = insertConfig(configDO);
+        if (savedConfig == null) {
+            throw new IllegalStateException("保存参数配置失败: " + paramConfigDTO.getTargetParamKey());
+        }
         int count = 1;
 
         // 3. 递归处理子参数
@@ -201,6 +206,23 @@ public class NodeParamConfigServiceImpl implements NodeParamConfigService {
         return count;
     }
 
+    /**
+     * 插入参数配置
+     * @param config 参数配置
+     * @return 插入成功返回带自增主键的配置，失败返回null
+     */
+    private NodeParamConfigDO insertConfig(NodeParamConfigDO config) {
+        int result = nodeParamConfigMapper.insertNodeParamConfig(config);
+
+        if (result > 0) {
+            // 如果使用自增主键，MyBatis会自动将生成的ID设置到config对象中
+            return config;
+        } else {
+            log.warn("创建节点参数配置失败");
+            return null;
+        }
+    }
+
     /**
      * 将NodeParamConfigExportDTO转换为NodeParamConfigDO
      * @param paramConfigDTO NodeParamConfigExportDTO对象
@@ -0,0 +1,137 @@
+package com.helianhealth.agent.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 报文压缩工具,按Content-Encoding包装输入输出流,压缩和解压都是边读写边处理,不缓冲完整报文
+ */
+public class CompressionUtils {
+
+    public static final String GZIP = "gzip";
+
+    public static final String DEFLATE = "deflate";
+
+    /**
+     * 请求支持的压缩方式,用于Accept-Encoding
+     */
+    public static final String ACCEPT_ENCODING = GZIP + ", " + DEFLATE;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * 解析节点metaInfo中的compression配置
+     * @return gzip或deflate,未配置或配置为none时返回null
+     */
+    public static String resolveEncoding(Object compression) {
+        if (compression == null || Boolean.FALSE.equals(compression)) {
+            return null;
+        }
+        if (Boolean.TRUE.equals(compression)) {
+            return GZIP;
+        }
+        String encoding = compression.toString().trim().toLowerCase();
+        if (encoding.isEmpty() || "none".equals(encoding) || "identity".equals(encoding)) {
+            return null;
+        }
+        if (!GZIP.equals(encoding) && !DEFLATE.equals(encoding)) {
+            throw new IllegalArgumentException("不支持的压缩方式: " + compression + ", 可选gzip、deflate");
+        }
+        return encoding;
+    }
+
+    /**
+     * 按压缩方式包装输出流,关闭返回的流时写入压缩结尾并关闭原始流
+     * @param encoding gzip、deflate或null
+     */
+    public static OutputStream encode(OutputStream out, String encoding) throws IOException {
+        if (encoding == null) {
+            return out;
+        }
+        switch (encoding) {
+            case GZIP:
+                return new GZIPOutputStream(out, BUFFER_SIZE);
+            case DEFLATE:
+                return new DeflaterOutputStream(out, new Deflater(Deflater.DEFAULT_COMPRESSION), BUFFER_SIZE) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            def.end();
+                        }
+                    }
+                };
+            default:
+                throw new IllegalArgumentException("不支持的压缩方式: " + encoding);
+        }
+    }
+
+    /**
+     * 按Content-Encoding包装输入流
+     * deflate兼容zlib格式和不带zlib头的原始格式
+     * @param contentEncoding Content-Encoding头,为空或identity时返回原始流
+     * @throws IOException 不支持的Content-Encoding
+     */
+    public static InputStream decode(InputStream in, String contentEncoding) throws IOException {
+        if (in == null || contentEncoding == null) {
+            return in;
+        }
+        String encoding = contentEncoding.trim().toLowerCase();
+        switch (encoding) {
+            case "":
+            case "identity":
+                return in;
+            case GZIP:
+            case "x-gzip":
+                return new GZIPInputStream(in, BUFFER_SIZE);
+            case DEFLATE:
+                PushbackInputStream pushback = new PushbackInputStream(in, 2);
+                byte[] header = new byte[2];
+                int read = pushback.read(header);
+                if (read <= 0) {
+                    return pushback;
+                }
+                pushback.unread(header, 0, read);
+                return inflate(pushback, read == 2 && isZlibHeader(header));
+            default:
+                throw new IOException("不支持的Content-Encoding: " + contentEncoding);
+        }
+    }
+
+    /**
+     * 是否为需要解压的Content-Encoding
+     */
+    public static boolean isEncoded(String contentEncoding) {
+        return contentEncoding != null && !contentEncoding.trim().isEmpty()
+                && !"identity".equalsIgnoreCase(contentEncoding.trim());
+    }
+
+    private static InputStream inflate(InputStream in, boolean zlib) {
+        Inflater inflater = new Inflater(!zlib);
+        return new InflaterInputStream(in, inflater, BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inflater.end();
+                }
+            }
+        };
+    }
+
+    private static boolean isZlibHeader(byte[] header) {
+        int cmf = header[0] & 0xFF;
+        int flg = header[1] & 0xFF;
+        return (cmf & 0x0F) == 8 && ((cmf << 8) | flg) % 31 == 0;
+    }
+}
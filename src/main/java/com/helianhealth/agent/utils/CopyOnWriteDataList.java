@@ -0,0 +1,105 @@
+package com.helianhealth.agent.utils;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 写时复制的业务数据List,与{@link CopyOnWriteDataMap}配合使用
+ * 结构性修改(增删元素)和元素替换前才复制当前这一层,嵌套的Map、List在读取时包装成同类视图
+ * 与{@link CopyOnWriteDataMap}一样,读操作可以并发执行,写操作只能在单线程中进行
+ */
+public class CopyOnWriteDataList extends AbstractList<Object> implements RandomAccess {
+
+    private final List<Object> source;
+
+    /**
+     * 第一次写入前为null,之后保存本层的副本
+     */
+    private List<Object> overlay;
+
+    /**
+     * 读取过的嵌套视图,按下标缓存;写入时合并到副本中,之后下标可能变化
+     */
+    private final Map<Integer, Object> views = new ConcurrentHashMap<>();
+
+    /**
+     * 已合并到副本中的本层视图
+     */
+    private Set<Object> ownedViews;
+
+    public CopyOnWriteDataList(List<Object> source) {
+        this.source = source;
+    }
+
+    private List<Object> current() {
+        return overlay != null ? overlay : source;
+    }
+
+    /**
+     * 写入前调用:首次写入时复制本层,并把已读取的嵌套视图合并到副本中
+     */
+    private List<Object> prepareWrite() {
+        if (overlay == null) {
+            overlay = new ArrayList<>(source);
+            ownedViews = CopyOnWriteDataMap.newIdentitySet();
+        }
+        if (!views.isEmpty()) {
+            views.forEach(overlay::set);
+            ownedViews.addAll(views.values());
+            views.clear();
+        }
+        return overlay;
+    }
+
+    @Override
+    public Object get(int index) {
+        Object view = views.get(index);
+        if (view != null) {
+            return view;
+        }
+        Object value = current().get(index);
+        if (!CopyOnWriteDataMap.isContainer(value) || (ownedViews != null && ownedViews.contains(value))) {
+            return value;
+        }
+        return views.computeIfAbsent(index, k -> CopyOnWriteDataMap.wrap(value));
+    }
+
+    @Override
+    public int size() {
+        return current().size();
+    }
+
+    @Override
+    public Object set(int index, Object element) {
+        Object previous = get(index);
+        prepareWrite().set(index, element);
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Object element) {
+        prepareWrite().add(index, element);
+        modCount++;
+    }
+
+    @Override
+    public Object remove(int index) {
+        Object previous = get(index);
+        prepareWrite().remove(index);
+        modCount++;
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        overlay = new ArrayList<>();
+        ownedViews = CopyOnWriteDataMap.newIdentitySet();
+        views.clear();
+        modCount++;
+    }
+}
@@ -0,0 +1,217 @@
+package com.helianhealth.agent.utils;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 写时复制的业务数据Map
+ * 包装原始业务数据,读取时直接读原始数据,第一次写入时才浅复制当前这一层;嵌套的Map、List在读取时包装成同类视图,
+ * 因此只有被修改的路径会被复制,其余结构与原始数据共享,原始数据始终不会被修改
+ * 用于替代过滤表达式执行前的JSON深拷贝
+ * 读操作可以并发执行(拆分调用时多个线程共享同一份数据),写操作只能在单线程中进行且不能与读操作并发
+ */
+public class CopyOnWriteDataMap extends AbstractMap<String, Object> {
+
+    private final Map<String, Object> source;
+
+    /**
+     * 第一次写入前为null,之后保存本层的副本
+     */
+    private Map<String, Object> overlay;
+
+    /**
+     * 读取过的嵌套视图,保证同一个key多次读取得到同一个视图,对视图的修改不会丢失;写入时合并到副本中
+     */
+    private final Map<String, Object> views = new ConcurrentHashMap<>();
+
+    /**
+     * 已合并到副本中的本层视图;其他的Map、List(包括其他写时复制视图)读取时都要再包装一层,保证不会修改到它们
+     */
+    private Set<Object> ownedViews;
+
+    public CopyOnWriteDataMap(Map<String, Object> source) {
+        this.source = source;
+    }
+
+    @SuppressWarnings("unchecked")
+    static Object wrap(Object value) {
+        if (value instanceof Map) {
+            return new CopyOnWriteDataMap((Map<String, Object>) value);
+        }
+        if (value instanceof List) {
+            return new CopyOnWriteDataList((List<Object>) value);
+        }
+        return value;
+    }
+
+    static boolean isContainer(Object value) {
+        return value instanceof Map || value instanceof List;
+    }
+
+    static Set<Object> newIdentitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    private Map<String, Object> current() {
+        return overlay != null ? overlay : source;
+    }
+
+    /**
+     * 写入前调用:首次写入时复制本层,并把已读取的嵌套视图合并到副本中
+     */
+    private Map<String, Object> prepareWrite() {
+        if (overlay == null) {
+            overlay = new LinkedHashMap<>(source);
+            ownedViews = newIdentitySet();
+        }
+        if (!views.isEmpty()) {
+            overlay.putAll(views);
+            ownedViews.addAll(views.values());
+            views.clear();
+        }
+        return overlay;
+    }
+
+    @Override
+    public Object get(Object key) {
+        Object view = views.get(key);
+        if (view != null) {
+            return view;
+        }
+        Object value = current().get(key);
+        if (!isContainer(value) || (ownedViews != null && ownedViews.contains(value))) {
+            return value;
+        }
+        return views.computeIfAbsent((String) key, k -> wrap(value));
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return current().containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return current().size();
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        Object previous = get(key);
+        prepareWrite().put(key, value);
+        return previous;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        if (!current().containsKey(key)) {
+            return null;
+        }
+        Object previous = get(key);
+        prepareWrite().remove(key);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        overlay = new LinkedHashMap<>();
+        ownedViews = newIdentitySet();
+        views.clear();
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                // 按快照遍历key,遍历过程中可以通过视图修改数据
+                Iterator<String> keys = new ArrayList<>(current().keySet()).iterator();
+                return new Iterator<Entry<String, Object>>() {
+                    private String lastKey;
+
+                    @Override
+                    public boolean hasNext() {
+                        return keys.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        lastKey = keys.next();
+                        return new DataEntry(lastKey);
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (lastKey == null) {
+                            throw new IllegalStateException();
+                        }
+                        CopyOnWriteDataMap.this.remove(lastKey);
+                        lastKey = null;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return CopyOnWriteDataMap.this.size();
+            }
+        };
+    }
+
+    private class DataEntry implements Entry<String, Object> {
+
+        private final String key;
+
+        DataEntry(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public Object getValue() {
+            return get(key);
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            return put(key, value);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry<?, ?> other = (Entry<?, ?>) o;
+            return eq(key, other.getKey()) && eq(getValue(), other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            Object value = getValue();
+            return (key == null ? 0 : key.hashCode()) ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + getValue();
+        }
+
+        private boolean eq(Object a, Object b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+}
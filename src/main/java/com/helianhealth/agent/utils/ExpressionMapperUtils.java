@@ -5,10 +5,19 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
-import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.context.expression.MapAccessor;
+import org.springframework.expression.PropertyAccessor;
+import org.springframework.expression.TypeConverter;
+import org.springframework.expression.TypeLocator;
+import org.springframework.expression.spel.support.ReflectivePropertyAccessor;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.expression.spel.support.StandardTypeConverter;
+import org.springframework.expression.spel.support.StandardTypeLocator;
 import org.springframework.stereotype.Component;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -17,10 +26,23 @@ import java.util.Map;
 @Component
 public class ExpressionMapperUtils implements ApplicationContextAware {
 
-    private static final SpelExpressionParser PARSER = new SpelExpressionParser();
+    private static final SpelExpressionCache EXPRESSION_CACHE = new SpelExpressionCache(2048);
+
+    /**
+     * 上下文模板:属性访问器、类型定位器、类型转换器在所有上下文间共享,每次执行只需新建上下文并设置变量
+     * MapAccessor支持以#data.key的形式访问Map,且可参与表达式编译
+     */
+    private static final List<PropertyAccessor> PROPERTY_ACCESSORS = Collections.unmodifiableList(
+            Arrays.asList(new MapAccessor(), new ReflectivePropertyAccessor()));
+
+    private static final TypeLocator TYPE_LOCATOR = new StandardTypeLocator(ExpressionMapperUtils.class.getClassLoader());
+
+    private static final TypeConverter TYPE_CONVERTER = new StandardTypeConverter();
 
     private static ApplicationContext applicationContext;
 
+    private static volatile HemsMapper hemsMapper;
+
     private static final Logger logger = LoggerFactory.getLogger(ExpressionMapperUtils.class);
 
     @Override
@@ -28,6 +50,28 @@ public class ExpressionMapperUtils implements ApplicationContextAware {
         ExpressionMapperUtils.applicationContext = applicationContext;
     }
 
+    /**
+     * 表达式缓存,用于查看统计
+     */
+    public static SpelExpressionCache getExpressionCache() {
+        return EXPRESSION_CACHE;
+    }
+
+    private static StandardEvaluationContext newContext() {
+        StandardEvaluationContext context = new StandardEvaluationContext();
+        context.setPropertyAccessors(PROPERTY_ACCESSORS);
+        context.setTypeLocator(TYPE_LOCATOR);
+        context.setTypeConverter(TYPE_CONVERTER);
+        return context;
+    }
+
+    private static HemsMapper getHemsMapper() {
+        if (hemsMapper == null && applicationContext != null) {
+            hemsMapper = applicationContext.getBean(HemsMapper.class);
+        }
+        return hemsMapper;
+    }
+
 
     /**
      * 解析表达式并返回结果
@@ -38,12 +82,12 @@ public class ExpressionMapperUtils implements ApplicationContextAware {
     public static Object parser(String expression, Object businessData, Map<String, Object> sourceBusinessData) {
         try {
             // 创建表达式上下文，将业务数据放入上下文（变量名为"data"）
-            StandardEvaluationContext context = new StandardEvaluationContext();
+            StandardEvaluationContext context = newContext();
             context.setVariable("data", businessData);
             context.setVariable("source", sourceBusinessData);
 
             // 解析并执行表达式
-            return PARSER.parseExpression(expression).getValue(context);
+            return EXPRESSION_CACHE.getValue(expression, context);
         } catch (Exception e) {
             logger.error("表达式[{}]解析异常：", expression, e);
             return null;
@@ -61,14 +105,14 @@ public class ExpressionMapperUtils implements ApplicationContextAware {
             if (businessData == null) {
                 return null;
             }
-            // 过滤操作必须是通过创建深度复制的Map来进行, 因为SpEL表达式执行过程中会修改原始Map中的数据
-            Map<String, Object> deepCopyMap = JsonUtils.deepCopyMap(businessData);
+            // 过滤表达式执行过程中可能修改数据,通过写时复制视图执行,只复制被修改的路径,原始Map保持不变
+            Map<String, Object> filteredData = new CopyOnWriteDataMap(businessData);
 
-            StandardEvaluationContext context = new StandardEvaluationContext();
-            context.setVariable("data", deepCopyMap);
-            PARSER.parseExpression(expression).getValue(context);
+            StandardEvaluationContext context = newContext();
+            context.setVariable("data", filteredData);
+            EXPRESSION_CACHE.getValue(expression, context);
 
-            return deepCopyMap;
+            return filteredData;
         } catch (Exception e) {
             logger.error("表达式[{}]解析异常：", expression, e);
             return null;
@@ -84,18 +128,18 @@ public class ExpressionMapperUtils implements ApplicationContextAware {
     public static Object parserWithBeanAccess(String expression, Object businessData, Map<String, Object> sourceBusinessData) {
         try {
             // 创建表达式上下文，将业务数据放入上下文
-            StandardEvaluationContext context = new StandardEvaluationContext();
+            StandardEvaluationContext context = newContext();
             context.setVariable("data", businessData);
             context.setVariable("source", sourceBusinessData);
 
             // 默认将HemsMapper注入context
-            if (applicationContext != null) {
-                HemsMapper hemsMapper = applicationContext.getBean(HemsMapper.class);
-                context.setVariable("hemsMapper", hemsMapper);
+            HemsMapper mapper = getHemsMapper();
+            if (mapper != null) {
+                context.setVariable("hemsMapper", mapper);
             }
 
             // 解析并执行表达式
-            return PARSER.parseExpression(expression).getValue(context);
+            return EXPRESSION_CACHE.getValue(expression, context);
         } catch (Exception e) {
             logger.error("表达式[{}]解析异常：", expression, e);
             return null;
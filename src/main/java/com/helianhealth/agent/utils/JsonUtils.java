@@ -2,8 +2,11 @@ package com.helianhealth.agent.utils;
 
 import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONObject;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.helianhealth.agent.exception.JsonUtilsException;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -11,7 +14,11 @@ import org.w3c.dom.NodeList;
 import org.w3c.dom.Text;
 
 
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -19,6 +26,17 @@ public class JsonUtils {
 
     private static final ObjectMapper objectMapper = new ObjectMapper();
 
+    /**
+     * 读取Map的ObjectReader,读取结束后不关闭输入
+     */
+    private static final ObjectReader mapReader = objectMapper.readerFor(new TypeReference<Map<String, Object>>() {})
+            .without(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+    /**
+     * 与mapReader相同,但JSON对象之后还有内容时报错
+     */
+    private static final ObjectReader completeMapReader = mapReader.with(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+
     public static String toJsonString(Object object) {
         try {
             return JSONObject.toJSONString(object);
@@ -80,6 +98,32 @@ public class JsonUtils {
         }
     }
 
+    /**
+     * 从字符流读取JSON对象为 Map,不生成中间字符串
+     * @param json JSON字符流,不关闭
+     * @return 转换后的 Map
+     */
+    public static Map<String, Object> readMap(Reader json) {
+        try {
+            return mapReader.readValue(json);
+        } catch (Exception e) {
+            throw new RuntimeException("Error converting JSON to map: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 从字符流读取JSON对象为 Map,字符流中除空白外只能有这一个JSON对象
+     * @param json JSON字符流,不关闭
+     * @return 转换后的 Map
+     */
+    public static Map<String, Object> readCompleteMap(Reader json) {
+        try {
+            return completeMapReader.readValue(json);
+        } catch (Exception e) {
+            throw new RuntimeException("Error converting JSON to map: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * 深度复制 Map<String, Object>（支持嵌套结构：内部 Map、List 等）
      * 避免修改副本时影响原始 Map，适用于需要隔离数据的场景（如流程处理、多线程操作）
@@ -101,6 +145,33 @@ public class JsonUtils {
         }
     }
 
+    /**
+     * 按结构复制 Map，只重建嵌套的 Map 和 List，字符串、数字等叶子值直接共享
+     * 比 deepCopyMap 少一次序列化，适用于响应数据这类只包含 JSON 类型的结构
+     * @param originalMap 原始 Map（可为 null，返回 null）
+     * @return 复制后的新 Map
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> copyMap(Map<String, Object> originalMap) {
+        return (Map<String, Object>) copyValue(originalMap);
+    }
+
+    private static Object copyValue(Object value) {
+        if (value instanceof Map) {
+            Map<String, Object> copy = new LinkedHashMap<>();
+            ((Map<?, ?>) value).forEach((k, v) -> copy.put(String.valueOf(k), copyValue(v)));
+            return copy;
+        }
+        if (value instanceof Collection) {
+            List<Object> copy = new ArrayList<>(((Collection<?>) value).size());
+            for (Object item : (Collection<?>) value) {
+                copy.add(copyValue(item));
+            }
+            return copy;
+        }
+        return value;
+    }
+
     /**
      * 将 XML 元素（org.w3c.dom.Element）递归转换为 Map，处理同名标签为数组
      */
@@ -4,6 +4,16 @@ import com.alibaba.fastjson2.JSONArray;
 import com.helianhealth.agent.enums.ParamType;
 import com.helianhealth.agent.model.dto.ParamTreeNode;
 
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -11,6 +21,15 @@ import java.util.Map;
 
 public class ParamNodeUtils {
 
+    /**
+     * XML写入器工厂,配置完成后线程安全
+     */
+    private static final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final char[] INDENT = "                                ".toCharArray();
+
     /**
      * 将ParamNodeDTO列表转换为Map<String, Object>
      * 递归处理子节点，支持嵌套对象结构
@@ -100,85 +119,138 @@ public class ParamNodeUtils {
             return "";
         }
 
-        StringBuilder xml = new StringBuilder();
-        paramNodeDTO2Xml(node, xml, 0);
+        StringWriter xml = new StringWriter();
+        try {
+            writeXml(node, xml, true);
+        } catch (XMLStreamException | IOException e) {
+            throw new IllegalStateException("参数节点转换XML失败: " + e.getMessage(), e);
+        }
         return xml.toString();
     }
 
     /**
-     * 递归构建XML
+     * 将ParamNodeDTO以XML写入输出流,不关闭输出流
+     * 标签值和属性值按XML转义;需要原样发送XML片段的参数配置为XML类型,需要CDATA段的配置为CDATA类型
+     * @param node 根节点
+     * @param out 输出流
+     * @param charset XML的编码
+     * @param indent 是否缩进,缩进时每级4个空格、每个元素一行,否则不输出任何空白
+     */
+    public static void writeXml(ParamTreeNode node, OutputStream out, Charset charset, boolean indent) throws IOException {
+        if (node == null) {
+            return;
+        }
+        // JDK的XMLStreamWriter直接写输出流时逐字节写入,经缓冲的Writer批量编码后写入
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, charset), BUFFER_SIZE);
+        try {
+            writeXml(node, writer, indent);
+        } catch (XMLStreamException e) {
+            throw new IOException("参数XML写入失败: " + e.getMessage(), e);
+        }
+        writer.flush();
+    }
+
+    private static void writeXml(ParamTreeNode node, Writer out, boolean indent) throws XMLStreamException, IOException {
+        XMLStreamWriter writer = outputFactory.createXMLStreamWriter(out);
+        try {
+            writeElement(node, writer, out, indent, 0);
+            // 结束文档时才会输出末尾空元素的结束符
+            writer.writeEndDocument();
+            writer.flush();
+        } finally {
+            // 只释放写入器,不关闭底层的输出流
+            writer.close();
+        }
+    }
+
+    /**
+     * 递归写入XML
      * @param node 当前节点
-     * @param xml StringBuilder对象
-     * @param indent 缩进级别
+     * @param writer XML写入器
+     * @param out 写入器底层的字符输出,XML类型的值直接写入
+     * @param indent 是否缩进
+     * @param level 缩进级别
      */
-    private static void paramNodeDTO2Xml(ParamTreeNode node, StringBuilder xml, int indent) {
+    private static void writeElement(ParamTreeNode node, XMLStreamWriter writer, Writer out, boolean indent, int level)
+            throws XMLStreamException, IOException {
         if (node == null) {
             return;
         }
 
         String tagName = node.getParamKey();
         ParamType paramType = node.getParamType();
+        boolean isContainer = paramType == ParamType.OBJECT || paramType == ParamType.ARRAY;
 
         // 添加缩进
-        addIndent(xml, indent);
-
-        // 开始标签
-        xml.append("<").append(tagName);
-
-        // 添加属性
-        List<ParamTreeNode> attributeNodes = node.getAttributeNodes();
-        if (attributeNodes != null && !attributeNodes.isEmpty()) {
-            for (ParamTreeNode attrNode : attributeNodes) {
-                if (attrNode.getParamType() == ParamType.STRING && attrNode.getParamValue() != null) {
-                    xml.append(" ").append(attrNode.getParamKey()).append("=\"")
-                            .append(attrNode.getParamValue().toString()).append("\"");
-                }
-            }
+        if (indent) {
+            writeIndent(writer, level);
         }
 
-        // 判断是否为自闭合标签
-        boolean isSelfClosing = isSelfClosingTag(node);
-
-        if (isSelfClosing) {
+        if (isSelfClosingTag(node) || (!isContainer && node.getParamValue() == null)) {
             // 自闭合标签
-            xml.append("/>\n");
-        } else if (paramType == ParamType.OBJECT) {
-            // 普通标签
-            xml.append(">");
-
-            List<ParamTreeNode> children = node.getChildren();
-            if (children != null && !children.isEmpty()) {
-                xml.append("\n");
-                for (ParamTreeNode child : children) {
-                    paramNodeDTO2Xml(child, xml, indent + 1);
+            writer.writeEmptyElement(tagName);
+            writeAttributes(node, writer);
+        } else {
+            writer.writeStartElement(tagName);
+            writeAttributes(node, writer);
+
+            if (isContainer) {
+                // 对象和数组:数组的父标签在最外面，子节点使用自己的key和value
+                List<ParamTreeNode> children = node.getChildren();
+                if (children != null && !children.isEmpty()) {
+                    if (indent) {
+                        writer.writeCharacters("\n");
+                    }
+                    for (ParamTreeNode child : children) {
+                        writeElement(child, writer, out, indent, level + 1);
+                    }
+                    if (indent) {
+                        writeIndent(writer, level);
+                    }
                 }
-                addIndent(xml, indent);
+            } else if (paramType == ParamType.XML) {
+                // 先输出开始标签的结束符并刷出已写入的内容,再把片段原样写入底层输出
+                writer.writeCharacters("");
+                writer.flush();
+                out.write(node.getParamValue().toString());
+            } else if (paramType == ParamType.CDATA) {
+                writeCData(writer, node.getParamValue().toString());
+            } else {
+                // 有值的标签
+                writer.writeCharacters(node.getParamValue().toString());
             }
 
-            xml.append("</").append(tagName).append(">\n");
-        }  else if (paramType == ParamType.ARRAY) {
-            // 数组类型：父标签在最外面，子节点使用自己的key和value
-            xml.append(">");
+            writer.writeEndElement();
+        }
+
+        if (indent) {
+            writer.writeCharacters("\n");
+        }
+    }
 
-            List<ParamTreeNode> children = node.getChildren();
-            if (children != null && !children.isEmpty()) {
-                xml.append("\n");
-                for (ParamTreeNode child : children) {
-                    paramNodeDTO2Xml(child, xml, indent + 1);
+    /**
+     * 写入属性,只输出有值的字符串类型属性节点,属性值总是转义
+     */
+    private static void writeAttributes(ParamTreeNode node, XMLStreamWriter writer) throws XMLStreamException {
+        List<ParamTreeNode> attributeNodes = node.getAttributeNodes();
+        if (attributeNodes != null && !attributeNodes.isEmpty()) {
+            for (ParamTreeNode attrNode : attributeNodes) {
+                if (attrNode.getParamType() == ParamType.STRING && attrNode.getParamValue() != null) {
+                    writer.writeAttribute(attrNode.getParamKey(), attrNode.getParamValue().toString());
                 }
-                addIndent(xml, indent);
             }
+        }
+    }
 
-            xml.append("</").append(tagName).append(">\n");
-        } else {
-            // 有值的标签
-            if (node.getParamValue() != null) {
-                xml.append(">").append(node.getParamValue().toString())
-                        .append("</").append(tagName).append(">\n");
-            } else {
-                xml.append("/>\n");
-            }
+    /**
+     * 写入CDATA段,值中的"]]>"拆到相邻的两个CDATA段中
+     */
+    private static void writeCData(XMLStreamWriter writer, String value) throws XMLStreamException {
+        int start = 0;
+        for (int index; (index = value.indexOf("]]>", start)) >= 0; start = index + 2) {
+            writer.writeCData(value.substring(start, index + 2));
         }
+        writer.writeCData(value.substring(start));
     }
 
     /**
@@ -195,12 +267,12 @@ public class ParamNodeUtils {
 
     /**
      * 添加缩进
-     * @param xml StringBuilder对象
-     * @param indent 缩进级别
+     * @param writer XML写入器
+     * @param level 缩进级别
      */
-    private static void addIndent(StringBuilder xml, int indent) {
-        for (int i = 0; i < indent * 4; i++) {
-            xml.append(" ");
+    private static void writeIndent(XMLStreamWriter writer, int level) throws XMLStreamException {
+        for (int remaining = level * 4; remaining > 0; remaining -= INDENT.length) {
+            writer.writeCharacters(INDENT, 0, Math.min(remaining, INDENT.length));
         }
     }
 
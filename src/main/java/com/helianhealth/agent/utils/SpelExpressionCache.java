@@ -0,0 +1,144 @@
+package com.helianhealth.agent.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.helianhealth.agent.model.dto.ExpressionStatsDTO;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SpEL表达式缓存
+ * 按表达式原文缓存解析结果,解析器开启MIXED编译模式:首次执行成功后尝试编译成字节码,编译失败或类型变化时自动退回解释执行
+ * 表达式来自后台配置,数量有限,超过上限时按Caffeine的W-TinyLFU淘汰,新表达式与访问频率低的表达式竞争,不会只淘汰新加入的表达式
+ */
+public class SpelExpressionCache {
+
+    private final SpelExpressionParser parser;
+
+    private final int maxSize;
+
+    private final Cache<String, CachedExpression> cache;
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    public SpelExpressionCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.parser = new SpelExpressionParser(new SpelParserConfiguration(SpelCompilerMode.MIXED,
+                SpelExpressionCache.class.getClassLoader()));
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                // 在调用线程上维护缓存,容量和淘汰统计即时准确
+                .executor(Runnable::run)
+                .removalListener((String expression, CachedExpression cached, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        evictions.increment();
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * 执行表达式,异常由调用方处理
+     */
+    public Object getValue(String expression, EvaluationContext context) {
+        CachedExpression cached = get(expression);
+        cached.evaluations.increment();
+        try {
+            Object value = cached.expression.getValue(context);
+            cached.compileOnce();
+            return value;
+        } catch (RuntimeException e) {
+            cached.failures.increment();
+            throw e;
+        }
+    }
+
+    private CachedExpression get(String expression) {
+        CachedExpression cached = cache.getIfPresent(expression);
+        if (cached != null) {
+            cached.hits.increment();
+            return cached;
+        }
+        misses.increment();
+        // 解析失败直接抛出,不缓存
+        return cache.get(expression, key -> new CachedExpression(parser.parseExpression(key)));
+    }
+
+    public int size() {
+        cache.cleanUp();
+        return (int) cache.estimatedSize();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * 各表达式的统计,按命中次数倒序
+     */
+    public List<ExpressionStatsDTO> stats() {
+        List<ExpressionStatsDTO> stats = new ArrayList<>();
+        cache.asMap().forEach((expression, cached) -> stats.add(ExpressionStatsDTO.builder()
+                .expression(expression)
+                .hits(cached.hits.sum())
+                .evaluations(cached.evaluations.sum())
+                .failures(cached.failures.sum())
+                .compiled(cached.compiled)
+                .build()));
+        stats.sort(Comparator.comparingLong(ExpressionStatsDTO::getHits).reversed());
+        return stats;
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    private static class CachedExpression {
+
+        private final Expression expression;
+
+        private final LongAdder hits = new LongAdder();
+
+        private final LongAdder evaluations = new LongAdder();
+
+        private final LongAdder failures = new LongAdder();
+
+        private final AtomicBoolean compileAttempted = new AtomicBoolean();
+
+        private volatile boolean compiled;
+
+        CachedExpression(Expression expression) {
+            this.expression = expression;
+        }
+
+        /**
+         * 编译需要一次解释执行得到的类型信息,所以在首次执行成功后才尝试
+         */
+        void compileOnce() {
+            if (expression instanceof SpelExpression && compileAttempted.compareAndSet(false, true)) {
+                compiled = ((SpelExpression) expression).compileExpression();
+            }
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.helianhealth.agent.utils;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编译好的XML路径选择器
+ * 支持XPath的子集:从根元素开始的绝对路径,每一步为元素名或*,可带位置谓词[n],最后一步可以是@属性名或text(),
+ * 例如/ClinicalDocument/recordTarget/patientRole/id[2]/@extension
+ * 元素名和属性名不带前缀时只比较本地名,带前缀时按带前缀的名称比较;取元素时值为元素下全部文本去掉首尾空白
+ * 编译完成后不可修改,可被并发的调用共享,同一文档的多个选择器在一次流式读取中完成选取
+ */
+public final class XmlPathSelector {
+
+    /**
+     * 选取结果在响应Map中的键,值为路径表达式到选取值的Map
+     */
+    public static final String VALUES_KEY = "#xpath";
+
+    private static final String TEXT_STEP = "text()";
+
+    private final String expression;
+
+    /**
+     * 每一步的元素名,*为null
+     */
+    private final String[] names;
+
+    /**
+     * 每一步的位置谓词,从1开始,没有谓词时为0
+     */
+    private final int[] positions;
+
+    /**
+     * 最后一步的属性名,取元素时为null
+     */
+    private final String attribute;
+
+    /**
+     * 最后一步是否为text(),只取元素自身的文本
+     */
+    private final boolean directText;
+
+    private XmlPathSelector(String expression, String[] names, int[] positions, String attribute, boolean directText) {
+        this.expression = expression;
+        this.names = names;
+        this.positions = positions;
+        this.attribute = attribute;
+        this.directText = directText;
+    }
+
+    /**
+     * 编译路径表达式
+     * @throws IllegalArgumentException 表达式不在支持的子集内
+     */
+    public static XmlPathSelector compile(String expression) {
+        String path = expression == null ? "" : expression.trim();
+        if (!path.startsWith("/") || path.startsWith("//")) {
+            throw new IllegalArgumentException("XPath必须是从根元素开始的绝对路径: " + expression);
+        }
+        String[] steps = path.substring(1).split("/", -1);
+        int elementSteps = steps.length;
+        String attribute = null;
+        boolean directText = false;
+        String last = steps[steps.length - 1];
+        if (last.startsWith("@")) {
+            attribute = last.substring(1);
+            if (!isName(attribute)) {
+                throw new IllegalArgumentException("不支持的XPath属性: " + expression);
+            }
+            elementSteps--;
+        } else if (TEXT_STEP.equals(last)) {
+            directText = true;
+            elementSteps--;
+        }
+        if (elementSteps == 0) {
+            throw new IllegalArgumentException("XPath缺少元素: " + expression);
+        }
+
+        String[] names = new String[elementSteps];
+        int[] positions = new int[elementSteps];
+        for (int i = 0; i < elementSteps; i++) {
+            String step = steps[i];
+            int bracket = step.indexOf('[');
+            String name = bracket < 0 ? step : step.substring(0, bracket);
+            if (bracket >= 0) {
+                if (!step.endsWith("]")) {
+                    throw new IllegalArgumentException("不支持的XPath谓词: " + expression);
+                }
+                try {
+                    positions[i] = Integer.parseInt(step.substring(bracket + 1, step.length() - 1).trim());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("XPath谓词只支持位置: " + expression);
+                }
+                if (positions[i] < 1) {
+                    throw new IllegalArgumentException("XPath位置从1开始: " + expression);
+                }
+            }
+            if (!"*".equals(name) && !isName(name)) {
+                throw new IllegalArgumentException("不支持的XPath步骤[" + step + "]: " + expression);
+            }
+            names[i] = "*".equals(name) ? null : name;
+        }
+        return new XmlPathSelector(expression, names, positions, attribute, directText);
+    }
+
+    private static boolean isName(String name) {
+        if (name.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '-' && c != '.' && c != ':') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * 从解析器当前位置流式读取文档,一次读取完成全部选择器的选取,全部选中后不再读取剩余内容
+     * 与XPath一样取文档顺序的第一个匹配,没有匹配的选择器不出现在结果中
+     * @param reader 位于文档开始处的解析器,不关闭
+     * @return 路径表达式到选取值的Map
+     */
+    public static Map<String, String> select(XMLStreamReader reader, List<XmlPathSelector> selectors) throws XMLStreamException {
+        Map<String, String> values = new HashMap<>();
+        Match[] matches = new Match[selectors.size()];
+        for (int i = 0; i < matches.length; i++) {
+            matches[i] = new Match(selectors.get(i));
+        }
+        int remaining = matches.length;
+        int depth = 0;
+        while (remaining > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+                for (Match match : matches) {
+                    if (!match.done && match.captureDepth == 0 && match.matchedDepth == depth - 1 && match.start(reader, depth)) {
+                        values.put(match.selector.expression, match.attributeValue);
+                        match.done = true;
+                        remaining--;
+                    }
+                }
+            } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                    || event == XMLStreamConstants.SPACE) {
+                for (Match match : matches) {
+                    if (match.captureDepth > 0 && (!match.selector.directText || match.captureDepth == depth)) {
+                        match.text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    }
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                for (Match match : matches) {
+                    if (match.captureDepth == depth) {
+                        String value = match.text.toString().trim();
+                        match.captureDepth = 0;
+                        // text()只匹配有文本的元素,继续查找下一个
+                        if (!match.selector.directText || !value.isEmpty()) {
+                            values.put(match.selector.expression, value);
+                            match.done = true;
+                            remaining--;
+                        }
+                    } else if (match.matchedDepth == depth) {
+                        match.matchedDepth = depth - 1;
+                    }
+                }
+                depth--;
+            }
+        }
+        return values;
+    }
+
+    private boolean nameMatches(String name, String prefix, String localName) {
+        if (name == null) {
+            return true;
+        }
+        if (name.indexOf(':') < 0) {
+            return name.equals(localName);
+        }
+        return prefix != null && !prefix.isEmpty() && name.equals(prefix + ":" + localName);
+    }
+
+    /**
+     * 单次选取的状态
+     */
+    private static final class Match {
+
+        private final XmlPathSelector selector;
+
+        /**
+         * 当前路径上已匹配的步数,等于当前深度时继续匹配子元素
+         */
+        private int matchedDepth;
+
+        /**
+         * 每一步在当前父元素下已出现的同名元素数,用于位置谓词
+         */
+        private final int[] counts;
+
+        /**
+         * 正在读取文本的目标元素深度,未读取时为0
+         */
+        private int captureDepth;
+
+        private final StringBuilder text = new StringBuilder();
+
+        private String attributeValue;
+
+        private boolean done;
+
+        Match(XmlPathSelector selector) {
+            this.selector = selector;
+            this.counts = new int[selector.names.length];
+        }
+
+        /**
+         * 处理父元素已匹配时的子元素开始标签
+         * @return 取属性时已选中返回true
+         */
+        boolean start(XMLStreamReader reader, int depth) {
+            int step = depth - 1;
+            if (step >= selector.names.length
+                    || !selector.nameMatches(selector.names[step], reader.getPrefix(), reader.getLocalName())) {
+                return false;
+            }
+            counts[step]++;
+            if (selector.positions[step] != 0 && counts[step] != selector.positions[step]) {
+                return false;
+            }
+            if (depth < selector.names.length) {
+                matchedDepth = depth;
+                counts[depth] = 0;
+                return false;
+            }
+            if (selector.attribute == null) {
+                captureDepth = depth;
+                text.setLength(0);
+                return false;
+            }
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                if (selector.nameMatches(selector.attribute, reader.getAttributePrefix(i), reader.getAttributeLocalName(i))) {
+                    attributeValue = reader.getAttributeValue(i);
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
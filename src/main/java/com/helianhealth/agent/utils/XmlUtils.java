@@ -4,33 +4,47 @@ import com.alibaba.fastjson2.JSON;
 import com.alibaba.fastjson2.JSONArray;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 public class XmlUtils {
 
     private static final Logger log = LoggerFactory.getLogger(XmlUtils.class);
 
+    /**
+     * 流式解析器工厂,配置完成后线程安全
+     * SOAP报文不允许DTD,关闭DTD和外部实体
+     */
+    private static final XMLInputFactory inputFactory = createInputFactory();
+
+    /**
+     * XML写入器工厂,配置完成后线程安全
+     */
+    private static final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+
+    private static final char[] INDENT = "                                ".toCharArray();
+
     /**
      * 将XML字符串转换为Map<String, Object>
      *
@@ -39,12 +53,7 @@ public class XmlUtils {
      */
     public static Map<String, Object> xmlToMap(String xml) {
         try {
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            factory.setNamespaceAware(true);
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document document = builder.parse(new InputSource(new StringReader(xml)));
-
-            return elementToMap(document.getDocumentElement());
+            return readDocument(new StringReader(xml));
         } catch (Exception e) {
             throw new RuntimeException("Failed to parse XML to Map", e);
         }
@@ -52,114 +61,237 @@ public class XmlUtils {
 
     /**
      * 解析SOAP响应XML，支持命名空间配置
+     * 流式读取到结果元素,结果元素的文本(通常是CDATA中的业务XML)直接作为第二个流式解析器的输入,
+     * 不构建响应的DOM,也不生成结果文本的中间字符串
      *
      * @param responseXml 原始SOAP响应XML
      * @param metaInfo    元信息（包含命名空间等配置）
      * @return 解析后的Map对象
      */
     public static Map<String, Object> parseResponseXml(String responseXml, String metaInfo) {
+        XMLStreamReader reader = null;
         try {
-            // 解析metaInfo获取配置
-            Map<String, Object> metaMap = new HashMap<>();
-            if (metaInfo != null && !metaInfo.isEmpty()) {
-                metaMap = JSON.parseObject(metaInfo, Map.class);
-            }
-
-            // 获取命名空间配置
-            String namespaceURI = (String) metaMap.get("responseNamespace");
-            String resultElementName = (String) metaMap.getOrDefault("resultElementName", "MessageInResult");
-
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            factory.setNamespaceAware(true);
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            InputSource is = new InputSource(new StringReader(responseXml));
-            Document doc = builder.parse(is);
-
-            Element resultElement;
-            if (namespaceURI != null && !namespaceURI.isEmpty()) {
-                // 使用命名空间查找
-                resultElement = (Element) doc.getElementsByTagNameNS(namespaceURI, resultElementName).item(0);
-            } else {
-                // 不使用命名空间查找
-                resultElement = (Element) doc.getElementsByTagName(resultElementName).item(0);
-            }
-
-            if (resultElement == null) {
-                log.error("未找到结果元素: {}", resultElementName);
-                throw new IllegalArgumentException("未找到结果元素: " + resultElementName);
-            }
-
-            // 获取 CDATA 内容（自动处理）
-            String cdataContent = resultElement.getTextContent();
-
-            if (cdataContent == null || cdataContent.trim().isEmpty()) {
+            reader = inputFactory.createXMLStreamReader(new StringReader(responseXml));
+            ElementTextReader content = openResultContent(reader, metaInfo);
+            if (content == null) {
                 return new HashMap<>();
             }
 
             // 转化成Map
-            return xmlToMap(cdataContent);
+            return readDocument(content);
         } catch (Exception e) {
             log.error("解析SOAP响应失败", e);
             throw new RuntimeException("解析SOAP响应失败: " + e.getMessage(), e);
+        } finally {
+            closeQuietly(reader);
         }
     }
 
     /**
-     * 递归将Element转换为Map
+     * 按编译好的路径从SOAP响应的结果文档中选取值,不转换为Map
+     * 路径从结果元素文本中业务XML的根元素开始,与{@link #parseResponseXml(String, String)}解析的是同一个文档
      *
-     * @param element XML元素
-     * @return 转换后的Map对象
+     * @param responseXml 原始SOAP响应XML
+     * @param metaInfo    元信息（包含命名空间等配置）
+     * @param selectors   编译好的路径选择器
+     * @return 路径表达式到选取值的Map
      */
-    @SuppressWarnings("unchecked")
-    private static Map<String, Object> elementToMap(Element element) {
-        Map<String, Object> resultMap = new LinkedHashMap<>();
+    public static Map<String, String> selectResponsePaths(String responseXml, String metaInfo, List<XmlPathSelector> selectors) {
+        XMLStreamReader reader = null;
+        XMLStreamReader payload = null;
+        try {
+            reader = inputFactory.createXMLStreamReader(new StringReader(responseXml));
+            ElementTextReader content = openResultContent(reader, metaInfo);
+            if (content == null) {
+                return new HashMap<>();
+            }
+            payload = inputFactory.createXMLStreamReader(content);
+            return XmlPathSelector.select(payload, selectors);
+        } catch (Exception e) {
+            log.error("选取SOAP响应路径失败", e);
+            throw new RuntimeException("选取SOAP响应路径失败: " + e.getMessage(), e);
+        } finally {
+            closeQuietly(payload);
+            closeQuietly(reader);
+        }
+    }
 
-        // 处理属性
-        NamedNodeMap attributes = element.getAttributes();
-        if (attributes != null) {
-            for (int i = 0; i < attributes.getLength(); i++) {
-                Node attribute = attributes.item(i);
-                resultMap.put(attribute.getNodeName(), attribute.getNodeValue());
-            }
-        }
-
-        // 处理子节点
-        NodeList childNodes = element.getChildNodes();
-        for (int i = 0; i < childNodes.getLength(); i++) {
-            Node node = childNodes.item(i);
-
-            if (node.getNodeType() == Node.ELEMENT_NODE) {
-                Element childElement = (Element) node;
-                String tagName = childElement.getNodeName();
-
-                // 递归处理子元素
-                Map<String, Object> childMap = elementToMap(childElement);
-
-                // 如果该节点已存在，则转换为列表
-                if (resultMap.containsKey(tagName)) {
-                    Object existingValue = resultMap.get(tagName);
-                    if (existingValue instanceof List) {
-                        ((List<Map<String, Object>>) existingValue).add(childMap);
-                    } else {
-                        List<Object> list = new ArrayList<>();
-                        list.add(existingValue);
-                        list.add(childMap);
-                        resultMap.put(tagName, list);
+    /**
+     * 流式读取到结果元素,返回结果元素的文本内容（CDATA和转义文本都按文本读取）
+     * @return 文本全部为空白时返回null
+     */
+    private static ElementTextReader openResultContent(XMLStreamReader reader, String metaInfo) throws XMLStreamException, IOException {
+        // 解析metaInfo获取配置
+        Map<String, Object> metaMap = new HashMap<>();
+        if (metaInfo != null && !metaInfo.isEmpty()) {
+            metaMap = JSON.parseObject(metaInfo, Map.class);
+        }
+
+        // 获取命名空间配置
+        String namespaceURI = (String) metaMap.get("responseNamespace");
+        String resultElementName = (String) metaMap.getOrDefault("resultElementName", "MessageInResult");
+
+        if (!skipToElement(reader, namespaceURI, resultElementName)) {
+            log.error("未找到结果元素: {}", resultElementName);
+            throw new IllegalArgumentException("未找到结果元素: " + resultElementName);
+        }
+
+        ElementTextReader content = new ElementTextReader(reader);
+        return content.skipWhitespace() ? content : null;
+    }
+
+    /**
+     * 流式读取XML文档的根元素并转换为Map
+     * 与DOM一样读到文档结束,根元素之后还有内容时报错
+     */
+    private static Map<String, Object> readDocument(Reader xml) throws XMLStreamException {
+        XMLStreamReader reader = inputFactory.createXMLStreamReader(xml);
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                    Map<String, Object> resultMap = readElement(reader);
+                    while (reader.hasNext()) {
+                        reader.next();
                     }
-                } else {
-                    resultMap.put(tagName, childMap);
+                    return resultMap;
                 }
-            } else if (node.getNodeType() == Node.TEXT_NODE) {
-                String textValue = node.getNodeValue().trim();
-                if (!textValue.isEmpty()) {
-                    resultMap.put("#text", textValue);
+            }
+            throw new XMLStreamException("XML中没有根元素");
+        } finally {
+            closeQuietly(reader);
+        }
+    }
+
+    /**
+     * 读取当前元素并转换为Map,返回时解析器位于该元素的结束标签
+     * 与DOM一样,相邻的文本合并为一个文本节点,注释和处理指令会分隔文本节点;CDATA按普通文本处理
+     */
+    private static Map<String, Object> readElement(XMLStreamReader reader) throws XMLStreamException {
+        return readContent(reader, readAttributes(reader), new StringBuilder());
+    }
+
+    /**
+     * 读取当前元素的属性,DOM中命名空间声明也是属性,并按属性名排序
+     */
+    private static Map<String, Object> readAttributes(XMLStreamReader reader) {
+        Map<String, String> attributes = new TreeMap<>();
+        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            String prefix = reader.getNamespacePrefix(i);
+            attributes.put(prefix == null || prefix.isEmpty() ? "xmlns" : "xmlns:" + prefix, reader.getNamespaceURI(i));
+        }
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            attributes.put(qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)),
+                    reader.getAttributeValue(i));
+        }
+        return new LinkedHashMap<>(attributes);
+    }
+
+    /**
+     * 读取当前元素剩余的子节点,返回时解析器位于该元素的结束标签
+     * @param text 已读取但还未结束的文本节点
+     */
+    private static Map<String, Object> readContent(XMLStreamReader reader, Map<String, Object> resultMap,
+                                                   StringBuilder text) throws XMLStreamException {
+        while (true) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                    || event == XMLStreamConstants.SPACE) {
+                text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                continue;
+            }
+            putText(resultMap, text.toString());
+            text.setLength(0);
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                String tagName = qualifiedName(reader.getPrefix(), reader.getLocalName());
+                putChild(resultMap, tagName, readElement(reader));
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                return finishElementMap(resultMap);
+            }
+        }
+    }
+
+    /**
+     * 流式查找第一个匹配的元素,配置了命名空间时按命名空间和本地名匹配,否则按带前缀的标签名匹配
+     * @return 找到时解析器位于该元素的开始标签
+     */
+    private static boolean skipToElement(XMLStreamReader reader, String namespaceURI, String elementName) throws XMLStreamException {
+        boolean useNamespace = namespaceURI != null && !namespaceURI.isEmpty();
+        while (reader.hasNext()) {
+            if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+            if (useNamespace) {
+                if (namespaceURI.equals(reader.getNamespaceURI()) && elementName.equals(reader.getLocalName())) {
+                    return true;
                 }
+            } else if (elementName.equals(qualifiedName(reader.getPrefix(), reader.getLocalName()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String qualifiedName(String prefix, String localName) {
+        return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    private static void closeQuietly(XMLStreamReader reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (XMLStreamException ignored) {
+                // 输入都在内存中
             }
         }
+    }
+
+    /**
+     * 添加子元素,该节点已存在时转换为列表
+     */
+    @SuppressWarnings("unchecked")
+    private static void putChild(Map<String, Object> resultMap, String tagName, Map<String, Object> childMap) {
+        if (resultMap.containsKey(tagName)) {
+            Object existingValue = resultMap.get(tagName);
+            if (existingValue instanceof List) {
+                ((List<Map<String, Object>>) existingValue).add(childMap);
+            } else {
+                List<Object> list = new ArrayList<>();
+                list.add(existingValue);
+                list.add(childMap);
+                resultMap.put(tagName, list);
+            }
+        } else {
+            resultMap.put(tagName, childMap);
+        }
+    }
+
+    /**
+     * 添加文本节点,空白文本忽略,多个文本节点时保留最后一个
+     */
+    private static void putText(Map<String, Object> resultMap, String text) {
+        String textValue = text.trim();
+        if (!textValue.isEmpty()) {
+            resultMap.put("#text", textValue);
+        }
+    }
 
+    /**
+     * 元素处理完成后,只有文本的子元素直接以文本作为值
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> finishElementMap(Map<String, Object> resultMap) {
         // 如果只有文本内容，直接返回文本（不嵌套）
         if (resultMap.size() == 1 && resultMap.containsKey("#text")) {
-            return Collections.singletonMap("#text", resultMap.get("#text"));
+            return resultMap;
         }
 
         for (Map.Entry<String, Object> entry : resultMap.entrySet()) {
@@ -183,60 +315,153 @@ public class XmlUtils {
      * @return 解析后的Map对象
      */
     public static Map<String, Object> parseRequestXml(String requestXml, String metaInfo) {
+        XMLStreamReader reader = null;
         try {
-            // 解析metaInfo获取配置
-            Map<String, Object> metaMap = new HashMap<>();
-            if (metaInfo != null && !metaInfo.isEmpty()) {
-                metaMap = JSON.parseObject(metaInfo, Map.class);
-            }
+            reader = inputFactory.createXMLStreamReader(new StringReader(requestXml));
+            return readRequest(reader, metaInfo);
+        } catch (Exception e) {
+            log.error("解析SOAP请求失败", e);
+            throw new RuntimeException("解析SOAP请求失败: " + e.getMessage(), e);
+        } finally {
+            closeQuietly(reader);
+        }
+    }
 
-            // 获取命名空间配置
-            String namespaceURI = (String) metaMap.get("requestNamespace");
-            String requestElementName = (String) metaMap.get("requestElementName");
-            String requestType = (String) metaMap.getOrDefault("requestType", "xml");
-            // 新增配置项，控制是否使用CDATA解析
-            boolean useCdata = (boolean) metaMap.getOrDefault("useCdata", false);
-
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            factory.setNamespaceAware(true);
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            InputSource is = new InputSource(new StringReader(requestXml));
-            Document doc = builder.parse(is);
-
-            Element requestElement;
-            if (useCdata) {
-                // 使用CDATA解析（原有的命名空间查找逻辑）
-                if (namespaceURI != null && !namespaceURI.isEmpty()) {
-                    // 使用命名空间查找
-                    requestElement = (Element) doc.getElementsByTagNameNS(namespaceURI, requestElementName).item(0);
-                } else {
-                    // 不使用命名空间查找
-                    requestElement = (Element) doc.getElementsByTagName(requestElementName).item(0);
+    /**
+     * 从请求体输入流流式解析SOAP请求,一次读取直接生成业务数据,不生成报文字符串也不构建DOM
+     *
+     * @param requestXml 请求体输入流,不关闭
+     * @param encoding   请求头声明的字符集,为null时按XML声明识别
+     * @param metaInfo   元信息（包含命名空间等配置）
+     * @return 解析后的Map对象
+     */
+    public static Map<String, Object> parseRequestXml(InputStream requestXml, String encoding, String metaInfo) {
+        XMLStreamReader reader = null;
+        try {
+            reader = encoding == null
+                    ? inputFactory.createXMLStreamReader(requestXml)
+                    : inputFactory.createXMLStreamReader(requestXml, encoding);
+            return readRequest(reader, metaInfo);
+        } catch (Exception e) {
+            log.error("解析SOAP请求失败", e);
+            throw new RuntimeException("解析SOAP请求失败: " + e.getMessage(), e);
+        } finally {
+            closeQuietly(reader);
+        }
+    }
+
+    private static Map<String, Object> readRequest(XMLStreamReader reader, String metaInfo) throws XMLStreamException, IOException {
+        // 解析metaInfo获取配置
+        Map<String, Object> metaMap = new HashMap<>();
+        if (metaInfo != null && !metaInfo.isEmpty()) {
+            metaMap = JSON.parseObject(metaInfo, Map.class);
+        }
+
+        // 获取命名空间配置
+        String namespaceURI = (String) metaMap.get("requestNamespace");
+        String requestElementName = (String) metaMap.get("requestElementName");
+        String requestType = (String) metaMap.getOrDefault("requestType", "xml");
+        // 新增配置项，控制是否使用CDATA解析
+        boolean useCdata = (boolean) metaMap.getOrDefault("useCdata", false);
+
+        if (!useCdata) {
+            // 直接解析整个文档，不查找特定元素
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                    return readElement(reader);
                 }
-            } else {
-                // 直接解析整个文档，不查找特定元素
-                requestElement = doc.getDocumentElement();
             }
+            throw new XMLStreamException("XML中没有根元素");
+        }
 
-            if (requestElement == null) {
-                log.error("未找到请求元素: {}", requestElementName);
-                throw new IllegalArgumentException("未找到请求元素: " + requestElementName);
-            }
+        if (!skipToElement(reader, namespaceURI, requestElementName)) {
+            log.error("未找到请求元素: {}", requestElementName);
+            throw new IllegalArgumentException("未找到请求元素: " + requestElementName);
+        }
+        return readRequestElement(reader, "json".equalsIgnoreCase(requestType));
+    }
 
-            Map<String, Object> result = elementToMap(requestElement);
+    /**
+     * 读取请求元素,返回时解析器位于该元素的结束标签
+     * 内容以业务报文开头(通常是CDATA中的XML,requestType为json时为JSON)时,文本直接作为第二个解析器的输入;
+     * 文本不是一个完整的业务报文(如"<5 mmol/L"、报文之后还有文本)时,按普通文本处理;
+     * 否则与{@link #readElement(XMLStreamReader)}一样转换为Map
+     */
+    private static Map<String, Object> readRequestElement(XMLStreamReader reader, boolean jsonPayload) throws XMLStreamException, IOException {
+        Map<String, Object> resultMap = readAttributes(reader);
+        while (true) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                    || event == XMLStreamConstants.SPACE) {
+                if (reader.isWhiteSpace()) {
+                    continue;
+                }
+                if (isPayloadStart(reader, jsonPayload)) {
+                    return readPayload(reader, resultMap, jsonPayload);
+                }
+                StringBuilder text = new StringBuilder();
+                text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                return readContent(reader, resultMap, text);
+            }
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                String tagName = qualifiedName(reader.getPrefix(), reader.getLocalName());
+                putChild(resultMap, tagName, readElement(reader));
+                return readContent(reader, resultMap, new StringBuilder());
+            }
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                return finishElementMap(resultMap);
+            }
+        }
+    }
 
+    /**
+     * 把请求元素的文本作为业务报文解析,返回时解析器位于该元素的结束标签
+     * 解析时记录读出的文本,不是完整的业务报文时按普通文本处理
+     */
+    private static Map<String, Object> readPayload(XMLStreamReader reader, Map<String, Object> resultMap,
+                                                   boolean jsonPayload) throws IOException {
+        ElementTextReader content = new ElementTextReader(reader);
+        content.includeCurrentText();
+        content.skipWhitespace();
+        content.startRecording();
+        try {
+            Map<String, Object> payload = jsonPayload ? JsonUtils.readCompleteMap(content) : readDocument(content);
+            if (!content.skipWhitespace()) {
+                return payload;
+            }
+        } catch (XMLStreamException | RuntimeException e) {
+            log.debug("请求元素的内容不是完整的业务报文,按文本处理: {}", e.getMessage());
+        }
+        putText(resultMap, content.drainRecorded());
+        return finishElementMap(resultMap);
+    }
 
-            if ("json".equalsIgnoreCase(requestType)) {
-                String jsonStr = JSON.toJSONString(result);
-                return JsonUtils.toMap(jsonStr);
-            } else {
-                // XML格式直接返回Map
-                return result;
+    /**
+     * 当前文本是否以业务报文开头:XML为开始标签、XML声明或注释,JSON为对象
+     * 只看第一个非空白字符及其后一个字符,"<5"、"< 10"、"{x}"这类文本不作为业务报文
+     */
+    private static boolean isPayloadStart(XMLStreamReader reader, boolean jsonPayload) {
+        char[] chars = reader.getTextCharacters();
+        int end = reader.getTextStart() + reader.getTextLength();
+        int i = reader.getTextStart();
+        while (i < end && Character.isWhitespace(chars[i])) {
+            i++;
+        }
+        if (i == end || chars[i] != (jsonPayload ? '{' : '<')) {
+            return false;
+        }
+        if (jsonPayload) {
+            // 第二个字符在下一段文本中时交给JSON解析器判断
+            while (++i < end && Character.isWhitespace(chars[i])) {
+                // 跳过空白
             }
-        } catch (Exception e) {
-            log.error("解析SOAP请求失败", e);
-            throw new RuntimeException("解析SOAP请求失败: " + e.getMessage(), e);
+            return i == end || chars[i] == '"' || chars[i] == '}';
+        }
+        if (++i == end) {
+            return true;
         }
+        char c = chars[i];
+        return c == '?' || c == '!' || c == '_' || c == ':' || Character.isLetter(c);
     }
 
     /**
@@ -247,6 +472,30 @@ public class XmlUtils {
      * @return 生成的XML字符串
      */
     public static String buildResponseXml(Map<String, Object> scheduleRsp, String metaInfo) {
+        StringWriter writer = new StringWriter();
+        writeResponseXml(scheduleRsp, metaInfo, writer);
+        return writer.toString();
+    }
+
+    /**
+     * 将Map以UTF-8编码的XML直接写入输出流(如servlet响应),不关闭输出流
+     * #开头的key作为属性,列表作为重复的元素,null和空值输出空标签;
+     * metaInfo中indent为false时不缩进,indentAmount为每级缩进的空格数,默认2
+     *
+     * @param scheduleRsp 需要转换的Map数据
+     * @param metaInfo    元信息（包含命名空间等配置）
+     * @param out         输出流
+     */
+    public static void writeResponseXml(Map<String, Object> scheduleRsp, String metaInfo, OutputStream out) throws IOException {
+        // JDK的XMLStreamWriter直接写输出流时逐字节写入,经缓冲的Writer批量编码后写入
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 8192);
+        writeResponseXml(scheduleRsp, metaInfo, writer);
+        writer.flush();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeResponseXml(Map<String, Object> scheduleRsp, String metaInfo, Writer out) {
+        XMLStreamWriter writer = null;
         try {
             if (scheduleRsp == null || scheduleRsp.isEmpty()) {
                 throw new IllegalArgumentException("scheduleRsp cannot be null or empty");
@@ -261,117 +510,301 @@ public class XmlUtils {
             // 获取配置信息
             String namespaceURI = (String) metaMap.get("responseNamespace");
             String resultElementName = (String) metaMap.get("resultElementName");
+            int indentAmount = resolveIndentAmount(metaMap);
 
             // 如果配置中没有指定根元素名称，则使用scheduleRsp的第一个key作为根元素名称
             if (resultElementName == null || resultElementName.isEmpty()) {
                 resultElementName = scheduleRsp.keySet().iterator().next();
             }
 
-            // 创建文档
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document doc = builder.newDocument();
+            writer = outputFactory.createXMLStreamWriter(out);
+            // 获取根元素对应的数据并写入,即使值为null，也创建标签
+            writeElement(writer, resultElementName, namespaceURI, scheduleRsp.get(resultElementName), indentAmount, 0);
+            if (indentAmount > 0) {
+                writer.writeCharacters("\n");
+            }
+            // 结束文档时才会输出末尾空元素的结束符
+            writer.writeEndDocument();
+            writer.flush();
+        } catch (Exception e) {
+            log.error("构建SOAP响应XML失败", e);
+            throw new RuntimeException("构建SOAP响应XML失败: " + e.getMessage(), e);
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (XMLStreamException ignored) {
+                    // 只释放写入器,不关闭底层的输出流
+                }
+            }
+        }
+    }
+
+    /**
+     * 每级缩进的空格数,indent为false时返回0
+     */
+    private static int resolveIndentAmount(Map<String, Object> metaMap) {
+        Object indent = metaMap.get("indent");
+        if (Boolean.FALSE.equals(indent) || "false".equals(indent)) {
+            return 0;
+        }
+        Object indentAmount = metaMap.get("indentAmount");
+        if (indentAmount == null) {
+            return 2;
+        }
+        int amount = Integer.parseInt(indentAmount.toString());
+        if (amount < 0) {
+            throw new IllegalArgumentException("indentAmount不能小于0: " + amount);
+        }
+        return amount;
+    }
+
+    /**
+     * 写入一个元素
+     * 属性按名称排序,与原来DOM序列化的顺序一致;没有子元素和文本的元素输出为自闭合标签
+     *
+     * @param namespaceURI 元素的命名空间,只有根元素使用
+     */
+    @SuppressWarnings("unchecked")
+    private static void writeElement(XMLStreamWriter writer, String name, String namespaceURI, Object value,
+                                     int indentAmount, int level) throws XMLStreamException {
+        if (indentAmount > 0 && level > 0) {
+            writeIndent(writer, indentAmount * level);
+        }
 
-            // 创建根元素
-            Element rootElement;
-            if (namespaceURI != null && !namespaceURI.isEmpty()) {
-                // 使用命名空间创建根元素
-                rootElement = doc.createElementNS(namespaceURI, resultElementName);
+        Map<String, Object> map = value instanceof Map ? (Map<String, Object>) value : null;
+        String text = map != null ? null : (value == null ? "" : value.toString());
+        boolean empty = map != null ? !hasChildElements(map) : text.isEmpty();
+
+        boolean useNamespace = namespaceURI != null && !namespaceURI.isEmpty();
+        int colon = name.indexOf(':');
+        String prefix = useNamespace && colon > 0 ? name.substring(0, colon) : "";
+        String localName = useNamespace && colon > 0 ? name.substring(colon + 1) : name;
+        if (empty) {
+            if (useNamespace) {
+                writer.writeEmptyElement(prefix, localName, namespaceURI);
             } else {
-                // 不使用命名空间创建根元素
-                rootElement = doc.createElement(resultElementName);
+                writer.writeEmptyElement(name);
             }
-            doc.appendChild(rootElement);
+        } else if (useNamespace) {
+            writer.writeStartElement(prefix, localName, namespaceURI);
+        } else {
+            writer.writeStartElement(name);
+        }
 
-            // 获取根元素对应的数据并转换为XML元素
-            Object rootData = scheduleRsp.get(resultElementName);
-            if (rootData instanceof Map) {
-                mapToElement((Map<String, Object>) rootData, rootElement, doc);
+        // 处理属性
+        if (map != null) {
+            Map<String, String> attributes = new TreeMap<>();
+            for (Map.Entry<String, Object> entry : map.entrySet()) {
+                if (entry.getKey().startsWith("#")) {
+                    attributes.put(entry.getKey().substring(1), entry.getValue() != null ? entry.getValue().toString() : "");
+                }
+            }
+            for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+                writer.writeAttribute(attribute.getKey(), attribute.getValue());
+            }
+        }
+        if (useNamespace) {
+            if (prefix.isEmpty()) {
+                writer.writeDefaultNamespace(namespaceURI);
             } else {
-                // 即使值为null，也创建标签
-                String textContent = rootData == null ? "" : rootData.toString();
-                rootElement.appendChild(doc.createTextNode(textContent));
+                writer.writeNamespace(prefix, namespaceURI);
             }
+        }
+        if (empty) {
+            return;
+        }
 
-            // 创建XML输出
-            TransformerFactory transformerFactory = TransformerFactory.newInstance();
-            Transformer transformer = transformerFactory.newTransformer();
-
-            // 设置输出属性
-            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-            transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-            transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+        if (map == null) {
+            writeText(writer, text);
+        } else {
+            for (Map.Entry<String, Object> entry : map.entrySet()) {
+                String key = entry.getKey();
+                Object childValue = entry.getValue();
+                if (key.startsWith("#")) {
+                    continue;
+                }
+                if (childValue instanceof List) {
+                    // 如果值是List，则每个元素输出一个同名标签
+                    for (Object item : (List<?>) childValue) {
+                        writeElement(writer, key, null, item, indentAmount, level + 1);
+                    }
+                } else {
+                    writeElement(writer, key, null, childValue, indentAmount, level + 1);
+                }
+            }
+            if (indentAmount > 0) {
+                writeIndent(writer, indentAmount * level);
+            }
+        }
+        writer.writeEndElement();
+    }
 
-            // 关键：设置不输出XML声明
-            transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+    /**
+     * 是否有子元素,#开头的属性和空列表不产生子元素
+     */
+    private static boolean hasChildElements(Map<String, Object> map) {
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            if (!entry.getKey().startsWith("#")
+                    && !(entry.getValue() instanceof List && ((List<?>) entry.getValue()).isEmpty())) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-            StringWriter writer = new StringWriter();
-            StreamResult result = new StreamResult(writer);
-            DOMSource source = new DOMSource(doc);
-            transformer.transform(source, result);
+    /**
+     * 写入文本,回车符以字符引用输出,接收方解析时不会被换行规范化丢弃
+     */
+    private static void writeText(XMLStreamWriter writer, String text) throws XMLStreamException {
+        int start = 0;
+        for (int index; (index = text.indexOf('\r', start)) >= 0; start = index + 1) {
+            writer.writeCharacters(text.substring(start, index));
+            writer.writeEntityRef("#13");
+        }
+        writer.writeCharacters(start == 0 ? text : text.substring(start));
+    }
 
-            return writer.toString();
-        } catch (Exception e) {
-            log.error("构建SOAP响应XML失败", e);
-            throw new RuntimeException("构建SOAP响应XML失败: " + e.getMessage(), e);
+    private static void writeIndent(XMLStreamWriter writer, int spaces) throws XMLStreamException {
+        writer.writeCharacters("\n");
+        for (int remaining = spaces; remaining > 0; remaining -= INDENT.length) {
+            writer.writeCharacters(INDENT, 0, Math.min(remaining, INDENT.length));
         }
     }
 
     /**
-     * 递归将Map转换为XML元素，确保null值也会生成对应的标签
-     *
-     * @param map    要转换的Map
-     * @param parent 父元素
-     * @param doc    文档对象
+     * 以Reader的方式读取元素的全部文本内容(与DOM的getTextContent一致,包括CDATA和子元素中的文本),
+     * 读取时才从解析器拉取下一段文本,读到元素结束标签时结束
      */
-    private static void mapToElement(Map<String, Object> map, Element parent, Document doc) {
-        if (map == null) {
-            return;
+    private static final class ElementTextReader extends Reader {
+
+        private final XMLStreamReader reader;
+        private int depth = 1;
+        private char[] chunk;
+        private int position;
+        private int limit;
+        private boolean finished;
+        private StringBuilder recorded;
+        private IOException failure;
+
+        ElementTextReader(XMLStreamReader reader) {
+            this.reader = reader;
         }
 
-        for (Map.Entry<String, Object> entry : map.entrySet()) {
-            String key = entry.getKey();
-            Object value = entry.getValue();
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= limit && !fill()) {
+                return -1;
+            }
+            int count = Math.min(len, limit - position);
+            System.arraycopy(chunk, position, cbuf, off, count);
+            if (recorded != null) {
+                recorded.append(chunk, position, count);
+            }
+            position += count;
+            return count;
+        }
 
-            // 处理属性
-            if (key.startsWith("#")) {
-                String attrValue = value != null ? value.toString() : "";
-                parent.setAttribute(key.substring(1), attrValue);
-                continue;
+        /**
+         * 开始记录读出的文本
+         */
+        void startRecording() {
+            recorded = new StringBuilder();
+        }
+
+        /**
+         * 读完元素剩余的文本,返回开始记录以来的全部文本
+         * 外层报文读取失败时抛出原来的异常
+         */
+        String drainRecorded() throws IOException {
+            if (failure != null) {
+                throw failure;
             }
+            while (position < limit || fill()) {
+                recorded.append(chunk, position, limit - position);
+                position = limit;
+            }
+            return recorded.toString();
+        }
+
+        /**
+         * 跳过开头的空白字符
+         * @return 内容全部为空白时返回false
+         */
+        boolean skipWhitespace() throws IOException {
+            while (position < limit || fill()) {
+                if (!Character.isWhitespace(chunk[position])) {
+                    return true;
+                }
+                position++;
+            }
+            return false;
+        }
 
-            // 创建子元素 - 即使值为null也会创建标签
-            Element childElement = doc.createElement(key);
-
-            if (value instanceof Map) {
-                // 如果值是Map，则递归处理
-                mapToElement((Map<String, Object>) value, childElement, doc);
-            } else if (value instanceof List) {
-                // 如果值是List，则遍历每个元素
-                List<?> list = (List<?>) value;
-                for (Object item : list) {
-                    if (item instanceof Map) {
-                        Element listItem = doc.createElement(key);
-                        mapToElement((Map<String, Object>) item, listItem, doc);
-                        parent.appendChild(listItem);
-                    } else {
-                        // 列表项处理
-                        Element listItem = doc.createElement(key);
-                        String textContent = item != null ? item.toString() : "";
-                        listItem.appendChild(doc.createTextNode(textContent));
-                        parent.appendChild(listItem);
+        /**
+         * 拉取下一段文本
+         * @return 元素已结束时返回false
+         */
+        private boolean fill() throws IOException {
+            try {
+                while (!finished) {
+                    int event = reader.next();
+                    switch (event) {
+                        case XMLStreamConstants.CHARACTERS:
+                        case XMLStreamConstants.CDATA:
+                        case XMLStreamConstants.SPACE:
+                            if (reader.getTextLength() == 0) {
+                                continue;
+                            }
+                            copyText();
+                            return true;
+                        case XMLStreamConstants.START_ELEMENT:
+                            depth++;
+                            break;
+                        case XMLStreamConstants.END_ELEMENT:
+                            if (--depth == 0) {
+                                finished = true;
+                            }
+                            break;
+                        default:
+                            break;
                     }
                 }
-                // 列表已通过循环添加，不需要再添加当前childElement
-                continue;
-            } else {
-                // 普通值处理，包括null值
-                String textContent = value != null ? value.toString() : "";
-                childElement.appendChild(doc.createTextNode(textContent));
+                return false;
+            } catch (XMLStreamException e) {
+                failure = new IOException(e.getMessage(), e);
+                throw failure;
             }
+        }
+
+        /**
+         * 从解析器当前所在的文本开始读取
+         */
+        void includeCurrentText() throws IOException {
+            try {
+                copyText();
+            } catch (XMLStreamException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+
+        /**
+         * 解析器会复用文本缓冲区,复制出当前这一段
+         */
+        private void copyText() throws XMLStreamException {
+            if (chunk == null || chunk.length < reader.getTextLength()) {
+                chunk = new char[Math.max(reader.getTextLength(), 8192)];
+            }
+            limit = reader.getTextCharacters(0, chunk, 0, chunk.length);
+            position = 0;
+        }
 
-            // 添加子元素到父元素
-            parent.appendChild(childElement);
+        @Override
+        public void close() {
+            // 外层解析器由调用方关闭
         }
     }
 }
@@ -0,0 +1,103 @@
+package com.helianhealth.agent.config;
+
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RequestDecompressionFilterTest {
+
+    private static final String BODY = "{\"patientName\":\"张三\",\"items\":[\"血常规\",\"肝功能\"]}";
+
+    private static byte[] gzip(String body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+
+    private static MockHttpServletRequest request(String contentEncoding, byte[] body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/register");
+        request.addHeader("Content-Encoding", contentEncoding);
+        request.addHeader("Content-Length", body.length);
+        request.setContent(body);
+        return request;
+    }
+
+    @Test
+    public void testGzipBodyDecompressed() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        new RequestDecompressionFilter(1024).doFilter(request("gzip", gzip(BODY)), new MockHttpServletResponse(), chain);
+
+        HttpServletRequest filtered = (HttpServletRequest) chain.getRequest();
+        assertEquals(BODY, StreamUtils.copyToString(filtered.getInputStream(), StandardCharsets.UTF_8));
+        // 下游看不到压缩相关的请求头
+        assertNull(filtered.getHeader("Content-Encoding"));
+        assertNull(filtered.getHeader("Content-Length"));
+        assertEquals(-1, filtered.getContentLength());
+        assertFalse(Collections.list(filtered.getHeaderNames()).contains("Content-Encoding"));
+    }
+
+    @Test
+    public void testReaderDecompressed() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletRequest request = request("x-gzip", gzip(BODY));
+        request.setCharacterEncoding("UTF-8");
+        new RequestDecompressionFilter(1024).doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertEquals(BODY, chain.getRequest().getReader().readLine());
+    }
+
+    @Test
+    public void testDecompressedSizeLimit() throws Exception {
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            large.append(BODY);
+        }
+        MockFilterChain chain = new MockFilterChain();
+        byte[] compressed = gzip(large.toString());
+        new RequestDecompressionFilter(4096).doFilter(request("gzip", compressed), new MockHttpServletResponse(), chain);
+
+        // 压缩后的报文远小于限制,解压到超过限制时中止读取
+        assertEquals(true, compressed.length < 4096);
+        IOException e = assertThrows(IOException.class,
+                () -> StreamUtils.copyToByteArray(chain.getRequest().getInputStream()));
+        assertEquals("解压后的请求体超过最大限制[4096]字节", e.getMessage());
+    }
+
+    @Test
+    public void testUnsupportedEncodingRejected() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        new RequestDecompressionFilter(1024).doFilter(request("br", BODY.getBytes(StandardCharsets.UTF_8)), response, chain);
+
+        assertEquals(HttpStatus.UNSUPPORTED_MEDIA_TYPE.value(), response.getStatus());
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    public void testPlainBodyPassesThrough() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/register");
+        request.setContent(BODY.getBytes(StandardCharsets.UTF_8));
+        new RequestDecompressionFilter(1024).doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertSame(request, chain.getRequest());
+    }
+}
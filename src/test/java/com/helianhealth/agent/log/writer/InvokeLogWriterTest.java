@@ -0,0 +1,250 @@
+package com.helianhealth.agent.log.writer;
+
+import com.helianhealth.agent.config.InvokeLogProperties;
+import com.helianhealth.agent.mapper.agent.InterfaceInvokeLogMapper;
+import com.helianhealth.agent.model.domain.InterfaceInvokeLogDO;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class InvokeLogWriterTest {
+
+    private final InterfaceInvokeLogMapper mapper = Mockito.mock(InterfaceInvokeLogMapper.class);
+    private final InvokeLogProperties properties = new InvokeLogProperties();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    /**
+     * 每次批量插入的nodeId,写入器在插入后会清空传入的列表,因此在插入时复制
+     */
+    private final List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<>());
+
+    private InvokeLogWriter writer;
+
+    @Before
+    public void setUp() {
+        doAnswer(invocation -> {
+            List<Integer> nodeIds = new ArrayList<>();
+            for (InterfaceInvokeLogDO logDO : invocation.<List<InterfaceInvokeLogDO>>getArgument(0)) {
+                nodeIds.add(logDO.getNodeId());
+            }
+            batches.add(nodeIds);
+            return null;
+        }).when(mapper).insertLogBatch(anyList());
+        // 默认不按间隔刷新,只在攒满一批或关闭时写入
+        properties.setFlushInterval(Duration.ofMinutes(1));
+        properties.setBatchSize(200);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        if (writer != null) {
+            writer.destroy();
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * 启动写入器,异步时等到写入线程进入等待,避免它在提交过程中才开始从队列取出日志
+     */
+    private void start() throws InterruptedException {
+        writer = new InvokeLogWriter(mapper, properties);
+        writer.afterPropertiesSet();
+        if (!properties.isAsync()) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (Thread.getAllStackTraces().keySet().stream().noneMatch(thread ->
+                "invoke-log-writer".equals(thread.getName()) && thread.getState() == Thread.State.TIMED_WAITING)) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("等待写入线程启动超时");
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    private static InterfaceInvokeLogDO log(int nodeId) {
+        return InterfaceInvokeLogDO.builder().nodeId(nodeId).build();
+    }
+
+    private void awaitBatches(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (batches.size() < count) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("等待批量写入超时, 已写入: " + batches);
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private long stat(String name) {
+        return ((Number) writer.stats().get(name)).longValue();
+    }
+
+    @Test
+    public void testFlushWhenBatchFull() throws InterruptedException {
+        properties.setBatchSize(3);
+        start();
+        for (int i = 1; i <= 6; i++) {
+            assertTrue(writer.submit(log(i)));
+        }
+
+        awaitBatches(2);
+        assertEquals(Arrays.asList(Arrays.asList(1, 2, 3), Arrays.asList(4, 5, 6)), batches);
+        assertEquals(6, stat("written"));
+    }
+
+    @Test
+    public void testFlushAfterInterval() throws InterruptedException {
+        properties.setFlushInterval(Duration.ofMillis(50));
+        start();
+        writer.submit(log(1));
+        writer.submit(log(2));
+
+        awaitBatches(1);
+        assertEquals(Collections.singletonList(Arrays.asList(1, 2)), batches);
+    }
+
+    @Test
+    public void testDropPolicy() throws InterruptedException {
+        properties.setOverflowPolicy(InvokeLogProperties.OverflowPolicy.DROP);
+        properties.setQueueCapacity(5);
+        start();
+
+        int accepted = 0;
+        for (int i = 1; i <= 8; i++) {
+            accepted += writer.submit(log(i)) ? 1 : 0;
+        }
+
+        assertEquals(5, accepted);
+        assertEquals(3, stat("dropped"));
+        assertEquals(5, stat("queueSize"));
+        // 关闭时写完队列中的日志
+        writer.destroy();
+        assertEquals(Collections.singletonList(Arrays.asList(1, 2, 3, 4, 5)), batches);
+    }
+
+    @Test
+    public void testSamplePolicy() throws InterruptedException {
+        properties.setOverflowPolicy(InvokeLogProperties.OverflowPolicy.SAMPLE);
+        properties.setQueueCapacity(10);
+        properties.setSampleThreshold(0.5);
+        properties.setSampleRate(2);
+        start();
+
+        List<Integer> accepted = new ArrayList<>();
+        for (int i = 1; i <= 16; i++) {
+            if (writer.submit(log(i))) {
+                accepted.add(i);
+            }
+        }
+
+        // 使用率达到一半前全部保留,之后每2条保留1条,队列满后全部淘汰
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 7, 9, 11, 13, 15), accepted);
+        assertEquals(6, stat("sampledOut"));
+        assertEquals(0, stat("dropped"));
+    }
+
+    @Test
+    public void testBlockPolicy() throws Exception {
+        properties.setOverflowPolicy(InvokeLogProperties.OverflowPolicy.BLOCK);
+        properties.setQueueCapacity(2);
+        properties.setBatchSize(1);
+        properties.setBlockTimeout(Duration.ofMillis(100));
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(mapper).insertLogBatch(anyList());
+        start();
+
+        // 第一条写入时阻塞,后两条占满队列
+        writer.submit(log(1));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        assertTrue(writer.submit(log(2)));
+        assertTrue(writer.submit(log(3)));
+
+        long begin = System.nanoTime();
+        assertFalse(writer.submit(log(4)));
+        assertTrue(System.nanoTime() - begin >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(1, stat("dropped"));
+
+        // 等待期间腾出容量的调用被接收
+        properties.setBlockTimeout(Duration.ofSeconds(5));
+        Future<Boolean> blocked = executor.submit(() -> writer.submit(log(5)));
+        Thread.sleep(50);
+        assertFalse(blocked.isDone());
+        release.countDown();
+        assertTrue(blocked.get(5, TimeUnit.SECONDS));
+        assertEquals(1, stat("dropped"));
+    }
+
+    @Test
+    public void testBatchFailureRetriedThenWrittenRowByRow() throws InterruptedException {
+        doThrow(new IllegalStateException("批量插入失败")).when(mapper).insertLogBatch(anyList());
+        doThrow(new IllegalStateException("字段超长")).when(mapper).insertLog(Mockito.argThat(logDO -> logDO.getNodeId() == 2));
+        properties.setBatchSize(3);
+        start();
+        for (int i = 1; i <= 3; i++) {
+            writer.submit(log(i));
+        }
+
+        writer.destroy();
+        verify(mapper, times(2)).insertLogBatch(anyList());
+        verify(mapper, times(3)).insertLog(any());
+        assertEquals(2, stat("written"));
+        assertEquals(1, stat("failed"));
+    }
+
+    @Test
+    public void testShutdownFlushesQueue() throws InterruptedException {
+        start();
+        for (int i = 1; i <= 3; i++) {
+            writer.submit(log(i));
+        }
+        verify(mapper, never()).insertLogBatch(anyList());
+
+        writer.destroy();
+        assertEquals(Collections.singletonList(Arrays.asList(1, 2, 3)), batches);
+
+        // 关闭后提交的日志直接写入
+        assertTrue(writer.submit(log(4)));
+        verify(mapper).insertLog(any());
+        assertEquals(4, stat("written"));
+    }
+
+    @Test
+    public void testSyncModeWritesDirectly() throws InterruptedException {
+        properties.setAsync(false);
+        start();
+
+        assertTrue(writer.submit(log(1)));
+        verify(mapper).insertLog(any());
+        verify(mapper, never()).insertLogBatch(anyList());
+    }
+}
@@ -0,0 +1,318 @@
+package com.helianhealth.agent.remote;
+
+import com.helianhealth.agent.config.ResilienceProperties;
+import com.helianhealth.agent.model.domain.InterfaceWorkflowNodeDO;
+import com.helianhealth.agent.model.dto.ParamTreeNode;
+import com.helianhealth.agent.registry.NodeDefinition;
+import com.helianhealth.agent.registry.WorkflowDefinitionRegistry;
+import com.helianhealth.agent.remote.cache.NodeResponseCache;
+import com.helianhealth.agent.remote.cache.ResponseCacheSpec;
+import com.helianhealth.agent.remote.coalesce.RequestCoalescer;
+import com.helianhealth.agent.remote.helper.ResponseConvertHelper;
+import com.helianhealth.agent.remote.plan.ParamPlanNode;
+import com.helianhealth.agent.remote.resilience.NodeResilienceGuard;
+import com.helianhealth.agent.remote.resilience.ResilienceSpec;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.Mockito.when;
+
+public class AbstractClientProxyTest {
+
+    private final RequestCoalescer coalescer = new RequestCoalescer();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private NodeDefinition definition;
+    private RecordingClientProxy target;
+    private AbstractClientProxy proxy;
+
+    @Before
+    public void setUp() {
+        WorkflowDefinitionRegistry registry = Mockito.mock(WorkflowDefinitionRegistry.class);
+        definition = Mockito.mock(NodeDefinition.class);
+        when(registry.getNode(1)).thenReturn(definition);
+        when(definition.getResilienceSpec()).thenReturn(ResilienceSpec.DEFAULT);
+        target = new RecordingClientProxy(registry, coalescer);
+        // remoteInvoke通过AopContext取当前代理,与线上一样经过暴露代理的AOP代理调用
+        ProxyFactory factory = new ProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.setExposeProxy(true);
+        proxy = (AbstractClientProxy) factory.getProxy();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static InterfaceWorkflowNodeDO flowNode(String metaInfo) {
+        return InterfaceWorkflowNodeDO.builder().nodeId(1).metaInfo(metaInfo).build();
+    }
+
+    private static Map<String, Object> request(String patientId) {
+        Map<String, Object> request = new HashMap<>();
+        request.put("patientId", patientId);
+        return request;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCacheHitSkipsInvoke() {
+        when(definition.getResponseCacheSpec()).thenReturn(ResponseCacheSpec.parse(true));
+        InterfaceWorkflowNodeDO flowNode = flowNode("{\"cache\":true}");
+
+        Map<String, Object> first = proxy.remoteInvoke(flowNode, request("P001"));
+        ((List<Object>) first.get("items")).add("肾功能");
+        Map<String, Object> second = proxy.remoteInvoke(flowNode, request("P001"));
+
+        assertEquals(1, target.invocations.get());
+        assertEquals(RecordingClientProxy.response("P001"), second);
+        assertNotSame(first, second);
+
+        proxy.remoteInvoke(flowNode, request("P002"));
+        assertEquals(2, target.invocations.get());
+    }
+
+    @Test
+    public void testChangedNodeConfigMissesCache() {
+        when(definition.getResponseCacheSpec()).thenReturn(ResponseCacheSpec.parse(true));
+        proxy.remoteInvoke(flowNode("{\"cache\":true,\"url\":\"http://a\"}"), request("P001"));
+        // 节点metaInfo参与请求摘要,修改下游地址后不会命中旧的响应
+        proxy.remoteInvoke(flowNode("{\"cache\":true,\"url\":\"http://b\"}"), request("P001"));
+        assertEquals(2, target.invocations.get());
+
+        // 缓存配置变更后重新创建缓存
+        Map<String, Object> config = new HashMap<>();
+        config.put("ttlSeconds", 60);
+        when(definition.getResponseCacheSpec()).thenReturn(ResponseCacheSpec.parse(config));
+        proxy.remoteInvoke(flowNode("{\"cache\":true,\"url\":\"http://b\"}"), request("P001"));
+        assertEquals(3, target.invocations.get());
+    }
+
+    @Test
+    public void testFallbackNotCached() {
+        when(definition.getResponseCacheSpec()).thenReturn(ResponseCacheSpec.parse(true));
+        Map<String, Object> fallbackResponse = new HashMap<>();
+        fallbackResponse.put("code", "-1");
+        Map<String, Object> fallback = new HashMap<>();
+        fallback.put("response", fallbackResponse);
+        when(definition.getResilienceSpec()).thenReturn(ResilienceSpec.parse(null, fallback));
+        InterfaceWorkflowNodeDO flowNode = flowNode("{\"cache\":true}");
+
+        target.failure = new IllegalStateException("下游服务不可用");
+        assertEquals(fallbackResponse, proxy.remoteInvoke(flowNode, request("P001")));
+        target.failure = null;
+        assertEquals(RecordingClientProxy.response("P001"), proxy.remoteInvoke(flowNode, request("P001")));
+        assertEquals(2, target.invocations.get());
+    }
+
+    @Test
+    public void testConcurrentIdenticalCallsInvokeOnce() throws Exception {
+        when(definition.isCoalesce()).thenReturn(true);
+        InterfaceWorkflowNodeDO flowNode = flowNode("{\"coalesce\":true}");
+        target.release = new CountDownLatch(1);
+
+        List<Future<Map<String, Object>>> results = submit(flowNode, 5);
+        awaitCoalesced(4);
+        target.release.countDown();
+
+        Set<Map<String, Object>> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Future<Map<String, Object>> result : results) {
+            Map<String, Object> response = result.get(5, TimeUnit.SECONDS);
+            assertEquals(RecordingClientProxy.response("P001"), response);
+            instances.add(response);
+        }
+        assertEquals(1, target.invocations.get());
+        // 每个调用方拿到各自的副本
+        assertEquals(5, instances.size());
+        // 每个调用方只为计算请求摘要渲染一次,远程调用使用同一份渲染结果
+        assertEquals(5, target.renders.get());
+
+        // 调用结束后不再合并
+        target.release = null;
+        proxy.remoteInvoke(flowNode, request("P001"));
+        assertEquals(2, target.invocations.get());
+    }
+
+    @Test
+    public void testFailureReachesEveryWaiter() throws Exception {
+        when(definition.isCoalesce()).thenReturn(true);
+        InterfaceWorkflowNodeDO flowNode = flowNode("{\"coalesce\":true}");
+        target.release = new CountDownLatch(1);
+        target.failure = new IllegalStateException("下游服务不可用");
+
+        List<Future<Map<String, Object>>> results = submit(flowNode, 5);
+        awaitCoalesced(4);
+        target.release.countDown();
+
+        for (Future<Map<String, Object>> result : results) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertSame(target.failure, e.getCause());
+        }
+        assertEquals(1, target.invocations.get());
+    }
+
+    @Test
+    public void testRequestRenderedOnce() {
+        InterfaceWorkflowNodeDO flowNode = flowNode("{}");
+        proxy.remoteInvoke(flowNode, request("P001"));
+        assertEquals(1, target.renders.get());
+
+        // 需要请求摘要时,摘要和远程调用共用一次渲染
+        when(definition.getResponseCacheSpec()).thenReturn(ResponseCacheSpec.parse(true));
+        proxy.remoteInvoke(flowNode, request("P001"));
+        assertEquals(2, target.renders.get());
+        assertEquals(2, target.invocations.get());
+
+        // 命中缓存时只渲染用于计算摘要
+        proxy.remoteInvoke(flowNode, request("P001"));
+        assertEquals(3, target.renders.get());
+        assertEquals(2, target.invocations.get());
+    }
+
+    @Test
+    public void testCoalesceDisabled() throws Exception {
+        InterfaceWorkflowNodeDO flowNode = flowNode("{}");
+        target.release = new CountDownLatch(1);
+
+        List<Future<Map<String, Object>>> results = submit(flowNode, 3);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (target.invocations.get() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        target.release.countDown();
+        for (Future<Map<String, Object>> result : results) {
+            result.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(3, target.invocations.get());
+    }
+
+    private List<Future<Map<String, Object>>> submit(InterfaceWorkflowNodeDO flowNode, int count) {
+        List<Future<Map<String, Object>>> results = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            results.add(executor.submit(() -> proxy.remoteInvoke(flowNode, request("P001"))));
+        }
+        return results;
+    }
+
+    /**
+     * 等待指定数量的调用合并到执行中的调用
+     */
+    private void awaitCoalesced(long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            Map<?, ?> nodes = (Map<?, ?>) coalescer.stats().get("nodes");
+            Map<?, ?> node = (Map<?, ?>) nodes.get(1);
+            if (node != null && ((Number) node.get("coalesced")).longValue() >= count) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        fail("等待合并的调用超时");
+    }
+
+    /**
+     * 记录请求渲染和远程调用次数的客户端代理,请求只包含patientId,参数后置处理直接返回协议响应
+     * 与协议代理一样,未传入渲染结果时先渲染请求再调用
+     */
+    static class RecordingClientProxy extends AbstractClientProxy {
+
+        final AtomicInteger invocations = new AtomicInteger();
+
+        final AtomicInteger renders = new AtomicInteger();
+
+        volatile RuntimeException failure;
+
+        /**
+         * 不为null时远程调用阻塞到计数归零,用于让相同的调用在执行期间到达
+         */
+        volatile CountDownLatch release;
+
+        RecordingClientProxy(WorkflowDefinitionRegistry registry, RequestCoalescer coalescer) {
+            super(registry, new ResponseConvertHelper(), new NodeResponseCache(), coalescer,
+                    new NodeResilienceGuard(new ResilienceProperties()));
+        }
+
+        static Map<String, Object> response(Object patientId) {
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("patientId", patientId);
+            response.put("items", new ArrayList<>(Collections.singletonList("血常规")));
+            return response;
+        }
+
+        @Override
+        protected List<ParamTreeNode> preProcess(InterfaceWorkflowNodeDO flowNode, Map<String, Object> businessData) {
+            List<ParamTreeNode> params = new ArrayList<>();
+            params.add(ParamTreeNode.builder().paramKey("patientId").paramValue(businessData.get("patientId")).build());
+            return params;
+        }
+
+        @Override
+        protected ParamResolver getParamResolver() {
+            return (flowNode, params) -> {
+                renders.incrementAndGet();
+                return params.get(0).getParamValue();
+            };
+        }
+
+        @Override
+        public Map<String, Object> doInvoke(InterfaceWorkflowNodeDO flowNode, List<ParamTreeNode> params) {
+            return doInvoke(flowNode, params, getParamResolver().resolveParamNodes(flowNode, params));
+        }
+
+        @Override
+        public Map<String, Object> doInvoke(InterfaceWorkflowNodeDO flowNode, List<ParamTreeNode> params, Object request) {
+            invocations.incrementAndGet();
+            if (release != null) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return response(request);
+        }
+
+        @Override
+        public Map<String, Object> postProcess(InterfaceWorkflowNodeDO flowNode, Map<String, Object> response,
+                                               Map<String, Object> businessData) {
+            return response;
+        }
+
+        @Override
+        public void processObjectNodeType(ParamPlanNode planNode, Map<String, Object> businessData,
+                                          Map<String, Object> rootBusinessData, ParamTreeNode node) {
+        }
+
+        @Override
+        public void processArrayNodeType(ParamPlanNode planNode, Map<String, Object> businessData,
+                                         Map<String, Object> rootBusinessData, ParamTreeNode node) {
+        }
+    }
+}
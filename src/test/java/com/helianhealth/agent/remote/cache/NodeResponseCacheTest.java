@@ -0,0 +1,94 @@
+package com.helianhealth.agent.remote.cache;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class NodeResponseCacheTest {
+
+    private static final ResponseCacheSpec SPEC = ResponseCacheSpec.parse(true);
+
+    private static Map<String, Object> response() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("patientName", "张三");
+        response.put("items", new ArrayList<>(Arrays.asList("血常规", "肝功能")));
+        return response;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCachedResponseIsCopied() {
+        NodeResponseCache cache = new NodeResponseCache();
+        Map<String, Object> response = response();
+        cache.put(1, SPEC, "req-1", response);
+        // 写入后修改原响应不影响缓存
+        ((List<Object>) response.get("items")).add("肾功能");
+
+        Map<String, Object> first = cache.get(1, SPEC, "req-1");
+        assertEquals(response(), first);
+        // 修改读取到的响应不影响缓存
+        first.put("patientName", "李四");
+        ((List<Object>) first.get("items")).clear();
+
+        Map<String, Object> second = cache.get(1, SPEC, "req-1");
+        assertEquals(response(), second);
+        assertNotSame(first, second);
+    }
+
+    @Test
+    public void testMissAndNullResponse() {
+        NodeResponseCache cache = new NodeResponseCache();
+        cache.put(1, SPEC, "req-1", null);
+
+        assertNull(cache.get(1, SPEC, "req-1"));
+        assertNull(cache.get(2, SPEC, "req-1"));
+        Map<String, Object> stats = cache.stats().get(1);
+        assertEquals(0L, stats.get("size"));
+        assertEquals(1L, stats.get("misses"));
+    }
+
+    @Test
+    public void testChangedSpecRebuildsCache() {
+        NodeResponseCache cache = new NodeResponseCache();
+        cache.put(1, SPEC, "req-1", response());
+        assertEquals(response(), cache.get(1, SPEC, "req-1"));
+
+        Map<String, Object> config = new HashMap<>();
+        config.put("ttlSeconds", 60);
+        config.put("maxWeightKb", 1024);
+        ResponseCacheSpec changed = ResponseCacheSpec.parse(config);
+        assertNull(cache.get(1, changed, "req-1"));
+        Map<String, Object> stats = cache.stats().get(1);
+        assertEquals(60L, stats.get("ttlSeconds"));
+        assertEquals(1024L * 1024, stats.get("maxWeightBytes"));
+        assertEquals(1L, stats.get("misses"));
+
+        // 相同配置不会重新创建
+        cache.put(1, changed, "req-1", response());
+        assertEquals(response(), cache.get(1, ResponseCacheSpec.parse(config), "req-1"));
+    }
+
+    @Test
+    public void testPurge() {
+        NodeResponseCache cache = new NodeResponseCache();
+        cache.put(1, SPEC, "req-1", response());
+        cache.put(1, SPEC, "req-2", response());
+        cache.put(2, SPEC, "req-1", Collections.singletonMap("code", "0"));
+
+        assertEquals(2, cache.purge(1));
+        assertEquals(0, cache.purge(3));
+        assertNull(cache.get(1, SPEC, "req-1"));
+        assertEquals(1, cache.purgeAll());
+        assertNull(cache.get(2, SPEC, "req-1"));
+    }
+}
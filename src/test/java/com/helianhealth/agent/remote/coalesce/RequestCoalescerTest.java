@@ -0,0 +1,172 @@
+package com.helianhealth.agent.remote.coalesce;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class RequestCoalescerTest {
+
+    private final RequestCoalescer coalescer = new RequestCoalescer();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static Map<String, Object> response() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("patientName", "张三");
+        response.put("items", new ArrayList<>(Collections.singletonList("血常规")));
+        return response;
+    }
+
+    /**
+     * 阻塞到release后返回结果的调用
+     */
+    private Supplier<Map<String, Object>> blocking(Supplier<Map<String, Object>> result) {
+        return () -> {
+            calls.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return result.get();
+        };
+    }
+
+    private List<Future<Map<String, Object>>> submit(String key, int count, Supplier<Map<String, Object>> call) {
+        List<Future<Map<String, Object>>> results = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            results.add(executor.submit(() -> coalescer.execute(1, key, call)));
+        }
+        return results;
+    }
+
+    @SuppressWarnings("unchecked")
+    private long nodeStat(String name) {
+        Map<Integer, Map<String, Object>> nodes = (Map<Integer, Map<String, Object>>) coalescer.stats().get("nodes");
+        Map<String, Object> node = nodes.get(1);
+        return node == null ? 0 : ((Number) node.get(name)).longValue();
+    }
+
+    private void awaitCoalesced(long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (nodeStat("coalesced") < count) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("等待合并的调用超时");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testConcurrentIdenticalCallsShareOneCall() throws Exception {
+        Map<String, Object> shared = response();
+        List<Future<Map<String, Object>>> results = submit("node-1:req-1", 8, blocking(() -> shared));
+        awaitCoalesced(7);
+        release.countDown();
+
+        Set<Map<String, Object>> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Future<Map<String, Object>> result : results) {
+            Map<String, Object> response = result.get(5, TimeUnit.SECONDS);
+            assertEquals(response(), response);
+            instances.add(response);
+        }
+        assertEquals(1, calls.get());
+        // 发起方拿到原响应,每个等待方拿到各自的副本
+        assertEquals(8, instances.size());
+        assertTrue(instances.contains(shared));
+        for (Map<String, Object> response : instances) {
+            ((List<Object>) response.get("items")).add("肝功能");
+        }
+        assertEquals(2, ((List<Object>) shared.get("items")).size());
+
+        assertEquals(1, nodeStat("calls"));
+        assertEquals(7, nodeStat("coalesced"));
+        assertEquals(0, coalescer.stats().get("inflight"));
+    }
+
+    @Test
+    public void testFailureReachesEveryWaiter() throws Exception {
+        IllegalStateException failure = new IllegalStateException("下游服务不可用");
+        List<Future<Map<String, Object>>> results = submit("node-1:req-1", 5, blocking(() -> {
+            throw failure;
+        }));
+        awaitCoalesced(4);
+        release.countDown();
+
+        for (Future<Map<String, Object>> result : results) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertSame(failure, e.getCause());
+        }
+        assertEquals(1, calls.get());
+
+        // 失败的调用结束后移除,后续调用重新发起
+        assertEquals(response(), coalescer.execute(1, "node-1:req-1", RequestCoalescerTest::response));
+        assertEquals(0, coalescer.stats().get("inflight"));
+    }
+
+    @Test
+    public void testDifferentKeysNotCoalesced() throws Exception {
+        List<Future<Map<String, Object>>> results = new ArrayList<>();
+        results.addAll(submit("node-1:req-1", 1, blocking(RequestCoalescerTest::response)));
+        results.addAll(submit("node-1:req-2", 1, blocking(RequestCoalescerTest::response)));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (calls.get() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, calls.get());
+        release.countDown();
+
+        for (Future<Map<String, Object>> result : results) {
+            result.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(2, nodeStat("calls"));
+        assertEquals(0, nodeStat("coalesced"));
+    }
+
+    @Test
+    public void testInterruptedWaiterLeavesCallRunning() throws Exception {
+        Future<Map<String, Object>> first = submit("node-1:req-1", 1, blocking(RequestCoalescerTest::response)).get(0);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (calls.get() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Future<Map<String, Object>> waiter = submit("node-1:req-1", 1, blocking(RequestCoalescerTest::response)).get(0);
+        awaitCoalesced(1);
+
+        // 取消等待方只中断它自己的等待
+        waiter.cancel(true);
+        release.countDown();
+
+        assertEquals(response(), first.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+        assertEquals(0, coalescer.stats().get("inflight"));
+    }
+}
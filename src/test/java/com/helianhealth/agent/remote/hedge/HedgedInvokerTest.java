@@ -0,0 +1,262 @@
+package com.helianhealth.agent.remote.hedge;
+
+import com.helianhealth.agent.config.EngineExecutorConfig;
+import com.helianhealth.agent.config.EngineProperties;
+import com.helianhealth.agent.config.HttpClientProperties;
+import com.helianhealth.agent.remote.http.HttpApiClientManager;
+import com.helianhealth.agent.remote.http.HttpRequestHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HedgedInvokerTest {
+
+    private ThreadPoolTaskExecutor hedgeExecutor;
+    private HedgedInvoker invoker;
+
+    @Before
+    public void setUp() {
+        hedgeExecutor = new EngineExecutorConfig().hedgeExecutor(new EngineProperties());
+        hedgeExecutor.initialize();
+        invoker = new HedgedInvoker(hedgeExecutor);
+    }
+
+    @After
+    public void tearDown() {
+        hedgeExecutor.shutdown();
+    }
+
+    private static HedgeSpec spec(Map<String, Object> hedge, Map<String, Object> retry) {
+        Map<String, Object> metaInfo = new HashMap<>();
+        metaInfo.put("idempotent", true);
+        if (hedge != null) {
+            metaInfo.put("hedge", hedge);
+        }
+        if (retry != null) {
+            metaInfo.put("retry", retry);
+        }
+        return HedgeSpec.parse(metaInfo);
+    }
+
+    private static HedgeSpec hedgeSpec() {
+        Map<String, Object> hedge = new HashMap<>();
+        hedge.put("minDelayMs", 50);
+        hedge.put("maxDelayMs", 50);
+        return spec(hedge, null);
+    }
+
+    private static Map<String, Object> retrySpec(int maxAttempts, int budgetTokens) {
+        Map<String, Object> retry = new HashMap<>();
+        retry.put("maxAttempts", maxAttempts);
+        retry.put("backoffMs", 1);
+        retry.put("budgetTokens", budgetTokens);
+        return retry;
+    }
+
+    /**
+     * 积累足够的耗时样本,之后的调用才会对冲
+     */
+    private void warmUp(Integer nodeId, HedgeSpec spec) throws Exception {
+        for (int i = 0; i < 20; i++) {
+            assertEquals("ok", invoker.execute(nodeId, spec, () -> "ok"));
+        }
+    }
+
+    @Test
+    public void testHedgeWinsAndCancelsSlowAttempt() throws Exception {
+        HedgeSpec spec = hedgeSpec();
+        warmUp(1, spec);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch slowCancelled = new CountDownLatch(1);
+
+        String result = invoker.execute(1, spec, () -> {
+            if (calls.incrementAndGet() == 1) {
+                // 第一次调用阻塞,直到登记的请求被中止
+                HedgeAttempt.register(() -> {
+                    slowCancelled.countDown();
+                    return true;
+                });
+                slowCancelled.await(10, TimeUnit.SECONDS);
+                return "slow";
+            }
+            return "hedge";
+        });
+
+        assertEquals("hedge", result);
+        assertEquals(2, calls.get());
+        assertTrue(slowCancelled.await(5, TimeUnit.SECONDS));
+        Map<String, Object> stats = invoker.stats().get(1);
+        assertEquals(1L, stats.get("hedges"));
+        assertEquals(1L, stats.get("hedgeWins"));
+    }
+
+    @Test
+    public void testNoHedgeWithoutSamples() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        String result = invoker.execute(2, hedgeSpec(), () -> {
+            calls.incrementAndGet();
+            Thread.sleep(100);
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(1, calls.get());
+        assertEquals(0L, invoker.stats().get(2).get("hedges"));
+    }
+
+    @Test
+    public void testSaturatedExecutorFallsBackToCaller() throws Exception {
+        ThreadPoolTaskExecutor saturated = new ThreadPoolTaskExecutor();
+        saturated.setCorePoolSize(1);
+        saturated.setMaxPoolSize(1);
+        saturated.setQueueCapacity(0);
+        saturated.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        saturated.initialize();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            HedgedInvoker saturatedInvoker = new HedgedInvoker(saturated);
+            HedgeSpec spec = hedgeSpec();
+            for (int i = 0; i < 20; i++) {
+                saturatedInvoker.execute(3, spec, () -> "ok");
+            }
+            saturated.execute(() -> {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            // 线程池已满时在调用线程上直接执行,不阻塞也不失败
+            Thread caller = Thread.currentThread();
+            Thread[] executed = new Thread[1];
+            assertEquals("ok", saturatedInvoker.execute(3, spec, () -> {
+                executed[0] = Thread.currentThread();
+                return "ok";
+            }));
+            assertSame(caller, executed[0]);
+            assertEquals(1L, saturatedInvoker.stats().get(3).get("hedgeRejected"));
+        } finally {
+            release.countDown();
+            saturated.shutdown();
+        }
+    }
+
+    @Test
+    public void testRetryStopsWhenBudgetExhausted() {
+        // 令牌上限4,不超过2时不再重试:第一次失败后剩3个可以重试,第二次失败后剩2个
+        HedgeSpec spec = spec(null, retrySpec(10, 4));
+        AtomicInteger calls = new AtomicInteger();
+
+        IOException e = assertThrows(IOException.class, () -> invoker.execute(4, spec, () -> {
+            calls.incrementAndGet();
+            throw new SocketTimeoutException("Read timed out");
+        }));
+
+        assertEquals("Read timed out", e.getMessage());
+        assertEquals(2, calls.get());
+        Map<String, Object> stats = invoker.stats().get(4);
+        assertEquals(1L, stats.get("retries"));
+        assertEquals(1L, stats.get("budgetExhausted"));
+        assertEquals(2.0, stats.get("retryTokens"));
+    }
+
+    @Test
+    public void testRetrySucceedsWithinAttempts() throws Exception {
+        HedgeSpec spec = spec(null, retrySpec(3, 10));
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = invoker.execute(5, spec, () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new RuntimeException("连接失败", new IOException("Connection reset"));
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+        assertEquals(2L, invoker.stats().get(5).get("retries"));
+    }
+
+    @Test
+    public void testNonIoExceptionNotRetried() {
+        HedgeSpec spec = spec(null, retrySpec(3, 10));
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(IllegalArgumentException.class, () -> invoker.execute(6, spec, () -> {
+            calls.incrementAndGet();
+            throw new IllegalArgumentException("参数错误");
+        }));
+
+        assertEquals(1, calls.get());
+        // 确定性的失败不扣减预算
+        assertEquals(10.0, invoker.stats().get(6).get("retryTokens"));
+        assertEquals(0L, invoker.stats().get(6).get("retries"));
+    }
+
+    @Test
+    public void testCancelAbortsBlockingRead() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/slow", exchange -> {
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        HttpRequestHandler requestHandler = new HttpRequestHandler(new HttpClientProperties());
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/slow";
+            HedgeAttempt attempt = new HedgeAttempt();
+            Callable<Map<String, Object>> call = () -> requestHandler.executeHttpRequest(
+                    HttpApiClientManager.DEFAULT_PROFILE, url, "GET", Collections.emptyMap(), null, null);
+            Future<Map<String, Object>> read = caller.submit(() -> attempt.run(call));
+            Thread.sleep(300);
+
+            // 阻塞在读取响应上的调用被取消后立即失败,不等待服务端返回
+            long start = System.nanoTime();
+            attempt.cancel();
+            assertThrows(ExecutionException.class, () -> read.get(5, TimeUnit.SECONDS));
+            assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5);
+        } finally {
+            release.countDown();
+            caller.shutdownNow();
+            requestHandler.destroy();
+            server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.helianhealth.agent.remote.http;
+
+import com.helianhealth.agent.utils.CompressionUtils;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.EntityTemplate;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.junit.Test;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DeflateCompressingEntityTest {
+
+    private static final String BODY = "{\"patientName\":\"张三\",\"items\":[\"血常规\",\"肝功能\",\"肾功能\"]}";
+
+    @Test
+    public void testContentMatchesWrittenBody() throws Exception {
+        DeflateCompressingEntity entity = new DeflateCompressingEntity(
+                new StringEntity(BODY, ContentType.APPLICATION_JSON.withCharset(StandardCharsets.UTF_8)));
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        entity.writeTo(written);
+        byte[] content;
+        try (InputStream in = entity.getContent()) {
+            content = StreamUtils.copyToByteArray(in);
+        }
+
+        assertEquals(CompressionUtils.DEFLATE, entity.getContentEncoding());
+        assertEquals(-1, entity.getContentLength());
+        assertTrue(entity.isChunked());
+        assertTrue(entity.isRepeatable());
+        assertArrayEquals(written.toByteArray(), content);
+        try (InputStream decoded = CompressionUtils.decode(new ByteArrayInputStream(content), "deflate")) {
+            assertEquals(BODY, StreamUtils.copyToString(decoded, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testTemplateBodyRewritten() throws Exception {
+        DeflateCompressingEntity entity = new DeflateCompressingEntity(new EntityTemplate(-1, ContentType.TEXT_XML, null,
+                out -> out.write(BODY.getBytes(StandardCharsets.UTF_8))));
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        entity.writeTo(written);
+
+        try (InputStream decoded = CompressionUtils.decode(new ByteArrayInputStream(written.toByteArray()), "deflate")) {
+            assertEquals(BODY, StreamUtils.copyToString(decoded, StandardCharsets.UTF_8));
+        }
+        // 重试时再次写出,内容不变
+        ByteArrayOutputStream rewritten = new ByteArrayOutputStream();
+        entity.writeTo(rewritten);
+        assertArrayEquals(written.toByteArray(), rewritten.toByteArray());
+        try (InputStream in = entity.getContent()) {
+            assertArrayEquals(written.toByteArray(), StreamUtils.copyToByteArray(in));
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.helianhealth.agent.remote.http;
+
+import com.helianhealth.agent.config.HttpClientProperties;
+import com.helianhealth.agent.utils.CompressionUtils;
+import com.helianhealth.agent.utils.JsonUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class HttpRequestHandlerTest {
+
+    private HttpServer server;
+    private HttpRequestHandler requestHandler;
+    private String url;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/echo", HttpRequestHandlerTest::echo);
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/echo";
+        requestHandler = new HttpRequestHandler(new HttpClientProperties());
+    }
+
+    @After
+    public void tearDown() {
+        requestHandler.destroy();
+        server.stop(0);
+    }
+
+    /**
+     * 把收到的方法、请求头和解压后按Content-Type字符集解码的请求体作为JSON返回
+     */
+    private static void echo(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        String contentEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        try (InputStream in = CompressionUtils.decode(exchange.getRequestBody(), contentEncoding)) {
+            byte[] buffer = new byte[1024];
+            for (int n; (n = in.read(buffer)) != -1; ) {
+                body.write(buffer, 0, n);
+            }
+        }
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        Charset charset = contentType != null && contentType.toLowerCase().contains("charset=gbk")
+                ? Charset.forName("GBK") : StandardCharsets.UTF_8;
+        Map<String, Object> echo = new LinkedHashMap<>();
+        echo.put("method", exchange.getRequestMethod());
+        echo.put("token", exchange.getRequestHeaders().getFirst("X-Token"));
+        echo.put("contentType", contentType);
+        echo.put("contentEncoding", contentEncoding);
+        echo.put("body", new String(body.toByteArray(), charset));
+        byte[] response = JsonUtils.toJsonString(echo).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+        exchange.sendResponseHeaders(200, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+
+    private static Map<String, String> headers() {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("X-Token", "token-001");
+        headers.put("content-type", "application/json; charset=GBK");
+        return headers;
+    }
+
+    @Test
+    public void testBlockingPostSendsHeaders() throws Exception {
+        Map<String, Object> response = requestHandler.executeHttpRequest(HttpApiClientManager.DEFAULT_PROFILE, url,
+                "POST", headers(), "{\"name\":\"张三\"}", null);
+
+        assertEquals("POST", response.get("method"));
+        assertEquals("token-001", response.get("token"));
+        assertEquals("application/json; charset=GBK", response.get("contentType"));
+        assertEquals("{\"name\":\"张三\"}", response.get("body"));
+    }
+
+    @Test
+    public void testAsyncPostSendsHeaders() throws Exception {
+        Map<String, Object> response = requestHandler.executeHttpRequestAsync(HttpApiClientManager.DEFAULT_PROFILE, url,
+                "POST", headers(), "{\"name\":\"张三\"}", false, null).get(10, TimeUnit.SECONDS);
+
+        assertEquals("token-001", response.get("token"));
+        assertEquals("application/json; charset=GBK", response.get("contentType"));
+        assertEquals("{\"name\":\"张三\"}", response.get("body"));
+    }
+
+    @Test
+    public void testGetSendsHeaders() throws Exception {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("X-Token", "token-002");
+
+        Map<String, Object> blocking = requestHandler.executeHttpRequest(HttpApiClientManager.DEFAULT_PROFILE, url,
+                "GET", headers, null, null);
+        Map<String, Object> async = requestHandler.executeHttpRequestAsync(HttpApiClientManager.DEFAULT_PROFILE, url,
+                "GET", headers, null, false, null).get(10, TimeUnit.SECONDS);
+
+        assertEquals("token-002", blocking.get("token"));
+        assertEquals("token-002", async.get("token"));
+        assertEquals("GET", async.get("method"));
+    }
+
+    @Test
+    public void testDefaultContentTypeIsJson() throws Exception {
+        Map<String, Object> response = requestHandler.executeHttpRequestAsync(HttpApiClientManager.DEFAULT_PROFILE, url,
+                "POST", new HashMap<>(), "{\"name\":\"张三\"}", false, null).get(10, TimeUnit.SECONDS);
+
+        assertEquals("application/json; charset=UTF-8", response.get("contentType"));
+        assertEquals("{\"name\":\"张三\"}", response.get("body"));
+    }
+
+    @Test
+    public void testCompressedPost() throws Exception {
+        for (String compression : new String[]{CompressionUtils.GZIP, CompressionUtils.DEFLATE}) {
+            Map<String, Object> blocking = requestHandler.executeHttpRequest(HttpApiClientManager.DEFAULT_PROFILE, url,
+                    "POST", new HashMap<>(), "{\"name\":\"张三\"}", compression);
+            Map<String, Object> async = requestHandler.executeHttpRequestAsync(HttpApiClientManager.DEFAULT_PROFILE, url,
+                    "POST", new HashMap<>(), "{\"name\":\"张三\"}", false, compression).get(10, TimeUnit.SECONDS);
+
+            assertEquals(compression, blocking.get("contentEncoding"));
+            assertEquals("{\"name\":\"张三\"}", blocking.get("body"));
+            assertEquals(compression, async.get("contentEncoding"));
+            assertEquals("{\"name\":\"张三\"}", async.get("body"));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.helianhealth.agent.remote.plan;
+
+import com.helianhealth.agent.enums.MappingType;
+import com.helianhealth.agent.enums.ParamType;
+import com.helianhealth.agent.model.domain.NodeParamConfigDO;
+import com.helianhealth.agent.remote.resolver.ConstantValueResolver;
+import com.helianhealth.agent.remote.resolver.ValueResolveService;
+import com.helianhealth.agent.remote.resolver.XPathValueResolver;
+import com.helianhealth.agent.utils.XmlPathSelector;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ParamPlanCompilerTest {
+
+    private final ParamPlanCompiler compiler = new ParamPlanCompiler(
+            new ValueResolveService(Arrays.asList(new XPathValueResolver(), new ConstantValueResolver())));
+
+    private static NodeParamConfigDO object(int configId, Integer parentId, ParamType sourceType) {
+        return NodeParamConfigDO.builder().configId(configId).parentId(parentId).sort(configId)
+                .targetParamKey("object" + configId).targetParamType(ParamType.OBJECT)
+                .sourceParamKey("source" + configId).sourceParamType(sourceType).build();
+    }
+
+    private static NodeParamConfigDO xpath(int configId, Integer parentId, String expression) {
+        return NodeParamConfigDO.builder().configId(configId).parentId(parentId).sort(configId)
+                .targetParamKey("value" + configId).targetParamType(ParamType.STRING)
+                .mappingType(MappingType.XPATH).mappingRule(expression).build();
+    }
+
+    private static List<String> expressions(List<ParamPlanNode> plan) {
+        return ParamPlanCompiler.collectPathSelectors(plan).stream()
+                .map(XmlPathSelector::getExpression)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testPathSelectorsCollectedOnce() {
+        List<ParamPlanNode> plan = compiler.compile(Arrays.asList(
+                xpath(1, null, "/Response/code"),
+                object(2, null, ParamType.NONE),
+                xpath(3, 2, "/Response/patient/name"),
+                xpath(4, 2, "/Response/code"),
+                xpath(5, null, "Response/relative")));
+
+        assertEquals(Arrays.asList("/Response/code", "/Response/patient/name"), expressions(plan));
+        // 不合法的路径取不到值
+        assertNull(plan.get(2).getPathSelector());
+        assertTrue(ParamPlanCompiler.isPathOnly(plan));
+    }
+
+    @Test
+    public void testXPathUnderReRootedObjectRejected() {
+        List<ParamPlanNode> plan = compiler.compile(Arrays.asList(
+                object(1, null, ParamType.OBJECT),
+                xpath(2, 1, "/Response/patient/name"),
+                object(3, 1, ParamType.NONE),
+                xpath(4, 3, "/Response/patient/id"),
+                xpath(5, null, "/Response/code")));
+
+        ParamPlanNode reRooted = plan.get(0);
+        assertNull(reRooted.getChildren().get(0).getPathSelector());
+        // 不取源参数的对象不切换业务数据,但祖先已切换
+        assertNull(reRooted.getChildren().get(1).getChildren().get(0).getPathSelector());
+        assertNotNull(plan.get(1).getPathSelector());
+        assertEquals(Collections.singletonList("/Response/code"), expressions(plan));
+        assertFalse(ParamPlanCompiler.isPathOnly(plan));
+    }
+
+    @Test
+    public void testXPathUnderArrayRejected() {
+        for (ParamType arrayType : new ParamType[]{ParamType.ARRAY, ParamType.PURE_ARRAY}) {
+            NodeParamConfigDO array = NodeParamConfigDO.builder().configId(1).sort(1)
+                    .targetParamKey("items").targetParamType(arrayType)
+                    .sourceParamKey("items").sourceParamType(ParamType.ARRAY).build();
+            List<ParamPlanNode> plan = compiler.compile(Arrays.asList(array, xpath(2, 1, "/Response/items/item")));
+
+            assertNull(plan.get(0).getChildren().get(0).getPathSelector());
+            assertTrue(expressions(plan).isEmpty());
+        }
+    }
+
+    @Test
+    public void testXPathResolvedFromSelectedValues() {
+        List<ParamPlanNode> plan = compiler.compile(Arrays.asList(
+                object(1, null, ParamType.NONE),
+                xpath(2, 1, "/Response/code")));
+        Map<String, Object> response = Collections.singletonMap(XmlPathSelector.VALUES_KEY,
+                Collections.singletonMap("/Response/code", "0"));
+
+        assertEquals("0", plan.get(0).getChildren().get(0).resolveValue(response, response));
+        assertNull(plan.get(0).getChildren().get(0).resolveValue(Collections.emptyMap(), response));
+    }
+}
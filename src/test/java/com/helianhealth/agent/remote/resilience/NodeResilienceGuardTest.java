@@ -0,0 +1,203 @@
+package com.helianhealth.agent.remote.resilience;
+
+import com.helianhealth.agent.config.ResilienceProperties;
+import com.helianhealth.agent.exception.BaseBusinessException;
+import com.helianhealth.agent.exception.RemoteBusinessException;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NodeResilienceGuardTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static Map<String, Object> config(Object... keyValues) {
+        Map<String, Object> config = new HashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            config.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return config;
+    }
+
+    private static Supplier<Map<String, Object>> failing(AtomicInteger calls) {
+        return () -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("下游服务不可用");
+        };
+    }
+
+    @Test
+    public void testUnconfiguredNodeNotGuardedByDefault() {
+        NodeResilienceGuard guard = new NodeResilienceGuard(new ResilienceProperties());
+        AtomicInteger calls = new AtomicInteger();
+
+        for (int i = 0; i < 30; i++) {
+            assertThrows(IllegalStateException.class, () -> guard.execute(1, ResilienceSpec.DEFAULT, null, failing(calls)));
+        }
+
+        assertEquals(30, calls.get());
+        assertTrue(guard.stats().isEmpty());
+    }
+
+    @Test
+    public void testNodeSwitches() {
+        ResilienceProperties properties = new ResilienceProperties();
+        properties.setEnabled(true);
+        NodeResilienceGuard guard = new NodeResilienceGuard(properties);
+        Map<String, Object> response = Collections.singletonMap("code", "0");
+
+        guard.execute(1, ResilienceSpec.DEFAULT, null, () -> response);
+        guard.execute(2, ResilienceSpec.parse(false, null), null, () -> response);
+        assertEquals(Collections.singleton(1), guard.stats().keySet());
+
+        NodeResilienceGuard optIn = new NodeResilienceGuard(new ResilienceProperties());
+        optIn.execute(3, ResilienceSpec.parse(true, null), null, () -> response);
+        assertEquals(Collections.singleton(3), optIn.stats().keySet());
+    }
+
+    @Test
+    public void testStaticFallback() {
+        NodeResilienceGuard guard = new NodeResilienceGuard(new ResilienceProperties());
+        ResilienceSpec spec = ResilienceSpec.parse(null,
+                config("type", "STATIC", "response", config("code", "-1", "msg", "降级")));
+
+        Map<String, Object> first = guard.execute(1, spec, null, failing(new AtomicInteger()));
+        first.put("msg", "已修改");
+        Map<String, Object> second = guard.execute(1, spec, null, failing(new AtomicInteger()));
+
+        assertEquals("-1", second.get("code"));
+        assertEquals("降级", second.get("msg"));
+        assertEquals(2L, guard.stats().get(1).get("fallbacks"));
+    }
+
+    @Test
+    public void testCachedFallbackReturnsLastSuccess() {
+        NodeResilienceGuard guard = new NodeResilienceGuard(new ResilienceProperties());
+        ResilienceSpec spec = ResilienceSpec.parse(null, config("type", "CACHED", "response", config("code", "-1")));
+        Map<String, Object> success = config("code", "0", "patientName", "张三");
+        assertTrue(guard.needsRequestKey(spec));
+
+        assertSame(success, guard.execute(1, spec, "req-1", () -> success));
+        Map<String, Object> cached = guard.execute(1, spec, "req-1", failing(new AtomicInteger()));
+        Map<String, Object> other = guard.execute(1, spec, "req-2", failing(new AtomicInteger()));
+
+        assertEquals(success, cached);
+        assertNotSame(success, cached);
+        assertEquals("-1", other.get("code"));
+    }
+
+    @Test
+    public void testCircuitOpensAndResets() {
+        NodeResilienceGuard guard = new NodeResilienceGuard(new ResilienceProperties());
+        ResilienceSpec spec = ResilienceSpec.parse(config("slidingWindowSize", 4, "minimumNumberOfCalls", 4,
+                "failureRateThreshold", 50, "waitDurationInOpenStateMs", 60000), null);
+        AtomicInteger calls = new AtomicInteger();
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(IllegalStateException.class, () -> guard.execute(1, spec, null, failing(calls)));
+        }
+        assertEquals("OPEN", guard.stats().get(1).get("state"));
+
+        BaseBusinessException e = assertThrows(BaseBusinessException.class,
+                () -> guard.execute(1, spec, null, failing(calls)));
+        assertSame(RemoteBusinessException.CIRCUIT_OPEN, e.getBusinessCode());
+        assertEquals(4, calls.get());
+        assertEquals(1L, guard.stats().get(1).get("notPermittedCalls"));
+
+        assertTrue(guard.reset(1));
+        assertFalse(guard.reset(2));
+        assertEquals("CLOSED", guard.stats().get(1).get("state"));
+        assertEquals("0", guard.execute(1, spec, null, () -> config("code", "0")).get("code"));
+    }
+
+    @Test
+    public void testChangedSpecRebuildsGuard() {
+        NodeResilienceGuard guard = new NodeResilienceGuard(new ResilienceProperties());
+        ResilienceSpec spec = ResilienceSpec.parse(config("slidingWindowSize", 2, "minimumNumberOfCalls", 2), null);
+        for (int i = 0; i < 2; i++) {
+            assertThrows(IllegalStateException.class, () -> guard.execute(1, spec, null, failing(new AtomicInteger())));
+        }
+        assertEquals("OPEN", guard.stats().get(1).get("state"));
+
+        ResilienceSpec changed = ResilienceSpec.parse(config("slidingWindowSize", 3, "minimumNumberOfCalls", 3), null);
+        assertEquals("0", guard.execute(1, changed, null, () -> config("code", "0")).get("code"));
+        assertEquals("CLOSED", guard.stats().get(1).get("state"));
+    }
+
+    @Test
+    public void testBulkheadRejection() throws Exception {
+        NodeResilienceGuard guard = new NodeResilienceGuard(new ResilienceProperties());
+        ResilienceSpec spec = ResilienceSpec.parse(config("maxConcurrentCalls", 1, "maxWaitMs", 0), null);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Map<String, Object>> running = executor.submit(() -> guard.execute(1, spec, null, () -> {
+            started.countDown();
+            await(release);
+            return config("code", "0");
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        BaseBusinessException e = assertThrows(BaseBusinessException.class,
+                () -> guard.execute(1, spec, null, () -> config("code", "0")));
+        assertSame(RemoteBusinessException.BULKHEAD_FULL, e.getBusinessCode());
+
+        release.countDown();
+        assertEquals("0", running.get(5, TimeUnit.SECONDS).get("code"));
+        // 隔离舱拒绝不计入熔断器的失败率
+        assertEquals(0, guard.stats().get(1).get("failedCalls"));
+        assertEquals(1, guard.stats().get(1).get("availableConcurrentCalls"));
+    }
+
+    @Test
+    public void testBulkheadWaitsForPermit() throws Exception {
+        NodeResilienceGuard guard = new NodeResilienceGuard(new ResilienceProperties());
+        // 默认等待1秒,突发调用排队等待而不是直接拒绝
+        ResilienceSpec spec = ResilienceSpec.parse(config("maxConcurrentCalls", 1), null);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Map<String, Object>> running = executor.submit(() -> guard.execute(1, spec, null, () -> {
+            started.countDown();
+            await(release);
+            return config("code", "0");
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        Future<Map<String, Object>> waiting = executor.submit(() -> guard.execute(1, spec, null, () -> config("code", "1")));
+        Thread.sleep(100);
+        assertFalse(waiting.isDone());
+        release.countDown();
+
+        assertEquals("0", running.get(5, TimeUnit.SECONDS).get("code"));
+        assertEquals("1", waiting.get(5, TimeUnit.SECONDS).get("code"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.helianhealth.agent.schedule;
+
+import com.helianhealth.agent.config.EngineExecutorConfig;
+import com.helianhealth.agent.config.EngineProperties;
+import com.helianhealth.agent.config.FlowContextTaskDecorator;
+import com.helianhealth.agent.controller.request.JarvisRequest;
+import com.helianhealth.agent.enums.ScheduleParamSourceType;
+import com.helianhealth.agent.enums.WorkflowContentType;
+import com.helianhealth.agent.model.domain.InterfaceWorkflowDO;
+import com.helianhealth.agent.model.domain.InterfaceWorkflowNodeDO;
+import com.helianhealth.agent.registry.NodeDefinition;
+import com.helianhealth.agent.registry.WorkflowDefinitionRegistry;
+import com.helianhealth.agent.service.InterfaceWorkflowNodeService;
+import com.helianhealth.agent.utils.JsonUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+public class AsyncFlowDispatcherTest {
+
+    private static final String URI = "/api/register";
+
+    private final EngineProperties engineProperties = new EngineProperties();
+    private ThreadPoolTaskExecutor dispatchExecutor;
+    private ThreadPoolTaskExecutor flowNodeExecutor;
+    private WorkflowDefinitionRegistry registry;
+    private InterfaceWorkflowNodeService flowNodeService;
+    private AsyncFlowDispatcher asyncFlowDispatcher;
+
+    @Before
+    public void setUp() {
+        EngineExecutorConfig executorConfig = new EngineExecutorConfig();
+        dispatchExecutor = executorConfig.dispatchExecutor(engineProperties);
+        dispatchExecutor.initialize();
+        flowNodeExecutor = executorConfig.flowNodeExecutor(engineProperties);
+        flowNodeExecutor.initialize();
+
+        registry = Mockito.mock(WorkflowDefinitionRegistry.class);
+        InterfaceWorkflowDO workflow = InterfaceWorkflowDO.builder()
+                .flowId(1)
+                .interfaceUri(URI)
+                .contentType(WorkflowContentType.JSON)
+                .firstFlowNodes(Collections.singletonList(1))
+                .build();
+        when(registry.findWorkflow(URI)).thenReturn(Optional.of(workflow));
+        mockNode(1, "{2,3}");
+        mockNode(2, null);
+        mockNode(3, null);
+
+        flowNodeService = Mockito.mock(InterfaceWorkflowNodeService.class);
+        WorkFlowEngineScheduler scheduler = new WorkFlowEngineScheduler(flowNodeService,
+                new BusinessDataPostProcessor(), registry, engineProperties, flowNodeExecutor,
+                Mockito.mock(NodeSplitInvoker.class));
+        FlowNodeDispatcher flowNodeDispatcher = new FlowNodeDispatcher(registry, scheduler, new ContentParser(),
+                engineProperties);
+        asyncFlowDispatcher = new AsyncFlowDispatcher(flowNodeDispatcher, registry, engineProperties, dispatchExecutor);
+    }
+
+    @After
+    public void tearDown() {
+        dispatchExecutor.shutdown();
+        flowNodeExecutor.shutdown();
+    }
+
+    private void mockNode(int nodeId, String scheduleExpr) {
+        InterfaceWorkflowNodeDO node = InterfaceWorkflowNodeDO.builder()
+                .nodeId(nodeId)
+                .nodeName("节点" + nodeId)
+                .flowId(1)
+                .scheduleExpr(scheduleExpr)
+                .scheduleParamSourceType(ScheduleParamSourceType.ORIGINAL)
+                .build();
+        NodeDefinition definition = Mockito.mock(NodeDefinition.class);
+        when(definition.getNode()).thenReturn(node);
+        when(registry.getNode(nodeId)).thenReturn(definition);
+    }
+
+    private static Map<String, Object> response(String key, Object value) {
+        Map<String, Object> response = new HashMap<>();
+        response.put(key, value);
+        return response;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testBranchesRunConcurrentlyOnDispatchThread() throws Exception {
+        // 两个分支都到达后才放行,串行执行时第一个分支会一直等到超时
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        when(flowNodeService.executeFlowNode(any(), any())).thenAnswer(invocation -> {
+            InterfaceWorkflowNodeDO node = invocation.getArgument(0);
+            if (node.getNodeId() == 1) {
+                return response("code", "0");
+            }
+            bothStarted.countDown();
+            boolean concurrent = bothStarted.await(5, TimeUnit.SECONDS);
+            return response("branch" + node.getNodeId(), concurrent);
+        });
+
+        DeferredResult<ResponseEntity<Object>> deferredResult = asyncFlowDispatcher.dispatch(
+                new ByteArrayInputStream("{\"patientId\":\"P001\"}".getBytes(StandardCharsets.UTF_8)), null, URI);
+
+        long waitUntil = System.currentTimeMillis() + 10_000;
+        while (!deferredResult.hasResult() && System.currentTimeMillis() < waitUntil) {
+            Thread.sleep(10);
+        }
+        assertTrue(deferredResult.hasResult());
+        ResponseEntity<Object> responseEntity = (ResponseEntity<Object>) deferredResult.getResult();
+        assertNotNull(responseEntity.getBody());
+        Map<String, Object> body = JsonUtils.toMap((String) responseEntity.getBody());
+        assertEquals(Boolean.TRUE, body.get("branch2"));
+        assertEquals(Boolean.TRUE, body.get("branch3"));
+        assertEquals(0L, bothStarted.getCount());
+    }
+
+    private static void awaitResult(DeferredResult<?> deferredResult) throws InterruptedException {
+        long waitUntil = System.currentTimeMillis() + 10_000;
+        while (!deferredResult.hasResult() && System.currentTimeMillis() < waitUntil) {
+            Thread.sleep(10);
+        }
+        assertTrue(deferredResult.hasResult());
+    }
+
+    @Test
+    public void testUnknownUrisShareDefaultSlots() throws Exception {
+        engineProperties.getDispatch().getQueueDepths().put("/api/configured", 5);
+        when(flowNodeService.executeFlowNode(any(), any())).thenReturn(response("code", "0"));
+
+        // 调用方构造的URI和业务方法不会各自创建排队名额
+        for (int i = 0; i < 50; i++) {
+            awaitResult(asyncFlowDispatcher.dispatch(
+                    new ByteArrayInputStream("{}".getBytes(StandardCharsets.UTF_8)), null, "/api/unknown/" + i));
+            JarvisRequest request = new JarvisRequest();
+            request.setBusinessMethod("Unknown" + i);
+            awaitResult(asyncFlowDispatcher.jarvisDispatch(request));
+        }
+        assertEquals(1, asyncFlowDispatcher.slotCount());
+
+        awaitResult(asyncFlowDispatcher.dispatch(
+                new ByteArrayInputStream("{}".getBytes(StandardCharsets.UTF_8)), null, "/api/configured"));
+        awaitResult(asyncFlowDispatcher.dispatch(
+                new ByteArrayInputStream("{}".getBytes(StandardCharsets.UTF_8)), null, URI));
+        assertEquals(3, asyncFlowDispatcher.slotCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testMalformedBodyDispatchedWithEmptyData() throws Exception {
+        DeferredResult<ResponseEntity<Object>> deferredResult = asyncFlowDispatcher.dispatch(
+                new ByteArrayInputStream("{\"patientId\":".getBytes(StandardCharsets.UTF_8)), null, URI);
+
+        // 请求体格式错误时记录日志,按空业务数据分发,节点不执行
+        awaitResult(deferredResult);
+        ResponseEntity<Object> responseEntity = (ResponseEntity<Object>) deferredResult.getResult();
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals("{}", responseEntity.getBody());
+        Mockito.verifyNoInteractions(flowNodeService);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testParseFailureReturnsEmptyResponse() {
+        when(registry.findWorkflow("/api/broken")).thenThrow(new IllegalStateException("工作流定义加载失败"));
+        DeferredResult<ResponseEntity<Object>> deferredResult = asyncFlowDispatcher.dispatch(
+                new ByteArrayInputStream("{}".getBytes(StandardCharsets.UTF_8)), null, "/api/broken");
+
+        // 与分发异常一样返回空响应,不抛到全局异常处理
+        assertTrue(deferredResult.hasResult());
+        ResponseEntity<Object> responseEntity = (ResponseEntity<Object>) deferredResult.getResult();
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertNull(responseEntity.getBody());
+        Mockito.verifyNoInteractions(flowNodeService);
+    }
+
+    @Test
+    public void testDispatchThreadIsNotEngineWorker() throws Exception {
+        assertFalse(dispatchExecutor.submit(
+                FlowContextTaskDecorator::isEngineWorker).get());
+        assertTrue(flowNodeExecutor.submit(
+                FlowContextTaskDecorator::isEngineWorker).get());
+    }
+}
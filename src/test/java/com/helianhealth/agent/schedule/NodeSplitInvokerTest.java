@@ -0,0 +1,224 @@
+package com.helianhealth.agent.schedule;
+
+import com.helianhealth.agent.config.EngineExecutorConfig;
+import com.helianhealth.agent.config.EngineProperties;
+import com.helianhealth.agent.model.domain.InterfaceWorkflowNodeDO;
+import com.helianhealth.agent.service.InterfaceWorkflowNodeService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class NodeSplitInvokerTest {
+
+    private ThreadPoolTaskExecutor splitExecutor;
+    private InterfaceWorkflowNodeService flowNodeService;
+    private NodeSplitInvoker nodeSplitInvoker;
+    private final InterfaceWorkflowNodeDO flowNode = InterfaceWorkflowNodeDO.builder()
+            .nodeId(1)
+            .nodeName("检查申请")
+            .build();
+
+    @Before
+    public void setUp() {
+        EngineProperties engineProperties = new EngineProperties();
+        splitExecutor = new EngineExecutorConfig().splitExecutor(engineProperties);
+        splitExecutor.initialize();
+        flowNodeService = Mockito.mock(InterfaceWorkflowNodeService.class);
+        nodeSplitInvoker = new NodeSplitInvoker(flowNodeService, engineProperties, splitExecutor);
+    }
+
+    @After
+    public void tearDown() {
+        splitExecutor.shutdown();
+    }
+
+    private static Map<String, Object> buildData(int size) {
+        List<Object> items = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            items.add("item" + i);
+        }
+        Map<String, Object> body = new HashMap<>();
+        body.put("items", items);
+        Map<String, Object> data = new HashMap<>();
+        data.put("body", body);
+        data.put("tradeCode", "PHY102");
+        return data;
+    }
+
+    private static Map<String, Object> batchData(int from, int to) {
+        List<Object> items = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            items.add("item" + i);
+        }
+        return Collections.singletonMap("body", Collections.singletonMap("items", items));
+    }
+
+    private static long deadline() {
+        return System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    }
+
+    /**
+     * 桩节点模拟真实接口的响应:标量的count、对象的summary,以及原样返回的批次items
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> respond(Map<String, Object> businessData) {
+        Object items = ((Map<String, Object>) businessData.get("body")).get("items");
+        List<Object> batch = items instanceof List ? new ArrayList<>((List<Object>) items)
+                : new ArrayList<>(Collections.singletonList(items));
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("first", batch.get(0));
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("count", batch.size());
+        response.put("summary", summary);
+        response.put("items", batch);
+        return response;
+    }
+
+    private static Map<String, Object> summary(Object first) {
+        return Collections.singletonMap("first", first);
+    }
+
+    @Test
+    public void testBatchesMergedInOrderWithoutReport() {
+        when(flowNodeService.executeFlowNode(any(), any())).thenAnswer(invocation -> respond(invocation.getArgument(1)));
+        SplitRule splitRule = SplitRule.parse("{\"path\":\"body.items\",\"batchSize\":2,\"parallelism\":3}");
+
+        Map<String, Object> response = nodeSplitInvoker.invoke(flowNode, splitRule, buildData(5), deadline());
+
+        verify(flowNodeService, times(3)).executeFlowNode(any(), any());
+        assertEquals(Arrays.asList("item0", "item1", "item2", "item3", "item4"), response.get("items"));
+        // 标量和对象按批次顺序收集,后面批次的值不会丢失
+        assertEquals(Arrays.asList(2, 2, 1), response.get("count"));
+        assertEquals(Arrays.asList(summary("item0"), summary("item2"), summary("item4")), response.get("summary"));
+        assertFalse(response.containsKey(SplitRule.DEFAULT_REPORT_KEY));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testResultKeyKeepsBatchResponsesInOrder() {
+        when(flowNodeService.executeFlowNode(any(), any())).thenAnswer(invocation -> respond(invocation.getArgument(1)));
+        SplitRule splitRule = SplitRule.parse("{\"path\":\"body.items\",\"batchSize\":2,\"parallelism\":3,\"resultKey\":\"batches\"}");
+
+        Map<String, Object> response = nodeSplitInvoker.invoke(flowNode, splitRule, buildData(5), deadline());
+
+        assertEquals(Collections.singleton("batches"), response.keySet());
+        List<Map<String, Object>> batches = (List<Map<String, Object>>) response.get("batches");
+        assertEquals(3, batches.size());
+        for (int i = 0; i < batches.size(); i++) {
+            assertEquals(respond(batchData(i * 2, Math.min(i * 2 + 2, 5))), batches.get(i));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSingleElementBatchesUnwrapped() {
+        List<Object> received = Collections.synchronizedList(new ArrayList<>());
+        when(flowNodeService.executeFlowNode(any(), any())).thenAnswer(invocation -> {
+            Map<String, Object> businessData = invocation.getArgument(1);
+            received.add(((Map<String, Object>) businessData.get("body")).get("items"));
+            return respond(businessData);
+        });
+
+        Map<String, Object> data = buildData(3);
+        nodeSplitInvoker.invoke(flowNode, SplitRule.parse("body.items"), data, deadline());
+
+        assertEquals(3, received.size());
+        assertTrue(received.containsAll(Arrays.asList("item0", "item1", "item2")));
+        // 原业务数据不受批次替换影响
+        assertEquals(3, ((List<Object>) ((Map<String, Object>) data.get("body")).get("items")).size());
+    }
+
+    @Test
+    public void testParallelismWindow() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        when(flowNodeService.executeFlowNode(any(), any())).thenAnswer(invocation -> {
+            int current = running.incrementAndGet();
+            maxRunning.accumulateAndGet(current, Math::max);
+            try {
+                Thread.sleep(50);
+            } finally {
+                running.decrementAndGet();
+            }
+            return respond(invocation.getArgument(1));
+        });
+        SplitRule splitRule = SplitRule.parse("{\"path\":\"body.items\",\"parallelism\":2}");
+
+        Map<String, Object> response = nodeSplitInvoker.invoke(flowNode, splitRule, buildData(6), deadline());
+
+        verify(flowNodeService, times(6)).executeFlowNode(any(), any());
+        assertEquals(2, maxRunning.get());
+        assertEquals(6, ((List<?>) response.get("items")).size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testPartialFailureAddsReport() {
+        when(flowNodeService.executeFlowNode(any(), any())).thenAnswer(invocation -> {
+            Map<String, Object> businessData = invocation.getArgument(1);
+            if ("item1".equals(((Map<String, Object>) businessData.get("body")).get("items"))) {
+                throw new IllegalStateException("下游返回失败");
+            }
+            return respond(businessData);
+        });
+        SplitRule splitRule = SplitRule.parse("{\"path\":\"body.items\",\"parallelism\":2,\"reportKey\":\"report\"}");
+
+        Map<String, Object> response = nodeSplitInvoker.invoke(flowNode, splitRule, buildData(3), deadline());
+
+        assertEquals(Arrays.asList("item0", "item2"), response.get("items"));
+        assertEquals(Arrays.asList(summary("item0"), summary("item2")), response.get("summary"));
+        Map<String, Object> report = (Map<String, Object>) response.get("report");
+        assertEquals(3, report.get("total"));
+        assertEquals(2, report.get("succeeded"));
+        assertEquals(1, report.get("failed"));
+        List<Map<String, Object>> failures = (List<Map<String, Object>>) report.get("failures");
+        assertEquals(1, failures.size());
+        assertEquals(1, failures.get(0).get("index"));
+        assertEquals("下游返回失败", failures.get(0).get("error"));
+    }
+
+    @Test
+    public void testAllBatchesFailThrowsFirstError() {
+        IllegalStateException first = new IllegalStateException("第一批失败");
+        when(flowNodeService.executeFlowNode(any(), any()))
+                .thenThrow(first)
+                .thenThrow(new IllegalStateException("第二批失败"));
+        SplitRule splitRule = SplitRule.parse("{\"path\":\"body.items\",\"parallelism\":1}");
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class,
+                () -> nodeSplitInvoker.invoke(flowNode, splitRule, buildData(2), deadline()));
+        assertSame(first, thrown);
+    }
+
+    @Test
+    public void testNonListPathInvokesOnce() {
+        when(flowNodeService.executeFlowNode(any(), any())).thenReturn(new HashMap<>());
+        Map<String, Object> data = buildData(2);
+
+        nodeSplitInvoker.invoke(flowNode, SplitRule.parse("tradeCode"), data, deadline());
+
+        verify(flowNodeService, times(1)).executeFlowNode(flowNode, data);
+    }
+}
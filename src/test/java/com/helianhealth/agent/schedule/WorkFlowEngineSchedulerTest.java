@@ -0,0 +1,130 @@
+package com.helianhealth.agent.schedule;
+
+import com.helianhealth.agent.config.EngineExecutorConfig;
+import com.helianhealth.agent.config.EngineProperties;
+import com.helianhealth.agent.enums.ScheduleParamSourceType;
+import com.helianhealth.agent.exception.BaseBusinessException;
+import com.helianhealth.agent.exception.InstanceBusinessException;
+import com.helianhealth.agent.model.domain.InterfaceWorkflowNodeDO;
+import com.helianhealth.agent.registry.NodeDefinition;
+import com.helianhealth.agent.registry.WorkflowDefinitionRegistry;
+import com.helianhealth.agent.service.InterfaceWorkflowNodeService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+public class WorkFlowEngineSchedulerTest {
+
+    private ThreadPoolTaskExecutor flowNodeExecutor;
+    private WorkflowDefinitionRegistry registry;
+    private InterfaceWorkflowNodeService flowNodeService;
+    private WorkFlowEngineScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        EngineProperties engineProperties = new EngineProperties();
+        flowNodeExecutor = new EngineExecutorConfig().flowNodeExecutor(engineProperties);
+        flowNodeExecutor.initialize();
+        registry = Mockito.mock(WorkflowDefinitionRegistry.class);
+        flowNodeService = Mockito.mock(InterfaceWorkflowNodeService.class);
+        scheduler = new WorkFlowEngineScheduler(flowNodeService, new BusinessDataPostProcessor(), registry,
+                engineProperties, flowNodeExecutor, Mockito.mock(NodeSplitInvoker.class));
+        mockNode(1, "{2}");
+        mockNode(2, null);
+    }
+
+    @After
+    public void tearDown() {
+        flowNodeExecutor.shutdown();
+    }
+
+    private void mockNode(int nodeId, String scheduleExpr) {
+        InterfaceWorkflowNodeDO node = InterfaceWorkflowNodeDO.builder()
+                .nodeId(nodeId)
+                .nodeName("节点" + nodeId)
+                .scheduleExpr(scheduleExpr)
+                .scheduleParamSourceType(ScheduleParamSourceType.PRE_RESPONSE)
+                .build();
+        NodeDefinition definition = Mockito.mock(NodeDefinition.class);
+        when(definition.getNode()).thenReturn(node);
+        when(definition.getJoinPredecessors()).thenReturn(Collections.emptySet());
+        when(registry.getNode(nodeId)).thenReturn(definition);
+    }
+
+    private static Map<String, Object> data(String key, Object value) {
+        Map<String, Object> data = new HashMap<>();
+        data.put(key, value);
+        return data;
+    }
+
+    @Test
+    public void testSequentialChain() {
+        when(flowNodeService.executeFlowNode(any(), any())).thenAnswer(invocation -> {
+            InterfaceWorkflowNodeDO node = invocation.getArgument(0);
+            Map<String, Object> input = invocation.getArgument(1);
+            return node.getNodeId() == 1 ? data("step", "1") : data("result", input.get("step") + "->2");
+        });
+
+        Map<String, Object> result = scheduler.schedule(Collections.singletonList(1), data("request", "R"),
+                Duration.ofSeconds(5));
+
+        assertEquals("1->2", result.get("result"));
+    }
+
+    @Test
+    public void testTimeoutInterruptsRunningNode() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        when(flowNodeService.executeFlowNode(any(), any())).thenAnswer(invocation -> {
+            InterfaceWorkflowNodeDO node = invocation.getArgument(0);
+            if (node.getNodeId() == 1) {
+                return data("step", "1");
+            }
+            // 顺序链上的第二个节点一直阻塞,超时前不会返回
+            try {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return data("result", "late");
+        });
+
+        long start = System.nanoTime();
+        BaseBusinessException e = assertThrows(BaseBusinessException.class,
+                () -> scheduler.schedule(Collections.singletonList(1), data("request", "R"), Duration.ofMillis(300)));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertSame(InstanceBusinessException.WORKFLOW_TIMEOUT, e.getBusinessCode());
+        assertTrue(elapsedMillis < 2000, "超时后应立即返回, 实际耗时: " + elapsedMillis);
+        assertTrue(interrupted.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testTimeoutOnSingleFirstNode() {
+        when(flowNodeService.executeFlowNode(any(), any())).thenAnswer(invocation -> {
+            Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+            return data("result", "late");
+        });
+        mockNode(1, null);
+
+        BaseBusinessException e = assertThrows(BaseBusinessException.class,
+                () -> scheduler.schedule(Collections.singletonList(1), data("request", "R"), Duration.ofMillis(200)));
+        assertSame(InstanceBusinessException.WORKFLOW_TIMEOUT, e.getBusinessCode());
+    }
+}
@@ -0,0 +1,272 @@
+package com.helianhealth.agent.schedule;
+
+import com.helianhealth.agent.exception.BaseBusinessException;
+import com.helianhealth.agent.exception.InstanceBusinessException;
+import com.helianhealth.agent.model.domain.InterfaceWorkflowNodeDO;
+import com.helianhealth.agent.registry.NodeDefinition;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+public class WorkflowExecutionTest {
+
+    private final Map<Integer, NodeDefinition> definitions = new HashMap<>();
+
+    private void node(int nodeId) {
+        join(nodeId, false, Collections.emptySet());
+    }
+
+    private void join(int nodeId, boolean join, Set<Integer> predecessors) {
+        NodeDefinition definition = Mockito.mock(NodeDefinition.class);
+        when(definition.getNode()).thenReturn(InterfaceWorkflowNodeDO.builder().nodeId(nodeId).build());
+        when(definition.isJoin()).thenReturn(join);
+        when(definition.getJoinPredecessors()).thenReturn(predecessors);
+        definitions.put(nodeId, definition);
+    }
+
+    private WorkflowExecution start(Integer... firstNodes) {
+        WorkflowExecution execution = new WorkflowExecution(Long.MAX_VALUE, definitions::get);
+        execution.start(Arrays.asList(firstNodes), data("request", "R"));
+        return execution;
+    }
+
+    private static Map<String, Object> data(String key, Object value) {
+        Map<String, Object> data = new HashMap<>();
+        data.put(key, value);
+        return data;
+    }
+
+    /**
+     * 取出全部可执行节点,按节点ID索引
+     */
+    private static Map<Integer, WorkflowExecution.NodeRun> drain(WorkflowExecution execution) {
+        Map<Integer, WorkflowExecution.NodeRun> ready = new HashMap<>();
+        while (execution.hasReady()) {
+            WorkflowExecution.NodeRun run = execution.pollReady();
+            ready.put(run.getNodeId(), run);
+        }
+        return ready;
+    }
+
+    private static void finish(WorkflowExecution execution, WorkflowExecution.NodeRun run,
+                               Map<String, Object> response, Integer... nextNodes) {
+        run.finish(response, nextNodes.length == 0 ? null : Arrays.asList(nextNodes), response);
+        execution.complete(run);
+    }
+
+    /**
+     * 菱形:1 -> {2, 3} -> 4(汇聚),按给定顺序完成2和3,返回汇聚节点的入参
+     */
+    private Map<String, Object> runDiamond(int firstDone, int secondDone) {
+        node(1);
+        node(2);
+        node(3);
+        join(4, true, Collections.emptySet());
+        WorkflowExecution execution = start(1);
+        finish(execution, drain(execution).get(1), data("code", "0"), 2, 3);
+        Map<Integer, WorkflowExecution.NodeRun> branches = drain(execution);
+        assertEquals(new HashSet<>(Arrays.asList(2, 3)), branches.keySet());
+
+        finish(execution, branches.get(firstDone), data("items", new ArrayList<>(Collections.singletonList("from" + firstDone))), 4);
+        assertFalse(execution.hasReady());
+        finish(execution, branches.get(secondDone), data("items", new ArrayList<>(Collections.singletonList("from" + secondDone))), 4);
+        assertFalse(execution.hasReady());
+
+        assertTrue(execution.fireQuiescentJoin());
+        WorkflowExecution.NodeRun joinRun = drain(execution).get(4);
+        finish(execution, joinRun, data("done", true));
+        assertFalse(execution.fireQuiescentJoin());
+        return joinRun.getInput();
+    }
+
+    @Test
+    public void testDiamondJoinMergesInPathOrder() {
+        Map<String, Object> inOrder = runDiamond(2, 3);
+        Map<String, Object> reversed = runDiamond(3, 2);
+        assertEquals(Arrays.asList("from2", "from3"), inOrder.get("items"));
+        assertEquals(inOrder, reversed);
+    }
+
+    @Test
+    public void testDiamondWithoutJoinMergesOnce() {
+        node(1);
+        node(2);
+        node(3);
+        node(4);
+        WorkflowExecution execution = start(1);
+        finish(execution, drain(execution).get(1), data("code", "0"), 2, 3);
+        Map<Integer, WorkflowExecution.NodeRun> branches = drain(execution);
+        finish(execution, branches.get(3), data("items", new ArrayList<>(Collections.singletonList("from3"))), 4);
+        // 另一个分支仍在执行,隐式汇聚等待
+        assertFalse(execution.hasReady());
+        finish(execution, branches.get(2), data("items", new ArrayList<>(Collections.singletonList("from2"))), 4);
+
+        Map<Integer, WorkflowExecution.NodeRun> ready = drain(execution);
+        assertEquals(Collections.singleton(4), ready.keySet());
+        assertEquals(Arrays.asList("from2", "from3"), ready.get(4).getInput().get("items"));
+        finish(execution, ready.get(4), data("done", true));
+        assertFalse(execution.hasReady());
+        assertEquals(data("done", true), execution.result());
+    }
+
+    @Test
+    public void testChainsAfterFanOutRunTogether() {
+        // 1 -> {2, 3}, 2 -> 4, 3 -> 5
+        node(1);
+        node(2);
+        node(3);
+        node(4);
+        node(5);
+        WorkflowExecution execution = start(1);
+        finish(execution, drain(execution).get(1), data("code", "0"), 2, 3);
+        Map<Integer, WorkflowExecution.NodeRun> branches = drain(execution);
+        assertEquals(new HashSet<>(Arrays.asList(2, 3)), branches.keySet());
+        finish(execution, branches.get(2), data("from", 2), 4);
+        finish(execution, branches.get(3), data("from", 3), 5);
+
+        Map<Integer, WorkflowExecution.NodeRun> ready = drain(execution);
+        assertEquals(new HashSet<>(Arrays.asList(4, 5)), ready.keySet());
+        assertEquals(2, ready.get(4).getInput().get("from"));
+        assertEquals(3, ready.get(5).getInput().get("from"));
+    }
+
+    @Test
+    public void testLateArrivalAtFiredNodeRunsForThatBranch() {
+        // 1 -> {2, 3}, 2 -> 3:3与2同时触发,2完成后再调度3时为该分支单独执行
+        node(1);
+        node(2);
+        node(3);
+        WorkflowExecution execution = start(1);
+        finish(execution, drain(execution).get(1), data("code", "0"), 2, 3);
+        Map<Integer, WorkflowExecution.NodeRun> branches = drain(execution);
+        finish(execution, branches.get(3), data("items", new ArrayList<>(Collections.singletonList("from3"))));
+        finish(execution, branches.get(2), data("from", 2), 3);
+
+        WorkflowExecution.NodeRun late = execution.pollReady();
+        assertEquals(3, late.getNodeId());
+        assertEquals(data("from", 2), late.getInput());
+        assertFalse(execution.hasReady());
+        finish(execution, late, data("items", new ArrayList<>(Collections.singletonList("late3"))));
+        assertEquals(Arrays.asList("late3", "from3"), execution.result().get("items"));
+    }
+
+    @Test
+    public void testJoinWithPredecessorsFiresWhenPredecessorsComplete() {
+        node(1);
+        node(2);
+        node(3);
+        node(5);
+        join(4, true, new HashSet<>(Arrays.asList(2, 3)));
+        WorkflowExecution execution = start(1);
+        finish(execution, drain(execution).get(1), data("code", "0"), 2, 3, 5);
+        Map<Integer, WorkflowExecution.NodeRun> branches = drain(execution);
+
+        finish(execution, branches.get(3), data("from", 3), 4);
+        assertFalse(execution.hasReady());
+        finish(execution, branches.get(2), data("from", 2), 4);
+        // 节点5仍在执行,汇聚节点不等待它
+        WorkflowExecution.NodeRun joinRun = drain(execution).get(4);
+        assertEquals(2, joinRun.getInput().get("from"));
+    }
+
+    @Test
+    public void testJoinRejectsUndeclaredPredecessor() {
+        node(1);
+        node(2);
+        node(3);
+        join(4, true, Collections.singleton(2));
+        WorkflowExecution execution = start(1);
+        finish(execution, drain(execution).get(1), data("code", "0"), 2, 3);
+        Map<Integer, WorkflowExecution.NodeRun> branches = drain(execution);
+
+        BaseBusinessException e = assertThrows(BaseBusinessException.class,
+                () -> finish(execution, branches.get(3), data("from", 3), 4));
+        assertSame(InstanceBusinessException.NODE_SCHEDULE_CONFLICT, e.getBusinessCode());
+    }
+
+    @Test
+    public void testQuiescentJoinsFireInPathOrder() {
+        // 1 -> {2, 3}, 2 -> 4(汇聚), 3 -> 5(汇聚), 4 -> 5
+        node(1);
+        node(2);
+        node(3);
+        join(4, true, Collections.emptySet());
+        join(5, true, Collections.emptySet());
+        WorkflowExecution execution = start(1);
+        finish(execution, drain(execution).get(1), data("code", "0"), 2, 3);
+        Map<Integer, WorkflowExecution.NodeRun> branches = drain(execution);
+        finish(execution, branches.get(3), data("items", new ArrayList<>(Collections.singletonList("from3"))), 5);
+        finish(execution, branches.get(2), data("items", new ArrayList<>(Collections.singletonList("from2"))), 4);
+        assertFalse(execution.hasReady());
+
+        // 每次只触发路径最靠前的一个,4的后续还能汇入5
+        assertTrue(execution.fireQuiescentJoin());
+        Map<Integer, WorkflowExecution.NodeRun> ready = drain(execution);
+        assertEquals(Collections.singleton(4), ready.keySet());
+        finish(execution, ready.get(4), data("items", new ArrayList<>(Collections.singletonList("from4"))), 5);
+
+        assertTrue(execution.fireQuiescentJoin());
+        ready = drain(execution);
+        assertEquals(Collections.singleton(5), ready.keySet());
+        assertEquals(Arrays.asList("from4", "from3"), ready.get(5).getInput().get("items"));
+        finish(execution, ready.get(5), data("done", true));
+        assertFalse(execution.fireQuiescentJoin());
+        assertEquals(data("done", true), execution.result());
+    }
+
+    @Test
+    public void testLateArrivalAtFiredJoinRejected() {
+        // 1 -> {2, 3}, 2 -> 5(汇聚), 3 -> 4(汇聚), 4 -> 5:5的路径靠前先触发,4完成后再到达5
+        node(1);
+        node(2);
+        node(3);
+        join(4, true, Collections.emptySet());
+        join(5, true, Collections.emptySet());
+        WorkflowExecution execution = start(1);
+        finish(execution, drain(execution).get(1), data("code", "0"), 2, 3);
+        Map<Integer, WorkflowExecution.NodeRun> branches = drain(execution);
+        finish(execution, branches.get(3), data("from", 3), 4);
+        finish(execution, branches.get(2), data("from", 2), 5);
+
+        assertTrue(execution.fireQuiescentJoin());
+        Map<Integer, WorkflowExecution.NodeRun> ready = drain(execution);
+        assertEquals(Collections.singleton(5), ready.keySet());
+        finish(execution, ready.get(5), data("join", 5));
+        assertTrue(execution.fireQuiescentJoin());
+        WorkflowExecution.NodeRun late = drain(execution).get(4);
+
+        BaseBusinessException e = assertThrows(BaseBusinessException.class,
+                () -> finish(execution, late, data("join", 4), 5));
+        assertSame(InstanceBusinessException.NODE_SCHEDULE_CONFLICT, e.getBusinessCode());
+    }
+
+    @Test
+    public void testTerminalResultsMergedInPathOrder() {
+        node(1);
+        node(2);
+        node(3);
+        WorkflowExecution execution = start(1);
+        finish(execution, drain(execution).get(1), data("code", "0"), 2, 3);
+        Map<Integer, WorkflowExecution.NodeRun> branches = drain(execution);
+        finish(execution, branches.get(3), data("items", new ArrayList<>(Collections.singletonList("from3"))));
+        finish(execution, branches.get(2), data("items", new ArrayList<>(Collections.singletonList("from2"))));
+
+        List<?> items = (List<?>) execution.result().get("items");
+        assertEquals(Arrays.asList("from2", "from3"), items);
+    }
+}
@@ -0,0 +1,127 @@
+package com.helianhealth.agent.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompressionUtilsTest {
+
+    private static final byte[] PAYLOAD = ("<Request><PatientName>张三</PatientName><Items>"
+            + "<Item>血常规</Item><Item>肝功能</Item><Item>肾功能</Item></Items></Request>")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private static byte[] encode(String encoding) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream compressed = CompressionUtils.encode(out, encoding)) {
+            compressed.write(PAYLOAD);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] decode(byte[] body, String contentEncoding) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = CompressionUtils.decode(new ByteArrayInputStream(body), contentEncoding)) {
+            byte[] buffer = new byte[64];
+            for (int n; (n = in.read(buffer)) != -1; ) {
+                out.write(buffer, 0, n);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testGzipRoundTrip() throws IOException {
+        byte[] gzip = encode(CompressionUtils.GZIP);
+        assertEquals(0x1f, gzip[0] & 0xFF);
+        assertEquals(0x8b, gzip[1] & 0xFF);
+        assertArrayEquals(PAYLOAD, decode(gzip, "gzip"));
+        assertArrayEquals(PAYLOAD, decode(gzip, " GZIP "));
+    }
+
+    @Test
+    public void testXGzipDecoded() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(PAYLOAD);
+        }
+        assertArrayEquals(PAYLOAD, decode(out.toByteArray(), "x-gzip"));
+    }
+
+    @Test
+    public void testZlibDeflateRoundTrip() throws IOException {
+        byte[] zlib = encode(CompressionUtils.DEFLATE);
+        // 按zlib格式写出,首字节为0x78
+        assertEquals(0x78, zlib[0] & 0xFF);
+        assertArrayEquals(PAYLOAD, decode(zlib, "deflate"));
+    }
+
+    @Test
+    public void testRawDeflateDetected() throws IOException {
+        // 部分服务端按原始deflate格式(不带zlib头)发送
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DeflaterOutputStream raw = new DeflaterOutputStream(out, deflater)) {
+            raw.write(PAYLOAD);
+        } finally {
+            deflater.end();
+        }
+        assertArrayEquals(PAYLOAD, decode(out.toByteArray(), "deflate"));
+    }
+
+    @Test
+    public void testEmptyDeflateBody() throws IOException {
+        assertEquals(0, decode(new byte[0], "deflate").length);
+    }
+
+    @Test
+    public void testIdentityPassThrough() throws IOException {
+        InputStream in = new ByteArrayInputStream(PAYLOAD);
+        assertSame(in, CompressionUtils.decode(in, null));
+        assertSame(in, CompressionUtils.decode(in, "identity"));
+        assertSame(in, CompressionUtils.decode(in, ""));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertSame(out, CompressionUtils.encode(out, null));
+    }
+
+    @Test
+    public void testUnsupportedEncoding() {
+        assertThrows(IOException.class, () -> decode(PAYLOAD, "br"));
+        assertThrows(IllegalArgumentException.class, () -> CompressionUtils.encode(new ByteArrayOutputStream(), "br"));
+    }
+
+    @Test
+    public void testResolveEncoding() {
+        assertNull(CompressionUtils.resolveEncoding(null));
+        assertNull(CompressionUtils.resolveEncoding(false));
+        assertNull(CompressionUtils.resolveEncoding("none"));
+        assertNull(CompressionUtils.resolveEncoding(" identity "));
+        assertEquals(CompressionUtils.GZIP, CompressionUtils.resolveEncoding(true));
+        assertEquals(CompressionUtils.GZIP, CompressionUtils.resolveEncoding("GZIP"));
+        assertEquals(CompressionUtils.DEFLATE, CompressionUtils.resolveEncoding("deflate"));
+        assertThrows(IllegalArgumentException.class, () -> CompressionUtils.resolveEncoding("br"));
+    }
+
+    @Test
+    public void testIsEncoded() {
+        assertTrue(CompressionUtils.isEncoded("gzip"));
+        assertTrue(CompressionUtils.isEncoded("br"));
+        assertEquals(false, CompressionUtils.isEncoded(null));
+        assertEquals(false, CompressionUtils.isEncoded(" "));
+        assertEquals(false, CompressionUtils.isEncoded("Identity"));
+    }
+}
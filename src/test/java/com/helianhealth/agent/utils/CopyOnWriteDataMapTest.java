@@ -0,0 +1,83 @@
+package com.helianhealth.agent.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CopyOnWriteDataMapTest {
+
+    private Map<String, Object> buildData() {
+        Map<String, Object> item = new HashMap<>();
+        item.put("itemCode", "10020");
+        List<Object> items = new ArrayList<>();
+        items.add(item);
+        Map<String, Object> body = new HashMap<>();
+        body.put("popFlay", "1");
+        body.put("items", items);
+        Map<String, Object> data = new HashMap<>();
+        data.put("body", body);
+        data.put("tradeCode", "PHY102");
+        return data;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testNestedWriteDoesNotTouchSource() {
+        Map<String, Object> source = buildData();
+        Map<String, Object> body = (Map<String, Object>) source.get("body");
+        CopyOnWriteDataMap data = new CopyOnWriteDataMap(source);
+
+        Map<String, Object> bodyView = (Map<String, Object>) data.get("body");
+        bodyView.put("popFlay", "2");
+        List<Object> itemsView = (List<Object>) bodyView.get("items");
+        ((Map<String, Object>) itemsView.get(0)).remove("itemCode");
+
+        assertEquals("2", ((Map<String, Object>) data.get("body")).get("popFlay"));
+        assertTrue(((Map<String, Object>) ((List<Object>) bodyView.get("items")).get(0)).isEmpty());
+        assertEquals("1", body.get("popFlay"));
+        assertEquals("10020", ((Map<String, Object>) ((List<Object>) body.get("items")).get(0)).get("itemCode"));
+        // 未修改的路径与原始数据共享
+        assertSame(source.get("tradeCode"), data.get("tradeCode"));
+    }
+
+    @Test
+    public void testClearExpression() {
+        Map<String, Object> source = buildData();
+        Map<String, Object> filtered = ExpressionMapperUtils.businessDataFilter(
+                "#data[body][popFlay] == '2' ? #data : #data.clear()", source);
+
+        assertTrue(filtered.isEmpty());
+        assertEquals(2, source.size());
+    }
+
+    @Test
+    public void testUnchangedDataEqualsSource() {
+        Map<String, Object> source = buildData();
+        Map<String, Object> filtered = ExpressionMapperUtils.businessDataFilter(
+                "#data[body][popFlay] == '1' ? #data : #data.clear()", source);
+
+        assertFalse(filtered.isEmpty());
+        assertEquals(source, filtered);
+        assertEquals(JsonUtils.toJsonString(source), JsonUtils.toJsonString(filtered));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testLayeredViewDoesNotTouchInnerView() {
+        CopyOnWriteDataMap inner = new CopyOnWriteDataMap(buildData());
+        CopyOnWriteDataMap outer = new CopyOnWriteDataMap(inner);
+
+        ((Map<String, Object>) outer.get("body")).put("popFlay", "2");
+
+        assertEquals("2", ((Map<String, Object>) outer.get("body")).get("popFlay"));
+        assertEquals("1", ((Map<String, Object>) inner.get("body")).get("popFlay"));
+    }
+}
@@ -1,7 +1,6 @@
 package com.helianhealth.agent.utils;
 
 import com.alibaba.fastjson2.JSONObject;
-import com.sun.scenario.effect.impl.sw.java.JSWBlend_SRC_OUTPeer;
 import org.junit.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
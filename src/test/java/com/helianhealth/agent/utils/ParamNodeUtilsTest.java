@@ -1,12 +1,23 @@
 package com.helianhealth.agent.utils;
 
+import com.alibaba.fastjson2.JSONArray;
 import com.helianhealth.agent.enums.ParamType;
 import com.helianhealth.agent.model.dto.ParamTreeNode;
 import org.junit.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest
 public class ParamNodeUtilsTest {
@@ -102,4 +113,130 @@ public class ParamNodeUtilsTest {
         String s = ParamNodeUtils.paramNodeDTO2Xml(specimenFatherElement);
         System.out.println(s);
     }
+
+    private static ParamTreeNode leaf(String key, Object value) {
+        return ParamTreeNode.builder().paramKey(key).paramValue(value).paramType(ParamType.STRING).build();
+    }
+
+    private static ParamTreeNode element(String key, ParamType type, List<ParamTreeNode> attributes, ParamTreeNode... children) {
+        return ParamTreeNode.builder().paramKey(key).paramType(type).attributeNodes(attributes)
+                .children(children.length == 0 ? null : Arrays.asList(children)).build();
+    }
+
+    /**
+     * 覆盖各种节点类型的参数树:属性、有值和无值的标签、空对象、数组、纯数组
+     */
+    private static ParamTreeNode sampleTree() {
+        ParamTreeNode pureArray = ParamTreeNode.builder().paramKey("codes").paramType(ParamType.PURE_ARRAY)
+                .paramValue(new JSONArray(Arrays.asList("A", "B"))).build();
+        ParamTreeNode nullInteger = ParamTreeNode.builder().paramKey("age").paramType(ParamType.INTEGER).build();
+        return element("Request", ParamType.OBJECT, Arrays.asList(leaf("version", "1.0"), leaf("ignored", null)),
+                element("Head", ParamType.OBJECT, null, leaf("TradeCode", "PAT202"), leaf("Empty", null)),
+                element("Patient", ParamType.OBJECT, null, leaf("Name", "张三"), nullInteger, pureArray,
+                        element("Contact", ParamType.OBJECT, null)),
+                element("Items", ParamType.ARRAY, null,
+                        element("Item", ParamType.OBJECT, Arrays.asList(leaf("code", "xq")), leaf("Name", "血常规")),
+                        element("Item", ParamType.OBJECT, Arrays.asList(leaf("code", "ng")))),
+                element("Orders", ParamType.ARRAY, null));
+    }
+
+    private static final String SAMPLE_INDENTED = "<Request version=\"1.0\">\n"
+            + "    <Head>\n"
+            + "        <TradeCode>PAT202</TradeCode>\n"
+            + "        <Empty/>\n"
+            + "    </Head>\n"
+            + "    <Patient>\n"
+            + "        <Name>张三</Name>\n"
+            + "        <age/>\n"
+            + "        <codes>[\"A\",\"B\"]</codes>\n"
+            + "        <Contact/>\n"
+            + "    </Patient>\n"
+            + "    <Items>\n"
+            + "        <Item code=\"xq\">\n"
+            + "            <Name>血常规</Name>\n"
+            + "        </Item>\n"
+            + "        <Item code=\"ng\"/>\n"
+            + "    </Items>\n"
+            + "    <Orders/>\n"
+            + "</Request>\n";
+
+    private static byte[] write(ParamTreeNode node, Charset charset, boolean indent) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ParamNodeUtils.writeXml(node, out, charset, indent);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testIndentedLayoutUnchanged() throws IOException {
+        // 与原来StringBuilder拼接的输出逐字节一致
+        assertEquals(SAMPLE_INDENTED, ParamNodeUtils.paramNodeDTO2Xml(sampleTree()));
+        Charset gbk = Charset.forName("GBK");
+        assertArrayEquals(SAMPLE_INDENTED.getBytes(gbk), write(sampleTree(), gbk, true));
+    }
+
+    @Test
+    public void testDeepIndent() throws IOException {
+        // 缩进超过一次写入的空白长度
+        ParamTreeNode node = leaf("L10", "v");
+        for (int level = 9; level >= 0; level--) {
+            node = element("L" + level, ParamType.OBJECT, null, node);
+        }
+        String xml = new String(write(node, StandardCharsets.UTF_8, true), StandardCharsets.UTF_8);
+        StringBuilder indent = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            indent.append(' ');
+        }
+        assertEquals(true, xml.contains("\n" + indent + "<L10>v</L10>\n"));
+    }
+
+    @Test
+    public void testCompactLayout() throws IOException {
+        String compact = new String(write(sampleTree(), StandardCharsets.UTF_8, false), StandardCharsets.UTF_8);
+
+        assertEquals(SAMPLE_INDENTED.replaceAll("\n *", ""), compact);
+        assertEquals("<Request version=\"1.0\"><Head><TradeCode>PAT202</TradeCode><Empty/></Head>",
+                compact.substring(0, compact.indexOf("<Patient>")));
+    }
+
+    private static ParamTreeNode leaf(String key, ParamType type, Object value) {
+        return ParamTreeNode.builder().paramKey(key).paramValue(value).paramType(type).build();
+    }
+
+    @Test
+    public void testValuesEscapedByDefault() throws IOException {
+        ParamTreeNode node = element("Request", ParamType.OBJECT, Arrays.asList(leaf("remark", "\"甲\" & <乙>")),
+                leaf("Result", "<5 mmol/L & \"偏低\""),
+                leaf("Message", "<![CDATA[x]]>"));
+        String xml = new String(write(node, StandardCharsets.UTF_8, false), StandardCharsets.UTF_8);
+
+        assertEquals("<Request remark=\"&quot;甲&quot; &amp; &lt;乙&gt;\">"
+                + "<Result>&lt;5 mmol/L &amp; \"偏低\"</Result>"
+                + "<Message>&lt;![CDATA[x]]&gt;</Message></Request>", xml);
+        assertEquals(xml, ParamNodeUtils.paramNodeDTO2Xml(node).replaceAll("\n *", ""));
+        // 转义后解析回来与原值一致
+        Map<String, Object> parsed = XmlUtils.xmlToMap(xml);
+        assertEquals("\"甲\" & <乙>", parsed.get("remark"));
+        assertEquals("<5 mmol/L & \"偏低\"", parsed.get("Result"));
+        assertEquals("<![CDATA[x]]>", parsed.get("Message"));
+    }
+
+    @Test
+    public void testXmlAndCDataParams() throws IOException {
+        // XML类型的参数原样发送片段,CDATA类型的参数放在CDATA段中,其余参数照常转义
+        ParamTreeNode node = element("Request", ParamType.OBJECT, null,
+                leaf("Fragment", ParamType.XML, "<Name>李四</Name>"),
+                leaf("Message", ParamType.CDATA, "<Patient><Name>张三</Name></Patient>"),
+                leaf("Nested", ParamType.CDATA, "a]]>b"),
+                leaf("Remark", "a&b"));
+        String expected = "<Request><Fragment><Name>李四</Name></Fragment>"
+                + "<Message><![CDATA[<Patient><Name>张三</Name></Patient>]]></Message>"
+                + "<Nested><![CDATA[a]]]]><![CDATA[>b]]></Nested>"
+                + "<Remark>a&amp;b</Remark></Request>";
+
+        String xml = new String(write(node, StandardCharsets.UTF_8, false), StandardCharsets.UTF_8);
+        assertEquals(expected, xml);
+        assertEquals(expected, ParamNodeUtils.paramNodeDTO2Xml(node).replaceAll("\n *", ""));
+        assertTrue(ParamNodeUtils.paramNodeDTO2Xml(node).startsWith("<Request>\n    <Fragment><Name>李四</Name></Fragment>\n"));
+        assertEquals("a]]>b", XmlUtils.xmlToMap(xml).get("Nested"));
+    }
 }
@@ -0,0 +1,93 @@
+package com.helianhealth.agent.utils;
+
+import com.helianhealth.agent.model.dto.ExpressionStatsDTO;
+import org.junit.Test;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SpelExpressionCacheTest {
+
+    @Test
+    public void testCachedExpressionStats() {
+        SpelExpressionCache cache = new SpelExpressionCache(16);
+        Map<String, Object> data = new HashMap<>();
+        data.put("age", 25);
+
+        for (int i = 0; i < 3; i++) {
+            StandardEvaluationContext context = new StandardEvaluationContext();
+            context.setVariable("data", data);
+            assertEquals(true, cache.getValue("#data[age] > 18", context));
+        }
+
+        List<ExpressionStatsDTO> stats = cache.stats();
+        assertEquals(1, stats.size());
+        assertEquals(2, stats.get(0).getHits());
+        assertEquals(3, stats.get(0).getEvaluations());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        SpelExpressionCache cache = new SpelExpressionCache(4);
+        for (int i = 0; i < 10; i++) {
+            cache.getValue(i + " + 1", new StandardEvaluationContext());
+        }
+        assertTrue(cache.size() <= 4);
+        assertEquals(6, cache.getEvictions());
+    }
+
+    @Test
+    public void testNewExpressionsNotThrashed() {
+        SpelExpressionCache cache = new SpelExpressionCache(16);
+        for (int i = 0; i < 16; i++) {
+            cache.getValue(i + " + 1", new StandardEvaluationContext());
+            cache.getValue(i + " + 1", new StandardEvaluationContext());
+        }
+        long misses = cache.getMisses();
+
+        // 缓存已满时交替使用两个新表达式,不会每次都淘汰刚加入的表达式
+        for (int i = 0; i < 20; i++) {
+            cache.getValue("100 + 1", new StandardEvaluationContext());
+            cache.getValue("200 + 1", new StandardEvaluationContext());
+        }
+        assertTrue(cache.getMisses() - misses < 10);
+        assertTrue(cache.size() <= 16);
+    }
+
+    @Test
+    public void testFrequentExpressionsSurviveScan() {
+        SpelExpressionCache cache = new SpelExpressionCache(16);
+        for (int i = 0; i < 12; i++) {
+            cache.getValue("'cold' + " + i, new StandardEvaluationContext());
+        }
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 4; j++) {
+                cache.getValue("'hot' + " + j, new StandardEvaluationContext());
+            }
+        }
+        for (int i = 0; i < 100; i++) {
+            cache.getValue(i + " + 1", new StandardEvaluationContext());
+        }
+        long misses = cache.getMisses();
+
+        for (int j = 0; j < 4; j++) {
+            cache.getValue("'hot' + " + j, new StandardEvaluationContext());
+        }
+        assertEquals(misses, cache.getMisses());
+    }
+
+    @Test
+    public void testMapAccessorExpression() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("idCard", null);
+        data.put("phone", "138");
+        Object result = ExpressionMapperUtils.parser("#data.idCard == null ? #data.phone + 'hl' : #data.idCard", data, null);
+        assertEquals("138hl", result);
+    }
+}
@@ -0,0 +1,145 @@
+package com.helianhealth.agent.utils;
+
+import org.junit.Test;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class XmlPathSelectorTest {
+
+    private static final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+
+    private static final String DOCUMENT = "<s:Envelope xmlns:s=\"http://schemas.xmlsoap.org/soap/envelope/\""
+            + " xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">"
+            + "<s:Body><Response>"
+            + "<group><item code=\"A1\">血常规</item></group>"
+            + "<group><item>尿常规</item><item code=\"B2\" xsi:type=\"lab\">肝功能</item></group>"
+            + "<patient><name> 张三 <alias>三儿</alias></name><id extension=\"001\"/><id extension=\"002\"/></patient>"
+            + "</Response></s:Body></s:Envelope>";
+
+    private static Map<String, String> select(String xml, String... expressions) throws XMLStreamException {
+        List<XmlPathSelector> selectors = new ArrayList<>();
+        for (String expression : expressions) {
+            selectors.add(XmlPathSelector.compile(expression));
+        }
+        XMLStreamReader reader = inputFactory.createXMLStreamReader(new StringReader(xml));
+        try {
+            return XmlPathSelector.select(reader, selectors);
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testPositionPredicatesOnSiblings() throws XMLStreamException {
+        Map<String, String> values = select(DOCUMENT,
+                "/Envelope/Body/Response/group[2]/item[1]",
+                "/Envelope/Body/Response/patient/id[2]/@extension",
+                "/Envelope/Body/Response/group/item[2]",
+                "/Envelope/Body/Response/group[1]/item[2]");
+
+        assertEquals("尿常规", values.get("/Envelope/Body/Response/group[2]/item[1]"));
+        assertEquals("002", values.get("/Envelope/Body/Response/patient/id[2]/@extension"));
+        // 位置在每个父元素下重新计数,第一个group只有一个item
+        assertEquals("肝功能", values.get("/Envelope/Body/Response/group/item[2]"));
+        // 没有匹配的选择器不出现在结果中
+        assertFalse(values.containsKey("/Envelope/Body/Response/group[1]/item[2]"));
+        assertEquals(3, values.size());
+    }
+
+    @Test
+    public void testWildcards() throws XMLStreamException {
+        Map<String, String> values = select(DOCUMENT,
+                "/*/*/Response/*[2]/item[2]",
+                "/Envelope/Body/Response/*[3]/*[1]/alias",
+                "/*/Body/*/*/item");
+
+        assertEquals("肝功能", values.get("/*/*/Response/*[2]/item[2]"));
+        assertEquals("三儿", values.get("/Envelope/Body/Response/*[3]/*[1]/alias"));
+        assertEquals("血常规", values.get("/*/Body/*/*/item"));
+    }
+
+    @Test
+    public void testAttributes() throws XMLStreamException {
+        Map<String, String> values = select(DOCUMENT,
+                "/Envelope/Body/Response/group/item/@code",
+                "/Envelope/Body/Response/group[2]/item/@code",
+                "/Envelope/Body/Response/group/item/@type",
+                "/Envelope/Body/Response/group/item/@xsi:type",
+                "/Envelope/Body/Response/group/item/@s:type",
+                "/Envelope/Body/Response/group[2]/item[1]/@code");
+
+        assertEquals("A1", values.get("/Envelope/Body/Response/group/item/@code"));
+        // 第一个item没有该属性时继续查找下一个
+        assertEquals("B2", values.get("/Envelope/Body/Response/group[2]/item/@code"));
+        assertEquals("lab", values.get("/Envelope/Body/Response/group/item/@type"));
+        assertEquals("lab", values.get("/Envelope/Body/Response/group/item/@xsi:type"));
+        assertFalse(values.containsKey("/Envelope/Body/Response/group/item/@s:type"));
+        assertFalse(values.containsKey("/Envelope/Body/Response/group[2]/item[1]/@code"));
+    }
+
+    @Test
+    public void testPrefixedNames() throws XMLStreamException {
+        Map<String, String> values = select(DOCUMENT,
+                "/s:Envelope/s:Body/Response/group/item",
+                "/soap:Envelope/soap:Body/Response/group/item",
+                "/Envelope/s:Body/s:Response/group/item");
+
+        assertEquals("血常规", values.get("/s:Envelope/s:Body/Response/group/item"));
+        // 带前缀时按文档中的前缀比较
+        assertFalse(values.containsKey("/soap:Envelope/soap:Body/Response/group/item"));
+        assertFalse(values.containsKey("/Envelope/s:Body/s:Response/group/item"));
+    }
+
+    @Test
+    public void testElementAndDirectText() throws XMLStreamException {
+        Map<String, String> values = select("<r><a><b/></a><a>  第一段<b>子元素</b>第二段 </a></r>",
+                "/r/a", "/r/a/text()", "/r/a/b");
+
+        assertEquals("", values.get("/r/a"));
+        // text()跳过没有文本的元素,只取元素自身的文本
+        assertEquals("第一段第二段", values.get("/r/a/text()"));
+        assertEquals("", values.get("/r/a/b"));
+        assertEquals("张三 三儿", select(DOCUMENT, "/Envelope/Body/Response/patient/name")
+                .get("/Envelope/Body/Response/patient/name"));
+    }
+
+    @Test
+    public void testStopsWhenAllSelected() throws XMLStreamException {
+        // 选中后不再读取剩余内容,后面不合法的部分不会被解析
+        String xml = "<r><a>1</a><b x=\"2\"/><broken></r>";
+        XMLStreamReader reader = inputFactory.createXMLStreamReader(new StringReader(xml));
+        List<XmlPathSelector> selectors = new ArrayList<>();
+        selectors.add(XmlPathSelector.compile("/r/a"));
+        selectors.add(XmlPathSelector.compile("/r/b/@x"));
+
+        Map<String, String> values = XmlPathSelector.select(reader, selectors);
+        assertEquals("1", values.get("/r/a"));
+        assertEquals("2", values.get("/r/b/@x"));
+        assertTrue(reader.hasNext());
+        reader.close();
+
+        // 有选择器未选中时读到文档结束
+        assertThrows(XMLStreamException.class, () -> select(xml, "/r/a", "/r/c"));
+    }
+
+    @Test
+    public void testUnsupportedExpressions() {
+        String[] invalid = {null, "", "r/a", "//a", "/", "/@a", "/r/a[0]", "/r/a[last()]", "/r/a[@id='1']",
+                "/r/a[1", "/r//a", "/r/@a b", "/r/a|/r/b"};
+        for (String expression : invalid) {
+            assertThrows(IllegalArgumentException.class, () -> XmlPathSelector.compile(expression), expression);
+        }
+        assertEquals("/r/a[ 2 ]/@b", XmlPathSelector.compile("/r/a[ 2 ]/@b").getExpression());
+    }
+}
@@ -0,0 +1,248 @@
+package com.helianhealth.agent.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 流式解析转换为Map的规则,不依赖Spring上下文
+ */
+public class XmlUtilsParseTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRepeatedTagsBecomeList() {
+        Map<String, Object> result = XmlUtils.xmlToMap("<person><phone>13800138000</phone>"
+                + "<phone>13900139000</phone><phone>13700137000</phone>"
+                + "<item><code>1</code></item><item><code>2</code></item></person>");
+
+        // 列表中的元素不折叠,保留#text
+        List<Object> phones = (List<Object>) result.get("phone");
+        assertEquals(3, phones.size());
+        assertEquals(Collections.singletonMap("#text", "13800138000"), phones.get(0));
+        assertEquals(Collections.singletonMap("#text", "13700137000"), phones.get(2));
+        List<Object> items = (List<Object>) result.get("item");
+        assertEquals(Arrays.asList(Collections.singletonMap("code", "1"), Collections.singletonMap("code", "2")), items);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testTextOnlyChildCollapsed() {
+        Map<String, Object> result = XmlUtils.xmlToMap("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<person>\n    <name> 张三 </name>\n    <age>30</age>\n"
+                + "    <address type=\"home\"><street>长安街1号</street><city>北京</city></address>\n"
+                + "    <empty/>\n</person>");
+
+        assertEquals("张三", result.get("name"));
+        assertEquals("30", result.get("age"));
+        Map<String, Object> address = (Map<String, Object>) result.get("address");
+        assertEquals("home", address.get("type"));
+        assertEquals("长安街1号", address.get("street"));
+        assertEquals("北京", address.get("city"));
+        assertEquals(Collections.emptyMap(), result.get("empty"));
+        // 空白文本不作为#text
+        assertEquals(Arrays.asList("name", "age", "address", "empty"), new ArrayList<>(result.keySet()));
+    }
+
+    @Test
+    public void testTextOnlyRootKeepsTextKey() {
+        assertEquals(Collections.singletonMap("#text", "张三"), XmlUtils.xmlToMap("<name>张三</name>"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testTextWithAttributesNotCollapsed() {
+        Map<String, Object> result = XmlUtils.xmlToMap("<root><name lang=\"zh\">张三</name></root>");
+
+        Map<String, Object> name = (Map<String, Object>) result.get("name");
+        assertEquals("zh", name.get("lang"));
+        assertEquals("张三", name.get("#text"));
+    }
+
+    @Test
+    public void testAttributesSortedByName() {
+        Map<String, Object> result = XmlUtils.xmlToMap("<s:root xmlns:s=\"http://s\" xmlns=\"http://d\" "
+                + "type=\"test\" id=\"123\" s:code=\"A\"><s:name>test</s:name></s:root>");
+
+        // 命名空间声明与属性一起按名称排序,子元素按文档顺序排在属性之后
+        assertEquals(Arrays.asList("id", "s:code", "type", "xmlns", "xmlns:s", "s:name"), new ArrayList<>(result.keySet()));
+        assertEquals("123", result.get("id"));
+        assertEquals("A", result.get("s:code"));
+        assertEquals("http://d", result.get("xmlns"));
+        assertEquals("http://s", result.get("xmlns:s"));
+        assertEquals("test", result.get("s:name"));
+    }
+
+    @Test
+    public void testCdataMergedWithAdjacentText() {
+        Map<String, Object> result = XmlUtils.xmlToMap("<root><a> 前缀<![CDATA[<b>不解析</b>]]>后缀 </a>"
+                + "<c><![CDATA[  ]]></c><d>&lt;转义&amp;文本&gt;</d></root>");
+
+        assertEquals("前缀<b>不解析</b>后缀", result.get("a"));
+        assertEquals(Collections.emptyMap(), result.get("c"));
+        assertEquals("<转义&文本>", result.get("d"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testMixedContentKeepsLastText() {
+        Map<String, Object> result = XmlUtils.xmlToMap("<root><a>第一段<b>子元素</b>第二段</a>"
+                + "<c>注释前<!-- 注释 -->注释后</c></root>");
+
+        Map<String, Object> a = (Map<String, Object>) result.get("a");
+        assertEquals("第二段", a.get("#text"));
+        assertEquals("子元素", a.get("b"));
+        // 注释分隔文本节点
+        assertEquals("注释后", result.get("c"));
+    }
+
+    @Test
+    public void testNoRootElementRejected() {
+        assertThrows(RuntimeException.class, () -> XmlUtils.xmlToMap("<?xml version=\"1.0\"?>"));
+        assertThrows(RuntimeException.class, () -> XmlUtils.xmlToMap("<root><a></root>"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testParseResponseXml() {
+        Map<String, Object> result = XmlUtils.parseResponseXml(XmlUtilsTest.SOAP_RESPONSE, null);
+
+        // 结果为CDATA中业务XML根元素的内容
+        Map<String, Object> head = (Map<String, Object>) result.get("Head");
+        assertEquals("7435514", head.get("HipSessionId"));
+        assertEquals("TJ", head.get("SystemCode"));
+        assertEquals("PAT202", head.get("TradeCode"));
+        assertEquals("AE", head.get("TradeStatus"));
+        assertEquals("2025-09-05 10:03:22", head.get("TradeTime"));
+        String tradeMessage = (String) head.get("TradeMessage");
+        assertTrue(tradeMessage.contains("建立患者档案参数校验失败"));
+        assertTrue(tradeMessage.contains("申请日期不能为空"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testParseResponseXmlWithNamespace() {
+        String metaInfo = "{\"responseNamespace\":\"http://herenit.com\",\"resultElementName\":\"MessageInResult\"}";
+        Map<String, Object> result = XmlUtils.parseResponseXml(XmlUtilsTest.SOAP_RESPONSE, metaInfo);
+        assertEquals("TJ", ((Map<String, Object>) result.get("Head")).get("SystemCode"));
+
+        // 结果元素为空时返回空Map,找不到结果元素时报错
+        String empty = "<Envelope><MessageInResult>  </MessageInResult></Envelope>";
+        assertEquals(Collections.emptyMap(), XmlUtils.parseResponseXml(empty, null));
+        assertThrows(RuntimeException.class, () -> XmlUtils.parseResponseXml(empty,
+                "{\"responseNamespace\":\"http://other.com\"}"));
+    }
+
+    private static final String CDATA_META = "{\"useCdata\":true,\"requestElementName\":\"message\"}";
+    private static final String JSON_META = "{\"useCdata\":true,\"requestElementName\":\"message\",\"requestType\":\"json\"}";
+
+    private static String request(String content) {
+        return "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\" xmlns:tns=\"http://herenit.com\">"
+                + "<soap:Body><tns:MessageIn><message>" + content + "</message></tns:MessageIn></soap:Body></soap:Envelope>";
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCdataXmlPayload() {
+        Map<String, Object> result = XmlUtils.parseRequestXml(request("\n  <![CDATA[<?xml version=\"1.0\"?>"
+                + "<Request><PatientName>张三</PatientName><Item>血常规</Item><Item>肝功能</Item></Request>]]>\n"), CDATA_META);
+
+        assertEquals("张三", result.get("PatientName"));
+        assertEquals(2, ((List<Object>) result.get("Item")).size());
+    }
+
+    @Test
+    public void testEscapedXmlPayload() {
+        Map<String, Object> result = XmlUtils.parseRequestXml(
+                request("&lt;Request&gt;&lt;PatientName&gt;张三&lt;/PatientName&gt;&lt;/Request&gt;"), CDATA_META);
+
+        assertEquals(Collections.singletonMap("PatientName", "张三"), result);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testJsonPayload() {
+        Map<String, Object> cdata = XmlUtils.parseRequestXml(
+                request("<![CDATA[ {\"patientName\":\"张三\",\"items\":[\"血常规\"]} ]]>"), JSON_META);
+        Map<String, Object> escaped = XmlUtils.parseRequestXml(
+                request("{&quot;patientName&quot;:&quot;张三&quot;,&quot;items&quot;:[&quot;血常规&quot;]}"), JSON_META);
+
+        assertEquals("张三", cdata.get("patientName"));
+        assertEquals(Collections.singletonList("血常规"), cdata.get("items"));
+        assertEquals(cdata, escaped);
+    }
+
+    @Test
+    public void testTextThatIsNotPayload() {
+        // 第一个字符像报文开始,但不是开始标签或JSON对象
+        assertEquals(Collections.singletonMap("#text", "<5 mmol/L"),
+                XmlUtils.parseRequestXml(request("&lt;5 mmol/L"), CDATA_META));
+        assertEquals(Collections.singletonMap("#text", "{血常规}"),
+                XmlUtils.parseRequestXml(request("{血常规}"), JSON_META));
+        // XML模式下JSON文本不是业务报文
+        assertEquals(Collections.singletonMap("#text", "{\"a\":1}"),
+                XmlUtils.parseRequestXml(request("{\"a\":1}"), CDATA_META));
+    }
+
+    @Test
+    public void testIncompletePayloadReadAsText() {
+        // 开头是合法的开始标签,但整体不是一个完整的报文
+        assertEquals(Collections.singletonMap("#text", "<b>加急</b>请尽快处理"),
+                XmlUtils.parseRequestXml(request("<![CDATA[<b>加急</b>请尽快处理]]>"), CDATA_META));
+        assertEquals(Collections.singletonMap("#text", "<a>未闭合"),
+                XmlUtils.parseRequestXml(request("<![CDATA[<a>未闭合]]>"), CDATA_META));
+        assertEquals(Collections.singletonMap("#text", "{\"a\":1} 其他"),
+                XmlUtils.parseRequestXml(request("<![CDATA[{\"a\":1} 其他]]>"), JSON_META));
+    }
+
+    @Test
+    public void testLargePayloadReadAsText() {
+        // 超过一次读取的缓冲区后才发现不是完整报文
+        StringBuilder text = new StringBuilder("<Items>");
+        for (int i = 0; i < 5000; i++) {
+            text.append("<Item>").append(i).append("</Item>");
+        }
+        text.append("</Items>尾部文本");
+        assertEquals(Collections.singletonMap("#text", text.toString()),
+                XmlUtils.parseRequestXml(request("<![CDATA[" + text + "]]>"), CDATA_META));
+    }
+
+    @Test
+    public void testMalformedEnvelopeRejected() {
+        String malformed = "<Envelope><message><![CDATA[<Request><a>1</a></Request>]]></Envelope>";
+        assertThrows(RuntimeException.class, () -> XmlUtils.parseRequestXml(malformed, CDATA_META));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testChildElementsAndWholeDocument() {
+        Map<String, Object> children = XmlUtils.parseRequestXml(
+                request("<PatientName>张三</PatientName><Age>30</Age>"), CDATA_META);
+        assertEquals("张三", children.get("PatientName"));
+        assertEquals("30", children.get("Age"));
+
+        // 未配置useCdata时解析整个文档
+        Map<String, Object> document = XmlUtils.parseRequestXml(request("张三"), null);
+        Map<String, Object> body = (Map<String, Object>) document.get("soap:Body");
+        assertEquals("张三", ((Map<String, Object>) body.get("tns:MessageIn")).get("message"));
+    }
+
+    @Test
+    public void testStreamWithDeclaredEncoding() {
+        Charset gbk = Charset.forName("GBK");
+        byte[] body = request("<![CDATA[<Request><PatientName>张三</PatientName></Request>]]>").getBytes(gbk);
+
+        Map<String, Object> result = XmlUtils.parseRequestXml(new ByteArrayInputStream(body), "GBK", CDATA_META);
+        assertEquals(Collections.singletonMap("PatientName", "张三"), result);
+    }
+}
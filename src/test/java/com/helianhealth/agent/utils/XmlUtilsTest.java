@@ -69,44 +69,38 @@ public class XmlUtilsTest {
         assertEquals("test", nameMap.get("#text"));
     }
 
+    static final String SOAP_RESPONSE = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+            + "<SOAP-ENV:Envelope xmlns:SOAP-ENV='http://schemas.xmlsoap.org/soap/envelope/' xmlns:xsi='http://www.w3.org/2001/XMLSchema-instance' xmlns:s='http://www.w3.org/2001/XMLSchema'>\n"
+            + "    <SOAP-ENV:Body>\n"
+            + "        <MessageInResponse xmlns=\"http://herenit.com\">\n"
+            + "            <MessageInResult>\n"
+            + "                <![CDATA[<HrResponse><Head><HipSessionId>7435514</HipSessionId><SystemCode>TJ</SystemCode><TradeCode>PAT202</TradeCode><TradeMessage>{\"message\":\"建立患者档案参数校验失败\",\"errorList\":[{\"beanClass\":\"com.heren.his.bill.core.entity.patient.PatMasterIndex\",\"field\":\"regDate\",\"message\":\"申请日期不能为空\"}]}</TradeMessage><TradeStatus>AE</TradeStatus><TradeTime>2025-09-05 10:03:22</TradeTime></Head></HrResponse>]]>\n"
+            + "            </MessageInResult>\n"
+            + "        </MessageInResponse>\n"
+            + "    </SOAP-ENV:Body>\n"
+            + "</SOAP-ENV:Envelope>";
+
     @Test
     public void testParseResponseXml() {
-        // 准备测试XML数据
-//        StringBuilder soapMessage = new StringBuilder();
-//        soapMessage.append("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n");
-//        soapMessage.append("<SOAP-ENV:Envelope xmlns:SOAP-ENV='http://schemas.xmlsoap.org/soap/envelope/' xmlns:xsi='http://www.w3.org/2001/XMLSchema-instance' xmlns:s='http://www.w3.org/2001/XMLSchema'>\n");
-//        soapMessage.append("    <SOAP-ENV:Body>\n");
-//        soapMessage.append("        <MessageInResponse xmlns=\"http://herenit.com\">\n");
-//        soapMessage.append("            <MessageInResult>\n");
-//        soapMessage.append("                <![CDATA[<HrResponse><Head><HipSessionId>7435514</HipSessionId><SystemCode>TJ</SystemCode><TradeCode>PAT202</TradeCode><TradeMessage>{\"message\":\"建立患者档案参数校验失败\",\"errorList\":[{\"beanClass\":\"com.heren.his.bill.core.entity.patient.PatMasterIndex\",\"field\":\"regDate\",\"message\":\"申请日期不能为空\"}]}</TradeMessage><TradeStatus>AE</TradeStatus><TradeTime>2025-09-05 10:03:22</TradeTime></Head></HrResponse>]]>\n");
-//        soapMessage.append("            </MessageInResult>\n");
-//        soapMessage.append("        </MessageInResponse>\n");
-//        soapMessage.append("    </SOAP-ENV:Body>\n");
-//        soapMessage.append("</SOAP-ENV:Envelope>");
-//
-//        // 执行解析
-//        Map<String, Object> result = XmlUtils.parseResponseXml(soapMessage.toString());
-//
-//        // 验证结果
-//        System.out.println(JsonUtils.toJsonString(result));
+        // 执行解析
+        Map<String, Object> result = XmlUtils.parseResponseXml(SOAP_RESPONSE, null);
 
-//        // 验证CDATA内容是否正确解析为JSON
-//        Map<String, Object> hrResponse = (Map<String, Object>) result.get("HrResponse");
-//        assertNotNull(hrResponse);
-//
-//        Map<String, Object> head = (Map<String, Object>) hrResponse.get("Head");
-//        assertNotNull(head);
-//
-//        assertEquals("7435514", head.get("HipSessionId"));
-//        assertEquals("TJ", head.get("SystemCode"));
-//        assertEquals("PAT202", head.get("TradeCode"));
-//        assertEquals("AE", head.get("TradeStatus"));
-//        assertEquals("2025-09-05 10:03:22", head.get("TradeTime"));
-//
-//        // 验证TradeMessage中的JSON内容
-//        String tradeMessage = (String) head.get("TradeMessage");
-//        assertNotNull(tradeMessage);
-//        assertTrue(tradeMessage.contains("建立患者档案参数校验失败"));
-//        assertTrue(tradeMessage.contains("申请日期不能为空"));
+        // 验证CDATA内容是否正确解析,结果为业务XML根元素HrResponse的内容
+        assertNotNull(result);
+
+        Map<String, Object> head = (Map<String, Object>) result.get("Head");
+        assertNotNull(head);
+
+        assertEquals("7435514", head.get("HipSessionId"));
+        assertEquals("TJ", head.get("SystemCode"));
+        assertEquals("PAT202", head.get("TradeCode"));
+        assertEquals("AE", head.get("TradeStatus"));
+        assertEquals("2025-09-05 10:03:22", head.get("TradeTime"));
+
+        // 验证TradeMessage中的JSON内容
+        String tradeMessage = (String) head.get("TradeMessage");
+        assertNotNull(tradeMessage);
+        assertTrue(tradeMessage.contains("建立患者档案参数校验失败"));
+        assertTrue(tradeMessage.contains("申请日期不能为空"));
     }
 }